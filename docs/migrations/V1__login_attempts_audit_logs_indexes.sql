@@ -0,0 +1,30 @@
+-- login_attempts / audit_logs の複合インデックス
+-- エンティティ（LoginAttempt / AuditLog）の @Index と同じ定義。
+-- ddl-auto=update でも起動時に作成されるが、大きなテーブルでは起動前にこのスクリプトで作成しておく
+-- （ddl-auto=validate / none で運用する場合も同様）。
+-- PostgreSQL で稼働中に適用する場合は CREATE INDEX CONCURRENTLY を使い、トランザクションの外で1文ずつ実行する。
+
+-- login_attempts
+-- countDistinctIpAddresses / findDistinctCountryCodes / aggregateForRiskAssessment
+CREATE INDEX IF NOT EXISTS idx_login_attempts_user_time
+    ON login_attempts (username, attempted_at);
+-- countFailedAttempts / findFailedAttemptTimes / findTopByUsernameAndSuccessfulTrueOrderByAttemptedAtDesc
+CREATE INDEX IF NOT EXISTS idx_login_attempts_user_success_time
+    ON login_attempts (username, successful, attempted_at);
+-- findByIpAddressAndAttemptedAtAfter
+CREATE INDEX IF NOT EXISTS idx_login_attempts_ip_time
+    ON login_attempts (ip_address, attempted_at);
+
+-- audit_logs
+-- findSuspiciousActivitiesByIp（V3 で列順を変えたインデックスに置き換える）
+CREATE INDEX IF NOT EXISTS idx_audit_logs_ip_time_type
+    ON audit_logs (ip_address, created_at, event_type);
+-- findFailedLoginAttempts / findByUsername
+CREATE INDEX IF NOT EXISTS idx_audit_logs_user_type_time
+    ON audit_logs (username, event_type, created_at);
+-- countFailedLoginsByIp / countFailedLoginsByUsername / findByEventType
+CREATE INDEX IF NOT EXISTS idx_audit_logs_type_time
+    ON audit_logs (event_type, created_at);
+-- findByDateRange
+CREATE INDEX IF NOT EXISTS idx_audit_logs_created_at
+    ON audit_logs (created_at);
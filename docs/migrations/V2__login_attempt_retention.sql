@@ -0,0 +1,24 @@
+-- ログイン試行の保持期間管理（LoginAttemptRetentionService）
+-- 日次集計テーブルと、保持期間を過ぎた試行の削除用インデックス。
+-- エンティティ（LoginAttemptDailyRollup / LoginAttempt）の定義と同じ。
+
+CREATE SEQUENCE IF NOT EXISTS login_attempt_daily_rollups_seq START WITH 1 INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS login_attempt_daily_rollups (
+    id BIGINT PRIMARY KEY,  -- login_attempt_daily_rollups_seq から採番
+    username VARCHAR(255) NOT NULL,
+    rollup_date DATE NOT NULL,
+    attempt_count BIGINT NOT NULL,
+    failure_count BIGINT NOT NULL,
+    distinct_ip_count BIGINT NOT NULL,
+    country_codes VARCHAR(255),  -- カンマ区切り
+    last_attempt_at TIMESTAMP NOT NULL,
+    last_success_at TIMESTAMP,
+    CONSTRAINT uk_login_attempt_rollup_user_date UNIQUE (username, rollup_date)
+);
+CREATE INDEX IF NOT EXISTS idx_login_attempt_rollup_date
+    ON login_attempt_daily_rollups (rollup_date);
+
+-- 保持期間を過ぎた試行の分割削除・日次集計
+CREATE INDEX IF NOT EXISTS idx_login_attempts_attempted_at
+    ON login_attempts (attempted_at);
@@ -0,0 +1,10 @@
+-- audit_logs の IPアドレス用インデックスの列順の変更
+-- findSuspiciousActivitiesByIp は ip_address と event_type が等価条件、created_at が範囲条件のため、
+-- 範囲条件の列を最後に置く。エンティティ（AuditLog）の @Index と同じ定義。
+-- ddl-auto=update は新しいインデックスを作成するが、古いインデックスは削除しない。
+-- PostgreSQL で稼働中に適用する場合は CREATE INDEX CONCURRENTLY / DROP INDEX CONCURRENTLY を使い、
+-- トランザクションの外で1文ずつ実行する。
+
+CREATE INDEX IF NOT EXISTS idx_audit_logs_ip_type_time
+    ON audit_logs (ip_address, event_type, created_at);
+DROP INDEX IF EXISTS idx_audit_logs_ip_time_type;
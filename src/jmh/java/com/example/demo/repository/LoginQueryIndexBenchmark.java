@@ -0,0 +1,180 @@
+package com.example.demo.repository;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * login_attempts / audit_logs のインデックスのベンチマーク（H2インメモリ）
+ * 数百万件のログイン試行・監査ログを投入し、ログインのたびに実行する検索の時間を
+ * インデックスなし（indexed=false）とあり（indexed=true）で比較する
+ *
+ * SQLは LoginAttemptRepository / AuditLogRepository のJPQLからHibernateが生成するものと同等。
+ * インデックスは docs/migrations/V1__login_attempts_audit_logs_indexes.sql と同じ定義。
+ *
+ * 実行: gradle jmh （件数は -p rows=5000000 などで変更）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@State(Scope.Benchmark)
+public class LoginQueryIndexBenchmark {
+
+    // ユーザー数・IPアドレス数（試行はこの中に均等に分散させる）
+    private static final int USERS = 10_000;
+    private static final int IP_ADDRESSES = 50_000;
+
+    // 投入するデータの期間（秒）と、検索の時間窓
+    private static final int HISTORY_SECONDS = 30 * 24 * 3600;
+    private static final int WINDOW_HOURS = 24;
+
+    private static final String[] INDEXES = {
+        "CREATE INDEX idx_login_attempts_user_time ON login_attempts (username, attempted_at)",
+        "CREATE INDEX idx_login_attempts_user_success_time ON login_attempts (username, successful, attempted_at)",
+        "CREATE INDEX idx_login_attempts_ip_time ON login_attempts (ip_address, attempted_at)",
+        "CREATE INDEX idx_audit_logs_ip_type_time ON audit_logs (ip_address, event_type, created_at)",
+        "CREATE INDEX idx_audit_logs_user_type_time ON audit_logs (username, event_type, created_at)",
+        "CREATE INDEX idx_audit_logs_type_time ON audit_logs (event_type, created_at)",
+        "CREATE INDEX idx_audit_logs_created_at ON audit_logs (created_at)"
+    };
+
+    @Param({"false", "true"})
+    public boolean indexed;
+
+    @Param({"2000000"})
+    public int rows;
+
+    private Connection connection;
+    private PreparedStatement countFailedAttempts;
+    private PreparedStatement countDistinctIpAddresses;
+    private PreparedStatement findSuspiciousActivitiesByIp;
+    private Timestamp windowStart;
+    private int sequence;
+
+    @Setup
+    public void setUp() throws SQLException, ClassNotFoundException {
+        // JMHのjarでは他のJDBCドライバとサービス定義が重なるため明示的に登録する
+        Class.forName("org.h2.Driver");
+        connection = DriverManager.getConnection("jdbc:h2:mem:login-query-" + indexed + ";DB_CLOSE_DELAY=-1");
+        LocalDateTime now = LocalDateTime.now();
+        Timestamp base = Timestamp.valueOf(now);
+        windowStart = Timestamp.valueOf(now.minusHours(WINDOW_HOURS));
+
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("CREATE TABLE login_attempts (" +
+                "id BIGINT AUTO_INCREMENT PRIMARY KEY, username VARCHAR(255) NOT NULL, " +
+                "ip_address VARCHAR(255) NOT NULL, user_agent VARCHAR(255), country_code VARCHAR(255), " +
+                "successful BOOLEAN NOT NULL, risk_score INT, attempted_at TIMESTAMP(6) NOT NULL)");
+            statement.execute("CREATE TABLE audit_logs (" +
+                "id BIGINT AUTO_INCREMENT PRIMARY KEY, event_type VARCHAR(255) NOT NULL, " +
+                "username VARCHAR(255), ip_address VARCHAR(255), user_agent VARCHAR(500), " +
+                "details VARCHAR(1000), success BOOLEAN, created_at TIMESTAMP(6) NOT NULL)");
+
+            // 試行日時は過去30日に分散、4件に1件を失敗とする
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO login_attempts (username, ip_address, user_agent, country_code, " +
+                    "successful, risk_score, attempted_at) " +
+                    "SELECT 'user' || MOD(X, " + USERS + "), '10.' || MOD(X, " + IP_ADDRESSES + "), " +
+                    "'Mozilla/5.0', 'JP', MOD(X, 4) <> 0, 0, " +
+                    "DATEADD(SECOND, -MOD(X * 7919, " + HISTORY_SECONDS + "), CAST(? AS TIMESTAMP(6))) " +
+                    "FROM SYSTEM_RANGE(1, CAST(? AS BIGINT))")) {
+                insert.setTimestamp(1, base);
+                insert.setInt(2, rows);
+                insert.executeUpdate();
+            }
+            try (PreparedStatement insert = connection.prepareStatement(
+                    "INSERT INTO audit_logs (event_type, username, ip_address, user_agent, details, " +
+                    "success, created_at) " +
+                    "SELECT CASEWHEN(MOD(X, 4) = 0, 'LOGIN_FAILURE', 'LOGIN_SUCCESS'), " +
+                    "'user' || MOD(X, " + USERS + "), '10.' || MOD(X, " + IP_ADDRESSES + "), " +
+                    "'Mozilla/5.0', 'details', MOD(X, 4) <> 0, " +
+                    "DATEADD(SECOND, -MOD(X * 7919, " + HISTORY_SECONDS + "), CAST(? AS TIMESTAMP(6))) " +
+                    "FROM SYSTEM_RANGE(1, CAST(? AS BIGINT))")) {
+                insert.setTimestamp(1, base);
+                insert.setInt(2, rows);
+                insert.executeUpdate();
+            }
+
+            if (indexed) {
+                for (String index : INDEXES) {
+                    statement.execute(index);
+                }
+            }
+            statement.execute("ANALYZE");
+        }
+
+        countFailedAttempts = connection.prepareStatement(
+            "SELECT COUNT(la.id) FROM login_attempts la WHERE la.username = ? " +
+            "AND la.successful = FALSE AND la.attempted_at > ?");
+        countDistinctIpAddresses = connection.prepareStatement(
+            "SELECT COUNT(DISTINCT la.ip_address) FROM login_attempts la " +
+            "WHERE la.username = ? AND la.attempted_at > ?");
+        findSuspiciousActivitiesByIp = connection.prepareStatement(
+            "SELECT a.id, a.event_type, a.username, a.ip_address, a.user_agent, a.details, a.success, a.created_at " +
+            "FROM audit_logs a WHERE a.ip_address = ? AND a.created_at >= ? " +
+            "AND (a.event_type = 'LOGIN_FAILURE' OR a.event_type = 'SUSPICIOUS_ACTIVITY')");
+    }
+
+    @TearDown
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP ALL OBJECTS");
+        }
+        connection.close();
+    }
+
+    @Benchmark
+    public long countFailedAttempts() throws SQLException {
+        countFailedAttempts.setString(1, "user" + (sequence++ % USERS));
+        countFailedAttempts.setTimestamp(2, windowStart);
+        return single(countFailedAttempts);
+    }
+
+    @Benchmark
+    public long countDistinctIpAddresses() throws SQLException {
+        countDistinctIpAddresses.setString(1, "user" + (sequence++ % USERS));
+        countDistinctIpAddresses.setTimestamp(2, windowStart);
+        return single(countDistinctIpAddresses);
+    }
+
+    @Benchmark
+    public int findSuspiciousActivitiesByIp() throws SQLException {
+        findSuspiciousActivitiesByIp.setString(1, "10." + (sequence++ % IP_ADDRESSES));
+        findSuspiciousActivitiesByIp.setTimestamp(2, windowStart);
+        int count = 0;
+        try (ResultSet resultSet = findSuspiciousActivitiesByIp.executeQuery()) {
+            while (resultSet.next()) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static long single(PreparedStatement statement) throws SQLException {
+        try (ResultSet resultSet = statement.executeQuery()) {
+            resultSet.next();
+            return resultSet.getLong(1);
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.demo.security;
+
+import com.example.demo.config.PasswordHashingConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * バックアップコード発行時のハッシュ化のベンチマーク
+ * 10個のコードを1つずつ順にハッシュ化する場合と、スレッドプールで並列にハッシュ化する場合を比較する
+ *
+ * 実行: gradle jmh （並列化の効果はCPUコア数に比例する）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BackupCodeHashingBenchmark {
+
+    private static final int BACKUP_CODE_COUNT = 10;
+
+    private PasswordHashingExecutor hashingExecutor;
+    private PasswordEncoder encoder;
+    private String[] backupCodes;
+
+    @Setup
+    public void setUp() {
+        hashingExecutor = new PasswordHashingExecutor(new PasswordHashingConfig(), new SimpleMeterRegistry());
+        encoder = PepperedPasswordEncoder.createDelegatingPasswordEncoder("defaultPepper123!@#", 10, hashingExecutor);
+        backupCodes = new String[BACKUP_CODE_COUNT];
+        for (int i = 0; i < BACKUP_CODE_COUNT; i++) {
+            backupCodes[i] = String.format("%08d", i * 9_876_543 % 100_000_000);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        hashingExecutor.shutdown();
+    }
+
+    @Benchmark
+    public List<String> sequential() {
+        List<String> hashes = new ArrayList<>(BACKUP_CODE_COUNT);
+        for (String backupCode : backupCodes) {
+            hashes.add(encoder.encode(backupCode));
+        }
+        return hashes;
+    }
+
+    @Benchmark
+    public List<String> parallel() {
+        List<Supplier<String>> tasks = new ArrayList<>(BACKUP_CODE_COUNT);
+        for (String backupCode : backupCodes) {
+            tasks.add(() -> encoder.encode(backupCode));
+        }
+        return hashingExecutor.invokeAll(tasks);
+    }
+}
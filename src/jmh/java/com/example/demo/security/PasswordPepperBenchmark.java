@@ -0,0 +1,64 @@
+package com.example.demo.security;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ペッパー適用のベンチマーク
+ * 旧実装（呼び出しごとに MessageDigest を取得し文字列を連結）とスレッドごとに使い回す実装を比較する
+ *
+ * 実行: gradle jmh （割り当て量は gc プロファイラの gc.alloc.rate.norm を参照）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PasswordPepperBenchmark {
+
+    private static final String PEPPER = "defaultPepper123!@#";
+
+    @Param({"Passw0rd!", "パスワードは長めの日本語でも問題ありません2024"})
+    private String password;
+
+    private PasswordPepper pepper;
+
+    @Setup
+    public void setUp() {
+        pepper = new PasswordPepper(PEPPER);
+    }
+
+    @Benchmark
+    public String legacy() throws NoSuchAlgorithmException {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        String peppered = password + PEPPER;
+        byte[] hash = digest.digest(peppered.getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(hash);
+    }
+
+    @Benchmark
+    public byte[] threadLocalSha256() {
+        return pepper.legacySha256(password);
+    }
+
+    @Benchmark
+    public byte[] threadLocalHmac() {
+        return pepper.hmacPassword(password);
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 監査ログ書き込みの設定
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.audit")
+@Data
+public class AuditLogConfig {
+    
+    /**
+     * 非同期書き込みを有効化（false の場合は呼び出し元スレッドで保存）
+     */
+    private boolean async = true;
+    
+    /**
+     * キューの容量
+     */
+    private int queueCapacity = 8192;
+    
+    /**
+     * 1回のバッチで書き込む最大件数
+     */
+    private int batchSize = 200;
+    
+    /**
+     * キューが空の場合の書き込み間隔
+     */
+    private Duration flushInterval = Duration.ofMillis(200);
+    
+    /**
+     * キューが満杯の場合の動作
+     */
+    private OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+    
+    /**
+     * BLOCK 時の最大待ち時間（超過した場合は破棄）
+     */
+    private Duration blockTimeout = Duration.ofMillis(100);
+    
+    /**
+     * SPILL 時の退避先ディレクトリ
+     */
+    private String spillDirectory = "./data/audit-spill";
+    
+    /**
+     * 停止時に残りを書き込む最大待ち時間
+     */
+    private Duration shutdownTimeout = Duration.ofSeconds(10);
+    
+    /**
+     * 不審なアクティビティと判定するログイン失敗回数
+     */
+    private int suspiciousThreshold = 10;
+    
+    /**
+     * 不審なアクティビティの判定時間窓
+     */
+    private Duration suspiciousWindow = Duration.ofHours(1);
+    
+    /**
+     * 不審なアクティビティの判定で保持する最大キー数（IPアドレス・ユーザー名それぞれ）
+     */
+    private int suspiciousMaxKeys = 100000;
+    
+    /**
+     * アーカイブを有効化（古い監査ログをDBから圧縮ファイルへ移す）
+     */
+    private boolean archiveEnabled = true;
+    
+    /**
+     * DBに保持する期間（過ぎたものをアーカイブへ移す）
+     */
+    private Duration archiveAfter = Duration.ofDays(90);
+    
+    /**
+     * アーカイブの保存先ディレクトリ
+     */
+    private String archiveDirectory = "./data/audit-archive";
+    
+    /**
+     * アーカイブ時に1回で読み込み・削除する件数
+     */
+    private int archiveBatchSize = 1000;
+    
+    /**
+     * 1回の実行でアーカイブするバッチ数の上限（残りは次回の実行でアーカイブ）
+     */
+    private int archiveMaxBatchesPerRun = 100;
+    
+    /**
+     * アーカイブの1ブロック（圧縮・索引の単位）の最大件数
+     */
+    private int archiveBlockSize = 256;
+    
+    /**
+     * キューが満杯の場合の動作
+     */
+    public enum OverflowPolicy {
+        /**
+         * 空きができるまで待つ
+         */
+        BLOCK,
+        
+        /**
+         * 破棄する
+         */
+        DROP,
+        
+        /**
+         * ファイルに退避し、後で書き込む
+         */
+        SPILL
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * クライアントIPアドレスの判定設定
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.security.client-ip")
+@Data
+public class ClientIpConfig {
+
+    // 信頼するリバースプロキシ（IPアドレスまたはCIDR）。
+    // 接続元がここに含まれる場合のみ X-Forwarded-For / X-Real-IP を参照する（空の場合は常に接続元を使う）
+    private List<String> trustedProxies = new ArrayList<>();
+}
@@ -1,24 +1,47 @@
 package com.example.demo.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
+import com.example.demo.security.BCryptStrengthCalibrator;
+import com.example.demo.security.PasswordHashingExecutor;
+import com.example.demo.security.PasswordPepper;
 import com.example.demo.security.PepperedPasswordEncoder;
 
+import lombok.extern.slf4j.Slf4j;
+
 /**
  * パスワードエンコーダー設定
  * ペッパー付きBCryptエンコーダーを提供
  */
 @Configuration
+@Slf4j
 public class EncoderConfig {
 
+    /**
+     * ペッパー（パスワードのほか、OTP・バックアップコードのHMACにも使用）
+     */
+    @Bean
+    public PasswordPepper passwordPepper(@Value("${app.security.pepper}") String pepper) {
+        return new PasswordPepper(pepper);
+    }
+
     @Bean
     @Primary
-    public PasswordEncoder passwordEncoder(PepperedPasswordEncoder pepperedPasswordEncoder) {
-        // PepperedPasswordEncoderを使用
-        return pepperedPasswordEncoder;
+    public PasswordEncoder passwordEncoder(PasswordPepper pepper,
+                                           PasswordHashingExecutor hashingExecutor,
+                                           PasswordHashingConfig hashingConfig) {
+        int strength = hashingConfig.getBcryptStrength();
+        if (hashingConfig.isCalibrate()) {
+            strength = BCryptStrengthCalibrator.calibrate(hashingConfig.getCalibrationTarget());
+            log.info("BCryptのコストを決定: コスト={}, 目標時間={}ms（固定する場合は app.security.hashing.bcrypt-strength に設定）",
+                strength, hashingConfig.getCalibrationTarget().toMillis());
+        }
+        // 方式・コストを接頭辞とハッシュで区別するPepperedPasswordEncoderを使用
+        return PepperedPasswordEncoder.createDelegatingPasswordEncoder(pepper, strength, hashingExecutor);
     }
 
 }
@@ -0,0 +1,36 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * 最終利用日時（最終ログイン日時・信頼済みデバイス / OAuth2連携の最終利用日時）の遅延書き込みの設定
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.last-seen")
+@Data
+public class LastSeenConfig {
+    
+    /**
+     * 遅延書き込みを有効化（false の場合は呼び出し元スレッドで更新）
+     */
+    private boolean writeBehind = true;
+    
+    /**
+     * DBへの反映の最大遅延（この間隔でまとめて書き込む）
+     */
+    private Duration maxStaleness = Duration.ofSeconds(30);
+    
+    /**
+     * 書き込み待ちの上限（超えた場合は間隔を待たずに書き込む）
+     */
+    private int maxPending = 10000;
+    
+    /**
+     * 1回のバッチで書き込む最大件数
+     */
+    private int batchSize = 500;
+}
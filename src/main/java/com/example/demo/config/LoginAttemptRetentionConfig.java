@@ -0,0 +1,31 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * ログイン試行の保持・日次集計の設定クラス
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.login-attempt.retention")
+@Data
+public class LoginAttemptRetentionConfig {
+
+    private boolean enabled = true;
+
+    // ログイン試行を保持する期間（過ぎたものは日次集計に残して削除）
+    private Duration retention = Duration.ofDays(30);
+
+    // 日次集計を保持する期間
+    private Duration rollupRetention = Duration.ofDays(400);
+
+    // 1回のDELETEで削除する件数と、次のDELETEまでの待ち時間（ログイン処理のロック待ちを避ける）
+    private int batchSize = 1000;
+    private Duration batchPause = Duration.ofMillis(50);
+
+    // 1回の実行で削除する上限（残りは次回の実行で削除）
+    private int maxBatchesPerRun = 100;
+}
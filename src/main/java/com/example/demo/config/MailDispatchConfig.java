@@ -0,0 +1,45 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * メール配信（送信待ちテーブル経由）の設定クラス
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.mail.dispatch")
+@Data
+public class MailDispatchConfig {
+
+    // 送信スレッド数
+    private int workers = 4;
+
+    // 送信待ちメールを確認する間隔（登録直後は待たずに送信する）
+    private Duration pollInterval = Duration.ofSeconds(5);
+
+    // 1回に取得する送信待ちメールの件数（同時送信数の上限に達したドメイン宛てを飛ばせるよう、送信スレッド数より多くする）
+    private int batchSize = 50;
+
+    // 同一ドメイン宛ての同時送信数
+    private int perDomainConcurrency = 2;
+
+    // 最大試行回数（超えた場合は送信失敗とする）
+    private int maxAttempts = 6;
+
+    // 再試行の間隔（失敗のたびに倍にする）
+    private Duration initialBackoff = Duration.ofSeconds(10);
+    private Duration maxBackoff = Duration.ofMinutes(15);
+
+    // 送信中のまま残ったメール（インスタンス停止など）を再送対象に戻すまでの時間
+    private Duration sendingTimeout = Duration.ofMinutes(5);
+
+    // 送信済み・送信失敗のメールを保持する期間
+    private Duration retention = Duration.ofDays(7);
+
+    // SMTP接続を使い回す場合の上限数と、未使用のまま保持する時間
+    private int smtpMaxIdleConnections = 4;
+    private Duration smtpIdleTimeout = Duration.ofSeconds(60);
+}
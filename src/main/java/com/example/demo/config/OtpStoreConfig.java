@@ -0,0 +1,31 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * OTPの保存先の設定クラス
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.otp.store")
+@Data
+public class OtpStoreConfig {
+
+    // 保存先（JPA: DB、MEMORY: メモリ上。単一インスタンス・テスト用）
+    private Type type = Type.JPA;
+
+    // MEMORY の場合の期限切れ判定の間隔と、タイマーホイールのスロット数
+    private Duration tick = Duration.ofSeconds(1);
+    private int wheelSize = 512;
+
+    // MEMORY の場合に保持するOTPの上限（超えた場合は発行を拒否）
+    private int maxEntries = 100000;
+
+    public enum Type {
+        JPA,
+        MEMORY
+    }
+}
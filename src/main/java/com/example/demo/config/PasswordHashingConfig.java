@@ -0,0 +1,35 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * パスワードハッシュ処理の設定クラス
+ * BCryptは専用の固定サイズのスレッドプールで実行し、待ち行列が満杯の場合は即座に拒否する
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.security.hashing")
+@Data
+public class PasswordHashingConfig {
+
+    // スレッド数（0以下の場合はCPUコア数）
+    private int poolSize = 0;
+
+    // 待ち行列の上限
+    private int queueCapacity = 64;
+
+    // 拒否時にクライアントへ返す再試行までの秒数
+    private int retryAfterSeconds = 1;
+
+    // BCryptのコスト（これより低いコストのハッシュはログイン成功時に再ハッシュする）
+    private int bcryptStrength = 10;
+
+    // 起動時にコストを測定して決める（bcryptStrength より優先）
+    private boolean calibrate = false;
+
+    // 測定時の1回のハッシュ化の目標時間
+    private Duration calibrationTarget = Duration.ofMillis(250);
+}
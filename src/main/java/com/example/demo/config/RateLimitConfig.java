@@ -0,0 +1,76 @@
+package com.example.demo.config;
+
+import com.example.demo.service.ratelimit.RateLimitAlgorithm;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * レート制限の設定
+ * アクション名ごとにアルゴリズムと閾値を切り替えられる
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.security.rate-limit")
+@Data
+public class RateLimitConfig {
+    
+    /**
+     * ロックストライプ数（2のべき乗に切り上げ）
+     */
+    private int stripes = 16;
+    
+    /**
+     * アクション個別の設定がない場合のポリシー
+     */
+    private Policy defaults = new Policy();
+    
+    /**
+     * アクション名ごとのポリシー
+     */
+    private Map<String, Policy> actions = new HashMap<>();
+    
+    /**
+     * アクションに適用するポリシーを取得
+     * @param action アクション名
+     * @return ポリシー
+     */
+    public Policy policyFor(String action) {
+        return actions.getOrDefault(action, defaults);
+    }
+    
+    /**
+     * レート制限ポリシー
+     */
+    @Data
+    public static class Policy {
+        
+        /**
+         * アルゴリズム
+         */
+        private RateLimitAlgorithm algorithm = RateLimitAlgorithm.SLIDING_WINDOW_COUNTER;
+        
+        /**
+         * 時間窓あたりの許可回数
+         */
+        private int limit = 5;
+        
+        /**
+         * 時間窓
+         */
+        private Duration window = Duration.ofMinutes(1);
+        
+        /**
+         * 制限超過時のブロック期間（0 の場合はブロックしない）
+         */
+        private Duration blockDuration = Duration.ofMinutes(5);
+        
+        /**
+         * 保持する最大キー数（超過時は古いキーから追い出す）
+         */
+        private int maxKeys = 10000;
+    }
+}
@@ -4,6 +4,8 @@ import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 import lombok.Data;
 
+import java.time.Duration;
+
 /**
  * リスクベース認証の設定
  */
@@ -22,6 +24,11 @@ public class RiskAssessmentConfig {
      */
     private int timeWindowHours = 24;
     
+    /**
+     * 新しい場所の判定に使用する履歴期間（日）
+     */
+    private int locationHistoryDays = 30;
+    
     /**
      * デバイス信頼期間（日）
      */
@@ -61,4 +68,34 @@ public class RiskAssessmentConfig {
      * デバイスフィンガープリントを有効化
      */
     private boolean enableDeviceFingerprint = true;
+    
+    /**
+     * 行動プロファイルキャッシュの最大件数
+     */
+    private int profileCacheMaxSize = 10000;
+    
+    /**
+     * 行動プロファイルの有効期限（分）
+     */
+    private int profileCacheTtlMinutes = 30;
+    
+    /**
+     * プロファイルごとに保持するIPアドレス・失敗日時の上限
+     */
+    private int profileMaxTrackedEntries = 100;
+    
+    /**
+     * ログイン時のリスク評価を実行するスレッド数（パスワード照合と並行して実行）
+     */
+    private int assessmentPoolSize = 4;
+    
+    /**
+     * リスク評価の待ち行列の上限（満杯の場合はリクエストスレッドで実行）
+     */
+    private int assessmentQueueCapacity = 100;
+    
+    /**
+     * リスク評価の結果を待つ最大時間（超過した場合はログインを拒否）
+     */
+    private Duration assessmentTimeout = Duration.ofSeconds(5);
 }
\ No newline at end of file
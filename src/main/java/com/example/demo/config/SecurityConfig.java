@@ -2,32 +2,66 @@ package com.example.demo.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
+import org.springframework.security.core.AuthenticationException;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+import org.springframework.security.web.authentication.DelegatingAuthenticationFailureHandler;
+import org.springframework.security.web.authentication.SavedRequestAwareAuthenticationSuccessHandler;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import org.springframework.security.web.authentication.session.ChangeSessionIdAuthenticationStrategy;
+import org.springframework.security.web.authentication.session.CompositeSessionAuthenticationStrategy;
+import org.springframework.security.web.context.DelegatingSecurityContextRepository;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.security.web.context.RequestAttributeSecurityContextRepository;
+import org.springframework.security.web.csrf.CsrfAuthenticationStrategy;
+import org.springframework.security.web.csrf.HttpSessionCsrfTokenRepository;
 
+import com.example.demo.exception.PasswordHashingUnavailableException;
+import com.example.demo.security.ClientIpResolver;
 import com.example.demo.security.MfaAuthenticationFilter;
+import com.example.demo.security.PasswordHashingUnavailableHandler;
+import com.example.demo.security.RateLimitFilter;
+import com.example.demo.security.RiskAssessmentExecutor;
+import com.example.demo.security.RiskBasedAuthenticationFilter;
 import com.example.demo.security.OAuth2AuthenticationSuccessHandler;
 import com.example.demo.security.OAuth2AuthenticationFailureHandler;
 import com.example.demo.service.IUserService;
 import com.example.demo.service.OAuth2UserService;
+import com.example.demo.service.RiskAssessmentService;
 
 import lombok.RequiredArgsConstructor;
 
+import java.util.LinkedHashMap;
+import java.util.List;
+
 @Configuration
 @RequiredArgsConstructor
 public class SecurityConfig {
 
     private final IUserService userService;
     private final MfaAuthenticationFilter mfaAuthenticationFilter;
+    private final RateLimitFilter rateLimitFilter;
     private final OAuth2UserService oauth2UserService;
     private final OAuth2AuthenticationSuccessHandler oauth2SuccessHandler;
     private final OAuth2AuthenticationFailureHandler oauth2FailureHandler;
+    private final RiskAssessmentService riskAssessmentService;
+    private final RiskAssessmentExecutor riskAssessmentExecutor;
+    private final RiskAssessmentConfig riskAssessmentConfig;
+    private final ClientIpResolver clientIpResolver;
 
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
+        http.userDetailsService(userService);
+        // リスクベース認証フィルターと共有するため、認証マネージャーを先に構築する
+        AuthenticationManager authenticationManager =
+            http.getSharedObject(AuthenticationManagerBuilder.class).build();
+
         http
-          .userDetailsService(userService)
+          .authenticationManager(authenticationManager)
           .authorizeHttpRequests(authz -> authz
               // ログイン／登録／CSS は未認証でも OK とする
               .requestMatchers("/login", "/register", "/css/**", "/js/**", "/images/**").permitAll()
@@ -45,6 +79,7 @@ public class SecurityConfig {
           .formLogin(form -> form
               .loginPage("/login")
               .defaultSuccessUrl("/home", true)
+              .failureHandler(formLoginFailureHandler())
           )
           .logout(logout -> logout
               .logoutSuccessUrl("/login?logout")
@@ -60,8 +95,46 @@ public class SecurityConfig {
               .successHandler(oauth2SuccessHandler)
               .failureHandler(oauth2FailureHandler)
           )
+          // レート制限はパスワード照合より前に行う
+          .addFilterBefore(rateLimitFilter, UsernamePasswordAuthenticationFilter.class)
+          // フォームログインの POST /login はリスクベース認証フィルターで処理する
+          .addFilterBefore(riskBasedAuthenticationFilter(authenticationManager),
+              UsernamePasswordAuthenticationFilter.class)
           // MFAフィルターを追加
           .addFilterAfter(mfaAuthenticationFilter, UsernamePasswordAuthenticationFilter.class);
         return http.build();
     }
+
+    /**
+     * リスクベース認証フィルター
+     * フォームログインと同じ遷移・セッション管理にする（Beanにするとサーブレットフィルターとしても登録されるため、ここで生成する）
+     */
+    private RiskBasedAuthenticationFilter riskBasedAuthenticationFilter(AuthenticationManager authenticationManager) {
+        RiskBasedAuthenticationFilter filter = new RiskBasedAuthenticationFilter("/login", authenticationManager,
+            riskAssessmentService, riskAssessmentExecutor,
+            riskAssessmentConfig.getAssessmentTimeout(), clientIpResolver);
+        SavedRequestAwareAuthenticationSuccessHandler successHandler = new SavedRequestAwareAuthenticationSuccessHandler();
+        successHandler.setDefaultTargetUrl("/home");
+        successHandler.setAlwaysUseDefaultTargetUrl(true);
+        filter.setAuthenticationSuccessHandler(successHandler);
+        filter.setAuthenticationFailureHandler(formLoginFailureHandler());
+        filter.setSecurityContextRepository(new DelegatingSecurityContextRepository(
+            new RequestAttributeSecurityContextRepository(), new HttpSessionSecurityContextRepository()));
+        filter.setSessionAuthenticationStrategy(new CompositeSessionAuthenticationStrategy(List.of(
+            new ChangeSessionIdAuthenticationStrategy(),
+            new CsrfAuthenticationStrategy(new HttpSessionCsrfTokenRepository()))));
+        return filter;
+    }
+
+    /**
+     * フォームログインの失敗ハンドラー
+     * ハッシュ処理の過負荷は認証失敗ではなく 503 として返す
+     */
+    private AuthenticationFailureHandler formLoginFailureHandler() {
+        LinkedHashMap<Class<? extends AuthenticationException>, AuthenticationFailureHandler> handlers =
+            new LinkedHashMap<>();
+        handlers.put(PasswordHashingUnavailableException.class, new PasswordHashingUnavailableHandler());
+        return new DelegatingAuthenticationFailureHandler(handlers,
+            new SimpleUrlAuthenticationFailureHandler("/login?error"));
+    }
 }
\ No newline at end of file
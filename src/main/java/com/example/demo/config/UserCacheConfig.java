@@ -0,0 +1,22 @@
+package com.example.demo.config;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * ユーザーキャッシュ（認証時のユーザー検索）の設定クラス
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app.user-cache")
+@Data
+public class UserCacheConfig {
+
+    // 保持するユーザー数の上限（超えた場合は最も長く参照されていないものを追い出す）
+    private int maxSize = 10000;
+
+    // 有効期限（他インスタンスでの更新を取り込むため、過ぎたものはDBから再取得する）
+    private Duration ttl = Duration.ofMinutes(5);
+}
@@ -0,0 +1,44 @@
+package com.example.demo.controller;
+
+import java.time.LocalDateTime;
+
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import com.example.demo.service.AuditLogService;
+
+import lombok.RequiredArgsConstructor;
+
+/**
+ * セキュリティ履歴コントローラー
+ * ログインしているユーザー自身の監査ログ（アーカイブ済みの期間を含む）を表示する
+ */
+@Controller
+@RequiredArgsConstructor
+public class ActivityController {
+    
+    // 表示する件数・期間（日数）の上限
+    static final int MAX_ENTRIES = 100;
+    static final int MAX_DAYS = 365;
+    
+    private final AuditLogService auditLogService;
+    
+    /**
+     * セキュリティ履歴画面表示
+     */
+    @GetMapping("/activity")
+    public String showActivity(@AuthenticationPrincipal UserDetails userDetails,
+                               @RequestParam(defaultValue = "30") int days,
+                               Model model) {
+        int period = Math.min(Math.max(days, 1), MAX_DAYS);
+        LocalDateTime now = LocalDateTime.now();
+        model.addAttribute("auditLogs",
+            auditLogService.search(userDetails.getUsername(), now.minusDays(period), now, MAX_ENTRIES));
+        model.addAttribute("days", period);
+        return "activity";
+    }
+}
@@ -15,6 +15,7 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
@@ -172,7 +173,12 @@ public class AdditionalAuthController {
         }
         
         try {
-            return totpService.verifyCode(username, code);
+            User user = userService.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("ユーザーが見つかりません"));
+            if (!user.isMfaEnabled() || user.getMfaSecret() == null) {
+                return false;
+            }
+            return totpService.verifyCode(username, user.getMfaSecret(), code);
         } catch (Exception e) {
             log.error("TOTP検証エラー", e);
             return false;
@@ -206,6 +212,9 @@ public class AdditionalAuthController {
             Authentication auth = new UsernamePasswordAuthenticationToken(
                 userDetails, null, userDetails.getAuthorities());
             SecurityContextHolder.getContext().setAuthentication(auth);
+            // 以降のリクエストでも認証済みとなるようセッションに保存する
+            session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY,
+                SecurityContextHolder.getContext());
             
             log.info("追加認証完了: {}", username);
         } catch (Exception e) {
@@ -10,6 +10,7 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import com.example.demo.entity.User;
+import com.example.demo.exception.PasswordHashingUnavailableException;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.service.IUserService;
 import com.example.demo.service.FormTokenService;
@@ -70,6 +71,9 @@ public class AuthController {
             model.addAttribute("error", e.getMessage());
             model.addAttribute("formToken", formTokenService.generateToken(session, "register"));
             return "register";
+        } catch (PasswordHashingUnavailableException e) {
+            // 過負荷は GlobalExceptionHandler で 503 として返す
+            throw e;
         } catch (Exception e) {
             log.error("ユーザー登録エラー", e);
             model.addAttribute("error", "アカウント作成に失敗しました");
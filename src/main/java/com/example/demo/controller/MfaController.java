@@ -1,14 +1,21 @@
 package com.example.demo.controller;
 
-import com.example.demo.entity.BackupCode;
 import com.example.demo.entity.User;
 import com.example.demo.repository.BackupCodeRepository;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.service.AuditLogService;
+import com.example.demo.service.BackupCodeService;
+import com.example.demo.security.MfaStateRegistry;
+import com.example.demo.service.LoginBehaviorProfileCache;
 import com.example.demo.service.TotpService;
+import com.example.demo.service.UserCache;
 import com.example.demo.entity.AuditLog.EventType;
+import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
@@ -31,17 +38,24 @@ public class MfaController {
     
     private final UserRepository userRepository;
     private final BackupCodeRepository backupCodeRepository;
+    private final BackupCodeService backupCodeService;
     private final TotpService totpService;
     private final PasswordEncoder passwordEncoder;
     private final AuditLogService auditLogService;
+    private final LoginBehaviorProfileCache profileCache;
+    private final MfaStateRegistry mfaStateRegistry;
+    private final UserCache userCache;
     
     private static final int BACKUP_CODE_COUNT = 10;
+    // 設定中のシークレット（QRコード画像の配信用）
+    private static final String MFA_SETUP_SECRET = "MFA_SETUP_SECRET";
     
     /**
      * MFA設定画面表示
      */
     @GetMapping("/setup")
-    public String showMfaSetup(@AuthenticationPrincipal UserDetails userDetails, Model model) {
+    public String showMfaSetup(@AuthenticationPrincipal UserDetails userDetails, Model model,
+                               HttpSession session) {
         User user = userRepository.findByUsername(userDetails.getUsername())
             .orElseThrow(() -> new RuntimeException("ユーザーが見つかりません"));
         
@@ -49,17 +63,34 @@ public class MfaController {
             return "redirect:/mfa/manage";
         }
         
-        // 新しいシークレット生成
+        // 新しいシークレット生成（QRコード画像は /mfa/setup/qr.png で配信）
         String secret = totpService.generateSecret();
-        String qrCodeBase64 = totpService.generateQrCodeBase64(user.getUsername(), secret);
+        session.setAttribute(MFA_SETUP_SECRET, secret);
         
         model.addAttribute("secret", secret);
-        model.addAttribute("qrCode", qrCodeBase64);
         model.addAttribute("username", user.getUsername());
         
         return "mfa/setup";
     }
     
+    /**
+     * MFA設定用のQRコード画像
+     */
+    @GetMapping("/setup/qr.png")
+    public ResponseEntity<byte[]> showMfaSetupQrCode(@AuthenticationPrincipal UserDetails userDetails,
+                                                     HttpSession session) {
+        String secret = (String) session.getAttribute(MFA_SETUP_SECRET);
+        if (secret == null) {
+            return ResponseEntity.notFound().build();
+        }
+        
+        byte[] png = totpService.getQrCodePng(userDetails.getUsername(), secret);
+        return ResponseEntity.ok()
+            .contentType(MediaType.IMAGE_PNG)
+            .cacheControl(CacheControl.noStore())
+            .body(png);
+    }
+    
     /**
      * MFA有効化処理
      */
@@ -70,6 +101,7 @@ public class MfaController {
                            @RequestParam String code,
                            @RequestParam String password,
                            Model model,
+                           HttpSession session,
                            RedirectAttributes redirectAttributes) {
         
         User user = userRepository.findByUsername(userDetails.getUsername())
@@ -79,33 +111,30 @@ public class MfaController {
         if (!passwordEncoder.matches(password, user.getPassword())) {
             model.addAttribute("error", "パスワードが正しくありません");
             model.addAttribute("secret", secret);
-            model.addAttribute("qrCode", totpService.generateQrCodeBase64(user.getUsername(), secret));
+            session.setAttribute(MFA_SETUP_SECRET, secret);
             return "mfa/setup";
         }
         
         // TOTPコード検証
-        if (!totpService.verifyCode(secret, code)) {
+        if (!totpService.verifyCode(user.getUsername(), secret, code)) {
             model.addAttribute("error", "認証コードが正しくありません");
             model.addAttribute("secret", secret);
-            model.addAttribute("qrCode", totpService.generateQrCodeBase64(user.getUsername(), secret));
+            session.setAttribute(MFA_SETUP_SECRET, secret);
             return "mfa/setup";
         }
         
         // MFA有効化
+        session.removeAttribute(MFA_SETUP_SECRET);
         user.setMfaEnabled(true);
         user.setMfaSecret(secret);
         userRepository.save(user);
+        profileCache.invalidate(user.getUsername());
+        // 通番の更新より先にキャッシュを破棄する（新しい通番で古い値を読まないように）
+        userCache.evict(user.getUsername());
+        mfaStateRegistry.markChanged(user.getUsername());
         
         // バックアップコード生成
-        String[] backupCodes = totpService.generateBackupCodes(BACKUP_CODE_COUNT);
-        for (String backupCode : backupCodes) {
-            BackupCode bc = BackupCode.builder()
-                .user(user)
-                .code(passwordEncoder.encode(backupCode))
-                .used(false)
-                .build();
-            backupCodeRepository.save(bc);
-        }
+        String[] backupCodes = backupCodeService.createBackupCodes(user, BACKUP_CODE_COUNT);
         
         // 監査ログ
         auditLogService.logSuccess(EventType.MFA_ENABLED, user.getUsername());
@@ -157,6 +186,10 @@ public class MfaController {
         user.setMfaEnabled(false);
         user.setMfaSecret(null);
         userRepository.save(user);
+        profileCache.invalidate(user.getUsername());
+        // 通番の更新より先にキャッシュを破棄する（新しい通番で古い値を読まないように）
+        userCache.evict(user.getUsername());
+        mfaStateRegistry.markChanged(user.getUsername());
         
         // バックアップコード削除
         backupCodeRepository.deleteAllByUser(user);
@@ -188,19 +221,8 @@ public class MfaController {
             return "redirect:/mfa/manage";
         }
         
-        // 既存のバックアップコード削除
-        backupCodeRepository.deleteAllByUser(user);
-        
-        // 新しいバックアップコード生成
-        String[] backupCodes = totpService.generateBackupCodes(BACKUP_CODE_COUNT);
-        for (String backupCode : backupCodes) {
-            BackupCode bc = BackupCode.builder()
-                .user(user)
-                .code(passwordEncoder.encode(backupCode))
-                .used(false)
-                .build();
-            backupCodeRepository.save(bc);
-        }
+        // 既存のバックアップコードを削除して新しいコードを生成
+        String[] backupCodes = backupCodeService.regenerateBackupCodes(user, BACKUP_CODE_COUNT);
         
         log.info("バックアップコード再生成: username={}", user.getUsername());
         
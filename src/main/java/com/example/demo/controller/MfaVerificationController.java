@@ -1,18 +1,16 @@
 package com.example.demo.controller;
 
-import com.example.demo.entity.BackupCode;
 import com.example.demo.entity.User;
 import com.example.demo.entity.AuditLog.EventType;
-import com.example.demo.repository.BackupCodeRepository;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.service.AuditLogService;
+import com.example.demo.service.BackupCodeService;
 import com.example.demo.service.TotpService;
 import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Controller;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.ui.Model;
@@ -20,8 +18,6 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 
-import java.time.LocalDateTime;
-
 /**
  * MFA検証コントローラー
  * ログイン後の追加認証を処理
@@ -32,9 +28,8 @@ import java.time.LocalDateTime;
 public class MfaVerificationController {
     
     private final UserRepository userRepository;
-    private final BackupCodeRepository backupCodeRepository;
+    private final BackupCodeService backupCodeService;
     private final TotpService totpService;
-    private final PasswordEncoder passwordEncoder;
     private final AuditLogService auditLogService;
     private final HttpSession httpSession;
     
@@ -80,11 +75,11 @@ public class MfaVerificationController {
         
         if (useBackupCode) {
             // バックアップコードで検証
-            verified = verifyBackupCode(user, code);
+            verified = backupCodeService.useBackupCode(user, code);
             verificationMethod = "バックアップコード";
         } else {
             // TOTPコードで検証
-            verified = totpService.verifyCode(user.getMfaSecret(), code);
+            verified = totpService.verifyCode(user.getUsername(), user.getMfaSecret(), code);
             verificationMethod = "TOTP";
         }
         
@@ -109,26 +104,4 @@ public class MfaVerificationController {
             return "mfa/verify";
         }
     }
-    
-    /**
-     * バックアップコードの検証
-     * @param user ユーザー
-     * @param code 入力されたコード
-     * @return 検証結果
-     */
-    private boolean verifyBackupCode(User user, String code) {
-        // 未使用のバックアップコードを取得
-        for (BackupCode backupCode : backupCodeRepository.findByUserAndUsedFalse(user)) {
-            if (passwordEncoder.matches(code, backupCode.getCode())) {
-                // コードを使用済みにする
-                backupCode.setUsed(true);
-                backupCode.setUsedAt(LocalDateTime.now());
-                backupCodeRepository.save(backupCode);
-                
-                log.info("バックアップコード使用: username={}", user.getUsername());
-                return true;
-            }
-        }
-        return false;
-    }
 }
\ No newline at end of file
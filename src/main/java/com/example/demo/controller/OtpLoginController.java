@@ -2,9 +2,13 @@ package com.example.demo.controller;
 
 import com.example.demo.entity.OneTimePassword;
 import com.example.demo.entity.User;
+import com.example.demo.exception.RateLimitException;
+import com.example.demo.security.ClientIpResolver;
 import com.example.demo.service.AuditLogService;
 import com.example.demo.service.IUserService;
+import com.example.demo.service.LastSeenWriteBuffer;
 import com.example.demo.service.OtpService;
+import com.example.demo.service.RateLimitService;
 import com.example.demo.entity.AuditLog;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpSession;
@@ -19,8 +23,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.Locale;
 
 /**
  * OTPログインコントローラー
@@ -35,11 +38,15 @@ public class OtpLoginController {
     private final IUserService userService;
     private final OtpService otpService;
     private final AuditLogService auditLogService;
+    private final RateLimitService rateLimitService;
+    private final LastSeenWriteBuffer lastSeenWriteBuffer;
+    private final ClientIpResolver clientIpResolver;
     
-    // OTP送信のレート制限（同一IPから1分間に3回まで）
-    private final Map<String, Integer> rateLimitMap = new HashMap<>();
-    private final Map<String, LocalDateTime> rateLimitTimeMap = new HashMap<>();
-    private static final int MAX_ATTEMPTS_PER_MINUTE = 3;
+    // レート制限のアクション名（閾値は app.security.rate-limit.actions.* で設定）
+    private static final String OTP_SEND_IP_ACTION = "otp-send-ip";
+    private static final String OTP_SEND_EMAIL_ACTION = "otp-send-email";
+    private static final String OTP_VERIFY_IP_ACTION = "otp-verify-ip";
+    private static final String OTP_VERIFY_EMAIL_ACTION = "otp-verify-email";
     
     /**
      * OTPログイン画面表示
@@ -62,16 +69,16 @@ public class OtpLoginController {
                          RedirectAttributes redirectAttributes,
                          Model model) {
         
-        String clientIp = getClientIpAddress(request);
+        String clientIp = clientIpResolver.resolve(request);
+        
+        // レート制限チェック（IPアドレス単位・メールアドレス単位）
+        if (isRateLimited(OTP_SEND_IP_ACTION, OTP_SEND_EMAIL_ACTION, clientIp, email)) {
+            redirectAttributes.addFlashAttribute("error", 
+                "短時間に多くのリクエストが送信されました。しばらく待ってから再試行してください。");
+            return "redirect:/auth/otp/login";
+        }
         
         try {
-            // レート制限チェック
-            if (!checkRateLimit(clientIp)) {
-                redirectAttributes.addFlashAttribute("error", 
-                    "短時間に多くのリクエストが送信されました。しばらく待ってから再試行してください。");
-                return "redirect:/auth/otp/login";
-            }
-            
             // メールアドレスの検証
             User user = userService.findByEmail(email)
                 .orElseThrow(() -> {
@@ -133,9 +140,21 @@ public class OtpLoginController {
     @PostMapping("/verify")
     public String verifyOtp(@RequestParam String email,
                           @RequestParam String code,
+                          HttpServletRequest request,
                           HttpSession session,
                           RedirectAttributes redirectAttributes) {
         
+        // レート制限チェック（総当たり対策）
+        if (isRateLimited(OTP_VERIFY_IP_ACTION, OTP_VERIFY_EMAIL_ACTION, 
+                clientIpResolver.resolve(request), email)) {
+            redirectAttributes.addFlashAttribute("error", 
+                "短時間に多くのリクエストが送信されました。しばらく待ってから再試行してください。");
+            redirectAttributes.addFlashAttribute("email", email);
+            redirectAttributes.addFlashAttribute("otpSent", true);
+            redirectAttributes.addFlashAttribute("maskedEmail", maskEmail(email));
+            return "redirect:/auth/otp/login";
+        }
+        
         try {
             // ユーザー検索
             User user = userService.findByEmail(email)
@@ -155,9 +174,8 @@ public class OtpLoginController {
                 // セッション設定
                 session.setAttribute("username", user.getUsername());
                 
-                // 最終ログイン日時を更新
-                user.setLastLoginAt(LocalDateTime.now());
-                userService.save(user);
+                // 最終ログイン日時を更新（遅延書き込み）
+                lastSeenWriteBuffer.recordUserLogin(user.getUsername(), LocalDateTime.now());
                 
                 // 監査ログ
                 auditLogService.logEvent(AuditLog.EventType.LOGIN_SUCCESS, 
@@ -192,32 +210,37 @@ public class OtpLoginController {
     @PostMapping("/resend")
     public String resendOtp(@RequestParam String email,
                           HttpServletRequest request,
-                          RedirectAttributes redirectAttributes) {
+                          RedirectAttributes redirectAttributes,
+                          Model model) {
         
-        // 通常の送信と同じ処理を実行
-        return sendOtp(email, request, redirectAttributes, null);
+        // 通常の送信と同じ処理を実行（レート制限も送信と共通）
+        return sendOtp(email, request, redirectAttributes, model);
     }
     
     /**
      * レート制限チェック
+     * IPアドレス単位とメールアドレス単位の両方で制限する。
+     * 保持するキー数は RateLimitService 側で上限が設けられている。
+     * 
+     * @return 制限を超えた場合true
      */
-    private boolean checkRateLimit(String clientIp) {
-        LocalDateTime now = LocalDateTime.now();
-        
-        // 前回のチェック時刻を確認
-        LocalDateTime lastCheck = rateLimitTimeMap.get(clientIp);
-        if (lastCheck == null || lastCheck.isBefore(now.minusMinutes(1))) {
-            // 1分以上経過していればカウントリセット
-            rateLimitMap.put(clientIp, 1);
-            rateLimitTimeMap.put(clientIp, now);
+    private boolean isRateLimited(String ipAction, String emailAction, String clientIp, String email) {
+        try {
+            rateLimitService.checkAndRecord(clientIp, ipAction);
+            rateLimitService.checkAndRecord(normalizeEmail(email), emailAction);
+            return false;
+        } catch (RateLimitException e) {
+            log.warn("OTPレート制限: ip={}, email={}, retryAfter={}秒", 
+                clientIp, maskEmail(email), e.getRetryAfterSeconds());
             return true;
         }
-        
-        // カウントを増やす
-        int count = rateLimitMap.getOrDefault(clientIp, 0) + 1;
-        rateLimitMap.put(clientIp, count);
-        
-        return count <= MAX_ATTEMPTS_PER_MINUTE;
+    }
+    
+    /**
+     * レート制限キー用にメールアドレスを正規化
+     */
+    private String normalizeEmail(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
     }
     
     /**
@@ -238,21 +261,4 @@ public class OtpLoginController {
             return localPart.substring(0, 3) + "***@" + domain;
         }
     }
-    
-    /**
-     * クライアントIPアドレス取得
-     */
-    private String getClientIpAddress(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-        
-        String xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty()) {
-            return xRealIp;
-        }
-        
-        return request.getRemoteAddr();
-    }
 }
\ No newline at end of file
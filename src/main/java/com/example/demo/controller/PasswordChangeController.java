@@ -10,6 +10,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import com.example.demo.entity.User;
+import com.example.demo.exception.PasswordHashingUnavailableException;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.service.impl.UserServiceImpl;
 
@@ -68,6 +69,9 @@ public class PasswordChangeController {
             log.warn("パスワード変更失敗: {}", e.getMessage());
             redirectAttributes.addFlashAttribute("error", e.getMessage());
             return "redirect:/change-password";
+        } catch (PasswordHashingUnavailableException e) {
+            // 過負荷は GlobalExceptionHandler で 503 として返す
+            throw e;
         } catch (Exception e) {
             log.error("パスワード変更エラー", e);
             redirectAttributes.addFlashAttribute("error", "パスワード変更に失敗しました");
@@ -0,0 +1,37 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * ログイン試行の集計結果DTO
+ * ユーザーのログイン試行を（IPアドレス, 国コード）単位で集計した1行分
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoginAttemptAggregate {
+    
+    /**
+     * IPアドレス
+     */
+    private String ipAddress;
+    
+    /**
+     * 国コード（不明な場合はnull）
+     */
+    private String countryCode;
+    
+    /**
+     * 最後に試行した日時
+     */
+    private LocalDateTime lastAttemptAt;
+    
+    /**
+     * 最後に成功した日時（成功がない場合はnull）
+     */
+    private LocalDateTime lastSuccessAt;
+}
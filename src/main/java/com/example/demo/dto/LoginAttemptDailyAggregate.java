@@ -0,0 +1,47 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * ログイン試行の日次集計結果DTO
+ * 1日分のログイン試行をユーザー単位で集計した1行分
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LoginAttemptDailyAggregate {
+    
+    /**
+     * ユーザー名
+     */
+    private String username;
+    
+    /**
+     * 試行回数
+     */
+    private Long attemptCount;
+    
+    /**
+     * 失敗回数
+     */
+    private Long failureCount;
+    
+    /**
+     * IPアドレスの種類数
+     */
+    private Long distinctIpCount;
+    
+    /**
+     * 最後に試行した日時
+     */
+    private LocalDateTime lastAttemptAt;
+    
+    /**
+     * 最後に成功した日時（成功がない場合はnull）
+     */
+    private LocalDateTime lastSuccessAt;
+}
@@ -0,0 +1,66 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+import lombok.Builder;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * リスク評価用の特徴量スナップショットDTO
+ * ログイン1回分のリスク評価に必要な値をまとめて保持する
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class RiskFeatureSnapshot {
+    
+    /**
+     * MFA有効化フラグ
+     */
+    private boolean mfaEnabled;
+    
+    /**
+     * 信頼済みデバイスからのアクセスかどうか
+     */
+    private boolean trustedDevice;
+    
+    /**
+     * 評価時間窓内の失敗回数
+     */
+    private long failedAttempts;
+    
+    /**
+     * 評価時間窓内の異なるIPアドレス数
+     */
+    private long distinctIpCount;
+    
+    /**
+     * 評価時間窓内にアクセスのあった国コード
+     */
+    private List<String> recentCountries;
+    
+    /**
+     * 履歴期間内にアクセスのあった国コード
+     */
+    private Set<String> knownCountries;
+    
+    /**
+     * 履歴期間内にログイン試行があるかどうか
+     */
+    private boolean hasHistory;
+    
+    /**
+     * 最後に成功したログインの国コード
+     */
+    private String lastSuccessCountryCode;
+    
+    /**
+     * 最後に成功したログインの日時
+     */
+    private LocalDateTime lastSuccessAt;
+}
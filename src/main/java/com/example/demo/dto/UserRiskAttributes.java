@@ -0,0 +1,24 @@
+package com.example.demo.dto;
+
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+
+/**
+ * リスク評価に必要なユーザー属性DTO
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UserRiskAttributes {
+    
+    /**
+     * ユーザーID
+     */
+    private Long userId;
+    
+    /**
+     * MFA有効化フラグ
+     */
+    private boolean mfaEnabled;
+}
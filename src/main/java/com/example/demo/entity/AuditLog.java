@@ -13,7 +13,16 @@ import java.time.LocalDateTime;
  * セキュリティ関連のイベントを記録
  */
 @Entity
-@Table(name = "audit_logs")
+@Table(name = "audit_logs", indexes = {
+    // IPアドレスごとの不審なアクティビティ（等価条件の列を先に、範囲条件の日時を最後に置く）
+    @Index(name = "idx_audit_logs_ip_type_time", columnList = "ip_address, event_type, created_at"),
+    // ユーザーごとのログイン失敗・監査ログ一覧
+    @Index(name = "idx_audit_logs_user_type_time", columnList = "username, event_type, created_at"),
+    // イベントタイプごとの集計（起動時の不審なアクティビティ検出の初期化）
+    @Index(name = "idx_audit_logs_type_time", columnList = "event_type, created_at"),
+    // 期間指定の検索
+    @Index(name = "idx_audit_logs_created_at", columnList = "created_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
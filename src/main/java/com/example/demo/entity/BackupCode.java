@@ -13,7 +13,9 @@ import java.time.LocalDateTime;
  * MFAが使用できない場合の代替認証手段
  */
 @Entity
-@Table(name = "backup_codes")
+@Table(name = "backup_codes", indexes = {
+    @Index(name = "idx_backup_codes_user_lookup", columnList = "user_id, lookup_key")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -31,6 +33,10 @@ public class BackupCode {
     @Column(name = "code", nullable = false)
     private String code;
     
+    // 検索キー（コードのHMAC。導入前に発行したコードはnull）
+    @Column(name = "lookup_key", length = 64)
+    private String lookupKey;
+    
     @Column(name = "used")
     @Builder.Default
     private boolean used = false;
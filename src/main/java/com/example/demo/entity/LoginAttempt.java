@@ -6,13 +6,26 @@ import lombok.NoArgsConstructor;
 import lombok.AllArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 
 /**
  * ログイン試行エンティティ
  * リスクベース認証のためにログイン試行情報を記録する
+ *
+ * インデックスはログインのたびに実行する検索（ユーザー名・IPアドレスと試行日時の範囲）に合わせる。
+ * 既存のDBへの追加は docs/migrations を参照。
  */
 @Entity
-@Table(name = "login_attempts")
+@Table(name = "login_attempts", indexes = {
+    // 時間窓内の試行（IPアドレス数・国コード・リスク評価用の集計）
+    @Index(name = "idx_login_attempts_user_time", columnList = "username, attempted_at"),
+    // 時間窓内の失敗回数・最後の成功ログイン
+    @Index(name = "idx_login_attempts_user_success_time", columnList = "username, successful, attempted_at"),
+    // IPアドレスごとの試行
+    @Index(name = "idx_login_attempts_ip_time", columnList = "ip_address, attempted_at"),
+    // 保持期間を過ぎた試行の削除・日次集計
+    @Index(name = "idx_login_attempts_attempted_at", columnList = "attempted_at")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -55,8 +68,9 @@ public class LoginAttempt {
     @Column(name = "is_vpn")
     private boolean isVpn;
     
+    // DBの精度（マイクロ秒）に揃え、DBから読み込んだ値と比較できるようにする
     @Column(name = "attempted_at", nullable = false)
-    private LocalDateTime attemptedAt = LocalDateTime.now();
+    private LocalDateTime attemptedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
     
     @Column(name = "additional_verification_required")
     private boolean additionalVerificationRequired;
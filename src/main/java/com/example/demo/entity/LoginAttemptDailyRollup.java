@@ -0,0 +1,60 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * ログイン試行の日次集計エンティティ
+ * ユーザー・日ごとの試行回数・国コード・IPアドレス数を保持し、
+ * ログイン試行の保持期間を過ぎた後も長期の行動履歴として参照する
+ */
+@Entity
+@Table(name = "login_attempt_daily_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_login_attempt_rollup_user_date", columnNames = {"username", "rollup_date"})
+}, indexes = {
+    @Index(name = "idx_login_attempt_rollup_date", columnList = "rollup_date")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LoginAttemptDailyRollup {
+    
+    // シーケンスで採番（1日分をまとめてJDBCバッチで挿入するため）
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "login_attempt_daily_rollups_seq")
+    @SequenceGenerator(name = "login_attempt_daily_rollups_seq",
+        sequenceName = "login_attempt_daily_rollups_seq", allocationSize = 50)
+    private Long id;
+    
+    @Column(nullable = false)
+    private String username;
+    
+    @Column(name = "rollup_date", nullable = false)
+    private LocalDate rollupDate;
+    
+    @Column(name = "attempt_count", nullable = false)
+    private long attemptCount;
+    
+    @Column(name = "failure_count", nullable = false)
+    private long failureCount;
+    
+    @Column(name = "distinct_ip_count", nullable = false)
+    private long distinctIpCount;
+    
+    // 国コード（カンマ区切り、昇順）
+    @Column(name = "country_codes")
+    private String countryCodes;
+    
+    @Column(name = "last_attempt_at", nullable = false)
+    private LocalDateTime lastAttemptAt;
+    
+    @Column(name = "last_success_at")
+    private LocalDateTime lastSuccessAt;
+}
@@ -0,0 +1,100 @@
+package com.example.demo.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+
+import java.time.LocalDateTime;
+
+/**
+ * 送信待ちメールエンティティ
+ * 業務データと同じトランザクションで登録し、コミット後に配信スレッドが送信する
+ */
+@Entity
+@Table(name = "mail_outbox", indexes = {
+    @Index(name = "idx_mail_outbox_status_next", columnList = "status, next_attempt_at")
+})
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class MailOutbox {
+    
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+    
+    @Column(name = "mail_type", nullable = false, length = 30)
+    @Enumerated(EnumType.STRING)
+    private MailType mailType;
+    
+    @Column(name = "recipient", nullable = false)
+    private String recipient;
+    
+    // 同時送信数の制限単位
+    @Column(name = "recipient_domain", nullable = false)
+    private String recipientDomain;
+    
+    @Column(name = "username")
+    private String username;
+    
+    // 本文に埋め込むコード（送信後・送信失敗時に削除）
+    @Column(name = "code")
+    private String code;
+    
+    @Column(name = "valid_minutes")
+    private int validMinutes;
+    
+    @Column(name = "status", nullable = false, length = 20)
+    @Enumerated(EnumType.STRING)
+    @Builder.Default
+    private Status status = Status.PENDING;
+    
+    @Column(name = "attempts")
+    private int attempts;
+    
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+    
+    // 送信中の場合、この日時を過ぎたら再送対象に戻す
+    @Column(name = "locked_until")
+    private LocalDateTime lockedUntil;
+    
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+    
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+    
+    @Column(name = "sent_at")
+    private LocalDateTime sentAt;
+    
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+        if (nextAttemptAt == null) {
+            nextAttemptAt = createdAt;
+        }
+    }
+    
+    /**
+     * メールの種類
+     */
+    public enum MailType {
+        OTP,
+        PASSWORD_RESET,
+        WELCOME
+    }
+    
+    /**
+     * 送信状態
+     */
+    public enum Status {
+        PENDING,
+        SENDING,
+        SENT,
+        FAILED
+    }
+}
@@ -11,9 +11,14 @@ import java.time.LocalDateTime;
 /**
  * ワンタイムパスワードエンティティ
  * メール送信されるOTPを管理
+ *
+ * ユーザー・用途ごとに1行のみ保持し、再発行時は同じ行を上書きする。
+ * コードは平文ではなくHMACで保存する。
  */
 @Entity
-@Table(name = "one_time_passwords")
+@Table(name = "one_time_passwords", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_otp_user_purpose", columnNames = {"user_id", "purpose"})
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -28,10 +33,11 @@ public class OneTimePassword {
     @JoinColumn(name = "user_id", nullable = false)
     private User user;
     
-    @Column(name = "code", nullable = false)
-    private String code;
+    // コードのHMAC（Base64）
+    @Column(name = "code_hash", nullable = false, length = 64)
+    private String codeHash;
     
-    @Column(name = "purpose", nullable = false)
+    @Column(name = "purpose", nullable = false, length = 30)
     @Enumerated(EnumType.STRING)
     private OtpPurpose purpose;
     
@@ -39,15 +45,22 @@ public class OneTimePassword {
     @Builder.Default
     private boolean used = false;
     
+    // 検証に失敗した回数（発行のたびにリセット）
+    @Column(name = "attempts")
+    private int attempts;
+    
     @Column(name = "expires_at", nullable = false)
     private LocalDateTime expiresAt;
     
+    // 発行日時（再発行時に更新）
     @Column(name = "created_at", nullable = false)
     private LocalDateTime createdAt;
     
     @PrePersist
     protected void onCreate() {
-        createdAt = LocalDateTime.now();
+        if (createdAt == null) {
+            createdAt = LocalDateTime.now();
+        }
     }
     
     /**
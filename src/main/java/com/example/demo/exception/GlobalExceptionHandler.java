@@ -6,6 +6,7 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 /**
  * グローバル例外ハンドラー
@@ -64,6 +65,22 @@ public class GlobalExceptionHandler {
         return "error/rate-limit";
     }
     
+    /**
+     * パスワードハッシュ処理の過負荷のハンドリング（登録・パスワード変更など）
+     */
+    @ExceptionHandler(PasswordHashingUnavailableException.class)
+    public String handlePasswordHashingUnavailableException(PasswordHashingUnavailableException e,
+                                                            Model model, HttpServletResponse response) {
+        log.warn("パスワードハッシュ処理の過負荷: {}", e.getMessage());
+        
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
+        model.addAttribute("error", e.getMessage());
+        model.addAttribute("retryAfter", e.getRetryAfterSeconds());
+        
+        return "error/rate-limit";
+    }
+    
     /**
      * その他の予期しない例外のハンドリング
      */
@@ -0,0 +1,20 @@
+package com.example.demo.exception;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+/**
+ * パスワードハッシュ処理の過負荷例外
+ * ハッシュ処理用のスレッドプールが満杯の場合に発生する（認証失敗としては扱わない）
+ */
+public class PasswordHashingUnavailableException extends AuthenticationServiceException {
+    private final int retryAfterSeconds;
+
+    public PasswordHashingUnavailableException(String message, int retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
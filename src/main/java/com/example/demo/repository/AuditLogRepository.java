@@ -5,11 +5,14 @@ import com.example.demo.entity.AuditLog.EventType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 /**
@@ -65,4 +68,52 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
     @Query("SELECT a FROM AuditLog a WHERE a.ipAddress = :ipAddress AND a.createdAt >= :startDate AND (a.eventType = 'LOGIN_FAILURE' OR a.eventType = 'SUSPICIOUS_ACTIVITY')")
     List<AuditLog> findSuspiciousActivitiesByIp(@Param("ipAddress") String ipAddress, 
                                                @Param("startDate") LocalDateTime startDate);
+    
+    /**
+     * IPアドレスごとのログイン失敗回数を集計（起動時の初期化用）
+     */
+    @Query("SELECT a.ipAddress, COUNT(a) FROM AuditLog a WHERE a.eventType = 'LOGIN_FAILURE' " +
+           "AND a.createdAt >= :startDate AND a.ipAddress IS NOT NULL GROUP BY a.ipAddress")
+    List<Object[]> countFailedLoginsByIp(@Param("startDate") LocalDateTime startDate);
+    
+    /**
+     * ユーザー名ごとのログイン失敗回数を集計（起動時の初期化用）
+     */
+    @Query("SELECT a.username, COUNT(a) FROM AuditLog a WHERE a.eventType = 'LOGIN_FAILURE' " +
+           "AND a.createdAt >= :startDate AND a.username IS NOT NULL GROUP BY a.username")
+    List<Object[]> countFailedLoginsByUsername(@Param("startDate") LocalDateTime startDate);
+    
+    /**
+     * 条件に合う監査ログを新しい順に検索
+     * @param username ユーザー名（nullの場合はすべて）
+     * @param startDate 開始日時（含む）
+     * @param endDate 終了日時（含まない）
+     * @param pageable ページング情報
+     * @return 監査ログリスト
+     */
+    @Query("SELECT a FROM AuditLog a WHERE (:username IS NULL OR a.username = :username) " +
+           "AND a.createdAt >= :startDate AND a.createdAt < :endDate ORDER BY a.createdAt DESC, a.id DESC")
+    List<AuditLog> search(@Param("username") String username,
+                          @Param("startDate") LocalDateTime startDate,
+                          @Param("endDate") LocalDateTime endDate,
+                          Pageable pageable);
+    
+    /**
+     * アーカイブ対象の監査ログを古い順に取得
+     * @param before この日時より前に作成された監査ログが対象
+     * @param pageable 件数
+     * @return 監査ログリスト
+     */
+    @Query("SELECT a FROM AuditLog a WHERE a.createdAt < :before ORDER BY a.createdAt, a.id")
+    List<AuditLog> findArchivable(@Param("before") LocalDateTime before, Pageable pageable);
+    
+    /**
+     * アーカイブ済みの監査ログを削除
+     * @param ids ID
+     * @return 削除件数
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM AuditLog a WHERE a.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
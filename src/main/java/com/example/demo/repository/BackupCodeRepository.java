@@ -32,6 +32,21 @@ public interface BackupCodeRepository extends JpaRepository<BackupCode, Long> {
      */
     Optional<BackupCode> findByUserAndCodeAndUsedFalse(User user, String code);
     
+    /**
+     * ユーザーと検索キーで検索（未使用のもの）
+     * @param user ユーザー
+     * @param lookupKey 検索キー
+     * @return バックアップコード
+     */
+    Optional<BackupCode> findByUserAndLookupKeyAndUsedFalse(User user, String lookupKey);
+    
+    /**
+     * 検索キーのない未使用バックアップコードを取得（検索キー導入前に発行したもの）
+     * @param user ユーザー
+     * @return バックアップコードリスト
+     */
+    List<BackupCode> findByUserAndLookupKeyIsNullAndUsedFalse(User user);
+    
     /**
      * ユーザーのすべてのバックアップコードを削除
      * @param user ユーザー
@@ -0,0 +1,41 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.LoginAttemptDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * ログイン試行の日次集計リポジトリ
+ */
+@Repository
+public interface LoginAttemptDailyRollupRepository extends JpaRepository<LoginAttemptDailyRollup, Long> {
+    
+    /**
+     * 集計済みの最新の日付
+     */
+    @Query("SELECT MAX(r.rollupDate) FROM LoginAttemptDailyRollup r")
+    Optional<LocalDate> findLatestRollupDate();
+    
+    /**
+     * ユーザーの指定日以降の日次集計を取得
+     */
+    List<LoginAttemptDailyRollup> findByUsernameAndRollupDateGreaterThanEqual(String username, LocalDate from);
+    
+    /**
+     * 保持期間を過ぎた日次集計を削除
+     * @param before この日付より前の集計を削除
+     * @return 削除件数
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM LoginAttemptDailyRollup r WHERE r.rollupDate < :before")
+    int deleteByRollupDateBefore(@Param("before") LocalDate before);
+}
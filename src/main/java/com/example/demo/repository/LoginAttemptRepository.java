@@ -1,13 +1,20 @@
 package com.example.demo.repository;
 
+import com.example.demo.dto.LoginAttemptAggregate;
+import com.example.demo.dto.LoginAttemptDailyAggregate;
 import com.example.demo.entity.LoginAttempt;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 /**
  * ログイン試行リポジトリ
@@ -51,4 +58,72 @@ public interface LoginAttemptRepository extends JpaRepository<LoginAttempt, Long
            "WHERE la.username = :username AND la.attemptedAt > :after " +
            "AND la.countryCode IS NOT NULL")
     List<String> findDistinctCountryCodes(@Param("username") String username, @Param("after") LocalDateTime after);
+    
+    /**
+     * リスク評価用にログイン試行を（IPアドレス, 国コード）単位で集計
+     * エンティティを展開せずに最終アクセス・最終成功を求めるために使用
+     * 
+     * @param username ユーザー名
+     * @param after 集計対象の開始日時
+     * @return 集計結果
+     */
+    @Query("SELECT new com.example.demo.dto.LoginAttemptAggregate(" +
+           "la.ipAddress, la.countryCode, MAX(la.attemptedAt), " +
+           "MAX(CASE WHEN la.successful = true THEN la.attemptedAt ELSE NULL END)) " +
+           "FROM LoginAttempt la WHERE la.username = :username AND la.attemptedAt > :after " +
+           "GROUP BY la.ipAddress, la.countryCode")
+    List<LoginAttemptAggregate> aggregateForRiskAssessment(@Param("username") String username,
+                                                          @Param("after") LocalDateTime after);
+    
+    /**
+     * 指定期間内の失敗日時を新しい順に取得
+     */
+    @Query("SELECT la.attemptedAt FROM LoginAttempt la WHERE la.username = :username " +
+           "AND la.successful = false AND la.attemptedAt > :after ORDER BY la.attemptedAt DESC")
+    List<LocalDateTime> findFailedAttemptTimes(@Param("username") String username,
+                                               @Param("after") LocalDateTime after,
+                                               Pageable pageable);
+    
+    /**
+     * 最も古い試行日時
+     */
+    @Query("SELECT MIN(la.attemptedAt) FROM LoginAttempt la")
+    Optional<LocalDateTime> findOldestAttemptedAt();
+    
+    /**
+     * 指定期間のログイン試行をユーザー単位で集計（日次集計用）
+     * @param from 開始日時（含む）
+     * @param to 終了日時（含まない）
+     * @return 集計結果
+     */
+    @Query("SELECT new com.example.demo.dto.LoginAttemptDailyAggregate(" +
+           "la.username, COUNT(la), SUM(CASE WHEN la.successful = false THEN 1L ELSE 0L END), " +
+           "COUNT(DISTINCT la.ipAddress), MAX(la.attemptedAt), " +
+           "MAX(CASE WHEN la.successful = true THEN la.attemptedAt ELSE NULL END)) " +
+           "FROM LoginAttempt la WHERE la.attemptedAt >= :from AND la.attemptedAt < :to " +
+           "GROUP BY la.username")
+    List<LoginAttemptDailyAggregate> aggregateDaily(@Param("from") LocalDateTime from,
+                                                    @Param("to") LocalDateTime to);
+    
+    /**
+     * 指定期間の（ユーザー名, 国コード）の組み合わせを取得（日次集計用）
+     */
+    @Query("SELECT DISTINCT la.username, la.countryCode FROM LoginAttempt la " +
+           "WHERE la.attemptedAt >= :from AND la.attemptedAt < :to AND la.countryCode IS NOT NULL")
+    List<Object[]> findDailyCountryCodes(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+    
+    /**
+     * 指定日時より前のログイン試行のIDを古い順に取得（分割削除用）
+     */
+    @Query("SELECT la.id FROM LoginAttempt la WHERE la.attemptedAt < :before ORDER BY la.attemptedAt")
+    List<Long> findIdsAttemptedBefore(@Param("before") LocalDateTime before, Pageable pageable);
+    
+    /**
+     * IDを指定して削除
+     * @return 削除件数
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM LoginAttempt la WHERE la.id IN :ids")
+    int deleteByIdIn(@Param("ids") Collection<Long> ids);
 }
\ No newline at end of file
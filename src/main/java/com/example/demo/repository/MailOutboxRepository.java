@@ -0,0 +1,98 @@
+package com.example.demo.repository;
+
+import com.example.demo.entity.MailOutbox;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 送信待ちメールリポジトリ
+ * 状態の更新は条件付きUPDATEで行い、複数インスタンスから同じメールを重複して送信しないようにする
+ */
+@Repository
+public interface MailOutboxRepository extends JpaRepository<MailOutbox, Long> {
+    
+    /**
+     * 送信時刻を過ぎた送信待ちメールを取得（古い順）
+     * @param now 現在時刻
+     * @param pageable 取得件数
+     * @return 送信待ちメール
+     */
+    @Query("SELECT m FROM MailOutbox m WHERE m.status = com.example.demo.entity.MailOutbox.Status.PENDING " +
+           "AND m.nextAttemptAt <= :now ORDER BY m.nextAttemptAt")
+    List<MailOutbox> findDue(@Param("now") LocalDateTime now, Pageable pageable);
+    
+    /**
+     * 送信待ちメールを送信中にする
+     * @param id ID
+     * @param lockedUntil 送信中とみなす期限
+     * @return 更新件数（他で送信中にした場合は0）
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE MailOutbox m SET m.status = com.example.demo.entity.MailOutbox.Status.SENDING, " +
+           "m.lockedUntil = :lockedUntil " +
+           "WHERE m.id = :id AND m.status = com.example.demo.entity.MailOutbox.Status.PENDING")
+    int claim(@Param("id") Long id, @Param("lockedUntil") LocalDateTime lockedUntil);
+    
+    /**
+     * 送信済みにする（コードは削除）
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE MailOutbox m SET m.status = com.example.demo.entity.MailOutbox.Status.SENT, " +
+           "m.sentAt = :sentAt, m.attempts = m.attempts + 1, m.code = null, m.lockedUntil = null, " +
+           "m.lastError = null WHERE m.id = :id")
+    int markSent(@Param("id") Long id, @Param("sentAt") LocalDateTime sentAt);
+    
+    /**
+     * 再送待ちに戻す
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE MailOutbox m SET m.status = com.example.demo.entity.MailOutbox.Status.PENDING, " +
+           "m.attempts = :attempts, m.nextAttemptAt = :nextAttemptAt, m.lastError = :lastError, " +
+           "m.lockedUntil = null WHERE m.id = :id")
+    int markRetry(@Param("id") Long id, @Param("attempts") int attempts,
+                  @Param("nextAttemptAt") LocalDateTime nextAttemptAt, @Param("lastError") String lastError);
+    
+    /**
+     * 送信失敗にする（コードは削除）
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE MailOutbox m SET m.status = com.example.demo.entity.MailOutbox.Status.FAILED, " +
+           "m.attempts = :attempts, m.lastError = :lastError, m.code = null, m.lockedUntil = null " +
+           "WHERE m.id = :id")
+    int markFailed(@Param("id") Long id, @Param("attempts") int attempts, @Param("lastError") String lastError);
+    
+    /**
+     * 期限を過ぎても送信中のままのメールを送信待ちに戻す
+     * @param now 現在時刻
+     * @return 更新件数
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE MailOutbox m SET m.status = com.example.demo.entity.MailOutbox.Status.PENDING, " +
+           "m.lockedUntil = null WHERE m.status = com.example.demo.entity.MailOutbox.Status.SENDING " +
+           "AND m.lockedUntil < :now")
+    int releaseStale(@Param("now") LocalDateTime now);
+    
+    /**
+     * 保持期間を過ぎた送信済み・送信失敗のメールを削除
+     * @param before この日時より前に作成したメールを削除
+     * @return 削除件数
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM MailOutbox m WHERE m.status IN (com.example.demo.entity.MailOutbox.Status.SENT, " +
+           "com.example.demo.entity.MailOutbox.Status.FAILED) AND m.createdAt < :before")
+    int deleteFinishedBefore(@Param("before") LocalDateTime before);
+}
@@ -14,33 +14,60 @@ import java.util.Optional;
 
 /**
  * ワンタイムパスワードリポジトリ
+ * ユーザー・用途ごとに1行のため、検索はすべて一意キー（user_id, purpose）で行う
  */
 @Repository
 public interface OneTimePasswordRepository extends JpaRepository<OneTimePassword, Long> {
     
     /**
-     * ユーザーと用途で有効なOTPを検索
+     * ユーザーと用途でOTPを検索
      * @param user ユーザー
      * @param purpose 用途
-     * @return 有効なOTP
+     * @return OTP（未発行の場合は空）
      */
-    @Query("SELECT otp FROM OneTimePassword otp WHERE otp.user = :user AND otp.purpose = :purpose " +
-           "AND otp.used = false AND otp.expiresAt > :now ORDER BY otp.createdAt DESC")
-    Optional<OneTimePassword> findLatestValidOtp(@Param("user") User user, 
-                                               @Param("purpose") OtpPurpose purpose,
-                                               @Param("now") LocalDateTime now);
+    Optional<OneTimePassword> findByUserAndPurpose(User user, OtpPurpose purpose);
     
     /**
-     * ユーザーとコードで有効なOTPを検索
+     * 既存のOTPを新しいコードで上書き
      * @param user ユーザー
-     * @param code コード
-     * @return 有効なOTP
+     * @param purpose 用途
+     * @param codeHash コードのHMAC
+     * @param expiresAt 有効期限
+     * @param now 発行日時
+     * @return 更新件数（未発行の場合は0）
+     */
+    @Modifying
+    @Query("UPDATE OneTimePassword otp SET otp.codeHash = :codeHash, otp.expiresAt = :expiresAt, " +
+           "otp.createdAt = :now, otp.used = false, otp.attempts = 0 " +
+           "WHERE otp.user = :user AND otp.purpose = :purpose")
+    int reissue(@Param("user") User user,
+                @Param("purpose") OtpPurpose purpose,
+                @Param("codeHash") String codeHash,
+                @Param("expiresAt") LocalDateTime expiresAt,
+                @Param("now") LocalDateTime now);
+    
+    /**
+     * 検証の試行回数を1回分消費（未使用かつ試行回数が上限未満の場合のみ）
+     * 判定と加算を1文で行うため、同時に検証されても上限を超えて照合されない
+     * @param id ID
+     * @param maxAttempts 試行回数の上限
+     * @return 更新件数（上限に達している場合などは0）
+     */
+    @Modifying
+    @Query("UPDATE OneTimePassword otp SET otp.attempts = otp.attempts + 1 WHERE otp.id = :id " +
+           "AND otp.used = false AND otp.attempts < :maxAttempts")
+    int consumeAttempt(@Param("id") Long id, @Param("maxAttempts") int maxAttempts);
+    
+    /**
+     * OTPを使用済みにする（未使用かつ照合したコードのままの場合のみ）
+     * @param id ID
+     * @param codeHash 照合したコードのHMAC
+     * @return 更新件数（同時に使用・再発行された場合は0）
      */
-    @Query("SELECT otp FROM OneTimePassword otp WHERE otp.user = :user AND otp.code = :code " +
-           "AND otp.used = false AND otp.expiresAt > :now")
-    Optional<OneTimePassword> findValidOtpByCode(@Param("user") User user, 
-                                               @Param("code") String code,
-                                               @Param("now") LocalDateTime now);
+    @Modifying
+    @Query("UPDATE OneTimePassword otp SET otp.used = true WHERE otp.id = :id " +
+           "AND otp.used = false AND otp.codeHash = :codeHash")
+    int markUsed(@Param("id") Long id, @Param("codeHash") String codeHash);
     
     /**
      * 期限切れのOTPを削除
@@ -50,14 +77,4 @@ public interface OneTimePasswordRepository extends JpaRepository<OneTimePassword
     @Modifying
     @Query("DELETE FROM OneTimePassword otp WHERE otp.expiresAt < :now OR otp.used = true")
     int deleteExpiredOtps(@Param("now") LocalDateTime now);
-    
-    /**
-     * ユーザーの未使用OTPを無効化
-     * @param user ユーザー
-     * @param purpose 用途
-     */
-    @Modifying
-    @Query("UPDATE OneTimePassword otp SET otp.used = true WHERE otp.user = :user " +
-           "AND otp.purpose = :purpose AND otp.used = false")
-    void invalidateUserOtps(@Param("user") User user, @Param("purpose") OtpPurpose purpose);
 }
\ No newline at end of file
@@ -3,6 +3,8 @@ package com.example.demo.repository;
 import com.example.demo.entity.TrustedDevice;
 import com.example.demo.entity.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -35,4 +37,11 @@ public interface TrustedDeviceRepository extends JpaRepository<TrustedDevice, Lo
      * ユーザーの信頼済みデバイス数を取得
      */
     long countByUserAndIsActiveTrue(User user);
+    
+    /**
+     * ユーザーのアクティブな信頼済みデバイスのフィンガープリントを取得
+     */
+    @Query("SELECT td.deviceFingerprint FROM TrustedDevice td " +
+           "WHERE td.user.id = :userId AND td.isActive = true")
+    List<String> findActiveFingerprints(@Param("userId") Long userId);
 }
\ No newline at end of file
@@ -1,9 +1,14 @@
 package com.example.demo.repository;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.example.demo.dto.UserRiskAttributes;
 import com.example.demo.entity.User;
 
 public interface UserRepository extends JpaRepository<User, Long> {
@@ -11,4 +16,42 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByUsername(String username);
     boolean existsByEmail(String email);
+    
+    /**
+     * リスク評価用のユーザー属性を取得
+     */
+    @Query("SELECT new com.example.demo.dto.UserRiskAttributes(u.id, u.mfaEnabled) " +
+           "FROM User u WHERE u.username = :username")
+    Optional<UserRiskAttributes> findRiskAttributes(@Param("username") String username);
+    
+    /**
+     * ログイン失敗回数を加算し、閾値に達した場合はロックする（1回のUPDATEで行う）
+     * 更新した行はトランザクション終了までロックされるため、同じユーザーへの同時更新は直列化される
+     * @return 更新件数（ユーザーが存在しない場合は 0）
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE User u SET u.failedLoginAttempts = u.failedLoginAttempts + 1, " +
+           "u.lastFailedLoginAt = :now, u.updatedAt = :now, " +
+           "u.lockedAt = CASE WHEN u.accountLocked = false AND u.failedLoginAttempts + 1 >= :threshold " +
+           "THEN :now ELSE u.lockedAt END, " +
+           "u.accountLocked = CASE WHEN u.failedLoginAttempts + 1 >= :threshold THEN true ELSE u.accountLocked END " +
+           "WHERE u.username = :username")
+    int incrementFailedLoginAttempts(@Param("username") String username,
+                                     @Param("threshold") int threshold,
+                                     @Param("now") LocalDateTime now);
+    
+    /**
+     * ログイン失敗回数を取得（incrementFailedLoginAttempts と同じトランザクションで更新後の値を読む）
+     */
+    @Query("SELECT u.failedLoginAttempts FROM User u WHERE u.username = :username")
+    Optional<Integer> findFailedLoginAttempts(@Param("username") String username);
+    
+    /**
+     * ログイン失敗回数をリセット（失敗回数が 0 の場合は更新しない）
+     * @return 更新件数
+     */
+    @Modifying(flushAutomatically = true)
+    @Query("UPDATE User u SET u.failedLoginAttempts = 0, u.updatedAt = :now " +
+           "WHERE u.username = :username AND u.failedLoginAttempts <> 0")
+    int resetFailedLoginAttempts(@Param("username") String username, @Param("now") LocalDateTime now);
 }
@@ -2,6 +2,7 @@ package com.example.demo.security;
 
 import com.example.demo.entity.AuditLog.EventType;
 import com.example.demo.service.AuditLogService;
+import com.example.demo.service.RateLimitService;
 import com.example.demo.service.impl.UserServiceImpl;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -22,6 +23,7 @@ public class AuthenticationEventListener {
     
     private final UserServiceImpl userService;
     private final AuditLogService auditLogService;
+    private final RateLimitService rateLimitService;
     
     /**
      * ログイン成功時の処理
@@ -42,6 +44,11 @@ public class AuthenticationEventListener {
     public void onAuthenticationFailure(AuthenticationFailureBadCredentialsEvent event) {
         String username = event.getAuthentication().getName();
         userService.handleLoginFailure(username);
+        // ユーザー名単位のログイン制限は失敗のみを数える
+        String rateLimitKey = RateLimitFilter.normalizeUsername(username);
+        if (rateLimitKey != null) {
+            rateLimitService.record(rateLimitKey, RateLimitFilter.LOGIN_USERNAME_ACTION);
+        }
         auditLogService.logFailure(EventType.LOGIN_FAILURE, username, "認証失敗");
     }
     
@@ -0,0 +1,68 @@
+package com.example.demo.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * BCryptのコストの調整
+ * 実行中のハードウェアで実際にハッシュ化を行い、目標時間を超えない最大のコストを求める
+ */
+@Slf4j
+public final class BCryptStrengthCalibrator {
+
+    // OWASPの推奨する最小値
+    public static final int MIN_STRENGTH = 10;
+    public static final int MAX_STRENGTH = 16;
+
+    private static final int SAMPLES = 3;
+    private static final byte[] SAMPLE_PASSWORD = "calibration-sample-password".getBytes(StandardCharsets.US_ASCII);
+
+    private BCryptStrengthCalibrator() {
+    }
+
+    /**
+     * 目標時間を超えない最大のコストを求める（最小でも {@link #MIN_STRENGTH}）
+     *
+     * @param target 1回のハッシュ化の目標時間
+     * @return コスト
+     */
+    public static int calibrate(Duration target) {
+        long targetNanos = target.toNanos();
+        // JITの暖機
+        measure(MIN_STRENGTH);
+
+        int selected = MIN_STRENGTH;
+        for (int strength = MIN_STRENGTH; strength <= MAX_STRENGTH; strength++) {
+            long elapsed = measure(strength);
+            log.info("BCryptのコストを測定: コスト={}, 所要時間={}ms", strength, elapsed / 1_000_000);
+            if (elapsed > targetNanos) {
+                break;
+            }
+            selected = strength;
+            // コストを1上げると所要時間はほぼ倍になるため、次が超える場合は測定しない
+            if (elapsed * 2 > targetNanos) {
+                break;
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 指定したコストでのハッシュ化の所要時間（中央値、ナノ秒）
+     */
+    private static long measure(int strength) {
+        long[] samples = new long[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            String salt = BCrypt.gensalt(strength);
+            long start = System.nanoTime();
+            BCrypt.hashpw(SAMPLE_PASSWORD, salt);
+            samples[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(samples);
+        return samples[SAMPLES / 2];
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.demo.security;
+
+import com.example.demo.config.ClientIpConfig;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.security.web.util.matcher.IpAddressMatcher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * クライアントIPアドレスの判定
+ * X-Forwarded-For / X-Real-IP はクライアントが自由に設定できるため、
+ * 接続元が信頼済みプロキシの場合のみ参照する（レート制限・リスク評価・監査ログで共通）
+ */
+@Component
+public class ClientIpResolver {
+
+    private final List<IpAddressMatcher> trustedProxies;
+
+    public ClientIpResolver(ClientIpConfig config) {
+        this.trustedProxies = config.getTrustedProxies().stream()
+            .map(String::trim)
+            .filter(proxy -> !proxy.isEmpty())
+            .map(IpAddressMatcher::new)
+            .toList();
+    }
+
+    /**
+     * クライアントIPアドレスを取得
+     * X-Forwarded-For は右（自分に近い側）から辿り、信頼済みプロキシ以外で最初に現れたアドレスを使う
+     * @param request HTTPリクエスト
+     * @return IPアドレス
+     */
+    public String resolve(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        if (!isTrustedProxy(remoteAddr)) {
+            return remoteAddr;
+        }
+
+        String xForwardedFor = request.getHeader("X-Forwarded-For");
+        if (xForwardedFor != null && !xForwardedFor.isBlank()) {
+            String[] hops = xForwardedFor.split(",");
+            String client = remoteAddr;
+            for (int i = hops.length - 1; i >= 0; i--) {
+                String hop = hops[i].trim();
+                if (hop.isEmpty()) {
+                    continue;
+                }
+                client = hop;
+                if (!isTrustedProxy(hop)) {
+                    break;
+                }
+            }
+            return client;
+        }
+
+        String xRealIp = request.getHeader("X-Real-IP");
+        if (xRealIp != null && !xRealIp.isBlank()) {
+            return xRealIp.trim();
+        }
+
+        return remoteAddr;
+    }
+
+    private boolean isTrustedProxy(String address) {
+        if (address == null || trustedProxies.isEmpty()) {
+            return false;
+        }
+        try {
+            for (IpAddressMatcher matcher : trustedProxies) {
+                if (matcher.matches(address)) {
+                    return true;
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            // IPアドレスとして解釈できない値（ホスト名など）は信頼しない
+        }
+        return false;
+    }
+}
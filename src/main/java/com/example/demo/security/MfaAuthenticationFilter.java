@@ -1,11 +1,12 @@
 package com.example.demo.security;
 
-import com.example.demo.entity.User;
-import com.example.demo.repository.UserRepository;
+import com.example.demo.service.UserCache;
+import com.example.demo.service.UserCache.CachedUser;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.Authentication;
@@ -18,13 +19,22 @@ import java.io.IOException;
 /**
  * MFA認証フィルター
  * MFAが有効なユーザーに対して追加認証を要求
+ * 
+ * MFAの要否はログイン後の最初のリクエストで UserCache から取得してセッションに保持し、
+ * MFA設定が変更された場合（MfaStateRegistry の通番が変わった場合）のみ再取得する
  */
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class MfaAuthenticationFilter extends OncePerRequestFilter {
     
-    private final UserRepository userRepository;
+    // セッション属性（MFA要否、対象ユーザー、取得時の変更通番）
+    static final String MFA_REQUIRED = "MFA_REQUIRED";
+    static final String MFA_REQUIRED_USER = "MFA_REQUIRED_USER";
+    static final String MFA_REQUIRED_STAMP = "MFA_REQUIRED_STAMP";
+    
+    private final UserCache userCache;
+    private final MfaStateRegistry mfaStateRegistry;
     
     @Override
     protected void doFilterInternal(HttpServletRequest request, 
@@ -46,9 +56,8 @@ public class MfaAuthenticationFilter extends OncePerRequestFilter {
             !"anonymousUser".equals(authentication.getPrincipal())) {
             
             String username = authentication.getName();
-            User user = userRepository.findByUsername(username).orElse(null);
             
-            if (user != null && user.isMfaEnabled()) {
+            if (isMfaRequired(request, username)) {
                 // セッションでMFA検証済みかチェック
                 Boolean mfaVerified = (Boolean) request.getSession().getAttribute("MFA_VERIFIED");
                 
@@ -62,4 +71,32 @@ public class MfaAuthenticationFilter extends OncePerRequestFilter {
         
         filterChain.doFilter(request, response);
     }
+    
+    /**
+     * MFAが必要かどうかを判定（セッションにキャッシュ）
+     */
+    private boolean isMfaRequired(HttpServletRequest request, String username) {
+        HttpSession session = request.getSession(false);
+        // ユーザー取得より先に通番を読み、取得中の変更は次のリクエストで反映する
+        long stamp = mfaStateRegistry.getChangeStamp(username);
+        
+        if (session != null && username.equals(session.getAttribute(MFA_REQUIRED_USER))) {
+            Object required = session.getAttribute(MFA_REQUIRED);
+            Object cachedStamp = session.getAttribute(MFA_REQUIRED_STAMP);
+            if (required instanceof Boolean && cachedStamp instanceof Long
+                    && (Long) cachedStamp == stamp) {
+                return (Boolean) required;
+            }
+        }
+        
+        boolean required = userCache.getByUsername(username)
+            .map(CachedUser::mfaEnabled)
+            .orElse(false);
+        if (session != null) {
+            session.setAttribute(MFA_REQUIRED, required);
+            session.setAttribute(MFA_REQUIRED_USER, username);
+            session.setAttribute(MFA_REQUIRED_STAMP, stamp);
+        }
+        return required;
+    }
 }
\ No newline at end of file
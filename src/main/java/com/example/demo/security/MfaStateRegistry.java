@@ -0,0 +1,52 @@
+package com.example.demo.security;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * MFA設定の変更履歴
+ * セッションにキャッシュしたMFA要否が古くなっていないかを判定するため、
+ * ユーザーごとに最後にMFA設定を変更したときの通番を保持する
+ */
+@Component
+public class MfaStateRegistry {
+    
+    private final AtomicLong sequence = new AtomicLong();
+    private final ConcurrentHashMap<String, Long> changeStamps = new ConcurrentHashMap<>();
+    
+    /**
+     * MFA設定の変更を記録
+     * トランザクション内で呼ばれた場合は、コミット前に古い値を読んだセッションが
+     * 再取得するようコミット後にも通番を更新する
+     * @param username ユーザー名
+     */
+    public void markChanged(String username) {
+        bump(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    bump(username);
+                }
+            });
+        }
+    }
+    
+    /**
+     * 最後にMFA設定を変更したときの通番を取得
+     * @param username ユーザー名
+     * @return 通番（起動後に変更がない場合は 0）
+     */
+    public long getChangeStamp(String username) {
+        Long stamp = changeStamps.get(username);
+        return stamp != null ? stamp : 0L;
+    }
+    
+    private void bump(String username) {
+        changeStamps.put(username, sequence.incrementAndGet());
+    }
+}
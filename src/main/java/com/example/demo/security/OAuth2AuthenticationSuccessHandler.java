@@ -25,6 +25,7 @@ import java.time.LocalDateTime;
 public class OAuth2AuthenticationSuccessHandler extends SavedRequestAwareAuthenticationSuccessHandler {
     
     private final RiskAssessmentService riskAssessmentService;
+    private final ClientIpResolver clientIpResolver;
     
     @Override
     public void onAuthenticationSuccess(HttpServletRequest request, HttpServletResponse response,
@@ -69,28 +70,11 @@ public class OAuth2AuthenticationSuccessHandler extends SavedRequestAwareAuthent
         LocalDateTime now = LocalDateTime.now();
         
         return LoginContext.builder()
-            .ipAddress(getClientIpAddress(request))
+            .ipAddress(clientIpResolver.resolve(request))
             .userAgent(request.getHeader("User-Agent"))
             .deviceFingerprint(request.getParameter("deviceFingerprint"))
             .hourOfDay(now.getHour())
             .dayOfWeek(now.getDayOfWeek().getValue() % 7)
             .build();
     }
-    
-    /**
-     * クライアントのIPアドレスを取得
-     */
-    private String getClientIpAddress(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-        
-        String xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty()) {
-            return xRealIp;
-        }
-        
-        return request.getRemoteAddr();
-    }
 }
\ No newline at end of file
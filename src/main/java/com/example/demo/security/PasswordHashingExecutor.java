@@ -0,0 +1,193 @@
+package com.example.demo.security;
+
+import com.example.demo.config.PasswordHashingConfig;
+import com.example.demo.exception.PasswordHashingUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.AuthenticationServiceException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * パスワードハッシュ処理の実行器
+ * BCryptをリクエストスレッドではなく固定サイズのスレッドプールで実行し、
+ * ログインが集中してもCPUを使い切らないようにする
+ *
+ * 待ち行列が満杯の場合は待たずに {@link PasswordHashingUnavailableException} を投げる。
+ */
+@Component
+@Slf4j
+public class PasswordHashingExecutor {
+
+    /**
+     * 処理の種類（メトリクスのタグ）
+     */
+    public enum Operation {
+        ENCODE, MATCHES
+    }
+
+    // ワーカースレッド上で呼ばれた場合は入れ子で投入せずにそのまま実行する
+    private static final ThreadLocal<Boolean> IN_WORKER = ThreadLocal.withInitial(() -> false);
+
+    private final PasswordHashingConfig config;
+    private final ThreadPoolExecutor executor;
+    private final Map<Operation, Timer> durationTimers = new EnumMap<>(Operation.class);
+    private final Timer queueWaitTimer;
+    private final Counter rejectedCounter;
+
+    public PasswordHashingExecutor(PasswordHashingConfig config, MeterRegistry meterRegistry) {
+        this.config = config;
+        int poolSize = config.getPoolSize() > 0
+            ? config.getPoolSize() : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity())),
+            task -> {
+                Thread thread = new Thread(() -> {
+                    IN_WORKER.set(true);
+                    task.run();
+                }, "password-hash-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.AbortPolicy());
+
+        for (Operation operation : Operation.values()) {
+            durationTimers.put(operation, Timer.builder("password.hash.duration")
+                .description("パスワードハッシュ処理の所要時間")
+                .tag("operation", operation.name().toLowerCase())
+                .register(meterRegistry));
+        }
+        this.queueWaitTimer = Timer.builder("password.hash.queue.wait")
+            .description("パスワードハッシュ処理の待ち時間")
+            .register(meterRegistry);
+        this.rejectedCounter = meterRegistry.counter("password.hash.rejected");
+        Gauge.builder("password.hash.queue.size", executor.getQueue(), BlockingQueue::size)
+            .description("パスワードハッシュ処理の待ち件数")
+            .register(meterRegistry);
+        Gauge.builder("password.hash.active", executor, ThreadPoolExecutor::getActiveCount)
+            .description("パスワードハッシュ処理の実行中件数")
+            .register(meterRegistry);
+
+        log.info("パスワードハッシュ処理のスレッドプールを作成: スレッド数={}, 待ち行列={}",
+            poolSize, config.getQueueCapacity());
+    }
+
+    /**
+     * ハッシュ処理をスレッドプールで実行し、完了まで待つ
+     *
+     * @param operation 処理の種類
+     * @param task 処理
+     * @return 処理結果
+     * @throws PasswordHashingUnavailableException 待ち行列が満杯の場合
+     */
+    public <T> T execute(Operation operation, Supplier<T> task) {
+        Timer durationTimer = durationTimers.get(operation);
+        if (IN_WORKER.get()) {
+            return durationTimer.record(task);
+        }
+        return await(submit(task, durationTimer));
+    }
+
+    /**
+     * 複数の処理をスレッドプールで並列に実行し、すべての完了まで待つ
+     * 各処理はエンコーダー経由でハッシュ処理を行う想定（ワーカー上でそのまま実行され、所要時間もそこで記録される）
+     *
+     * @param tasks 処理
+     * @return 処理結果（tasks と同じ順序）
+     * @throws PasswordHashingUnavailableException 待ち行列が満杯の場合（投入済みの処理は取り消す）
+     */
+    public <T> List<T> invokeAll(List<? extends Supplier<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        if (IN_WORKER.get()) {
+            for (Supplier<T> task : tasks) {
+                results.add(task.get());
+            }
+            return results;
+        }
+
+        List<Future<T>> futures = new ArrayList<>(tasks.size());
+        boolean completed = false;
+        try {
+            for (Supplier<T> task : tasks) {
+                futures.add(submit(task, null));
+            }
+            for (Future<T> future : futures) {
+                results.add(await(future));
+            }
+            completed = true;
+            return results;
+        } finally {
+            if (!completed) {
+                futures.forEach(future -> future.cancel(true));
+            }
+        }
+    }
+
+    private <T> Future<T> submit(Supplier<T> task, Timer durationTimer) {
+        long submittedAt = System.nanoTime();
+        try {
+            return executor.submit(() -> {
+                long startedAt = System.nanoTime();
+                queueWaitTimer.record(startedAt - submittedAt, TimeUnit.NANOSECONDS);
+                if (durationTimer == null) {
+                    return task.get();
+                }
+                try {
+                    return task.get();
+                } finally {
+                    durationTimer.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejectedCounter.increment();
+            log.warn("パスワードハッシュ処理が混雑しているため拒否しました: 待ち件数={}", executor.getQueue().size());
+            throw new PasswordHashingUnavailableException(
+                "現在アクセスが集中しています。しばらく待ってから再試行してください。", config.getRetryAfterSeconds());
+        }
+    }
+
+    private <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new AuthenticationServiceException("パスワードハッシュ処理が中断されました", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            if (cause instanceof Error error) {
+                throw error;
+            }
+            throw new AuthenticationServiceException("パスワードハッシュ処理に失敗しました", cause);
+        }
+    }
+
+    /**
+     * 停止時にスレッドプールを終了
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.demo.security;
+
+import com.example.demo.exception.PasswordHashingUnavailableException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+
+import java.io.IOException;
+
+/**
+ * パスワードハッシュ処理の過負荷時の認証失敗ハンドラー
+ * ログイン失敗としては扱わず、503 と Retry-After を返す
+ */
+@Slf4j
+public class PasswordHashingUnavailableHandler implements AuthenticationFailureHandler {
+
+    @Override
+    public void onAuthenticationFailure(HttpServletRequest request, HttpServletResponse response,
+                                        AuthenticationException exception) throws IOException {
+        int retryAfter = exception instanceof PasswordHashingUnavailableException unavailable
+            ? unavailable.getRetryAfterSeconds() : 1;
+        log.warn("ログイン処理が混雑しているため拒否しました: {}", exception.getMessage());
+        response.setHeader("Retry-After", String.valueOf(retryAfter));
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, exception.getMessage());
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.demo.security;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * パスワードへのペッパー適用
+ * ダイジェスト・HMAC・作業用バッファをスレッドごとに使い回し、中間の文字列を作らずに
+ * UTF-8のバイト列へ変換してから処理する
+ *
+ * 戻り値のバイト列はスレッドごとのバッファであり、同じスレッドで次に呼び出すまでの間のみ有効。
+ * OTP・バックアップコードなどの検索用HMACにも {@link #hmac(String)} で同じキーを使う。
+ */
+public final class PasswordPepper {
+
+    private static final String HMAC_ALGORITHM = "HmacSHA256";
+
+    // SHA-256 / HMAC-SHA256 の出力長と、そのBase64表現の長さ
+    private static final int HASH_LENGTH = 32;
+    private static final int ENCODED_LENGTH = 44;
+
+    private final byte[] pepperBytes;
+    private final SecretKeySpec hmacKey;
+    private final ThreadLocal<Workspace> workspace;
+
+    public PasswordPepper(String pepper) {
+        this.pepperBytes = pepper.getBytes(StandardCharsets.UTF_8);
+        this.hmacKey = new SecretKeySpec(pepperBytes, HMAC_ALGORITHM);
+        this.workspace = ThreadLocal.withInitial(Workspace::new);
+    }
+
+    /**
+     * HMAC-SHA256（キーはペッパー）を適用し、Base64（ASCII）のバイト列を返す
+     */
+    byte[] hmacPassword(CharSequence rawPassword) {
+        Workspace ws = workspace.get();
+        try {
+            ws.hmac(rawPassword);
+            return ws.toBase64();
+        } finally {
+            ws.clearInput();
+        }
+    }
+
+    /**
+     * HMAC-SHA256（キーはペッパー）を適用し、URLセーフなBase64（パディングなし）の文字列を返す
+     * 用途ごとに接頭辞を付けた値を渡し、他の用途のHMACと区別すること
+     */
+    public String hmac(String value) {
+        Workspace ws = workspace.get();
+        try {
+            ws.hmac(value);
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(ws.hash);
+        } finally {
+            ws.clearInput();
+        }
+    }
+
+    /**
+     * 旧方式（パスワード + ペッパーのSHA-256）を適用し、Base64（ASCII）のバイト列を返す
+     * 既存のハッシュの検証用で、結果は旧実装と同一
+     */
+    byte[] legacySha256(CharSequence rawPassword) {
+        Workspace ws = workspace.get();
+        try {
+            int length = ws.encode(rawPassword);
+            ws.digest.update(ws.input, 0, length);
+            ws.digest.update(pepperBytes);
+            ws.digest.digest(ws.hash, 0, HASH_LENGTH);
+            return ws.toBase64();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("SHA-256の計算に失敗しました", e);
+        } finally {
+            ws.clearInput();
+        }
+    }
+
+    /**
+     * スレッドごとの作業領域
+     */
+    private final class Workspace {
+        private final MessageDigest digest;
+        private final Mac mac;
+        private final byte[] hash = new byte[HASH_LENGTH];
+        private final byte[] output = new byte[ENCODED_LENGTH];
+        private byte[] input = new byte[128];
+        private int inputLength;
+
+        Workspace() {
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+                this.mac = Mac.getInstance(HMAC_ALGORITHM);
+                this.mac.init(hmacKey);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("ペッパー処理の初期化に失敗しました", e);
+            }
+        }
+
+        /**
+         * UTF-8に変換したHMAC-SHA256を hash に書き込む
+         */
+        void hmac(CharSequence value) {
+            try {
+                int length = encode(value);
+                mac.update(input, 0, length);
+                mac.doFinal(hash, 0);
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("HMAC-SHA256の計算に失敗しました", e);
+            }
+        }
+
+        /**
+         * UTF-8に変換して input に書き込み、バイト数を返す
+         * String#getBytes と同じく、対になっていないサロゲートは '?' に置き換える
+         */
+        int encode(CharSequence rawPassword) {
+            int length = rawPassword.length();
+            if (input.length < length * 3) {
+                input = new byte[length * 3];
+            }
+            int pos = 0;
+            for (int i = 0; i < length; i++) {
+                char c = rawPassword.charAt(i);
+                if (c < 0x80) {
+                    input[pos++] = (byte) c;
+                } else if (c < 0x800) {
+                    input[pos++] = (byte) (0xC0 | (c >> 6));
+                    input[pos++] = (byte) (0x80 | (c & 0x3F));
+                } else if (Character.isHighSurrogate(c) && i + 1 < length
+                        && Character.isLowSurrogate(rawPassword.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, rawPassword.charAt(++i));
+                    input[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                    input[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                    input[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                    input[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+                } else if (Character.isSurrogate(c)) {
+                    input[pos++] = '?';
+                } else {
+                    input[pos++] = (byte) (0xE0 | (c >> 12));
+                    input[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    input[pos++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+            inputLength = pos;
+            return pos;
+        }
+
+        byte[] toBase64() {
+            Base64.getEncoder().encode(hash, output);
+            return output;
+        }
+
+        void clearInput() {
+            Arrays.fill(input, 0, inputLength, (byte) 0);
+            inputLength = 0;
+            Arrays.fill(hash, (byte) 0);
+        }
+    }
+}
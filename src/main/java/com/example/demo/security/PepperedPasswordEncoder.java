@@ -1,62 +1,142 @@
 package com.example.demo.security;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import com.example.demo.security.PasswordHashingExecutor.Operation;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCrypt;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
-import org.springframework.stereotype.Component;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.util.Base64;
+import java.security.SecureRandom;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 /**
  * ペッパー付きパスワードエンコーダー
  * BCryptの前にペッパーを適用してセキュリティを強化
+ * BCryptは {@link PasswordHashingExecutor} のスレッドプールで実行する
+ *
+ * 方式は {@link #createDelegatingPasswordEncoder} で作成するエンコーダーが接頭辞で切り替える。
+ * コスト（ストレッチング回数）はBCryptのハッシュ自体に含まれる。
  */
-@Component
+@Slf4j
 public class PepperedPasswordEncoder implements PasswordEncoder {
     
-    private final BCryptPasswordEncoder bcryptEncoder;
-    private final String pepper;
+    /**
+     * 新しいハッシュの方式ID（ペッパーをキーにしたHMAC-SHA256 + BCrypt）
+     */
+    public static final String HMAC_ID = "hmac";
+    
+    /**
+     * ペッパーの適用方式
+     */
+    enum Scheme {
+        // ペッパーをキーにしたHMAC-SHA256
+        HMAC,
+        // パスワード + ペッパーのSHA-256（接頭辞のない既存のハッシュ）
+        LEGACY_SHA256
+    }
     
-    public PepperedPasswordEncoder(@Value("${app.security.pepper}") String pepper) {
-        this.bcryptEncoder = new BCryptPasswordEncoder();
+    private static final String BCRYPT_VERSION = "$2a";
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("\\A\\$2[aby]?\\$(\\d\\d)\\$[./0-9A-Za-z]{53}");
+    
+    private final PasswordPepper pepper;
+    private final Scheme scheme;
+    private final int strength;
+    private final PasswordHashingExecutor hashingExecutor;
+    private final SecureRandom random = new SecureRandom();
+    
+    PepperedPasswordEncoder(PasswordPepper pepper, Scheme scheme, int strength,
+                            PasswordHashingExecutor hashingExecutor) {
         this.pepper = pepper;
+        this.scheme = scheme;
+        this.strength = strength;
+        this.hashingExecutor = hashingExecutor;
+    }
+    
+    /**
+     * 方式ごとのエンコーダーを束ねたエンコーダーを作成
+     * 新しいハッシュは {hmac} 方式で作成し、接頭辞のないハッシュは旧方式で検証する。
+     * 旧方式のハッシュ・コストが設定より低いハッシュは {@link PasswordEncoder#upgradeEncoding} が true を返す。
+     *
+     * @param pepper ペッパー
+     * @param strength BCryptのコスト
+     * @param hashingExecutor ハッシュ処理の実行器
+     * @return エンコーダー
+     */
+    public static DelegatingPasswordEncoder createDelegatingPasswordEncoder(
+            String pepper, int strength, PasswordHashingExecutor hashingExecutor) {
+        return createDelegatingPasswordEncoder(new PasswordPepper(pepper), strength, hashingExecutor);
+    }
+    
+    /**
+     * 方式ごとのエンコーダーを束ねたエンコーダーを作成（ペッパーを他の用途と共有する場合）
+     *
+     * @param passwordPepper ペッパー
+     * @param strength BCryptのコスト
+     * @param hashingExecutor ハッシュ処理の実行器
+     * @return エンコーダー
+     */
+    public static DelegatingPasswordEncoder createDelegatingPasswordEncoder(
+            PasswordPepper passwordPepper, int strength, PasswordHashingExecutor hashingExecutor) {
+        Map<String, PasswordEncoder> encoders = new HashMap<>();
+        encoders.put(HMAC_ID, new PepperedPasswordEncoder(passwordPepper, Scheme.HMAC, strength, hashingExecutor));
+        
+        DelegatingPasswordEncoder delegatingEncoder = new DelegatingPasswordEncoder(HMAC_ID, encoders);
+        delegatingEncoder.setDefaultPasswordEncoderForMatches(
+            new PepperedPasswordEncoder(passwordPepper, Scheme.LEGACY_SHA256, strength, hashingExecutor));
+        return delegatingEncoder;
     }
     
     @Override
     public String encode(CharSequence rawPassword) {
-        // パスワードにペッパーを適用
-        String pepperedPassword = applyPepper(rawPassword.toString());
-        // BCryptでハッシュ化（ソルトは自動的に付与される）
-        return bcryptEncoder.encode(pepperedPassword);
+        String salt = BCrypt.gensalt(BCRYPT_VERSION, strength, random);
+        return hashingExecutor.execute(Operation.ENCODE, () -> {
+            // パスワードにペッパーを適用し、BCryptでハッシュ化
+            byte[] peppered = applyPepper(rawPassword);
+            try {
+                return BCrypt.hashpw(peppered, salt);
+            } finally {
+                Arrays.fill(peppered, (byte) 0);
+            }
+        });
     }
     
     @Override
     public boolean matches(CharSequence rawPassword, String encodedPassword) {
-        // パスワードにペッパーを適用
-        String pepperedPassword = applyPepper(rawPassword.toString());
-        // BCryptで検証
-        return bcryptEncoder.matches(pepperedPassword, encodedPassword);
+        if (encodedPassword == null || encodedPassword.isEmpty()) {
+            log.warn("ハッシュ化されたパスワードが空です");
+            return false;
+        }
+        return hashingExecutor.execute(Operation.MATCHES, () -> {
+            // パスワードにペッパーを適用し、BCryptで検証
+            byte[] peppered = applyPepper(rawPassword);
+            try {
+                return BCrypt.checkpw(peppered, encodedPassword);
+            } catch (IllegalArgumentException e) {
+                log.warn("BCrypt形式ではないハッシュです");
+                return false;
+            } finally {
+                Arrays.fill(peppered, (byte) 0);
+            }
+        });
     }
     
-    /**
-     * パスワードにペッパーを適用
-     * @param password 元のパスワード
-     * @return ペッパー適用後のパスワード
-     */
-    private String applyPepper(String password) {
-        try {
-            // パスワード + ペッパーをSHA-256でハッシュ化
-            MessageDigest digest = MessageDigest.getInstance("SHA-256");
-            String peppered = password + pepper;
-            byte[] hash = digest.digest(peppered.getBytes(StandardCharsets.UTF_8));
-            // Base64エンコードして返す
-            return Base64.getEncoder().encodeToString(hash);
-        } catch (NoSuchAlgorithmException e) {
-            // SHA-256は必ず利用可能なはずなので、この例外は発生しない
-            throw new RuntimeException("SHA-256アルゴリズムが見つかりません", e);
+    @Override
+    public boolean upgradeEncoding(String encodedPassword) {
+        if (scheme == Scheme.LEGACY_SHA256) {
+            return true;
+        }
+        if (encodedPassword == null) {
+            return false;
         }
+        Matcher matcher = BCRYPT_PATTERN.matcher(encodedPassword);
+        return matcher.find() && Integer.parseInt(matcher.group(1)) < strength;
+    }
+    
+    private byte[] applyPepper(CharSequence rawPassword) {
+        return scheme == Scheme.HMAC ? pepper.hmacPassword(rawPassword) : pepper.legacySha256(rawPassword);
     }
 }
\ No newline at end of file
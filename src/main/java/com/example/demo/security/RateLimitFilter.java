@@ -0,0 +1,138 @@
+package com.example.demo.security;
+
+import com.example.demo.exception.RateLimitException;
+import com.example.demo.service.RateLimitService;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * 認証系エンドポイントのレート制限フィルター
+ * UsernamePasswordAuthenticationFilter より前で、IPアドレス単位とユーザー名単位の両方を制限する
+ *
+ * 制限を超えたリクエストはパスワードのハッシュ計算やDBアクセスの前に 429 と Retry-After で拒否する。
+ * 対象は POST のみ（画面表示は制限しない）。OTPのメールアドレス単位の制限は OtpLoginController で行う。
+ *
+ * ログインのユーザー名単位の制限は失敗のみを数える（AuthenticationEventListener が記録する）。
+ * 成功したログインで本人が締め出されないようにするためで、主な制限はIPアドレス単位で行う。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    /**
+     * ログイン失敗を数えるユーザー名単位のアクション名
+     */
+    public static final String LOGIN_USERNAME_ACTION = "login-username";
+
+    private final RateLimitService rateLimitService;
+    private final ClientIpResolver clientIpResolver;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        String action = resolveAction(request);
+        if (action == null) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        String clientIp = clientIpResolver.resolve(request);
+        try {
+            rateLimitService.checkAndRecord(clientIp, action + "-ip");
+            String username = resolveUsername(request, action);
+            if (username != null) {
+                String usernameAction = action + "-username";
+                if (LOGIN_USERNAME_ACTION.equals(usernameAction)) {
+                    rateLimitService.check(username, usernameAction);
+                } else {
+                    rateLimitService.checkAndRecord(username, usernameAction);
+                }
+            }
+        } catch (RateLimitException e) {
+            log.debug("レート制限により拒否: action={}, ip={}, retryAfter={}秒",
+                action, clientIp, e.getRetryAfterSeconds());
+            reject(response, e.getRetryAfterSeconds());
+            return;
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    /**
+     * リクエストに対応するアクション名（対象外の場合はnull）
+     */
+    private static String resolveAction(HttpServletRequest request) {
+        if (!"POST".equals(request.getMethod())) {
+            return null;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        if (path.equals("/login")) {
+            return "login";
+        }
+        if (path.equals("/register")) {
+            return "register";
+        }
+        if (path.startsWith("/auth/otp/")) {
+            return "otp";
+        }
+        if (path.equals("/mfa/verify")) {
+            return "mfa-verify";
+        }
+        return null;
+    }
+
+    /**
+     * ユーザー単位の制限キー（フォームの入力値、MFA検証は認証済みのユーザー名）
+     */
+    private static String resolveUsername(HttpServletRequest request, String action) {
+        String username;
+        switch (action) {
+            case "login":
+            case "register":
+                username = request.getParameter("username");
+                break;
+            case "mfa-verify":
+                Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+                username = authentication != null ? authentication.getName() : null;
+                break;
+            default:
+                return null;
+        }
+        return normalizeUsername(username);
+    }
+
+    /**
+     * ユーザー名単位の制限キー（前後の空白を除き小文字にする。空の場合はnull）
+     * @param username 入力されたユーザー名
+     * @return 制限キー
+     */
+    public static String normalizeUsername(String username) {
+        if (username == null || username.isBlank()) {
+            return null;
+        }
+        return username.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static void reject(HttpServletResponse response, int retryAfterSeconds) throws IOException {
+        // エラーページへの転送やテンプレート描画を行わず、その場で応答する
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader("Retry-After", String.valueOf(retryAfterSeconds));
+        response.setContentType("text/plain;charset=UTF-8");
+        response.getOutputStream().write("Too many requests. Please try again later.".getBytes(StandardCharsets.UTF_8));
+    }
+}
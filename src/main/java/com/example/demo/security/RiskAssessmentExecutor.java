@@ -0,0 +1,70 @@
+package com.example.demo.security;
+
+import com.example.demo.config.RiskAssessmentConfig;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * ログイン時のリスク評価の実行器
+ * DBアクセスを伴うリスク評価を、パスワード照合（{@link PasswordHashingExecutor}）とは別のスレッドプールで実行する
+ *
+ * 待ち行列が満杯の場合は呼び出し元スレッドで実行する（並行実行できないだけで拒否はしない）。
+ */
+@Component
+@Slf4j
+public class RiskAssessmentExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    public RiskAssessmentExecutor(RiskAssessmentConfig config, MeterRegistry meterRegistry) {
+        int poolSize = Math.max(1, config.getAssessmentPoolSize());
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, config.getAssessmentQueueCapacity())),
+            task -> {
+                Thread thread = new Thread(task, "risk-assessment-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            },
+            new ThreadPoolExecutor.CallerRunsPolicy());
+
+        Gauge.builder("risk.assessment.queue.size", executor.getQueue(), BlockingQueue::size)
+            .description("リスク評価の待ち件数")
+            .register(meterRegistry);
+        Gauge.builder("risk.assessment.active", executor, ThreadPoolExecutor::getActiveCount)
+            .description("リスク評価の実行中件数")
+            .register(meterRegistry);
+
+        log.info("リスク評価のスレッドプールを作成: スレッド数={}, 待ち行列={}",
+            poolSize, config.getAssessmentQueueCapacity());
+    }
+
+    /**
+     * リスク評価を非同期に実行
+     *
+     * @param task 処理
+     * @return 処理結果
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        return CompletableFuture.supplyAsync(task, executor);
+    }
+
+    /**
+     * 停止時にスレッドプールを終了
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
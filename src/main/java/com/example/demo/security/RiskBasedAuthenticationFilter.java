@@ -2,12 +2,13 @@ package com.example.demo.security;
 
 import com.example.demo.dto.LoginContext;
 import com.example.demo.dto.RiskAssessmentResult;
+import com.example.demo.exception.PasswordHashingUnavailableException;
 import com.example.demo.service.RiskAssessmentService;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
@@ -17,25 +18,43 @@ import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 
 import java.io.IOException;
+import java.time.Duration;
 import java.time.LocalDateTime;
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * リスクベース認証フィルター
+ * リスク評価（DBアクセス）とパスワード照合（BCrypt）を別々のスレッドプールで並行して実行し、両方の結果で判定する
+ *
+ * リスク評価が重大（CRITICAL）の場合も、パスワード照合は取り消さずに完了を待ってからブロックする。
+ * 存在しないユーザーは即座に CRITICAL と評価されるため、照合を打ち切ると応答時間の差から
+ * ユーザー名の存在が推測できてしまう。また照合を完了させることで、認証失敗の記録やユーザー名単位の
+ * ログイン制限にも通常どおり反映される。
+ * 成功・失敗後の遷移は設定されたハンドラーに委ねる。
  */
 @Slf4j
 public class RiskBasedAuthenticationFilter extends AbstractAuthenticationProcessingFilter {
     
     private final RiskAssessmentService riskAssessmentService;
-    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final RiskAssessmentExecutor riskAssessmentExecutor;
+    private final Duration assessmentTimeout;
+    private final ClientIpResolver clientIpResolver;
     
     public RiskBasedAuthenticationFilter(String defaultFilterProcessesUrl, 
                                        AuthenticationManager authenticationManager,
-                                       RiskAssessmentService riskAssessmentService) {
+                                       RiskAssessmentService riskAssessmentService,
+                                       RiskAssessmentExecutor riskAssessmentExecutor,
+                                       Duration assessmentTimeout,
+                                       ClientIpResolver clientIpResolver) {
         super(new PostRequestMatcher(defaultFilterProcessesUrl));
         setAuthenticationManager(authenticationManager);
         this.riskAssessmentService = riskAssessmentService;
+        this.riskAssessmentExecutor = riskAssessmentExecutor;
+        this.assessmentTimeout = assessmentTimeout;
+        this.clientIpResolver = clientIpResolver;
     }
     
     /**
@@ -50,8 +69,9 @@ public class RiskBasedAuthenticationFilter extends AbstractAuthenticationProcess
         
         @Override
         public boolean matches(HttpServletRequest request) {
-            return "POST".equalsIgnoreCase(request.getMethod()) && 
-                   request.getServletPath().equals(pattern);
+            // サーブレットのマッピングによらないよう、コンテキストパス以降で比較する
+            String path = request.getRequestURI().substring(request.getContextPath().length());
+            return "POST".equalsIgnoreCase(request.getMethod()) && path.equals(pattern);
         }
     }
     
@@ -70,33 +90,68 @@ public class RiskBasedAuthenticationFilter extends AbstractAuthenticationProcess
         
         // ログインコンテキストを構築
         LoginContext context = buildLoginContext(request);
+        request.setAttribute("loginContext", context);
         
-        // リスク評価を実行
-        RiskAssessmentResult riskResult = riskAssessmentService.assessLoginRisk(username, context);
+        UsernamePasswordAuthenticationToken authRequest = 
+            new UsernamePasswordAuthenticationToken(username, password);
         
-        log.info("リスク評価結果: ユーザー={}, スコア={}, レベル={}", 
-                username, riskResult.getRiskScore(), riskResult.getRiskLevel());
+        setDetails(request, authRequest);
         
-        // リスクが高すぎる場合はブロック
-        if (riskResult.getRiskLevel() == RiskAssessmentResult.RiskLevel.CRITICAL) {
-            // ログイン試行を記録
-            riskAssessmentService.recordLoginAttempt(username, context, false, 
-                riskResult.getRiskScore(), String.join(", ", riskResult.getRiskFactors()));
-            
-            throw new RiskBasedAuthenticationException("アクセスがブロックされました", riskResult);
+        // リスク評価を別スレッドで開始
+        String riskUsername = username;
+        CompletableFuture<RiskAssessmentResult> riskFuture = riskAssessmentExecutor.submit(
+            () -> riskAssessmentService.assessLoginRisk(riskUsername, context));
+        
+        // パスワード照合（BCryptはハッシュ処理のスレッドプールで実行される）
+        // 存在しないユーザーでもダミーのハッシュ照合が行われるよう、リスク評価の結果によらず完了まで待つ
+        Authentication authResult = null;
+        AuthenticationException authFailure = null;
+        try {
+            authResult = this.getAuthenticationManager().authenticate(authRequest);
+        } catch (AuthenticationException e) {
+            authFailure = e;
         }
         
-        // リスク情報をリクエストに保存（後続の処理で使用）
+        RiskAssessmentResult riskResult = awaitRiskAssessment(riskFuture);
         request.setAttribute("riskAssessmentResult", riskResult);
-        request.setAttribute("loginContext", context);
         
-        // 通常の認証処理を実行
-        UsernamePasswordAuthenticationToken authRequest = 
-            new UsernamePasswordAuthenticationToken(username, password);
-        
-        setDetails(request, authRequest);
+        log.info("リスク評価結果: ユーザー={}, スコア={}, レベル={}", 
+                username, riskResult.getRiskScore(), riskResult.getRiskLevel());
         
-        return this.getAuthenticationManager().authenticate(authRequest);
+        // ハッシュ処理の過負荷はリスク評価によらず 503 として返す
+        // （存在しないユーザーだけがブロックとして返ると、混雑時にユーザー名の存在が推測できる）
+        if (authFailure instanceof PasswordHashingUnavailableException) {
+            throw authFailure;
+        }
+        // リスクが高すぎる場合はパスワード照合の結果によらずブロック
+        if (isCritical(riskResult)) {
+            throw new RiskBasedAuthenticationException("アクセスがブロックされました", riskResult);
+        }
+        if (authFailure != null) {
+            throw authFailure;
+        }
+        return authResult;
+    }
+    
+    /**
+     * リスク評価の完了を待つ
+     */
+    private RiskAssessmentResult awaitRiskAssessment(CompletableFuture<RiskAssessmentResult> riskFuture) {
+        try {
+            return riskFuture.get(assessmentTimeout.toNanos(), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            riskFuture.cancel(false);
+            throw new AuthenticationServiceException("リスク評価がタイムアウトしました", e);
+        } catch (ExecutionException e) {
+            throw new AuthenticationServiceException("リスク評価に失敗しました", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AuthenticationServiceException("リスク評価が中断されました", e);
+        }
+    }
+    
+    private static boolean isCritical(RiskAssessmentResult riskResult) {
+        return riskResult.getRiskLevel() == RiskAssessmentResult.RiskLevel.CRITICAL;
     }
     
     @Override
@@ -123,6 +178,8 @@ public class RiskBasedAuthenticationFilter extends AbstractAuthenticationProcess
             request.getSession().setAttribute("requiresAdditionalVerification", true);
             request.getSession().setAttribute("riskAssessmentResult", riskResult);
             request.getSession().setAttribute("primaryAuthenticationSuccess", true);
+            request.getSession().setAttribute("username", username);
+            request.getSession().setAttribute("loginContext", context);
             
             // 追加認証ページへリダイレクト
             response.sendRedirect("/auth/additional-verification");
@@ -143,7 +200,7 @@ public class RiskBasedAuthenticationFilter extends AbstractAuthenticationProcess
     @Override
     protected void unsuccessfulAuthentication(HttpServletRequest request,
                                             HttpServletResponse response,
-                                            AuthenticationException failed) throws IOException {
+                                            AuthenticationException failed) throws IOException, ServletException {
         
         // リスク評価結果を取得
         RiskAssessmentResult riskResult = 
@@ -159,22 +216,8 @@ public class RiskBasedAuthenticationFilter extends AbstractAuthenticationProcess
                 riskResult.getRiskScore(), String.join(", ", riskResult.getRiskFactors()));
         }
         
-        // エラーレスポンスを作成
-        response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
-        response.setContentType("application/json;charset=UTF-8");
-        
-        Map<String, Object> errorResponse = new HashMap<>();
-        errorResponse.put("error", "Authentication failed");
-        errorResponse.put("message", failed.getMessage());
-        errorResponse.put("timestamp", LocalDateTime.now().toString());
-        
-        if (failed instanceof RiskBasedAuthenticationException) {
-            RiskBasedAuthenticationException riskException = (RiskBasedAuthenticationException) failed;
-            errorResponse.put("riskLevel", riskException.getRiskResult().getRiskLevel());
-            errorResponse.put("riskFactors", riskException.getRiskResult().getRiskFactors());
-        }
-        
-        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+        // 失敗時の遷移は設定された失敗ハンドラーに委ねる
+        super.unsuccessfulAuthentication(request, response, failed);
     }
     
     /**
@@ -184,7 +227,7 @@ public class RiskBasedAuthenticationFilter extends AbstractAuthenticationProcess
         LocalDateTime now = LocalDateTime.now();
         
         return LoginContext.builder()
-            .ipAddress(getClientIpAddress(request))
+            .ipAddress(clientIpResolver.resolve(request))
             .userAgent(request.getHeader("User-Agent"))
             .deviceFingerprint(request.getParameter("deviceFingerprint"))
             .hourOfDay(now.getHour())
@@ -196,24 +239,7 @@ public class RiskBasedAuthenticationFilter extends AbstractAuthenticationProcess
             .isVpn(false) // TODO: IP評価サービスを使用
             .build();
     }
-    
-    /**
-     * クライアントのIPアドレスを取得
-     */
-    private String getClientIpAddress(HttpServletRequest request) {
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
-        }
-        
-        String xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty()) {
-            return xRealIp;
-        }
         
-        return request.getRemoteAddr();
-    }
-    
     private String obtainUsername(HttpServletRequest request) {
         return request.getParameter("username");
     }
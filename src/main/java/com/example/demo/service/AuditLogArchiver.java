@@ -0,0 +1,100 @@
+package com.example.demo.service;
+
+import com.example.demo.config.AuditLogConfig;
+import com.example.demo.entity.AuditLog;
+import com.example.demo.repository.AuditLogRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 監査ログのアーカイブ
+ * 保持期間を過ぎた監査ログを日ごとのセグメントファイルへ移し、DBから削除する
+ *
+ * セグメントへの書き込みが完了したバッチのみ削除する。削除前に停止した場合は
+ * 次回同じ監査ログが再度書き込まれるが、読み込み時にIDで重複を除く。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AuditLogArchiver {
+
+    private final AuditLogRepository auditLogRepository;
+    private final AuditLogSegmentStore segmentStore;
+    private final AuditLogConfig config;
+
+    /**
+     * 保持期間を過ぎた監査ログのアーカイブ（1時間ごと）
+     */
+    @Scheduled(fixedDelay = 3600000)
+    public void archive() {
+        if (!config.isArchiveEnabled()) {
+            return;
+        }
+        try {
+            long archived = run(LocalDateTime.now());
+            if (archived > 0) {
+                log.info("監査ログをアーカイブしました: 件数={}", archived);
+            }
+        } catch (RuntimeException e) {
+            log.error("監査ログのアーカイブに失敗しました", e);
+        }
+    }
+
+    /**
+     * @param now 現在日時
+     * @return アーカイブした件数
+     */
+    long run(LocalDateTime now) {
+        // 日の途中で区切らないよう、保持期間の開始日より前を対象にする
+        LocalDateTime before = now.minus(config.getArchiveAfter()).toLocalDate().atStartOfDay();
+        int batchSize = Math.max(1, config.getArchiveBatchSize());
+        long archived = 0;
+        for (int batch = 0; batch < config.getArchiveMaxBatchesPerRun(); batch++) {
+            List<AuditLog> auditLogs = auditLogRepository.findArchivable(before, PageRequest.of(0, batchSize));
+            if (auditLogs.isEmpty()) {
+                break;
+            }
+            if (!appendToSegments(auditLogs)) {
+                break;
+            }
+            List<Long> ids = new ArrayList<>(auditLogs.size());
+            for (AuditLog auditLog : auditLogs) {
+                ids.add(auditLog.getId());
+            }
+            archived += auditLogRepository.deleteByIdIn(ids);
+            if (auditLogs.size() < batchSize) {
+                break;
+            }
+        }
+        return archived;
+    }
+
+    private boolean appendToSegments(List<AuditLog> auditLogs) {
+        // 作成日時の昇順に取得しているため、日ごとのグループも古い順になる
+        Map<LocalDate, List<AuditLog>> byDay = new LinkedHashMap<>();
+        for (AuditLog auditLog : auditLogs) {
+            byDay.computeIfAbsent(auditLog.getCreatedAt().toLocalDate(), day -> new ArrayList<>()).add(auditLog);
+        }
+        try {
+            for (Map.Entry<LocalDate, List<AuditLog>> entry : byDay.entrySet()) {
+                segmentStore.append(entry.getKey(), entry.getValue());
+            }
+            return true;
+        } catch (IOException e) {
+            // DBからは削除せず、次回に再試行する
+            log.error("監査ログアーカイブへの書き込みに失敗しました: 件数={}", auditLogs.size(), e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package com.example.demo.service;
+
+import com.example.demo.config.AuditLogConfig;
+import com.example.demo.entity.AuditLog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 監査ログのアーカイブ（日ごとの追記専用セグメントファイル）
+ *
+ * audit-YYYY-MM-DD.jsonl.gz に監査ログをJSON Linesで書き込む。
+ * 一定件数ごとのブロックを独立したgzipメンバーとして追記するため、ファイル全体も通常のgzipとして読める。
+ * audit-YYYY-MM-DD.idx にはブロックごとの位置・期間・ユーザー名を1行ずつ追記し（疎な索引）、
+ * 検索時は条件に合うブロックだけを読み込んで展開する。
+ *
+ * データを書き込んでから索引を追記するため、途中で停止した場合の末尾のブロックは索引から参照されず、
+ * 次回のアーカイブで同じ監査ログが改めて書き込まれる。索引から参照されない末尾は次回の追記の前に切り詰める
+ * （それまでの間は、ファイル全体をgzipとして展開すると末尾で失敗する）。
+ */
+@Component
+@Slf4j
+public class AuditLogSegmentStore {
+
+    private static final String SEGMENT_PREFIX = "audit-";
+    private static final String SEGMENT_SUFFIX = ".jsonl.gz";
+    private static final String INDEX_SUFFIX = ".idx";
+
+    /**
+     * 索引の1行（ブロック1つ分）
+     * @param offset セグメントファイル内の開始位置
+     * @param length 圧縮後のバイト数
+     * @param count 件数
+     * @param from 最も古い監査ログの日時
+     * @param to 最も新しい監査ログの日時
+     * @param usernames ブロックに含まれるユーザー名
+     */
+    record BlockIndex(long offset, int length, int count, LocalDateTime from, LocalDateTime to,
+                      Set<String> usernames) {
+    }
+
+    private final AuditLogConfig config;
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+        .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    public AuditLogSegmentStore(AuditLogConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * 監査ログを日のセグメントに追記
+     * @param day 日
+     * @param auditLogs 監査ログ（作成日時がその日のもの）
+     * @throws IOException 書き込みに失敗した場合
+     */
+    public synchronized void append(LocalDate day, List<AuditLog> auditLogs) throws IOException {
+        Path dir = Paths.get(config.getArchiveDirectory());
+        Files.createDirectories(dir);
+        int blockSize = Math.max(1, config.getArchiveBlockSize());
+
+        try (FileChannel segment = FileChannel.open(segmentPath(day),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+             FileChannel index = FileChannel.open(indexPath(day), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // 前回途中で停止した場合の、索引から参照されない末尾を切り詰める
+            long indexedEnd = 0;
+            for (BlockIndex block : readIndex(indexPath(day))) {
+                indexedEnd = Math.max(indexedEnd, block.offset() + block.length());
+            }
+            if (segment.size() > indexedEnd) {
+                log.warn("監査ログアーカイブの書きかけの末尾を切り詰めます: file={}, size={}, indexed={}",
+                    segmentPath(day).getFileName(), segment.size(), indexedEnd);
+                segment.truncate(indexedEnd);
+            }
+
+            List<BlockIndex> blocks = new ArrayList<>();
+            for (int start = 0; start < auditLogs.size(); start += blockSize) {
+                List<AuditLog> block = auditLogs.subList(start, Math.min(start + blockSize, auditLogs.size()));
+                long offset = segment.size();
+                byte[] compressed = compress(block);
+                writeFully(segment, compressed);
+                blocks.add(indexOf(block, offset, compressed.length));
+            }
+            // データを確定させてから索引を追記する
+            segment.force(false);
+            StringBuilder lines = new StringBuilder();
+            if (!endsWithNewline(index)) {
+                // 前回の書きかけの行と連結しないよう改行を補う
+                lines.append('\n');
+            }
+            for (BlockIndex block : blocks) {
+                lines.append(objectMapper.writeValueAsString(block)).append('\n');
+            }
+            // 索引は末尾の確認のため READ でも開くので、APPEND の代わりに末尾へ移動して書き込む
+            index.position(index.size());
+            writeFully(index, lines.toString().getBytes(StandardCharsets.UTF_8));
+            index.force(false);
+        }
+    }
+
+    /**
+     * 日のセグメントから条件に合う監査ログを読み込む
+     * @param day 日
+     * @param from 開始日時（含む）
+     * @param to 終了日時（含まない）
+     * @param username ユーザー名（nullの場合はすべて）
+     * @param consumer 読み込んだ監査ログの受け取り先
+     * @throws IOException 読み込みに失敗した場合
+     */
+    public void read(LocalDate day, LocalDateTime from, LocalDateTime to, String username,
+                     Consumer<AuditLog> consumer) throws IOException {
+        Path indexPath = indexPath(day);
+        if (!Files.exists(indexPath)) {
+            return;
+        }
+        List<BlockIndex> blocks = readIndex(indexPath);
+
+        try (FileChannel segment = FileChannel.open(segmentPath(day), StandardOpenOption.READ)) {
+            for (BlockIndex block : blocks) {
+                if (!block.to().isBefore(from) && block.from().isBefore(to)
+                        && (username == null || block.usernames().contains(username))) {
+                    readBlock(segment, block, from, to, username, consumer);
+                }
+            }
+        }
+    }
+
+    /**
+     * アーカイブ済みの日
+     */
+    public List<LocalDate> listDays() throws IOException {
+        List<LocalDate> days = new ArrayList<>();
+        Path dir = Paths.get(config.getArchiveDirectory());
+        if (!Files.isDirectory(dir)) {
+            return days;
+        }
+        try (var stream = Files.newDirectoryStream(dir, SEGMENT_PREFIX + "*" + INDEX_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                days.add(LocalDate.parse(name.substring(SEGMENT_PREFIX.length(),
+                    name.length() - INDEX_SUFFIX.length())));
+            }
+        }
+        days.sort(null);
+        return days;
+    }
+
+    /**
+     * 索引を読み込む（書きかけの行は読み飛ばす）
+     */
+    private List<BlockIndex> readIndex(Path indexPath) throws IOException {
+        List<BlockIndex> blocks = new ArrayList<>();
+        for (String line : Files.readAllLines(indexPath, StandardCharsets.UTF_8)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                blocks.add(objectMapper.readValue(line, BlockIndex.class));
+            } catch (IOException e) {
+                // 追記中の行
+                log.debug("監査ログアーカイブの索引を読み飛ばしました: {}", indexPath.getFileName());
+            }
+        }
+        return blocks;
+    }
+
+    private void readBlock(FileChannel segment, BlockIndex block, LocalDateTime from, LocalDateTime to,
+                           String username, Consumer<AuditLog> consumer) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(block.length());
+        long position = block.offset();
+        while (buffer.hasRemaining()) {
+            int read = segment.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("監査ログアーカイブが索引より短くなっています: offset=" + block.offset());
+            }
+            position += read;
+        }
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(buffer.array())), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                AuditLog auditLog = objectMapper.readValue(line, AuditLog.class);
+                LocalDateTime createdAt = auditLog.getCreatedAt();
+                if (!createdAt.isBefore(from) && createdAt.isBefore(to)
+                        && (username == null || username.equals(auditLog.getUsername()))) {
+                    consumer.accept(auditLog);
+                }
+            }
+        }
+    }
+
+    private byte[] compress(List<AuditLog> block) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (Writer writer = new OutputStreamWriter(new GZIPOutputStream(bytes), StandardCharsets.UTF_8)) {
+            for (AuditLog auditLog : block) {
+                writer.write(objectMapper.writeValueAsString(auditLog));
+                writer.write('\n');
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static BlockIndex indexOf(List<AuditLog> block, long offset, int length) {
+        LocalDateTime from = null;
+        LocalDateTime to = null;
+        Set<String> usernames = new TreeSet<>();
+        for (AuditLog auditLog : block) {
+            LocalDateTime createdAt = auditLog.getCreatedAt();
+            if (from == null || createdAt.isBefore(from)) {
+                from = createdAt;
+            }
+            if (to == null || createdAt.isAfter(to)) {
+                to = createdAt;
+            }
+            if (auditLog.getUsername() != null) {
+                usernames.add(auditLog.getUsername());
+            }
+        }
+        return new BlockIndex(offset, length, block.size(), from, to, usernames);
+    }
+
+    private static boolean endsWithNewline(FileChannel channel) throws IOException {
+        long size = channel.size();
+        if (size == 0) {
+            return true;
+        }
+        ByteBuffer last = ByteBuffer.allocate(1);
+        channel.read(last, size - 1);
+        return last.get(0) == '\n';
+    }
+
+    private static void writeFully(FileChannel channel, byte[] bytes) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private Path segmentPath(LocalDate day) {
+        return Paths.get(config.getArchiveDirectory(), SEGMENT_PREFIX + day + SEGMENT_SUFFIX);
+    }
+
+    private Path indexPath(LocalDate day) {
+        return Paths.get(config.getArchiveDirectory(), SEGMENT_PREFIX + day + INDEX_SUFFIX);
+    }
+}
@@ -3,20 +3,30 @@ package com.example.demo.service;
 import com.example.demo.entity.AuditLog;
 import com.example.demo.entity.AuditLog.EventType;
 import com.example.demo.repository.AuditLogRepository;
+import com.example.demo.security.ClientIpResolver;
 import jakarta.servlet.http.HttpServletRequest;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 監査ログサービス
  * セキュリティイベントの記録と管理
+ *
+ * 検索はDBとアーカイブ済みのセグメントファイルの両方を対象にする。
  */
 @Service
 @RequiredArgsConstructor
@@ -24,19 +34,19 @@ import java.util.List;
 public class AuditLogService {
     
     private final AuditLogRepository auditLogRepository;
-    
-    // 不審なアクティビティの閾値
-    private static final int SUSPICIOUS_LOGIN_ATTEMPTS_THRESHOLD = 10;
-    private static final int SUSPICIOUS_ACTIVITY_TIME_WINDOW_HOURS = 1;
+    private final AuditLogWriter auditLogWriter;
+    private final SuspiciousActivityDetector suspiciousActivityDetector;
+    private final AuditLogSegmentStore segmentStore;
+    private final ClientIpResolver clientIpResolver;
     
     /**
      * 監査ログを記録
+     * 非同期書き込みが有効な場合はキューに積んで即座に戻る（呼び出し元のトランザクションには参加しない）
      * @param eventType イベントタイプ
      * @param username ユーザー名
      * @param success 成功/失敗
      * @param details 詳細情報
      */
-    @Transactional
     public void logEvent(EventType eventType, String username, boolean success, String details) {
         try {
             HttpServletRequest request = getCurrentRequest();
@@ -46,15 +56,21 @@ public class AuditLogService {
                 .username(username)
                 .success(success)
                 .details(details)
-                .ipAddress(getClientIpAddress(request))
+                .ipAddress(request != null ? clientIpResolver.resolve(request) : "unknown")
                 .userAgent(getUserAgent(request))
+                .createdAt(LocalDateTime.now())
                 .build();
             
-            auditLogRepository.save(auditLog);
+            if (auditLogWriter.isAsync()) {
+                auditLogWriter.submit(auditLog);
+            } else {
+                auditLogRepository.save(auditLog);
+            }
             
             // 不審なアクティビティの検出
             if (eventType == EventType.LOGIN_FAILURE) {
-                checkSuspiciousActivity(username, auditLog.getIpAddress());
+                suspiciousActivityDetector.recordLoginFailure(username, auditLog.getIpAddress(),
+                    this::logSuspiciousActivity);
             }
             
         } catch (Exception e) {
@@ -94,23 +110,68 @@ public class AuditLogService {
     }
     
     /**
-     * 不審なアクティビティをチェック
-     * @param username ユーザー名
-     * @param ipAddress IPアドレス
+     * 監査ログを新しい順に検索（DBとアーカイブの両方）
+     * DBで件数に満たない場合のみ、アーカイブを新しい日から順に読み込む
+     * @param username ユーザー名（nullの場合はすべて）
+     * @param from 開始日時（含む）
+     * @param to 終了日時（含まない）
+     * @param limit 最大件数
+     * @return 監査ログリスト
      */
-    private void checkSuspiciousActivity(String username, String ipAddress) {
-        LocalDateTime startDate = LocalDateTime.now().minusHours(SUSPICIOUS_ACTIVITY_TIME_WINDOW_HOURS);
-        
-        // IPアドレスからの失敗試行をチェック
-        List<AuditLog> suspiciousLogs = auditLogRepository.findSuspiciousActivitiesByIp(
-            ipAddress, startDate);
-        
-        if (suspiciousLogs.size() >= SUSPICIOUS_LOGIN_ATTEMPTS_THRESHOLD) {
-            logEvent(EventType.SUSPICIOUS_ACTIVITY, username, false, 
-                String.format("IPアドレス %s から %d 回の失敗試行", ipAddress, suspiciousLogs.size()));
-            
-            log.warn("不審なアクティビティを検出: IP={}, 失敗回数={}", ipAddress, suspiciousLogs.size());
+    public List<AuditLog> search(String username, LocalDateTime from, LocalDateTime to, int limit) {
+        if (limit <= 0 || !from.isBefore(to)) {
+            return List.of();
+        }
+        List<AuditLog> found = auditLogRepository.search(username, from, to, PageRequest.of(0, limit));
+        if (found.size() >= limit) {
+            return found;
+        }
+
+        // アーカイブ直後の削除前に停止した場合などはDBとアーカイブで重複するため、IDで除く
+        Map<Long, AuditLog> merged = new LinkedHashMap<>();
+        for (AuditLog auditLog : found) {
+            merged.put(auditLog.getId(), auditLog);
         }
+        Comparator<AuditLog> newestFirst = Comparator.comparing(AuditLog::getCreatedAt)
+            .thenComparing(AuditLog::getId).reversed();
+        try {
+            List<LocalDate> days = segmentStore.listDays();
+            for (int i = days.size() - 1; i >= 0; i--) {
+                LocalDate day = days.get(i);
+                if (day.isAfter(to.toLocalDate()) || day.plusDays(1).atStartOfDay().isBefore(from)) {
+                    continue;
+                }
+                if (merged.size() >= limit && isCovered(merged, newestFirst, limit, day)) {
+                    break;
+                }
+                segmentStore.read(day, from, to, username, auditLog -> merged.putIfAbsent(auditLog.getId(), auditLog));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("監査ログアーカイブの読み込みに失敗しました", e);
+        }
+
+        List<AuditLog> result = new ArrayList<>(merged.values());
+        result.sort(newestFirst);
+        return result.size() > limit ? new ArrayList<>(result.subList(0, limit)) : result;
+    }
+    
+    /**
+     * 上位 limit 件がすべて指定日より後であれば、それ以前の日は読む必要がない
+     */
+    private static boolean isCovered(Map<Long, AuditLog> merged, Comparator<AuditLog> newestFirst,
+                                     int limit, LocalDate day) {
+        List<AuditLog> sorted = new ArrayList<>(merged.values());
+        sorted.sort(newestFirst);
+        return !sorted.get(limit - 1).getCreatedAt().isBefore(day.plusDays(1).atStartOfDay());
+    }
+    
+    /**
+     * 不審なアクティビティをログ記録
+     * @param username ユーザー名
+     * @param details 詳細情報
+     */
+    private void logSuspiciousActivity(String username, String details) {
+        logEvent(EventType.SUSPICIOUS_ACTIVITY, username, false, details);
     }
     
     /**
@@ -122,31 +183,7 @@ public class AuditLogService {
             (ServletRequestAttributes) RequestContextHolder.getRequestAttributes();
         return attributes != null ? attributes.getRequest() : null;
     }
-    
-    /**
-     * クライアントのIPアドレスを取得
-     * @param request HTTPリクエスト
-     * @return IPアドレス
-     */
-    private String getClientIpAddress(HttpServletRequest request) {
-        if (request == null) {
-            return "unknown";
-        }
-        
-        // プロキシ経由の場合の対応
-        String xForwardedFor = request.getHeader("X-Forwarded-For");
-        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
-            return xForwardedFor.split(",")[0].trim();
-        }
         
-        String xRealIp = request.getHeader("X-Real-IP");
-        if (xRealIp != null && !xRealIp.isEmpty()) {
-            return xRealIp;
-        }
-        
-        return request.getRemoteAddr();
-    }
-    
     /**
      * ユーザーエージェントを取得
      * @param request HTTPリクエスト
@@ -0,0 +1,350 @@
+package com.example.demo.service;
+
+import com.example.demo.config.AuditLogConfig;
+import com.example.demo.config.AuditLogConfig.OverflowPolicy;
+import com.example.demo.entity.AuditLog;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 監査ログの非同期書き込み
+ * イベントを有界キューに積み、専用スレッドがJDBCバッチでまとめて書き込む
+ *
+ * キューが満杯の場合は設定に応じて待機・破棄・ファイル退避を行う。
+ * 退避したイベントはキューが空いたときに書き戻す（少なくとも1回の書き込み）。
+ */
+@Service
+@Slf4j
+public class AuditLogWriter {
+
+    private static final String INSERT_SQL =
+        "INSERT INTO audit_logs (event_type, username, ip_address, user_agent, details, success, created_at) " +
+        "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    // details カラムのサイズ
+    private static final int MAX_DETAILS_LENGTH = 1000;
+
+    private static final String SPILL_FILE = "audit-spill.jsonl";
+    private static final String REPLAY_PREFIX = "audit-replay-";
+
+    // 書き戻しに失敗した場合の再試行間隔
+    private static final long REPLAY_RETRY_NANOS = TimeUnit.SECONDS.toNanos(30);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AuditLogConfig config;
+    private final BlockingQueue<AuditLog> queue;
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final Object spillLock = new Object();
+
+    private final Counter writtenCounter;
+    private final Counter droppedCounter;
+    private final Counter spilledCounter;
+    private final Counter failedCounter;
+    private final Timer flushTimer;
+
+    private volatile boolean running;
+    private volatile boolean spillPending;
+    private long nextReplayNanos;
+    private Thread writerThread;
+
+    public AuditLogWriter(JdbcTemplate jdbcTemplate, AuditLogConfig config, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.config = config;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, config.getQueueCapacity()));
+
+        Gauge.builder("audit.log.queue.size", queue, BlockingQueue::size)
+            .description("書き込み待ちの監査ログ件数")
+            .register(meterRegistry);
+        Gauge.builder("audit.log.queue.remaining", queue, BlockingQueue::remainingCapacity)
+            .description("監査ログキューの空き容量")
+            .register(meterRegistry);
+        this.writtenCounter = meterRegistry.counter("audit.log.written");
+        this.droppedCounter = meterRegistry.counter("audit.log.dropped");
+        this.spilledCounter = meterRegistry.counter("audit.log.spilled");
+        this.failedCounter = meterRegistry.counter("audit.log.failed");
+        this.flushTimer = meterRegistry.timer("audit.log.flush");
+    }
+
+    /**
+     * 書き込みスレッドを開始
+     */
+    @PostConstruct
+    public void start() {
+        if (!config.isAsync()) {
+            return;
+        }
+        spillPending = hasSpillFiles();
+        running = true;
+        writerThread = new Thread(this::run, "audit-log-writer");
+        writerThread.setDaemon(true);
+        writerThread.start();
+        log.info("監査ログ非同期書き込みを開始: 容量={}, バッチ={}, 満杯時={}",
+            config.getQueueCapacity(), config.getBatchSize(), config.getOverflowPolicy());
+    }
+
+    /**
+     * 非同期書き込みが有効かどうか
+     */
+    public boolean isAsync() {
+        return config.isAsync();
+    }
+
+    /**
+     * 監査ログを書き込みキューに追加
+     * @param auditLog 監査ログ
+     */
+    public void submit(AuditLog auditLog) {
+        if (auditLog.getCreatedAt() == null) {
+            auditLog.setCreatedAt(LocalDateTime.now());
+        }
+
+        if (!running) {
+            // 停止後は呼び出し元スレッドで書き込む
+            flush(Collections.singletonList(auditLog));
+            return;
+        }
+
+        if (queue.offer(auditLog)) {
+            return;
+        }
+
+        switch (config.getOverflowPolicy()) {
+            case BLOCK:
+                try {
+                    if (queue.offer(auditLog, config.getBlockTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                        return;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                drop(1);
+                break;
+            case SPILL:
+                spill(Collections.singletonList(auditLog));
+                break;
+            case DROP:
+            default:
+                drop(1);
+                break;
+        }
+    }
+
+    /**
+     * 停止時に残りのイベントを書き込む
+     */
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        try {
+            writerThread.join(config.getShutdownTimeout().toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        // 時間内に書き込めなかった分
+        List<AuditLog> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            if (config.getOverflowPolicy() == OverflowPolicy.SPILL) {
+                spill(remaining);
+            } else {
+                drop(remaining.size());
+            }
+        }
+        log.info("監査ログ非同期書き込みを停止: 未書き込み={}", remaining.size());
+    }
+
+    /**
+     * 書き込みスレッドの処理
+     */
+    private void run() {
+        int batchSize = Math.max(1, config.getBatchSize());
+        long intervalNanos = Math.max(1, config.getFlushInterval().toNanos());
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                AuditLog first = queue.poll(intervalNanos, TimeUnit.NANOSECONDS);
+                if (first == null) {
+                    if (spillPending && System.nanoTime() - nextReplayNanos >= 0) {
+                        replaySpill();
+                    }
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("監査ログ書き込みスレッドでエラーが発生しました", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * バッチを書き込む（失敗時は SPILL の場合のみ退避）
+     */
+    private void flush(List<AuditLog> batch) {
+        try {
+            insert(batch);
+        } catch (RuntimeException e) {
+            log.error("監査ログの書き込みに失敗しました: 件数={}", batch.size(), e);
+            failedCounter.increment(batch.size());
+            if (config.getOverflowPolicy() == OverflowPolicy.SPILL) {
+                spill(batch);
+            }
+        }
+    }
+
+    private void insert(List<AuditLog> batch) {
+        flushTimer.record(() ->
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), AuditLogWriter::setValues));
+        writtenCounter.increment(batch.size());
+    }
+
+    private static void setValues(PreparedStatement ps, AuditLog auditLog) throws SQLException {
+        String details = auditLog.getDetails();
+        if (details != null && details.length() > MAX_DETAILS_LENGTH) {
+            details = details.substring(0, MAX_DETAILS_LENGTH);
+        }
+        ps.setString(1, auditLog.getEventType().name());
+        ps.setString(2, auditLog.getUsername());
+        ps.setString(3, auditLog.getIpAddress());
+        ps.setString(4, auditLog.getUserAgent());
+        ps.setString(5, details);
+        ps.setBoolean(6, auditLog.isSuccess());
+        ps.setTimestamp(7, Timestamp.valueOf(auditLog.getCreatedAt()));
+    }
+
+    private void drop(int count) {
+        droppedCounter.increment(count);
+        log.warn("監査ログキューが満杯のため破棄しました: 件数={}", count);
+    }
+
+    /**
+     * イベントをファイルに退避（JSON Lines）
+     */
+    private void spill(List<AuditLog> auditLogs) {
+        synchronized (spillLock) {
+            try {
+                Path dir = Paths.get(config.getSpillDirectory());
+                Files.createDirectories(dir);
+                try (BufferedWriter writer = Files.newBufferedWriter(dir.resolve(SPILL_FILE),
+                        StandardCharsets.UTF_8, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    for (AuditLog auditLog : auditLogs) {
+                        writer.write(objectMapper.writeValueAsString(auditLog));
+                        writer.newLine();
+                    }
+                }
+                spilledCounter.increment(auditLogs.size());
+                spillPending = true;
+            } catch (IOException e) {
+                log.error("監査ログの退避に失敗しました: 件数={}", auditLogs.size(), e);
+                droppedCounter.increment(auditLogs.size());
+            }
+        }
+    }
+
+    /**
+     * 退避したイベントをDBに書き戻す
+     */
+    void replaySpill() {
+        Path dir = Paths.get(config.getSpillDirectory());
+        try {
+            // 追記中のファイルを書き戻し用に切り替える
+            synchronized (spillLock) {
+                Path spillFile = dir.resolve(SPILL_FILE);
+                if (Files.exists(spillFile)) {
+                    Files.move(spillFile, dir.resolve(REPLAY_PREFIX + System.currentTimeMillis() + ".jsonl"));
+                }
+                spillPending = false;
+            }
+
+            List<Path> replayFiles = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, REPLAY_PREFIX + "*.jsonl")) {
+                stream.forEach(replayFiles::add);
+            }
+            Collections.sort(replayFiles);
+            for (Path replayFile : replayFiles) {
+                replayFile(replayFile);
+            }
+        } catch (IOException | RuntimeException e) {
+            log.error("退避した監査ログの書き戻しに失敗しました", e);
+            spillPending = true;
+            nextReplayNanos = System.nanoTime() + REPLAY_RETRY_NANOS;
+        }
+    }
+
+    private void replayFile(Path replayFile) throws IOException {
+        int batchSize = Math.max(1, config.getBatchSize());
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        int count = 0;
+        try (BufferedReader reader = Files.newBufferedReader(replayFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                batch.add(objectMapper.readValue(line, AuditLog.class));
+                if (batch.size() >= batchSize) {
+                    insert(batch);
+                    count += batch.size();
+                    batch.clear();
+                }
+            }
+        }
+        if (!batch.isEmpty()) {
+            insert(batch);
+            count += batch.size();
+        }
+        Files.delete(replayFile);
+        log.info("退避した監査ログを書き戻しました: ファイル={}, 件数={}", replayFile.getFileName(), count);
+    }
+
+    private boolean hasSpillFiles() {
+        Path dir = Paths.get(config.getSpillDirectory());
+        if (!Files.isDirectory(dir)) {
+            return false;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir, "audit-*.jsonl")) {
+            return stream.iterator().hasNext();
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.BackupCode;
+import com.example.demo.entity.User;
+import com.example.demo.repository.BackupCodeRepository;
+import com.example.demo.security.PasswordHashingExecutor;
+import com.example.demo.security.PasswordPepper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * バックアップコードの発行・検証サービス
+ * コードはハッシュ化して保存し、あわせてペッパーをキーにしたHMACを検索キーとして保存する。
+ * 検証は検索キーでの1件の検索と、見つかった場合のみ1回のハッシュ照合で行う。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BackupCodeService {
+
+    // 他の用途のHMACと区別するための接頭辞
+    private static final String LOOKUP_KEY_PREFIX = "backup-code:";
+
+    private final BackupCodeRepository backupCodeRepository;
+    private final TotpService totpService;
+    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingExecutor hashingExecutor;
+    private final PasswordPepper pepper;
+
+    /**
+     * バックアップコードを発行して保存
+     * @param user ユーザー
+     * @param count 発行する個数
+     * @return 発行したコード（平文、画面表示用）
+     */
+    @Transactional
+    public String[] createBackupCodes(User user, int count) {
+        String[] backupCodes = totpService.generateBackupCodes(count);
+
+        // ハッシュ化はスレッドプールで並列に行う
+        List<Supplier<String>> hashTasks = new ArrayList<>(count);
+        for (String backupCode : backupCodes) {
+            hashTasks.add(() -> passwordEncoder.encode(backupCode));
+        }
+        List<String> hashes = hashingExecutor.invokeAll(hashTasks);
+
+        // まとめて保存
+        List<BackupCode> entities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            entities.add(BackupCode.builder()
+                .user(user)
+                .code(hashes.get(i))
+                .lookupKey(lookupKey(backupCodes[i]))
+                .used(false)
+                .build());
+        }
+        backupCodeRepository.saveAll(entities);
+        return backupCodes;
+    }
+
+    /**
+     * バックアップコードを再発行（既存のコードはすべて無効になる）
+     * @param user ユーザー
+     * @param count 発行する個数
+     * @return 発行したコード（平文、画面表示用）
+     */
+    @Transactional
+    public String[] regenerateBackupCodes(User user, int count) {
+        backupCodeRepository.deleteAllByUser(user);
+        return createBackupCodes(user, count);
+    }
+
+    /**
+     * バックアップコードを検証し、一致した場合は使用済みにする
+     * @param user ユーザー
+     * @param code 入力されたコード
+     * @return 検証結果
+     */
+    @Transactional
+    public boolean useBackupCode(User user, String code) {
+        if (code == null || code.isBlank()) {
+            return false;
+        }
+        String normalized = code.trim();
+
+        Optional<BackupCode> candidate = backupCodeRepository
+            .findByUserAndLookupKeyAndUsedFalse(user, lookupKey(normalized));
+        if (candidate.isPresent()) {
+            return passwordEncoder.matches(normalized, candidate.get().getCode()) && markUsed(user, candidate.get());
+        }
+
+        // 検索キー導入前に発行したコード（再発行されるまでの間のみ）
+        for (BackupCode backupCode : backupCodeRepository.findByUserAndLookupKeyIsNullAndUsedFalse(user)) {
+            if (passwordEncoder.matches(normalized, backupCode.getCode())) {
+                return markUsed(user, backupCode);
+            }
+        }
+        return false;
+    }
+
+    private boolean markUsed(User user, BackupCode backupCode) {
+        // コードを使用済みにする
+        backupCode.setUsed(true);
+        backupCode.setUsedAt(LocalDateTime.now());
+        backupCodeRepository.save(backupCode);
+
+        log.info("バックアップコード使用: username={}", user.getUsername());
+        return true;
+    }
+
+    /**
+     * 検索キー（HMAC-SHA256のBase64）
+     */
+    private String lookupKey(String code) {
+        return pepper.hmac(LOOKUP_KEY_PREFIX + code);
+    }
+}
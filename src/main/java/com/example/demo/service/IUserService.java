@@ -1,12 +1,13 @@
 package com.example.demo.service;
 
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 
 import com.example.demo.entity.User;
 
 import java.util.Optional;
 
-public interface IUserService extends UserDetailsService {
+public interface IUserService extends UserDetailsService, UserDetailsPasswordService {
     User register(User user);
     Optional<User> findByUsername(String username);
     Optional<User> findByEmail(String email);
@@ -0,0 +1,239 @@
+package com.example.demo.service;
+
+import com.example.demo.config.LastSeenConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 最終利用日時の遅延書き込み
+ * ログインのたびに発生する最終ログイン日時・信頼済みデバイス / OAuth2連携の最終利用日時の更新をメモリ上に集め、
+ * 最大遅延（max-staleness）ごとにJDBCバッチでまとめて書き込む
+ *
+ * 同じ行への更新は最新の日時だけを残す。書き込み時は既存の値より新しい場合のみ更新するため、
+ * 他の経路で先に新しい日時が書かれていても巻き戻さない。
+ * 停止時に残りを書き込むが、プロセスが異常終了した場合は最大遅延分の更新が失われる。
+ */
+@Service
+@Slf4j
+public class LastSeenWriteBuffer {
+
+    private static final String UPDATE_USER_SQL =
+        "UPDATE users SET last_login_at = ? WHERE username = ? AND (last_login_at IS NULL OR last_login_at < ?)";
+    private static final String UPDATE_TRUSTED_DEVICE_SQL =
+        "UPDATE trusted_devices SET last_used_at = ? WHERE id = ? AND (last_used_at IS NULL OR last_used_at < ?)";
+    private static final String UPDATE_OAUTH2_LINK_SQL =
+        "UPDATE oauth2_user_links SET last_used_at = ?, access_token = COALESCE(?, access_token) " +
+        "WHERE id = ? AND (last_used_at IS NULL OR last_used_at < ?)";
+
+    // 停止時に書き込みスレッドの終了を待つ時間
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 10;
+
+    /**
+     * 書き込み待ちの更新（同じ行への更新は新しい方を残す）
+     */
+    record Touch(LocalDateTime at, String accessToken) {
+
+        static Touch latest(Touch a, Touch b) {
+            return b.at().isBefore(a.at()) ? a : b;
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final LastSeenConfig config;
+
+    // ユーザー名 / 信頼済みデバイスID / OAuth2連携ID → 書き込み待ちの更新
+    private final ConcurrentHashMap<String, Touch> users = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Touch> trustedDevices = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Touch> oauth2Links = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final Counter writtenCounter;
+    private final Counter failedCounter;
+
+    private volatile boolean running;
+    private ScheduledExecutorService executor;
+
+    public LastSeenWriteBuffer(JdbcTemplate jdbcTemplate, LastSeenConfig config, MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.config = config;
+
+        Gauge.builder("last.seen.pending", this, LastSeenWriteBuffer::pendingCount)
+            .description("書き込み待ちの最終利用日時の件数")
+            .register(meterRegistry);
+        this.writtenCounter = meterRegistry.counter("last.seen.written");
+        this.failedCounter = meterRegistry.counter("last.seen.failed");
+    }
+
+    /**
+     * 書き込みスレッドを開始
+     */
+    @PostConstruct
+    public void start() {
+        if (!config.isWriteBehind()) {
+            return;
+        }
+        long intervalMillis = Math.max(1, config.getMaxStaleness().toMillis());
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "last-seen-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::flush, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+        running = true;
+        log.info("最終利用日時の遅延書き込みを開始: 最大遅延={}ms, 上限={}", intervalMillis, config.getMaxPending());
+    }
+
+    /**
+     * 停止時に残りの更新を書き込む
+     */
+    @PreDestroy
+    public void stop() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        executor.shutdown();
+        try {
+            executor.awaitTermination(SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        log.info("最終利用日時の遅延書き込みを停止");
+    }
+
+    /**
+     * 最終ログイン日時を記録
+     * @param username ユーザー名
+     * @param at ログイン日時
+     */
+    public void recordUserLogin(String username, LocalDateTime at) {
+        record(users, username, new Touch(at, null));
+    }
+
+    /**
+     * 信頼済みデバイスの最終利用日時を記録
+     * @param deviceId 信頼済みデバイスID
+     * @param at 利用日時
+     */
+    public void recordTrustedDeviceUse(Long deviceId, LocalDateTime at) {
+        record(trustedDevices, deviceId, new Touch(at, null));
+    }
+
+    /**
+     * OAuth2連携の最終利用日時とアクセストークンを記録
+     * @param linkId OAuth2連携ID
+     * @param at 利用日時
+     * @param accessToken アクセストークン（null の場合は変更しない）
+     */
+    public void recordOAuth2LinkUse(Long linkId, LocalDateTime at, String accessToken) {
+        record(oauth2Links, linkId, new Touch(at, accessToken));
+    }
+
+    /**
+     * 書き込み待ちの更新を書き込む
+     */
+    public synchronized void flush() {
+        flushRequested.set(false);
+        write(users, UPDATE_USER_SQL, (ps, entry) -> {
+            Timestamp at = Timestamp.valueOf(entry.getValue().at());
+            ps.setTimestamp(1, at);
+            ps.setString(2, entry.getKey());
+            ps.setTimestamp(3, at);
+        });
+        write(trustedDevices, UPDATE_TRUSTED_DEVICE_SQL, (ps, entry) -> {
+            Timestamp at = Timestamp.valueOf(entry.getValue().at());
+            ps.setTimestamp(1, at);
+            ps.setLong(2, entry.getKey());
+            ps.setTimestamp(3, at);
+        });
+        write(oauth2Links, UPDATE_OAUTH2_LINK_SQL, (ps, entry) -> {
+            Timestamp at = Timestamp.valueOf(entry.getValue().at());
+            ps.setTimestamp(1, at);
+            ps.setString(2, entry.getValue().accessToken());
+            ps.setLong(3, entry.getKey());
+            ps.setTimestamp(4, at);
+        });
+    }
+
+    /**
+     * 書き込み待ちの件数
+     */
+    public int pendingCount() {
+        return users.size() + trustedDevices.size() + oauth2Links.size();
+    }
+
+    private <K> void record(ConcurrentHashMap<K, Touch> pending, K key, Touch touch) {
+        if (key == null || touch.at() == null) {
+            return;
+        }
+        pending.merge(key, touch, Touch::latest);
+        if (!running) {
+            // 遅延書き込みが無効・停止後は呼び出し元スレッドで書き込む
+            flush();
+        } else if (pendingCount() > config.getMaxPending()) {
+            requestFlush();
+        }
+    }
+
+    private void requestFlush() {
+        if (!flushRequested.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(this::flush);
+        } catch (RejectedExecutionException e) {
+            // 停止処理中（停止時に書き込まれる）
+            flushRequested.set(false);
+        }
+    }
+
+    private <K> void write(ConcurrentHashMap<K, Touch> pending, String sql,
+                           ParameterizedPreparedStatementSetter<Map.Entry<K, Touch>> setter) {
+        if (pending.isEmpty()) {
+            return;
+        }
+        // 取り出した後に記録された更新は次回に書き込む
+        List<Map.Entry<K, Touch>> batch = new ArrayList<>();
+        for (K key : pending.keySet()) {
+            Touch touch = pending.remove(key);
+            if (touch != null) {
+                batch.add(Map.entry(key, touch));
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(sql, batch, Math.max(1, config.getBatchSize()), setter);
+            writtenCounter.increment(batch.size());
+        } catch (RuntimeException e) {
+            log.error("最終利用日時の書き込みに失敗しました: 件数={}", batch.size(), e);
+            failedCounter.increment(batch.size());
+            // 次回に再試行する（新しい更新が記録されていればそちらを残す）
+            for (Map.Entry<K, Touch> entry : batch) {
+                pending.merge(entry.getKey(), entry.getValue(), Touch::latest);
+            }
+        }
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.demo.service;
+
+import com.example.demo.config.LoginAttemptRetentionConfig;
+import com.example.demo.dto.LoginAttemptDailyAggregate;
+import com.example.demo.entity.LoginAttemptDailyRollup;
+import com.example.demo.repository.LoginAttemptDailyRollupRepository;
+import com.example.demo.repository.LoginAttemptRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeSet;
+
+/**
+ * ログイン試行の保持期間管理
+ * 前日までのログイン試行をユーザー・日単位で集計して日次集計テーブルに残し、
+ * 保持期間を過ぎたログイン試行を少しずつ削除する
+ *
+ * 削除するのは集計済みの日のみ。1回のDELETEは件数を区切り、間を空けて実行するため、
+ * ログイン処理のINSERTを長時間待たせない。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LoginAttemptRetentionService {
+
+    // 国コードの保存上限（country_codes カラムのサイズ）
+    private static final int MAX_COUNTRY_CODES_LENGTH = 255;
+
+    private final LoginAttemptRepository loginAttemptRepository;
+    private final LoginAttemptDailyRollupRepository rollupRepository;
+    private final LoginAttemptRetentionConfig config;
+
+    /**
+     * 日次集計と保持期間を過ぎたデータの削除（1時間ごと）
+     */
+    @Scheduled(fixedDelay = 3600000)
+    public void runRetention() {
+        if (!config.isEnabled()) {
+            return;
+        }
+        try {
+            run(LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.error("ログイン試行の保持期間管理に失敗しました", e);
+        }
+    }
+
+    void run(LocalDateTime now) {
+        LocalDate today = now.toLocalDate();
+        int rolledUpDays = rollUp(today);
+        long deleted = purge(now);
+        int deletedRollups = rollupRepository.deleteByRollupDateBefore(
+            now.minus(config.getRollupRetention()).toLocalDate());
+        if (rolledUpDays > 0 || deleted > 0 || deletedRollups > 0) {
+            log.info("ログイン試行の保持期間管理: 集計={}日, 削除={}件, 集計の削除={}件",
+                rolledUpDays, deleted, deletedRollups);
+        }
+    }
+
+    /**
+     * 未集計の日から前日までを集計
+     * @param today 今日（集計対象外）
+     * @return 集計した日数
+     */
+    int rollUp(LocalDate today) {
+        Optional<LocalDate> latest = rollupRepository.findLatestRollupDate();
+        LocalDate from;
+        if (latest.isPresent()) {
+            from = latest.get().plusDays(1);
+        } else {
+            Optional<LocalDateTime> oldest = loginAttemptRepository.findOldestAttemptedAt();
+            if (oldest.isEmpty()) {
+                return 0;
+            }
+            from = oldest.get().toLocalDate();
+        }
+
+        int days = 0;
+        for (LocalDate day = from; day.isBefore(today); day = day.plusDays(1)) {
+            rollUpDay(day);
+            days++;
+        }
+        return days;
+    }
+
+    private void rollUpDay(LocalDate day) {
+        LocalDateTime start = day.atStartOfDay();
+        LocalDateTime end = day.plusDays(1).atStartOfDay();
+
+        // ユーザー名 → 国コード（昇順）
+        Map<String, TreeSet<String>> countries = new HashMap<>();
+        for (Object[] row : loginAttemptRepository.findDailyCountryCodes(start, end)) {
+            countries.computeIfAbsent((String) row[0], username -> new TreeSet<>()).add((String) row[1]);
+        }
+
+        List<LoginAttemptDailyRollup> rollups = new ArrayList<>();
+        for (LoginAttemptDailyAggregate aggregate : loginAttemptRepository.aggregateDaily(start, end)) {
+            rollups.add(LoginAttemptDailyRollup.builder()
+                .username(aggregate.getUsername())
+                .rollupDate(day)
+                .attemptCount(aggregate.getAttemptCount())
+                .failureCount(aggregate.getFailureCount())
+                .distinctIpCount(aggregate.getDistinctIpCount())
+                .countryCodes(joinCountryCodes(countries.get(aggregate.getUsername())))
+                .lastAttemptAt(aggregate.getLastAttemptAt())
+                .lastSuccessAt(aggregate.getLastSuccessAt())
+                .build());
+        }
+        // まとめて保存（IDはシーケンスから採番するため、JDBCバッチで挿入される）
+        rollupRepository.saveAll(rollups);
+    }
+
+    private static String joinCountryCodes(TreeSet<String> countryCodes) {
+        if (countryCodes == null || countryCodes.isEmpty()) {
+            return null;
+        }
+        StringBuilder joined = new StringBuilder();
+        for (String countryCode : countryCodes) {
+            if (joined.length() + countryCode.length() + 1 > MAX_COUNTRY_CODES_LENGTH) {
+                break;
+            }
+            if (joined.length() > 0) {
+                joined.append(',');
+            }
+            joined.append(countryCode);
+        }
+        return joined.toString();
+    }
+
+    /**
+     * 保持期間を過ぎ、集計済みのログイン試行を分割して削除
+     * @param now 現在日時
+     * @return 削除件数
+     */
+    long purge(LocalDateTime now) {
+        Optional<LocalDate> latest = rollupRepository.findLatestRollupDate();
+        if (latest.isEmpty()) {
+            return 0;
+        }
+        // 保持期間の開始日と、集計済みの翌日の早い方より前を削除する
+        LocalDateTime retentionStart = now.minus(config.getRetention()).toLocalDate().atStartOfDay();
+        LocalDateTime rolledUpEnd = latest.get().plusDays(1).atStartOfDay();
+        LocalDateTime before = retentionStart.isBefore(rolledUpEnd) ? retentionStart : rolledUpEnd;
+
+        int batchSize = Math.max(1, config.getBatchSize());
+        long deleted = 0;
+        for (int batch = 0; batch < config.getMaxBatchesPerRun(); batch++) {
+            List<Long> ids = loginAttemptRepository.findIdsAttemptedBefore(before, PageRequest.of(0, batchSize));
+            if (ids.isEmpty()) {
+                break;
+            }
+            deleted += loginAttemptRepository.deleteByIdIn(ids);
+            if (ids.size() < batchSize) {
+                break;
+            }
+            if (!pause()) {
+                break;
+            }
+        }
+        return deleted;
+    }
+
+    private boolean pause() {
+        long millis = config.getBatchPause().toMillis();
+        if (millis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
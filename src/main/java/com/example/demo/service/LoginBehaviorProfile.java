@@ -0,0 +1,203 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.RiskFeatureSnapshot;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * ユーザーごとのログイン行動プロファイル
+ * 既知の国・IPアドレス・信頼済みデバイス・直近の失敗・最後の成功ログインを保持し、
+ * ログイン試行のたびに差分更新する
+ *
+ * 複数スレッドから同時に更新されるため、各メソッドはインスタンス単位で同期する
+ */
+public class LoginBehaviorProfile {
+
+    private final boolean mfaEnabled;
+    private final LocalDateTime loadedAt;
+    private final int maxTrackedEntries;
+
+    private final Set<String> trustedDevices;
+    // 国コード / IPアドレス → 最終アクセス日時
+    private final Map<String, LocalDateTime> countries = new HashMap<>();
+    private final Map<String, LocalDateTime> ipAddresses = new HashMap<>();
+    // 失敗日時（古い順）
+    private final ArrayDeque<LocalDateTime> failures = new ArrayDeque<>();
+
+    private LocalDateTime lastAttemptAt;
+    private String lastSuccessCountryCode;
+    private LocalDateTime lastSuccessAt;
+
+    /**
+     * @param mfaEnabled MFA有効化フラグ
+     * @param trustedDevices 信頼済みデバイスのフィンガープリント
+     * @param loadedAt DBから読み込んだ日時
+     * @param maxTrackedEntries 保持するIPアドレス・失敗日時の上限
+     */
+    public LoginBehaviorProfile(boolean mfaEnabled, Set<String> trustedDevices,
+                                LocalDateTime loadedAt, int maxTrackedEntries) {
+        this.mfaEnabled = mfaEnabled;
+        this.trustedDevices = new HashSet<>(trustedDevices);
+        this.loadedAt = loadedAt;
+        this.maxTrackedEntries = Math.max(1, maxTrackedEntries);
+    }
+
+    public LocalDateTime getLoadedAt() {
+        return loadedAt;
+    }
+
+    /**
+     * ログイン試行を反映
+     *
+     * @param ipAddress IPアドレス
+     * @param countryCode 国コード（不明な場合はnull）
+     * @param successful 成功したかどうか
+     * @param attemptedAt 試行日時
+     */
+    public synchronized void recordAttempt(String ipAddress, String countryCode,
+                                           boolean successful, LocalDateTime attemptedAt) {
+        touch(ipAddress, countryCode, attemptedAt);
+        if (successful) {
+            recordSuccess(countryCode, attemptedAt);
+        } else {
+            recordFailure(attemptedAt);
+        }
+    }
+
+    /**
+     * （IPアドレス, 国コード）単位の最終アクセスを反映
+     */
+    public synchronized void touch(String ipAddress, String countryCode, LocalDateTime attemptedAt) {
+        if (lastAttemptAt == null || attemptedAt.isAfter(lastAttemptAt)) {
+            lastAttemptAt = attemptedAt;
+        }
+        if (countryCode != null) {
+            countries.merge(countryCode, attemptedAt, LoginBehaviorProfile::latest);
+        }
+        if (ipAddress != null) {
+            ipAddresses.merge(ipAddress, attemptedAt, LoginBehaviorProfile::latest);
+            if (ipAddresses.size() > maxTrackedEntries) {
+                removeOldest(ipAddresses);
+            }
+        }
+    }
+
+    /**
+     * 成功ログインを反映
+     */
+    public synchronized void recordSuccess(String countryCode, LocalDateTime attemptedAt) {
+        if (lastSuccessAt == null || !attemptedAt.isBefore(lastSuccessAt)) {
+            lastSuccessAt = attemptedAt;
+            lastSuccessCountryCode = countryCode;
+        }
+    }
+
+    /**
+     * 失敗を反映（古い順に追加すること）
+     * 同じ日時の失敗は1件として扱う（DBからの構築と差分更新の両方に含まれた場合）
+     */
+    public synchronized void recordFailure(LocalDateTime attemptedAt) {
+        Iterator<LocalDateTime> newestFirst = failures.descendingIterator();
+        while (newestFirst.hasNext()) {
+            LocalDateTime recorded = newestFirst.next();
+            if (recorded.equals(attemptedAt)) {
+                return;
+            }
+            if (recorded.isBefore(attemptedAt)) {
+                break;
+            }
+        }
+        failures.addLast(attemptedAt);
+        if (failures.size() > maxTrackedEntries) {
+            failures.removeFirst();
+        }
+    }
+
+    public synchronized void addTrustedDevice(String deviceFingerprint) {
+        trustedDevices.add(deviceFingerprint);
+    }
+
+    public synchronized void removeTrustedDevice(String deviceFingerprint) {
+        trustedDevices.remove(deviceFingerprint);
+    }
+
+    /**
+     * リスク評価用のスナップショットを作成
+     *
+     * @param deviceFingerprint デバイスフィンガープリント
+     * @param windowStart 評価時間窓の開始日時
+     * @param locationHistoryStart 場所履歴の開始日時
+     * @return スナップショット
+     */
+    public synchronized RiskFeatureSnapshot snapshot(String deviceFingerprint, LocalDateTime windowStart,
+                                                     LocalDateTime locationHistoryStart) {
+        // 時間窓外の失敗を破棄
+        while (!failures.isEmpty() && !failures.peekFirst().isAfter(windowStart)) {
+            failures.removeFirst();
+        }
+
+        long distinctIps = 0;
+        for (LocalDateTime seenAt : ipAddresses.values()) {
+            if (seenAt.isAfter(windowStart)) {
+                distinctIps++;
+            }
+        }
+
+        List<String> recentCountries = new ArrayList<>();
+        Set<String> knownCountries = new HashSet<>();
+        for (Map.Entry<String, LocalDateTime> entry : countries.entrySet()) {
+            if (entry.getValue().isAfter(windowStart)) {
+                recentCountries.add(entry.getKey());
+            }
+            if (entry.getValue().isAfter(locationHistoryStart)) {
+                knownCountries.add(entry.getKey());
+            }
+        }
+
+        return RiskFeatureSnapshot.builder()
+            .mfaEnabled(mfaEnabled)
+            .trustedDevice(deviceFingerprint != null && trustedDevices.contains(deviceFingerprint))
+            .failedAttempts(failures.size())
+            .distinctIpCount(distinctIps)
+            .recentCountries(recentCountries)
+            .knownCountries(knownCountries)
+            .hasHistory(lastAttemptAt != null && lastAttemptAt.isAfter(locationHistoryStart))
+            .lastSuccessCountryCode(lastSuccessCountryCode)
+            .lastSuccessAt(lastSuccessAt)
+            .build();
+    }
+
+    /**
+     * 評価に使わなくなった古いエントリを削除
+     *
+     * @param before この日時以前のエントリを削除
+     */
+    public synchronized void prune(LocalDateTime before) {
+        countries.values().removeIf(seenAt -> !seenAt.isAfter(before));
+        ipAddresses.values().removeIf(seenAt -> !seenAt.isAfter(before));
+    }
+
+    private static LocalDateTime latest(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static void removeOldest(Map<String, LocalDateTime> entries) {
+        String oldestKey = null;
+        LocalDateTime oldestAt = null;
+        for (Map.Entry<String, LocalDateTime> entry : entries.entrySet()) {
+            if (oldestAt == null || entry.getValue().isBefore(oldestAt)) {
+                oldestKey = entry.getKey();
+                oldestAt = entry.getValue();
+            }
+        }
+        entries.remove(oldestKey);
+    }
+}
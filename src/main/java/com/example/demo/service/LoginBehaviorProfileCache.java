@@ -0,0 +1,225 @@
+package com.example.demo.service;
+
+import com.example.demo.config.RiskAssessmentConfig;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+
+/**
+ * ログイン行動プロファイルのキャッシュ
+ * 初回アクセス時にDBから構築し、以降はログイン試行・デバイス登録のたびに差分更新する
+ *
+ * 件数上限を超えた場合は最も長く参照されていないプロファイルを追い出す（LRU）。
+ * 他インスタンスでの更新を取り込むため、有効期限を過ぎたプロファイルは再構築する。
+ *
+ * 同じユーザーの構築は1回にまとめ、構築中に確定した更新は構築後のプロファイルに適用してから登録する。
+ * 差分更新はトランザクションのコミット後に適用する（ロールバックされた更新は反映しない）。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class LoginBehaviorProfileCache {
+
+    private final RiskFeatureLoader riskFeatureLoader;
+    private final RiskAssessmentConfig config;
+
+    // アクセス順のLRU（this で同期）
+    private final LinkedHashMap<String, LoginBehaviorProfile> profiles =
+        new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, LoginBehaviorProfile> eldest) {
+                return size() > config.getProfileCacheMaxSize();
+            }
+        };
+
+    // 構築中のプロファイル（this で同期）
+    private final Map<String, PendingLoad> loading = new HashMap<>();
+
+    /**
+     * プロファイルを取得（未キャッシュ・期限切れの場合はDBから構築）
+     * 同じユーザーを構築中の場合は、その結果を待って返す
+     *
+     * @param username ユーザー名
+     * @return プロファイル（ユーザーが存在しない場合は空）
+     */
+    public Optional<LoginBehaviorProfile> getProfile(String username) {
+        LocalDateTime now = LocalDateTime.now();
+        PendingLoad load;
+        boolean loader;
+        synchronized (this) {
+            LoginBehaviorProfile profile = profiles.get(username);
+            if (profile != null && !isExpired(profile, now)) {
+                return Optional.of(profile);
+            }
+            load = loading.get(username);
+            loader = load == null;
+            if (loader) {
+                load = new PendingLoad();
+                loading.put(username, load);
+            }
+        }
+        if (!loader) {
+            return await(load.result);
+        }
+
+        // DBアクセスはロックの外で行う
+        Optional<LoginBehaviorProfile> loaded;
+        try {
+            loaded = riskFeatureLoader.loadProfile(username,
+                windowStart(now), historyStart(now), config.getProfileMaxTrackedEntries());
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                loading.remove(username);
+            }
+            load.result.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (this) {
+            loading.remove(username);
+            if (loaded.isPresent() && !load.invalidated) {
+                // 構築中に確定した更新を適用してから登録する（DBの読み込みと重複しても結果は変わらない）
+                load.updates.forEach(update -> update.accept(loaded.get()));
+                profiles.put(username, loaded.get());
+            } else {
+                profiles.remove(username);
+            }
+        }
+        load.result.complete(loaded);
+        return loaded;
+    }
+
+    /**
+     * ログイン試行を反映（キャッシュ済み・構築中の場合のみ、コミット後）
+     */
+    public void recordAttempt(String username, String ipAddress, String countryCode,
+                              boolean successful, LocalDateTime attemptedAt) {
+        applyAfterCommit(username, profile -> {
+            profile.recordAttempt(ipAddress, countryCode, successful, attemptedAt);
+            profile.prune(oldestRelevant(attemptedAt));
+        });
+    }
+
+    /**
+     * 信頼済みデバイスの登録を反映（コミット後）
+     */
+    public void addTrustedDevice(String username, String deviceFingerprint) {
+        applyAfterCommit(username, profile -> profile.addTrustedDevice(deviceFingerprint));
+    }
+
+    /**
+     * 信頼済みデバイスの削除を反映（コミット後）
+     */
+    public void removeTrustedDevice(String username, String deviceFingerprint) {
+        applyAfterCommit(username, profile -> profile.removeTrustedDevice(deviceFingerprint));
+    }
+
+    /**
+     * プロファイルを破棄（MFA設定の変更時など）
+     * コミット前に構築された古い内容が残らないよう、コミット後にも破棄する
+     */
+    public void invalidate(String username) {
+        remove(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(username);
+                }
+            });
+        }
+    }
+
+    /**
+     * 期限切れのプロファイルを削除（1時間ごと）
+     */
+    @Scheduled(fixedDelay = 3600000)
+    public synchronized void evictExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        profiles.values().removeIf(profile -> isExpired(profile, now));
+        log.debug("行動プロファイルキャッシュをクリーンアップ: 残り={}", profiles.size());
+    }
+
+    private void applyAfterCommit(String username, Consumer<LoginBehaviorProfile> update) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    apply(username, update);
+                }
+            });
+        } else {
+            apply(username, update);
+        }
+    }
+
+    private synchronized void apply(String username, Consumer<LoginBehaviorProfile> update) {
+        LoginBehaviorProfile profile = profiles.get(username);
+        if (profile != null) {
+            update.accept(profile);
+        }
+        PendingLoad load = loading.get(username);
+        if (load != null) {
+            load.updates.add(update);
+        }
+    }
+
+    private synchronized void remove(String username) {
+        profiles.remove(username);
+        PendingLoad load = loading.get(username);
+        if (load != null) {
+            load.invalidated = true;
+        }
+    }
+
+    private static Optional<LoginBehaviorProfile> await(CompletableFuture<Optional<LoginBehaviorProfile>> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private boolean isExpired(LoginBehaviorProfile profile, LocalDateTime now) {
+        return profile.getLoadedAt().plusMinutes(config.getProfileCacheTtlMinutes()).isBefore(now);
+    }
+
+    private LocalDateTime windowStart(LocalDateTime now) {
+        return now.minusHours(config.getTimeWindowHours());
+    }
+
+    private LocalDateTime historyStart(LocalDateTime now) {
+        return now.minusDays(config.getLocationHistoryDays());
+    }
+
+    private LocalDateTime oldestRelevant(LocalDateTime now) {
+        LocalDateTime windowStart = windowStart(now);
+        LocalDateTime historyStart = historyStart(now);
+        return windowStart.isBefore(historyStart) ? windowStart : historyStart;
+    }
+
+    /**
+     * 構築中のプロファイル（構築中に確定した更新と、破棄の要求を保持する）
+     */
+    private static final class PendingLoad {
+        private final CompletableFuture<Optional<LoginBehaviorProfile>> result = new CompletableFuture<>();
+        private final List<Consumer<LoginBehaviorProfile>> updates = new ArrayList<>();
+        private boolean invalidated;
+    }
+}
@@ -0,0 +1,302 @@
+package com.example.demo.service;
+
+import com.example.demo.config.MailDispatchConfig;
+import com.example.demo.entity.MailOutbox;
+import com.example.demo.repository.MailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 送信待ちメールの配信
+ * 専用スレッドが送信時刻を過ぎたメールを取得し、送信スレッドプールで送信する。
+ *
+ * 同一ドメイン宛ての同時送信数を制限し、失敗した場合は間隔を倍にしながら再試行する。
+ * コードを含むメール（OTP・パスワードリセット）は、コードの有効期限を過ぎたら送信せずに送信失敗にする。
+ * 送信中にする更新は条件付きで行うため、複数インスタンスで動かしても同じメールを重複して送信しない。
+ */
+@Service
+@Slf4j
+public class MailDispatcher {
+
+    // エラーメッセージの保存上限（last_error カラムのサイズ）
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private static final String EXPIRED_ERROR = "コードの有効期限切れ";
+
+    private final MailOutboxRepository outboxRepository;
+    private final IEmailService emailService;
+    private final MailDispatchConfig config;
+    private final ExecutorService workers;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    // ドメイン → 同時送信数の許可
+    private final ConcurrentHashMap<String, Semaphore> domainPermits = new ConcurrentHashMap<>();
+    private final Object signal = new Object();
+
+    private final Counter sentCounter;
+    private final Counter retriedCounter;
+    private final Counter failedCounter;
+    private final Timer deliveryTimer;
+
+    private volatile boolean running;
+    private boolean wakeUpRequested;
+    private Thread pollerThread;
+
+    public MailDispatcher(MailOutboxRepository outboxRepository, IEmailService emailService,
+                          MailDispatchConfig config, MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.emailService = emailService;
+        this.config = config;
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(Math.max(1, config.getWorkers()), task -> {
+            Thread thread = new Thread(task, "mail-sender-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        this.sentCounter = meterRegistry.counter("mail.outbox.sent");
+        this.retriedCounter = meterRegistry.counter("mail.outbox.retried");
+        this.failedCounter = meterRegistry.counter("mail.outbox.failed");
+        this.deliveryTimer = meterRegistry.timer("mail.outbox.delivery");
+    }
+
+    /**
+     * 配信スレッドを開始
+     */
+    @PostConstruct
+    public void start() {
+        running = true;
+        pollerThread = new Thread(this::run, "mail-dispatcher");
+        pollerThread.setDaemon(true);
+        pollerThread.start();
+        log.info("メール配信を開始: 送信スレッド={}, ドメインごとの同時送信数={}",
+            config.getWorkers(), config.getPerDomainConcurrency());
+    }
+
+    /**
+     * 送信待ちメールの確認を要求（登録直後など）
+     */
+    public void wakeUp() {
+        synchronized (signal) {
+            wakeUpRequested = true;
+            signal.notifyAll();
+        }
+    }
+
+    /**
+     * 停止時に送信中のメールの完了を待つ（送信できなかったメールは次回起動時に再送）
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        wakeUp();
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(10, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        long intervalMillis = Math.max(1, config.getPollInterval().toMillis());
+        while (running) {
+            try {
+                dispatchDue();
+                synchronized (signal) {
+                    if (!wakeUpRequested) {
+                        signal.wait(intervalMillis);
+                    }
+                    wakeUpRequested = false;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("メール配信スレッドでエラーが発生しました", e);
+            }
+        }
+    }
+
+    /**
+     * 送信時刻を過ぎたメールを送信スレッドに渡す
+     * @return 送信を開始した件数
+     */
+    int dispatchDue() {
+        int capacity = Math.max(1, config.getWorkers()) - inFlight.get();
+        if (capacity <= 0) {
+            return 0;
+        }
+
+        // 同時送信数の上限に達したドメイン宛てを飛ばしても空きを埋められるよう、空きより多く取得する
+        LocalDateTime now = LocalDateTime.now();
+        List<MailOutbox> due = outboxRepository.findDue(now,
+            PageRequest.of(0, Math.max(capacity, config.getBatchSize())));
+        int dispatched = 0;
+        for (MailOutbox mail : due) {
+            if (dispatched >= capacity) {
+                break;
+            }
+            Semaphore permits = domainPermits.computeIfAbsent(mail.getRecipientDomain(),
+                domain -> new Semaphore(Math.max(1, config.getPerDomainConcurrency())));
+            if (!permits.tryAcquire()) {
+                // 同一ドメイン宛てが上限に達している場合は次回に回す
+                continue;
+            }
+            if (outboxRepository.claim(mail.getId(), now.plus(config.getSendingTimeout())) == 0) {
+                permits.release();
+                continue;
+            }
+
+            inFlight.incrementAndGet();
+            workers.execute(() -> {
+                try {
+                    deliver(mail);
+                } finally {
+                    permits.release();
+                    inFlight.decrementAndGet();
+                    wakeUp();
+                }
+            });
+            dispatched++;
+        }
+        return dispatched;
+    }
+
+    /**
+     * メールを送信し、結果を記録
+     */
+    private void deliver(MailOutbox mail) {
+        int attempts = mail.getAttempts() + 1;
+        LocalDateTime expiresAt = codeExpiresAt(mail);
+        if (expiresAt != null && !LocalDateTime.now().isBefore(expiresAt)) {
+            // 期限切れのコードは送っても使えないため送信しない
+            outboxRepository.markFailed(mail.getId(), mail.getAttempts(), EXPIRED_ERROR);
+            failedCounter.increment();
+            log.warn("コードの有効期限切れのため送信を中止: id={}, to={}", mail.getId(), mail.getRecipient());
+            return;
+        }
+
+        try {
+            deliveryTimer.record(() -> send(mail));
+        } catch (RuntimeException e) {
+            recordFailure(mail, attempts, expiresAt, e);
+            return;
+        }
+        sentCounter.increment();
+
+        // 送信済みの記録に失敗しても送信の失敗としては扱わない（再試行で重複して送信しないため）
+        // 行は送信中のまま残り、DBの復旧後に releaseStale で送信待ちに戻る
+        try {
+            outboxRepository.markSent(mail.getId(), LocalDateTime.now());
+        } catch (RuntimeException e) {
+            log.error("送信済みの記録に失敗: id={}, to={}", mail.getId(), mail.getRecipient(), e);
+        }
+    }
+
+    /**
+     * 送信失敗を記録（再試行上限またはコードの有効期限を過ぎる場合は送信失敗にする）
+     */
+    private void recordFailure(MailOutbox mail, int attempts, LocalDateTime expiresAt, RuntimeException e) {
+        String error = truncate(e.getMessage());
+        Duration backoff = backoff(attempts);
+        LocalDateTime nextAttemptAt = LocalDateTime.now().plus(backoff);
+        if (attempts >= config.getMaxAttempts()
+            || (expiresAt != null && !nextAttemptAt.isBefore(expiresAt))) {
+            outboxRepository.markFailed(mail.getId(), attempts, error);
+            failedCounter.increment();
+            log.error("メール送信失敗（再試行なし）: id={}, to={}, 試行回数={}",
+                mail.getId(), mail.getRecipient(), attempts, e);
+        } else {
+            outboxRepository.markRetry(mail.getId(), attempts, nextAttemptAt, error);
+            retriedCounter.increment();
+            log.warn("メール送信失敗（{}秒後に再試行）: id={}, to={}, 試行回数={}, エラー={}",
+                backoff.toSeconds(), mail.getId(), mail.getRecipient(), attempts, e.getMessage());
+        }
+    }
+
+    /**
+     * 本文のコードの有効期限（コードを含まないメールは null）
+     */
+    private static LocalDateTime codeExpiresAt(MailOutbox mail) {
+        switch (mail.getMailType()) {
+            case OTP:
+            case PASSWORD_RESET:
+                return mail.getCreatedAt().plusMinutes(mail.getValidMinutes());
+            default:
+                return null;
+        }
+    }
+
+    private void send(MailOutbox mail) {
+        switch (mail.getMailType()) {
+            case OTP:
+                emailService.sendOtpEmail(mail.getRecipient(), mail.getUsername(),
+                    mail.getCode(), mail.getValidMinutes());
+                break;
+            case PASSWORD_RESET:
+                emailService.sendPasswordResetEmail(mail.getRecipient(), mail.getUsername(),
+                    mail.getCode(), mail.getValidMinutes());
+                break;
+            case WELCOME:
+                emailService.sendWelcomeEmail(mail.getRecipient(), mail.getUsername());
+                break;
+        }
+    }
+
+    /**
+     * 再試行までの間隔（初回の間隔 × 2^(試行回数 - 1)、上限あり）
+     */
+    Duration backoff(int attempts) {
+        Duration backoff = config.getInitialBackoff().multipliedBy(1L << Math.min(attempts - 1, 20));
+        return backoff.compareTo(config.getMaxBackoff()) > 0 ? config.getMaxBackoff() : backoff;
+    }
+
+    private static String truncate(String message) {
+        if (message == null) {
+            return null;
+        }
+        return message.length() > MAX_ERROR_LENGTH ? message.substring(0, MAX_ERROR_LENGTH) : message;
+    }
+
+    /**
+     * 送信中のまま残ったメールを送信待ちに戻す（1分ごと）
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void releaseStale() {
+        int released = outboxRepository.releaseStale(LocalDateTime.now());
+        if (released > 0) {
+            log.warn("送信中のまま残ったメールを再送対象に戻しました: {}件", released);
+            wakeUp();
+        }
+    }
+
+    /**
+     * 保持期間を過ぎた送信済み・送信失敗のメールを削除（1時間ごと）
+     */
+    @Scheduled(fixedDelay = 3600000)
+    public void cleanup() {
+        int deleted = outboxRepository.deleteFinishedBefore(LocalDateTime.now().minus(config.getRetention()));
+        if (deleted > 0) {
+            log.info("送信済みメールを削除: {}件", deleted);
+        }
+    }
+}
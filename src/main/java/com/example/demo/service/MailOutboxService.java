@@ -0,0 +1,66 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.MailOutbox;
+import com.example.demo.entity.MailOutbox.MailType;
+import com.example.demo.repository.MailOutboxRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Locale;
+
+/**
+ * メール送信の受付
+ * 送信待ちテーブルに登録するだけで、実際の送信は {@link MailDispatcher} が行う。
+ * 呼び出し元のトランザクションに参加するため、業務データとメールは一緒にコミット・ロールバックされる。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class MailOutboxService {
+
+    private final MailOutboxRepository outboxRepository;
+    private final MailDispatcher mailDispatcher;
+
+    /**
+     * メールを送信待ちに登録
+     * @param mailType メールの種類
+     * @param to 宛先
+     * @param username ユーザー名
+     * @param code 本文に埋め込むコード（不要な場合はnull）
+     * @param validMinutes コードの有効期限（分）
+     */
+    @Transactional
+    public void enqueue(MailType mailType, String to, String username, String code, int validMinutes) {
+        MailOutbox mail = MailOutbox.builder()
+            .mailType(mailType)
+            .recipient(to)
+            .recipientDomain(domainOf(to))
+            .username(username)
+            .code(code)
+            .validMinutes(validMinutes)
+            .build();
+        outboxRepository.save(mail);
+        log.debug("メールを送信待ちに登録: type={}, to={}", mailType, to);
+
+        // コミット後すぐに送信する（コミット前に送信すると未コミットのデータを参照できない）
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    mailDispatcher.wakeUp();
+                }
+            });
+        } else {
+            mailDispatcher.wakeUp();
+        }
+    }
+
+    private static String domainOf(String email) {
+        int at = email.lastIndexOf('@');
+        return at >= 0 ? email.substring(at + 1).toLowerCase(Locale.ROOT) : "";
+    }
+}
@@ -31,6 +31,7 @@ public class OAuth2UserService extends DefaultOAuth2UserService {
     private final OAuth2UserLinkRepository oauth2UserLinkRepository;
     private final PasswordEncoder passwordEncoder;
     private final AuditLogService auditLogService;
+    private final LastSeenWriteBuffer lastSeenWriteBuffer;
     
     @Override
     @Transactional
@@ -165,14 +166,25 @@ public class OAuth2UserService extends DefaultOAuth2UserService {
     
     /**
      * OAuth2連携を更新
+     * プロバイダー側のプロフィールが変わった場合のみ保存し、最終利用日時とアクセストークンは遅延書き込みする
      */
     private void updateOAuth2UserLink(OAuth2UserLink link, OAuth2UserInfo userInfo, 
                                     OAuth2UserRequest userRequest) {
+        String accessToken = userRequest.getAccessToken().getTokenValue();
+        LocalDateTime now = LocalDateTime.now();
+        
+        if (Objects.equals(link.getProviderEmail(), userInfo.getEmail())
+                && Objects.equals(link.getProviderName(), userInfo.getName())
+                && Objects.equals(link.getProviderPicture(), userInfo.getImageUrl())) {
+            lastSeenWriteBuffer.recordOAuth2LinkUse(link.getId(), now, accessToken);
+            return;
+        }
+        
         link.setProviderEmail(userInfo.getEmail());
         link.setProviderName(userInfo.getName());
         link.setProviderPicture(userInfo.getImageUrl());
-        link.setAccessToken(userRequest.getAccessToken().getTokenValue());
-        link.setLastUsedAt(LocalDateTime.now());
+        link.setAccessToken(accessToken);
+        link.setLastUsedAt(now);
         
         oauth2UserLinkRepository.save(link);
     }
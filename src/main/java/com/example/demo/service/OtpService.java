@@ -1,30 +1,35 @@
 package com.example.demo.service;
 
-import com.example.demo.entity.OneTimePassword;
+import com.example.demo.entity.MailOutbox.MailType;
 import com.example.demo.entity.OneTimePassword.OtpPurpose;
 import com.example.demo.entity.User;
-import com.example.demo.repository.OneTimePasswordRepository;
+import com.example.demo.security.PasswordPepper;
+import com.example.demo.service.otp.OtpStore;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.security.SecureRandom;
 import java.time.LocalDateTime;
-import java.util.Optional;
 
 /**
  * ワンタイムパスワード管理サービス
+ * OTPはユーザー・用途ごとに1件で管理し、コードはペッパーをキーにしたHMACで保存する。
+ * 保存先は {@link OtpStore}（DBまたはメモリ上）。
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class OtpService {
     
-    private final OneTimePasswordRepository otpRepository;
-    private final IEmailService emailService;
+    // 他の用途のHMACと区別するための接頭辞
+    private static final String CODE_HASH_PREFIX = "otp:";
+    
+    private final OtpStore otpStore;
+    private final MailOutboxService mailOutboxService;
+    private final PasswordPepper pepper;
     private final SecureRandom secureRandom = new SecureRandom();
     
     @Value("${app.otp.expiration-minutes:5}")
@@ -33,6 +38,10 @@ public class OtpService {
     @Value("${app.otp.length:6}")
     private int otpLength;
     
+    // 検証の失敗回数の上限（超えた場合は再発行が必要）
+    @Value("${app.otp.max-attempts:5}")
+    private int maxAttempts;
+    
     /**
      * OTPを生成して送信
      * @param user ユーザー
@@ -41,24 +50,16 @@ public class OtpService {
      */
     @Transactional
     public String generateAndSendOtp(User user, OtpPurpose purpose) {
-        // 既存の未使用OTPを無効化
-        otpRepository.invalidateUserOtps(user, purpose);
-        
         // 新しいOTP生成
         String code = generateOtpCode();
-        LocalDateTime expiresAt = LocalDateTime.now().plusMinutes(otpExpirationMinutes);
+        String codeHash = codeHash(user, purpose, code);
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime expiresAt = now.plusMinutes(otpExpirationMinutes);
         
-        OneTimePassword otp = OneTimePassword.builder()
-            .user(user)
-            .code(code)
-            .purpose(purpose)
-            .expiresAt(expiresAt)
-            .used(false)
-            .build();
+        // 既存のOTPを上書きする（以前のコードはこの時点で無効になる）
+        otpStore.save(user, purpose, codeHash, expiresAt, now);
         
-        otpRepository.save(otp);
-        
-        // メール送信
+        // メール送信（OTPと同じトランザクションで送信待ちに登録し、コミット後に送信）
         sendOtpEmail(user, code, purpose);
         
         log.info("OTP生成・送信: username={}, purpose={}", user.getUsername(), purpose);
@@ -72,37 +73,17 @@ public class OtpService {
      * @param purpose 用途
      * @return 検証結果
      */
-    @Transactional
     public boolean verifyOtp(User user, String code, OtpPurpose purpose) {
-        Optional<OneTimePassword> otpOpt = otpRepository.findValidOtpByCode(
-            user, code, LocalDateTime.now());
-        
-        if (otpOpt.isPresent()) {
-            OneTimePassword otp = otpOpt.get();
-            if (otp.getPurpose() == purpose && otp.isValid()) {
-                // OTPを使用済みにする
-                otp.setUsed(true);
-                otpRepository.save(otp);
-                
-                log.info("OTP検証成功: username={}, purpose={}", user.getUsername(), purpose);
-                return true;
-            }
+        if (code != null && otpStore.verify(user, purpose, codeHash(user, purpose, code.trim()),
+                maxAttempts, LocalDateTime.now())) {
+            log.info("OTP検証成功: username={}, purpose={}", user.getUsername(), purpose);
+            return true;
         }
         
         log.warn("OTP検証失敗: username={}, purpose={}", user.getUsername(), purpose);
         return false;
     }
     
-    /**
-     * 最新のOTPを取得（再送信用）
-     * @param user ユーザー
-     * @param purpose 用途
-     * @return OTP（存在しない場合は空）
-     */
-    public Optional<OneTimePassword> getLatestOtp(User user, OtpPurpose purpose) {
-        return otpRepository.findLatestValidOtp(user, purpose, LocalDateTime.now());
-    }
-    
     /**
      * OTPコード生成
      * @return 生成されたコード
@@ -115,6 +96,13 @@ public class OtpService {
         return code.toString();
     }
     
+    /**
+     * コードのHMAC（ユーザー・用途を含めて計算し、他の行のハッシュとして使えないようにする）
+     */
+    private String codeHash(User user, OtpPurpose purpose, String code) {
+        return pepper.hmac(CODE_HASH_PREFIX + user.getId() + ":" + purpose.name() + ":" + code);
+    }
+    
     /**
      * OTPメール送信
      * @param user ユーザー
@@ -128,11 +116,11 @@ public class OtpService {
         
         switch (purpose) {
             case LOGIN:
-                emailService.sendOtpEmail(user.getEmail(), user.getUsername(), 
+                mailOutboxService.enqueue(MailType.OTP, user.getEmail(), user.getUsername(),
                     code, otpExpirationMinutes);
                 break;
             case PASSWORD_RESET:
-                emailService.sendPasswordResetEmail(user.getEmail(), user.getUsername(), 
+                mailOutboxService.enqueue(MailType.PASSWORD_RESET, user.getEmail(), user.getUsername(),
                     code, otpExpirationMinutes);
                 break;
             case EMAIL_VERIFICATION:
@@ -140,16 +128,4 @@ public class OtpService {
                 break;
         }
     }
-    
-    /**
-     * 期限切れOTPの定期削除（1時間ごと）
-     */
-    @Scheduled(fixedRate = 3600000) // 1時間
-    @Transactional
-    public void cleanupExpiredOtps() {
-        int deleted = otpRepository.deleteExpiredOtps(LocalDateTime.now());
-        if (deleted > 0) {
-            log.info("期限切れOTP削除: {}件", deleted);
-        }
-    }
 }
\ No newline at end of file
@@ -1,116 +1,133 @@
 package com.example.demo.service;
 
+import com.example.demo.config.RateLimitConfig;
 import com.example.demo.exception.RateLimitException;
+import com.example.demo.service.ratelimit.StripedRateLimiter;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * レート制限サービス
  * IPアドレスベースでアクセス頻度を制限
  * 
+ * アクション名ごとに独立したレート制限エンジンを持ち、
+ * アルゴリズムと閾値は app.security.rate-limit.actions.<アクション名> で設定する。
+ * 
  * 実際の本番環境では Redis や Hazelcast などの
  * 分散キャッシュを使用することを推奨
  */
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class RateLimitService {
     
-    // スレッドセーフなマップ
-    private final Map<String, RateLimitEntry> rateLimitMap = new ConcurrentHashMap<>();
+    private final RateLimitConfig rateLimitConfig;
     
-    private static final int MAX_ATTEMPTS_PER_MINUTE = 5;
-    private static final int BLOCK_DURATION_MINUTES = 5;
+    // アクション名ごとのレート制限エンジン
+    private final Map<String, StripedRateLimiter> limiters = new ConcurrentHashMap<>();
     
     /**
      * レート制限のチェックと記録
      * 
      * @param key 制限キー（IPアドレスやユーザーID）
-     * @param action アクション名（ログ用）
+     * @param action アクション名（ポリシーの選択とログに使用）
      * @throws RateLimitException 制限を超えた場合
      */
     public void checkAndRecord(String key, String action) {
-        LocalDateTime now = LocalDateTime.now();
-        
-        RateLimitEntry entry = rateLimitMap.compute(key, (k, existing) -> {
-            if (existing == null) {
-                return new RateLimitEntry(1, now, null);
-            }
-            
-            // ブロック中かチェック
-            if (existing.blockedUntil != null && existing.blockedUntil.isAfter(now)) {
-                return existing;
-            }
-            
-            // 1分経過していればリセット
-            if (existing.firstAttemptTime.isBefore(now.minusMinutes(1))) {
-                return new RateLimitEntry(1, now, null);
-            }
-            
-            // カウントを増やす
-            int newCount = existing.attemptCount + 1;
-            LocalDateTime blockedUntil = null;
-            
-            // 制限を超えたらブロック
-            if (newCount > MAX_ATTEMPTS_PER_MINUTE) {
-                blockedUntil = now.plusMinutes(BLOCK_DURATION_MINUTES);
-                log.warn("レート制限発動: key={}, action={}", key, action);
-            }
-            
-            return new RateLimitEntry(newCount, existing.firstAttemptTime, blockedUntil);
-        });
+        long waitNanos = getLimiter(action).tryAcquire(key, System.nanoTime());
         
-        // ブロック中の場合は例外をスロー
-        if (entry.blockedUntil != null && entry.blockedUntil.isAfter(now)) {
-            int retryAfterSeconds = (int) java.time.Duration.between(now, entry.blockedUntil).getSeconds();
+        if (waitNanos > 0) {
             throw new RateLimitException(
                 "Too many requests. Please try again later.", 
-                retryAfterSeconds
+                toRetryAfterSeconds(waitNanos)
             );
         }
+    }
+    
+    /**
+     * レート制限のチェック（記録しない）
+     * 失敗時のみ record で記録するキーの事前チェックに使う
+     * 
+     * @param key 制限キー
+     * @param action アクション名
+     * @throws RateLimitException 制限を超えている場合
+     */
+    public void check(String key, String action) {
+        long waitNanos = getLimiter(action).peek(key, System.nanoTime());
         
-        // 制限を超えていたら例外をスロー
-        if (entry.attemptCount > MAX_ATTEMPTS_PER_MINUTE) {
+        if (waitNanos > 0) {
             throw new RateLimitException(
-                "Rate limit exceeded.", 
-                BLOCK_DURATION_MINUTES * 60
+                "Too many requests. Please try again later.", 
+                toRetryAfterSeconds(waitNanos)
             );
         }
     }
     
+    /**
+     * 1件を記録（超過した場合はブロックを開始するが、例外は投げない）
+     * 
+     * @param key 制限キー
+     * @param action アクション名
+     */
+    public void record(String key, String action) {
+        getLimiter(action).tryAcquire(key, System.nanoTime());
+    }
+    
     /**
      * 古いエントリを定期的にクリーンアップ（1時間ごと）
-     * メモリリーク防止
+     * 各エンジンは上限キー数で追い出しを行うため、ここでは期限切れの回収のみ行う
      */
     @Scheduled(fixedDelay = 3600000) // 1時間
     public void cleanup() {
-        LocalDateTime cutoff = LocalDateTime.now().minusHours(1);
+        long now = System.nanoTime();
+        int remaining = 0;
         
-        rateLimitMap.entrySet().removeIf(entry -> {
-            RateLimitEntry value = entry.getValue();
-            return value.firstAttemptTime.isBefore(cutoff) && 
-                   (value.blockedUntil == null || value.blockedUntil.isBefore(cutoff));
-        });
+        for (StripedRateLimiter limiter : limiters.values()) {
+            limiter.evictExpired(now);
+            remaining += limiter.size();
+        }
         
-        log.info("レート制限エントリクリーンアップ完了: 残りエントリ数={}", rateLimitMap.size());
+        log.info("レート制限エントリクリーンアップ完了: 残りエントリ数={}", remaining);
     }
     
     /**
-     * レート制限エントリ
+     * アクションに対応するエンジンを取得（初回のみ生成）
      */
-    private static class RateLimitEntry {
-        final int attemptCount;
-        final LocalDateTime firstAttemptTime;
-        final LocalDateTime blockedUntil;
-        
-        RateLimitEntry(int attemptCount, LocalDateTime firstAttemptTime, LocalDateTime blockedUntil) {
-            this.attemptCount = attemptCount;
-            this.firstAttemptTime = firstAttemptTime;
-            this.blockedUntil = blockedUntil;
+    private StripedRateLimiter getLimiter(String action) {
+        StripedRateLimiter limiter = limiters.get(action);
+        if (limiter != null) {
+            return limiter;
         }
+        return limiters.computeIfAbsent(action, this::createLimiter);
+    }
+    
+    private StripedRateLimiter createLimiter(String action) {
+        RateLimitConfig.Policy policy = rateLimitConfig.policyFor(action);
+        log.info("レート制限エンジン生成: action={}, algorithm={}, limit={}, window={}", 
+            action, policy.getAlgorithm(), policy.getLimit(), policy.getWindow());
+        
+        return StripedRateLimiter.create(
+            policy.getAlgorithm(),
+            policy.getLimit(),
+            policy.getWindow(),
+            policy.getBlockDuration(),
+            rateLimitConfig.getStripes(),
+            policy.getMaxKeys(),
+            (key, blockNanos) -> log.warn("レート制限発動: key={}, action={}", key, action)
+        );
+    }
+    
+    /**
+     * 待ち時間を Retry-After 用の秒数に変換（切り上げ）
+     */
+    private static int toRetryAfterSeconds(long waitNanos) {
+        long seconds = (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1);
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(1, seconds));
     }
 }
\ No newline at end of file
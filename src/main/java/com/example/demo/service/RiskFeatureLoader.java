@@ -0,0 +1,88 @@
+package com.example.demo.service;
+
+import com.example.demo.dto.LoginAttemptAggregate;
+import com.example.demo.dto.UserRiskAttributes;
+import com.example.demo.entity.LoginAttemptDailyRollup;
+import com.example.demo.repository.LoginAttemptDailyRollupRepository;
+import com.example.demo.repository.LoginAttemptRepository;
+import com.example.demo.repository.TrustedDeviceRepository;
+import com.example.demo.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * リスク評価用の行動プロファイルをDBから構築するサービス
+ * ログイン試行は（IPアドレス, 国コード）単位の集計クエリで取得し、
+ * エンティティを展開せずにプロファイルへ変換する
+ *
+ * 保持期間を過ぎて削除されたログイン試行の国コードは、日次集計から補う。
+ */
+@Service
+@RequiredArgsConstructor
+public class RiskFeatureLoader {
+
+    private final UserRepository userRepository;
+    private final LoginAttemptRepository loginAttemptRepository;
+    private final LoginAttemptDailyRollupRepository rollupRepository;
+    private final TrustedDeviceRepository trustedDeviceRepository;
+
+    /**
+     * 行動プロファイルを構築
+     *
+     * @param username ユーザー名
+     * @param windowStart 評価時間窓の開始日時
+     * @param historyStart 場所履歴の開始日時
+     * @param maxTrackedEntries 保持するIPアドレス・失敗日時の上限
+     * @return プロファイル（ユーザーが存在しない場合は空）
+     */
+    @Transactional(readOnly = true)
+    public Optional<LoginBehaviorProfile> loadProfile(String username, LocalDateTime windowStart,
+                                                      LocalDateTime historyStart, int maxTrackedEntries) {
+        Optional<UserRiskAttributes> attributes = userRepository.findRiskAttributes(username);
+        if (attributes.isEmpty()) {
+            return Optional.empty();
+        }
+
+        LocalDateTime loadedAt = LocalDateTime.now();
+        List<String> trustedDevices = trustedDeviceRepository.findActiveFingerprints(attributes.get().getUserId());
+        LoginBehaviorProfile profile = new LoginBehaviorProfile(attributes.get().isMfaEnabled(),
+            new HashSet<>(trustedDevices), loadedAt, maxTrackedEntries);
+
+        LocalDateTime aggregateStart = windowStart.isBefore(historyStart) ? windowStart : historyStart;
+        for (LoginAttemptAggregate aggregate : loginAttemptRepository
+                .aggregateForRiskAssessment(username, aggregateStart)) {
+            profile.touch(aggregate.getIpAddress(), aggregate.getCountryCode(), aggregate.getLastAttemptAt());
+            if (aggregate.getLastSuccessAt() != null) {
+                profile.recordSuccess(aggregate.getCountryCode(), aggregate.getLastSuccessAt());
+            }
+        }
+
+        // 日次集計（ログイン試行の保持期間より前の場所履歴。保持期間内の日と重複しても最終アクセスは変わらない）
+        for (LoginAttemptDailyRollup rollup : rollupRepository.findByUsernameAndRollupDateGreaterThanEqual(
+                username, historyStart.toLocalDate())) {
+            if (rollup.getCountryCodes() == null) {
+                profile.touch(null, null, rollup.getLastAttemptAt());
+                continue;
+            }
+            for (String countryCode : rollup.getCountryCodes().split(",")) {
+                profile.touch(null, countryCode, rollup.getLastAttemptAt());
+            }
+        }
+
+        // 失敗日時は新しい順に取得されるため、古い順に反映する
+        List<LocalDateTime> failures = loginAttemptRepository.findFailedAttemptTimes(
+            username, windowStart, PageRequest.of(0, maxTrackedEntries));
+        for (int i = failures.size() - 1; i >= 0; i--) {
+            profile.recordFailure(failures.get(i));
+        }
+
+        return Optional.of(profile);
+    }
+}
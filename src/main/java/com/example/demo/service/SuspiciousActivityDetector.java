@@ -0,0 +1,124 @@
+package com.example.demo.service;
+
+import com.example.demo.config.AuditLogConfig;
+import com.example.demo.repository.AuditLogRepository;
+import com.example.demo.service.ratelimit.RateLimitAlgorithm;
+import com.example.demo.service.ratelimit.StripedRateLimiter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * 不審なアクティビティの検出
+ * ログイン失敗をIPアドレス・ユーザー名ごとのスライディングウィンドウで数え、
+ * 時間窓内に閾値へ達した時点で一度だけ通知する（以降、時間窓が終わるまでは通知しない）
+ *
+ * カウンタはメモリ上にのみ保持するため、起動時にDBの監査ログから集計して初期化する。
+ */
+@Service
+@Slf4j
+public class SuspiciousActivityDetector {
+
+    private static final int STRIPES = 16;
+
+    /**
+     * 検出時の通知先
+     */
+    @FunctionalInterface
+    public interface Listener {
+        /**
+         * @param username 検出のきっかけになったユーザー名
+         * @param details 詳細
+         */
+        void onSuspiciousActivity(String username, String details);
+    }
+
+    private final AuditLogRepository auditLogRepository;
+    private final int threshold;
+    private final Duration window;
+    private final StripedRateLimiter ipCounter;
+    private final StripedRateLimiter usernameCounter;
+
+    public SuspiciousActivityDetector(AuditLogRepository auditLogRepository, AuditLogConfig config) {
+        this.auditLogRepository = auditLogRepository;
+        this.threshold = Math.max(2, config.getSuspiciousThreshold());
+        this.window = config.getSuspiciousWindow();
+        // threshold 回目の失敗で拒否→ブロック開始となるよう許可回数は threshold - 1、
+        // ブロック期間を時間窓と同じにして時間窓あたり一度だけ通知する
+        this.ipCounter = createCounter(config);
+        this.usernameCounter = createCounter(config);
+    }
+
+    private StripedRateLimiter createCounter(AuditLogConfig config) {
+        return StripedRateLimiter.create(RateLimitAlgorithm.SLIDING_WINDOW_LOG, threshold - 1, window,
+            window, STRIPES, config.getSuspiciousMaxKeys(), null);
+    }
+
+    /**
+     * ログイン失敗を記録
+     * @param username ユーザー名
+     * @param ipAddress IPアドレス
+     * @param listener 閾値に達した場合の通知先
+     */
+    public void recordLoginFailure(String username, String ipAddress, Listener listener) {
+        long now = System.nanoTime();
+        if (ipAddress != null) {
+            ipCounter.tryAcquire(ipAddress, now, (key, blockNanos) -> {
+                log.warn("不審なアクティビティを検出: IP={}, 失敗回数={}", key, threshold);
+                listener.onSuspiciousActivity(username,
+                    String.format("IPアドレス %s から %d 回の失敗試行", key, threshold));
+            });
+        }
+        if (username != null) {
+            usernameCounter.tryAcquire(username, now, (key, blockNanos) -> {
+                log.warn("不審なアクティビティを検出: ユーザー={}, 失敗回数={}", key, threshold);
+                listener.onSuspiciousActivity(username,
+                    String.format("ユーザー %s に対して %d 回の失敗試行", key, threshold));
+            });
+        }
+    }
+
+    /**
+     * 起動時にDBの監査ログからカウンタを初期化
+     * 閾値に達していたキーは通知済みとみなし、通知せずに時間窓の間は抑止する
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        LocalDateTime startDate = LocalDateTime.now().minus(window);
+        try {
+            int ips = seed(ipCounter, auditLogRepository.countFailedLoginsByIp(startDate));
+            int usernames = seed(usernameCounter, auditLogRepository.countFailedLoginsByUsername(startDate));
+            log.info("不審なアクティビティ検出を初期化: IP={}, ユーザー={}", ips, usernames);
+        } catch (RuntimeException e) {
+            log.warn("不審なアクティビティ検出の初期化に失敗しました", e);
+        }
+    }
+
+    private int seed(StripedRateLimiter counter, List<Object[]> counts) {
+        long now = System.nanoTime();
+        for (Object[] row : counts) {
+            String key = (String) row[0];
+            long count = Math.min(((Number) row[1]).longValue(), threshold);
+            for (long i = 0; i < count; i++) {
+                counter.tryAcquire(key, now, null);
+            }
+        }
+        return counts.size();
+    }
+
+    /**
+     * 時間窓を過ぎたキーを削除（1時間ごと）
+     */
+    @Scheduled(fixedDelay = 3600000)
+    public void cleanup() {
+        long now = System.nanoTime();
+        ipCounter.evictExpired(now);
+        usernameCounter.evictExpired(now);
+    }
+}
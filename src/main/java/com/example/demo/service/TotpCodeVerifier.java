@@ -0,0 +1,244 @@
+package com.example.demo.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.security.DigestException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Clock;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TOTPコードの検証（RFC 6238、HMAC-SHA1・6桁・30秒）
+ * Base32のシークレットは1回の検証につき1度だけデコードし、HMACはスレッドごとのダイジェストと
+ * 作業領域で計算する（検証ごとのオブジェクト生成なし）。
+ *
+ * 受け付けたコードの時間ステップをユーザーごとに記録し、同じステップ以前のコードは拒否する（再利用防止）。
+ * 記録はメモリ上にのみ保持するため、複数インスタンス構成ではインスタンスごとの判定になる。
+ */
+@Component
+@Slf4j
+public class TotpCodeVerifier {
+
+    private static final int PERIOD_SECONDS = 30;
+    private static final int DIGITS = 6;
+    private static final int MODULUS = 1_000_000;
+    // 前後に許容する時間ステップ数（時計のずれ対策）
+    private static final int WINDOW = 1;
+
+    private static final int BLOCK_SIZE = 64;
+    private static final int HASH_LENGTH = 20;
+
+    private final Clock clock;
+    private final ThreadLocal<Workspace> workspace = ThreadLocal.withInitial(Workspace::new);
+    // ユーザー名 → 最後に受け付けた時間ステップ
+    private final ConcurrentHashMap<String, Long> lastAcceptedSteps = new ConcurrentHashMap<>();
+
+    public TotpCodeVerifier() {
+        this(Clock.systemUTC());
+    }
+
+    TotpCodeVerifier(Clock clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * TOTPコードを検証し、一致した場合はその時間ステップを使用済みにする
+     *
+     * @param username ユーザー名（再利用判定の単位）
+     * @param secret Base32エンコードされたシークレット
+     * @param code 入力されたコード
+     * @return 検証結果
+     */
+    public boolean verify(String username, String secret, String code) {
+        int expected = parseCode(code);
+        if (expected < 0 || secret == null) {
+            return false;
+        }
+
+        Workspace ws = workspace.get();
+        try {
+            if (!ws.init(secret)) {
+                log.warn("TOTPシークレットの形式が正しくありません: username={}", username);
+                return false;
+            }
+            long currentStep = currentStep();
+            long matchedStep = -1;
+            // 一致しても途中で打ち切らずに時間窓のすべてを計算する
+            for (long step = currentStep - WINDOW; step <= currentStep + WINDOW; step++) {
+                if (ws.generate(step) == expected) {
+                    matchedStep = step;
+                }
+            }
+            return matchedStep >= 0 && markAccepted(username, matchedStep);
+        } finally {
+            ws.clear();
+        }
+    }
+
+    /**
+     * 時間窓を過ぎた記録を削除（1分ごと）
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpired() {
+        long oldestRelevant = currentStep() - WINDOW;
+        lastAcceptedSteps.values().removeIf(step -> step < oldestRelevant);
+    }
+
+    private long currentStep() {
+        return clock.millis() / 1000 / PERIOD_SECONDS;
+    }
+
+    private boolean markAccepted(String username, long step) {
+        while (true) {
+            Long last = lastAcceptedSteps.putIfAbsent(username, step);
+            if (last == null) {
+                return true;
+            }
+            if (last >= step) {
+                log.warn("使用済みのTOTPコードが再利用されました: username={}", username);
+                return false;
+            }
+            if (lastAcceptedSteps.replace(username, last, step)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 6桁の数字を数値に変換（形式が正しくない場合は -1）
+     */
+    private static int parseCode(String code) {
+        if (code == null || code.length() != DIGITS) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = 0; i < DIGITS; i++) {
+            char c = code.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * スレッドごとの作業領域（HMAC-SHA1をダイジェストで直接計算する）
+     */
+    private static final class Workspace {
+        private final MessageDigest sha1;
+        private final byte[] innerPad = new byte[BLOCK_SIZE];
+        private final byte[] outerPad = new byte[BLOCK_SIZE];
+        private final byte[] message = new byte[8];
+        private final byte[] hash = new byte[HASH_LENGTH];
+        private byte[] key = new byte[BLOCK_SIZE];
+
+        Workspace() {
+            try {
+                this.sha1 = MessageDigest.getInstance("SHA-1");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-1アルゴリズムが見つかりません", e);
+            }
+        }
+
+        /**
+         * シークレットをデコードしてHMACのパッドを準備
+         */
+        boolean init(String secret) {
+            int keyLength = decodeBase32(secret);
+            if (keyLength <= 0) {
+                return false;
+            }
+            if (keyLength > BLOCK_SIZE) {
+                // ブロック長を超えるキーはハッシュ値を使う（RFC 2104）
+                sha1.update(key, 0, keyLength);
+                digest(key, 0);
+                keyLength = HASH_LENGTH;
+            }
+            for (int i = 0; i < BLOCK_SIZE; i++) {
+                byte k = i < keyLength ? key[i] : 0;
+                innerPad[i] = (byte) (k ^ 0x36);
+                outerPad[i] = (byte) (k ^ 0x5c);
+            }
+            return true;
+        }
+
+        /**
+         * 時間ステップのコードを計算
+         */
+        int generate(long step) {
+            for (int i = 7; i >= 0; i--) {
+                message[i] = (byte) step;
+                step >>>= 8;
+            }
+            sha1.update(innerPad);
+            sha1.update(message);
+            digest(hash, 0);
+            sha1.update(outerPad);
+            sha1.update(hash);
+            digest(hash, 0);
+
+            int offset = hash[HASH_LENGTH - 1] & 0x0f;
+            int binary = ((hash[offset] & 0x7f) << 24)
+                | ((hash[offset + 1] & 0xff) << 16)
+                | ((hash[offset + 2] & 0xff) << 8)
+                | (hash[offset + 3] & 0xff);
+            return binary % MODULUS;
+        }
+
+        /**
+         * Base32（RFC 4648）をデコードして key に書き込み、バイト数を返す（不正な文字がある場合は -1）
+         */
+        private int decodeBase32(String secret) {
+            int maxLength = secret.length() * 5 / 8;
+            if (key.length < maxLength) {
+                key = new byte[maxLength];
+            }
+            int buffer = 0;
+            int bits = 0;
+            int length = 0;
+            for (int i = 0; i < secret.length(); i++) {
+                char c = secret.charAt(i);
+                int value;
+                if (c >= 'A' && c <= 'Z') {
+                    value = c - 'A';
+                } else if (c >= 'a' && c <= 'z') {
+                    value = c - 'a';
+                } else if (c >= '2' && c <= '7') {
+                    value = c - '2' + 26;
+                } else if (c == '=') {
+                    break;
+                } else {
+                    return -1;
+                }
+                buffer = (buffer << 5) | value;
+                bits += 5;
+                if (bits >= 8) {
+                    bits -= 8;
+                    key[length++] = (byte) (buffer >> bits);
+                }
+            }
+            return length;
+        }
+
+        private void digest(byte[] output, int offset) {
+            try {
+                sha1.digest(output, offset, HASH_LENGTH);
+            } catch (DigestException e) {
+                throw new IllegalStateException("SHA-1の計算に失敗しました", e);
+            }
+        }
+
+        void clear() {
+            sha1.reset();
+            Arrays.fill(key, (byte) 0);
+            Arrays.fill(innerPad, (byte) 0);
+            Arrays.fill(outerPad, (byte) 0);
+            Arrays.fill(hash, (byte) 0);
+        }
+    }
+}
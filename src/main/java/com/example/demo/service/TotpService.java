@@ -5,35 +5,53 @@ import com.google.zxing.WriterException;
 import com.google.zxing.client.j2se.MatrixToImageWriter;
 import com.google.zxing.common.BitMatrix;
 import com.google.zxing.qrcode.QRCodeWriter;
-import dev.samstevens.totp.code.*;
+import dev.samstevens.totp.code.HashingAlgorithm;
 import dev.samstevens.totp.qr.QrData;
 import dev.samstevens.totp.secret.DefaultSecretGenerator;
 import dev.samstevens.totp.secret.SecretGenerator;
-import dev.samstevens.totp.time.SystemTimeProvider;
-import dev.samstevens.totp.time.TimeProvider;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 /**
  * TOTP（Time-based One-Time Password）管理サービス
  * Google Authenticator等のアプリと連携
  */
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class TotpService {
     
     @Value("${spring.application.name:LoginDemo}")
     private String applicationName;
     
+    // QRコード画像のキャッシュ（設定画面の表示中のみ使うため短時間）
+    private static final long QR_CODE_CACHE_TTL_NANOS = TimeUnit.MINUTES.toNanos(5);
+    private static final int QR_CODE_CACHE_MAX_SIZE = 1000;
+    
+    private final TotpCodeVerifier codeVerifier;
     private final SecretGenerator secretGenerator = new DefaultSecretGenerator();
-    private final TimeProvider timeProvider = new SystemTimeProvider();
-    private final CodeGenerator codeGenerator = new DefaultCodeGenerator();
-    private final CodeVerifier codeVerifier = new DefaultCodeVerifier(codeGenerator, timeProvider);
+    
+    // ユーザー名 + シークレット → 画像（アクセス順のLRU、自身で同期）
+    private final Map<String, CachedQrCode> qrCodeCache = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedQrCode> eldest) {
+            return size() > QR_CODE_CACHE_MAX_SIZE;
+        }
+    };
+    
+    private record CachedQrCode(byte[] png, long expiresAt) {
+    }
     
     /**
      * 新しいシークレットキーを生成
@@ -44,12 +62,62 @@ public class TotpService {
     }
     
     /**
-     * QRコードを生成（Base64エンコード）
+     * QRコードのPNG画像を取得
+     * 同じユーザー・シークレットの画像は一定時間キャッシュし、再描画しない
+     * @param username ユーザー名
+     * @param secret シークレットキー
+     * @return PNG画像
+     */
+    public byte[] getQrCodePng(String username, String secret) {
+        String key = username + '\u0000' + secret;
+        long now = System.nanoTime();
+        synchronized (qrCodeCache) {
+            CachedQrCode cached = qrCodeCache.get(key);
+            if (cached != null && now - cached.expiresAt() < 0) {
+                return cached.png();
+            }
+        }
+        
+        // 描画はロックの外で行う
+        byte[] png = renderQrCode(username, secret);
+        synchronized (qrCodeCache) {
+            qrCodeCache.put(key, new CachedQrCode(png, now + QR_CODE_CACHE_TTL_NANOS));
+        }
+        return png;
+    }
+    
+    /**
+     * 起動時にQRコードの描画を一度行い、AWT（ヘッドレス）・画像エンコーダーを初期化しておく
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpQrCodeRenderer() {
+        long start = System.nanoTime();
+        try {
+            renderQrCode("warmup", generateSecret());
+            log.info("QRコード描画を初期化しました: {}ms", (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            log.warn("QRコード描画の初期化に失敗しました", e);
+        }
+    }
+    
+    /**
+     * 期限切れのQRコード画像を削除（1分ごと）
+     */
+    @Scheduled(fixedDelay = 60000)
+    public void evictExpiredQrCodes() {
+        long now = System.nanoTime();
+        synchronized (qrCodeCache) {
+            qrCodeCache.values().removeIf(cached -> now - cached.expiresAt() >= 0);
+        }
+    }
+    
+    /**
+     * QRコードを描画
      * @param username ユーザー名
      * @param secret シークレットキー
-     * @return Base64エンコードされたQRコード画像
+     * @return PNG画像
      */
-    public String generateQrCodeBase64(String username, String secret) {
+    private byte[] renderQrCode(String username, String secret) {
         try {
             QrData qrData = new QrData.Builder()
                 .label(username)
@@ -68,12 +136,9 @@ public class TotpService {
             BitMatrix bitMatrix = qrCodeWriter.encode(otpAuthUri, BarcodeFormat.QR_CODE, 200, 200);
             
             // 画像をバイト配列に変換
-            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream(2048);
             MatrixToImageWriter.writeToStream(bitMatrix, "PNG", outputStream);
-            
-            // Base64エンコード
-            byte[] qrCodeBytes = outputStream.toByteArray();
-            return Base64.getEncoder().encodeToString(qrCodeBytes);
+            return outputStream.toByteArray();
             
         } catch (WriterException | IOException e) {
             log.error("QRコード生成エラー", e);
@@ -82,14 +147,15 @@ public class TotpService {
     }
     
     /**
-     * TOTPコードを検証
+     * TOTPコードを検証（同じコードは一度しか受け付けない）
+     * @param username ユーザー名
      * @param secret シークレットキー
      * @param code 6桁のコード
      * @return 検証結果
      */
-    public boolean verifyCode(String secret, String code) {
+    public boolean verifyCode(String username, String secret, String code) {
         try {
-            return codeVerifier.isValidCode(secret, code);
+            return codeVerifier.verify(username, secret, code);
         } catch (Exception e) {
             log.error("TOTPコード検証エラー", e);
             return false;
@@ -0,0 +1,138 @@
+package com.example.demo.service;
+
+import com.example.demo.config.UserCacheConfig;
+import com.example.demo.entity.User;
+import com.example.demo.repository.UserRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 認証時のユーザー検索のキャッシュ
+ * ユーザー名で検索したユーザーの認証に必要な項目だけを不変のスナップショットとして保持する
+ *
+ * パスワード変更・ロック・ロック解除・MFA設定の変更時は evict で破棄する。
+ * 件数上限を超えた場合は最も長く参照されていないユーザーを追い出す（LRU）。
+ * 他インスタンスでの更新を取り込むため、有効期限を過ぎたものはDBから再取得する。
+ * 存在しないユーザーはキャッシュしない。
+ */
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class UserCache {
+
+    /**
+     * キャッシュするユーザー情報
+     */
+    public record CachedUser(Long id, String username, String password,
+                             boolean accountLocked, LocalDateTime lockedAt,
+                             boolean mfaEnabled, LocalDateTime loadedAt) {
+
+        static CachedUser of(User user, LocalDateTime loadedAt) {
+            return new CachedUser(user.getId(), user.getUsername(), user.getPassword(),
+                user.isAccountLocked(), user.getLockedAt(), user.isMfaEnabled(), loadedAt);
+        }
+    }
+
+    private final UserRepository userRepository;
+    private final UserCacheConfig config;
+
+    // ユーザー名 → ユーザー（アクセス順のLRU、this で同期）
+    private final LinkedHashMap<String, CachedUser> users =
+        new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedUser> eldest) {
+                return size() > config.getMaxSize();
+            }
+        };
+
+    // 破棄の通番（DB取得中に破棄された場合、取得した古い値をキャッシュしない）
+    private long evictions;
+
+    /**
+     * ユーザー名で検索（未キャッシュ・期限切れの場合はDBから取得）
+     *
+     * @param username ユーザー名
+     * @return ユーザー（存在しない場合は空）
+     */
+    public Optional<CachedUser> getByUsername(String username) {
+        if (username == null) {
+            return Optional.empty();
+        }
+        synchronized (this) {
+            CachedUser cached = users.get(username);
+            if (cached != null && !isExpired(cached, LocalDateTime.now())) {
+                return Optional.of(cached);
+            }
+        }
+        return load(username);
+    }
+
+    /**
+     * ユーザーを破棄（パスワード変更・ロック・ロック解除・MFA設定の変更時など）
+     * トランザクション内で呼ばれた場合は、コミット前の古い値を読み直したスレッドがいても
+     * 反映されるようコミット後にも破棄する
+     *
+     * @param username ユーザー名
+     */
+    public void evict(String username) {
+        if (username == null) {
+            return;
+        }
+        remove(username);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    remove(username);
+                }
+            });
+        }
+    }
+
+    /**
+     * 期限切れのユーザーを削除（10分ごと）
+     */
+    @Scheduled(fixedDelay = 600000)
+    public synchronized void evictExpired() {
+        LocalDateTime now = LocalDateTime.now();
+        users.values().removeIf(cached -> isExpired(cached, now));
+        log.debug("ユーザーキャッシュをクリーンアップ: 残り={}", users.size());
+    }
+
+    private Optional<CachedUser> load(String username) {
+        long stamp;
+        synchronized (this) {
+            stamp = evictions;
+        }
+
+        // DBアクセスはロックの外で行う
+        Optional<CachedUser> loaded = userRepository.findByUsername(username)
+            .map(user -> CachedUser.of(user, LocalDateTime.now()));
+        if (loaded.isPresent()) {
+            synchronized (this) {
+                if (stamp == evictions) {
+                    users.put(username, loaded.get());
+                }
+            }
+        }
+        return loaded;
+    }
+
+    private synchronized void remove(String username) {
+        evictions++;
+        users.remove(username);
+    }
+
+    private boolean isExpired(CachedUser cached, LocalDateTime now) {
+        return cached.loadedAt().plus(config.getTtl()).isBefore(now);
+    }
+}
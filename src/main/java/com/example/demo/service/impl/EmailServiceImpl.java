@@ -5,7 +5,6 @@ import com.example.demo.service.IEmailService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
@@ -26,6 +25,7 @@ import jakarta.mail.internet.MimeMessage;
 public class EmailServiceImpl implements IEmailService {
     
     private final JavaMailSender mailSender;
+    private final SmtpConnectionPool smtpConnectionPool;
     private final TemplateEngine templateEngine;
     
     @Value("${spring.mail.username}")
@@ -35,20 +35,21 @@ public class EmailServiceImpl implements IEmailService {
     private String applicationName;
     
     /**
-     * シンプルなテキストメール送信
+     * シンプルなテキストメール送信（SMTP接続を使い回す）
      * @param to 宛先
      * @param subject 件名
      * @param text 本文
      */
     public void sendSimpleEmail(String to, String subject, String text) {
         try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom(fromEmail);
-            message.setTo(to);
-            message.setSubject(subject);
-            message.setText(text);
+            MimeMessage message = smtpConnectionPool.createMimeMessage();
+            MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
+            helper.setFrom(fromEmail);
+            helper.setTo(to);
+            helper.setSubject(subject);
+            helper.setText(text);
             
-            mailSender.send(message);
+            smtpConnectionPool.send(message);
             log.info("メール送信成功: to={}, subject={}", to, subject);
         } catch (Exception e) {
             log.error("メール送信失敗: to={}, subject={}", to, subject, e);
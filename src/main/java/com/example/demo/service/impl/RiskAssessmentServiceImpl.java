@@ -2,12 +2,16 @@ package com.example.demo.service.impl;
 
 import com.example.demo.dto.LoginContext;
 import com.example.demo.dto.RiskAssessmentResult;
+import com.example.demo.dto.RiskFeatureSnapshot;
 import com.example.demo.entity.LoginAttempt;
 import com.example.demo.entity.TrustedDevice;
 import com.example.demo.entity.User;
 import com.example.demo.repository.LoginAttemptRepository;
 import com.example.demo.repository.TrustedDeviceRepository;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.service.LastSeenWriteBuffer;
+import com.example.demo.service.LoginBehaviorProfile;
+import com.example.demo.service.LoginBehaviorProfileCache;
 import com.example.demo.service.RiskAssessmentService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -32,6 +36,8 @@ public class RiskAssessmentServiceImpl implements RiskAssessmentService {
     private final LoginAttemptRepository loginAttemptRepository;
     private final TrustedDeviceRepository trustedDeviceRepository;
     private final UserRepository userRepository;
+    private final LoginBehaviorProfileCache profileCache;
+    private final LastSeenWriteBuffer lastSeenWriteBuffer;
     
     @Value("${app.security.risk.failed-attempts-threshold:5}")
     private int failedAttemptsThreshold;
@@ -39,6 +45,9 @@ public class RiskAssessmentServiceImpl implements RiskAssessmentService {
     @Value("${app.security.risk.time-window-hours:24}")
     private int timeWindowHours;
     
+    @Value("${app.security.risk.location-history-days:30}")
+    private int locationHistoryDays;
+    
     @Value("${app.security.risk.trust-device-days:30}")
     private int trustDeviceDays;
     
@@ -49,15 +58,18 @@ public class RiskAssessmentServiceImpl implements RiskAssessmentService {
     private int unusualHourEnd;
     
     @Override
-    @Transactional(readOnly = true)
     public RiskAssessmentResult assessLoginRisk(String username, LoginContext context) {
         log.info("リスク評価開始: ユーザー={}", username);
         
-        User user = userRepository.findByUsername(username).orElse(null);
-        if (user == null) {
+        // 行動プロファイルから特徴量を取得（キャッシュ済みの場合はDBアクセスなし）
+        LoginBehaviorProfile profile = profileCache.getProfile(username).orElse(null);
+        if (profile == null) {
             // ユーザーが存在しない場合も高リスクとして扱う
             return createHighRiskResult("ユーザーが存在しません");
         }
+        LocalDateTime now = LocalDateTime.now();
+        RiskFeatureSnapshot features = profile.snapshot(context.getDeviceFingerprint(),
+            now.minusHours(timeWindowHours), now.minusDays(locationHistoryDays));
         
         // リスク要因を収集
         List<String> riskFactors = new ArrayList<>();
@@ -67,7 +79,7 @@ public class RiskAssessmentServiceImpl implements RiskAssessmentService {
             RiskAssessmentResult.RiskDetails.builder();
         
         // 1. デバイスチェック
-        boolean isNewDevice = checkNewDevice(user, context.getDeviceFingerprint());
+        boolean isNewDevice = !features.isTrustedDevice();
         if (isNewDevice) {
             riskFactors.add("新しいデバイスからのアクセス");
             riskScore += 20;
@@ -75,8 +87,7 @@ public class RiskAssessmentServiceImpl implements RiskAssessmentService {
         }
         
         // 2. 最近の失敗試行チェック
-        LocalDateTime timeWindowStart = LocalDateTime.now().minusHours(timeWindowHours);
-        long failedAttempts = loginAttemptRepository.countFailedAttempts(username, timeWindowStart);
+        long failedAttempts = features.getFailedAttempts();
         if (failedAttempts >= failedAttemptsThreshold) {
             riskFactors.add("複数回のログイン失敗");
             riskScore += 30;
@@ -93,7 +104,7 @@ public class RiskAssessmentServiceImpl implements RiskAssessmentService {
         }
         
         // 4. 地理的位置チェック
-        boolean isNewLocation = checkNewLocation(username, context);
+        boolean isNewLocation = checkNewLocation(features, context);
         if (isNewLocation) {
             riskFactors.add("新しい場所からのアクセス");
             riskScore += 20;
@@ -109,7 +120,7 @@ public class RiskAssessmentServiceImpl implements RiskAssessmentService {
         }
         
         // 6. 複数IPアドレスチェック
-        long distinctIps = loginAttemptRepository.countDistinctIpAddresses(username, timeWindowStart);
+        long distinctIps = features.getDistinctIpCount();
         if (distinctIps > 3) {
             riskFactors.add("複数のIPアドレスからのアクセス");
             riskScore += 20;
@@ -117,13 +128,13 @@ public class RiskAssessmentServiceImpl implements RiskAssessmentService {
         detailsBuilder.distinctIpCount((int) distinctIps);
         
         // 7. 国をまたぐアクセスチェック
-        List<String> countries = loginAttemptRepository.findDistinctCountryCodes(username, timeWindowStart);
+        List<String> countries = features.getRecentCountries();
         if (countries.size() > 1) {
             riskFactors.add("複数の国からのアクセス");
             riskScore += 30;
             
             // 物理的に不可能な移動チェック
-            if (checkRapidLocationChange(username, context)) {
+            if (checkRapidLocationChange(features, context, now)) {
                 riskFactors.add("物理的に不可能な場所の移動");
                 riskScore += 40;
                 detailsBuilder.rapidLocationChange(true);
@@ -141,7 +152,7 @@ public class RiskAssessmentServiceImpl implements RiskAssessmentService {
         boolean requiresAdditionalVerification = riskScore > 30;
         
         // 推奨される認証方法
-        List<String> recommendedMethods = determineVerificationMethods(riskScore, user);
+        List<String> recommendedMethods = determineVerificationMethods(riskScore, features.isMfaEnabled());
         
         log.info("リスク評価完了: ユーザー={}, スコア={}, レベル={}", 
                 username, riskScore, riskLevel);
@@ -165,11 +176,8 @@ public class RiskAssessmentServiceImpl implements RiskAssessmentService {
         // 既存のデバイスチェック
         trustedDeviceRepository.findByUserAndDeviceFingerprintAndIsActiveTrue(user, deviceFingerprint)
             .ifPresentOrElse(
-                device -> {
-                    // 既存デバイスの更新
-                    device.setLastUsedAt(LocalDateTime.now());
-                    trustedDeviceRepository.save(device);
-                },
+                // 既存デバイスは最終利用日時のみ更新（遅延書き込み）
+                device -> lastSeenWriteBuffer.recordTrustedDeviceUse(device.getId(), LocalDateTime.now()),
                 () -> {
                     // 新規デバイスの登録
                     TrustedDevice newDevice = new TrustedDevice();
@@ -180,6 +188,7 @@ public class RiskAssessmentServiceImpl implements RiskAssessmentService {
                     trustedDeviceRepository.save(newDevice);
                 }
             );
+        profileCache.addTrustedDevice(username, deviceFingerprint);
         
         log.info("デバイスを信頼済みとして登録: ユーザー={}, デバイス={}", username, deviceName);
     }
@@ -199,6 +208,7 @@ public class RiskAssessmentServiceImpl implements RiskAssessmentService {
         
         device.setActive(false);
         trustedDeviceRepository.save(device);
+        profileCache.removeTrustedDevice(username, device.getDeviceFingerprint());
         
         log.info("信頼済みデバイスを削除: ユーザー={}, デバイスID={}", username, deviceId);
     }
@@ -221,24 +231,13 @@ public class RiskAssessmentServiceImpl implements RiskAssessmentService {
         attempt.setVpn(context.isVpn());
         
         loginAttemptRepository.save(attempt);
+        profileCache.recordAttempt(username, attempt.getIpAddress(), attempt.getCountryCode(),
+            successful, attempt.getAttemptedAt());
         
         log.debug("ログイン試行を記録: ユーザー={}, 成功={}, リスクスコア={}", 
                  username, successful, riskScore);
     }
     
-    /**
-     * 新しいデバイスかチェック
-     */
-    private boolean checkNewDevice(User user, String deviceFingerprint) {
-        if (deviceFingerprint == null) {
-            return true;
-        }
-        
-        return trustedDeviceRepository
-            .findByUserAndDeviceFingerprintAndIsActiveTrue(user, deviceFingerprint)
-            .isEmpty();
-    }
-    
     /**
      * 疑わしいIPアドレスかチェック
      */
@@ -250,22 +249,13 @@ public class RiskAssessmentServiceImpl implements RiskAssessmentService {
     /**
      * 新しい場所からのアクセスかチェック
      */
-    private boolean checkNewLocation(String username, LoginContext context) {
-        // 過去のログイン履歴から場所をチェック
-        List<LoginAttempt> recentAttempts = loginAttemptRepository
-            .findByUsernameAndAttemptedAtAfter(username, 
-                LocalDateTime.now().minusDays(30));
-        
-        if (recentAttempts.isEmpty()) {
+    private boolean checkNewLocation(RiskFeatureSnapshot features, LoginContext context) {
+        if (!features.isHasHistory()) {
             return false; // 履歴がない場合は新しい場所とはしない
         }
         
         // 現在の国が過去の履歴にあるかチェック
-        return recentAttempts.stream()
-            .map(LoginAttempt::getCountryCode)
-            .filter(code -> code != null && code.equals(context.getCountryCode()))
-            .findAny()
-            .isEmpty();
+        return !features.getKnownCountries().contains(context.getCountryCode());
     }
     
     /**
@@ -278,20 +268,19 @@ public class RiskAssessmentServiceImpl implements RiskAssessmentService {
     /**
      * 物理的に不可能な場所の移動をチェック
      */
-    private boolean checkRapidLocationChange(String username, LoginContext context) {
-        // 最後の成功したログインを取得
-        LoginAttempt lastSuccess = loginAttemptRepository
-            .findTopByUsernameAndSuccessfulTrueOrderByAttemptedAtDesc(username);
+    private boolean checkRapidLocationChange(RiskFeatureSnapshot features, LoginContext context,
+                                             LocalDateTime now) {
+        // 最後の成功したログイン
+        String lastCountryCode = features.getLastSuccessCountryCode();
         
-        if (lastSuccess == null || lastSuccess.getCountryCode() == null || 
+        if (features.getLastSuccessAt() == null || lastCountryCode == null || 
             context.getCountryCode() == null) {
             return false;
         }
         
         // 異なる国で、時間差が短い場合は疑わしい
-        if (!lastSuccess.getCountryCode().equals(context.getCountryCode())) {
-            long hoursDiff = ChronoUnit.HOURS.between(
-                lastSuccess.getAttemptedAt(), LocalDateTime.now());
+        if (!lastCountryCode.equals(context.getCountryCode())) {
+            long hoursDiff = ChronoUnit.HOURS.between(features.getLastSuccessAt(), now);
             
             // 3時間以内に異なる国からのアクセスは物理的に困難
             return hoursDiff < 3;
@@ -318,12 +307,12 @@ public class RiskAssessmentServiceImpl implements RiskAssessmentService {
     /**
      * 推奨される認証方法を決定
      */
-    private List<String> determineVerificationMethods(int riskScore, User user) {
+    private List<String> determineVerificationMethods(int riskScore, boolean mfaEnabled) {
         List<String> methods = new ArrayList<>();
         
         if (riskScore > 30) {
             // MFAが有効な場合はTOTPを推奨
-            if (user.isMfaEnabled()) {
+            if (mfaEnabled) {
                 methods.add("TOTP");
             }
             
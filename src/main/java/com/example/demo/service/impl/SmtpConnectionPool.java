@@ -0,0 +1,145 @@
+package com.example.demo.service.impl;
+
+import com.example.demo.config.MailDispatchConfig;
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Profile;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * SMTP接続プール
+ * JavaMailSenderImpl は送信のたびに接続・認証をやり直すため、
+ * 接続済みの Transport を保持して次の送信で使い回す
+ *
+ * 送信に失敗した接続は状態が不明なため、プールに戻さずに閉じる。
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+@Profile("!dev") // dev以外のプロファイルで有効
+public class SmtpConnectionPool {
+
+    private final JavaMailSenderImpl mailSender;
+    private final MailDispatchConfig config;
+
+    // 未使用の接続（新しく返却された順、this で同期）
+    private final ArrayDeque<PooledTransport> idle = new ArrayDeque<>();
+
+    private record PooledTransport(Transport transport, long returnedAt) {
+    }
+
+    /**
+     * 送信用のメッセージを作成
+     */
+    public MimeMessage createMimeMessage() {
+        return mailSender.createMimeMessage();
+    }
+
+    /**
+     * メッセージを送信
+     * @param message メッセージ
+     * @throws MessagingException 接続・送信に失敗した場合
+     */
+    public void send(MimeMessage message) throws MessagingException {
+        message.saveChanges();
+        Transport transport = borrow();
+        try {
+            transport.sendMessage(message, message.getAllRecipients());
+        } catch (MessagingException | RuntimeException e) {
+            close(transport);
+            throw e;
+        }
+        giveBack(transport);
+    }
+
+    private Transport borrow() throws MessagingException {
+        long now = System.nanoTime();
+        long idleTimeoutNanos = config.getSmtpIdleTimeout().toNanos();
+        while (true) {
+            PooledTransport pooled;
+            synchronized (this) {
+                pooled = idle.pollFirst();
+            }
+            if (pooled == null) {
+                break;
+            }
+            if (now - pooled.returnedAt() < idleTimeoutNanos && pooled.transport().isConnected()) {
+                return pooled.transport();
+            }
+            close(pooled.transport());
+        }
+        return connect();
+    }
+
+    private Transport connect() throws MessagingException {
+        Transport transport = mailSender.getSession().getTransport(mailSender.getProtocol());
+        transport.connect(mailSender.getHost(), mailSender.getPort(),
+            mailSender.getUsername(), mailSender.getPassword());
+        log.debug("SMTP接続を作成: host={}", mailSender.getHost());
+        return transport;
+    }
+
+    private void giveBack(Transport transport) {
+        synchronized (this) {
+            if (idle.size() < config.getSmtpMaxIdleConnections()) {
+                idle.addFirst(new PooledTransport(transport, System.nanoTime()));
+                return;
+            }
+        }
+        close(transport);
+    }
+
+    /**
+     * 一定時間使われていない接続を閉じる（30秒ごと）
+     */
+    @Scheduled(fixedDelay = 30000)
+    public void evictIdle() {
+        long now = System.nanoTime();
+        long idleTimeoutNanos = config.getSmtpIdleTimeout().toNanos();
+        List<Transport> expired = new ArrayList<>();
+        synchronized (this) {
+            Iterator<PooledTransport> it = idle.iterator();
+            while (it.hasNext()) {
+                PooledTransport pooled = it.next();
+                if (now - pooled.returnedAt() >= idleTimeoutNanos) {
+                    expired.add(pooled.transport());
+                    it.remove();
+                }
+            }
+        }
+        // 切断はロックの外で行う
+        expired.forEach(SmtpConnectionPool::close);
+    }
+
+    /**
+     * 停止時にすべての接続を閉じる
+     */
+    @PreDestroy
+    public void closeAll() {
+        List<PooledTransport> all;
+        synchronized (this) {
+            all = new ArrayList<>(idle);
+            idle.clear();
+        }
+        all.forEach(pooled -> close(pooled.transport()));
+    }
+
+    private static void close(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.debug("SMTP接続の切断に失敗しました", e);
+        }
+    }
+}
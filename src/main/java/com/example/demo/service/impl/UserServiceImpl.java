@@ -17,7 +17,10 @@ import com.example.demo.entity.User;
 import com.example.demo.repository.UserRepository;
 import com.example.demo.service.AuditLogService;
 import com.example.demo.service.IUserService;
+import com.example.demo.service.LastSeenWriteBuffer;
 import com.example.demo.service.PasswordHistoryService;
+import com.example.demo.service.UserCache;
+import com.example.demo.service.UserCache.CachedUser;
 import com.example.demo.validator.PasswordValidator;
 import com.example.demo.validator.PasswordValidator.ValidationResult;
 
@@ -34,38 +37,60 @@ public class UserServiceImpl implements IUserService {
     private final PasswordHistoryService passwordHistoryService;
     private final PasswordPolicyConfig passwordPolicyConfig;
     private final AuditLogService auditLogService;
+    private final UserCache userCache;
+    private final LastSeenWriteBuffer lastSeenWriteBuffer;
     
     // アカウントロックの閾値
     private static final int MAX_FAILED_ATTEMPTS = 5;
     // ロック期間（分）
     private static final int LOCK_DURATION_MINUTES = 30;
 
+    /**
+     * 認証用のユーザー取得（UserCache 経由。キャッシュ済みであればDBにアクセスしない）
+     */
     @Override
-    @Transactional
     public UserDetails loadUserByUsername(String username)
             throws UsernameNotFoundException {
-        User user = userRepository.findByUsername(username)
+        CachedUser user = userCache.getByUsername(username)
             .orElseThrow(() ->
                 new UsernameNotFoundException("ユーザーが見つかりません: " + username));
         
         // アカウントロックチェック
-        if (user.isAccountLocked()) {
+        if (user.accountLocked()) {
             // ロック期間が経過していれば自動解除
-            if (user.getLockedAt() != null && 
-                user.getLockedAt().plusMinutes(LOCK_DURATION_MINUTES).isBefore(LocalDateTime.now())) {
-                unlockAccount(user);
+            if (user.lockedAt() != null && 
+                user.lockedAt().plusMinutes(LOCK_DURATION_MINUTES).isBefore(LocalDateTime.now())) {
+                userRepository.findByUsername(username).ifPresent(this::unlockAccount);
             } else {
                 throw new LockedException("アカウントがロックされています");
             }
         }
         
         return new org.springframework.security.core.userdetails.User(
-            user.getUsername(),
-            user.getPassword(),
+            user.username(),
+            user.password(),
             Collections.singletonList(() -> "ROLE_USER")
         );
     }
 
+    /**
+     * ハッシュ方式・コストが古いパスワードの再ハッシュ（ログイン成功時に呼ばれる）
+     * パスワード自体は変わらないため、変更日時・履歴は更新しない
+     */
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        userRepository.findByUsername(userDetails.getUsername()).ifPresent(user -> {
+            user.setPassword(newPassword);
+            userRepository.save(user);
+            userCache.evict(user.getUsername());
+            log.info("パスワードハッシュを更新: username={}", user.getUsername());
+        });
+        return org.springframework.security.core.userdetails.User.withUserDetails(userDetails)
+            .password(newPassword)
+            .build();
+    }
+
     @Override
     @Transactional
     public User register(User user) {
@@ -95,42 +120,42 @@ public class UserServiceImpl implements IUserService {
     }
     
     /**
-     * ログイン成功時の処理
+     * ログイン成功時の処理（エンティティを読まずに更新する）
+     * 失敗回数は残っている場合のみリセットし、最終ログイン日時は遅延書き込みする
      * @param username ユーザー名
      */
     @Transactional
     public void handleLoginSuccess(String username) {
-        userRepository.findByUsername(username).ifPresent(user -> {
-            user.setFailedLoginAttempts(0);
-            user.setLastLoginAt(LocalDateTime.now());
-            userRepository.save(user);
-            log.info("ログイン成功: username={}", username);
-        });
+        LocalDateTime now = LocalDateTime.now();
+        userRepository.resetFailedLoginAttempts(username, now);
+        lastSeenWriteBuffer.recordUserLogin(username, now);
+        log.info("ログイン成功: username={}", username);
     }
     
     /**
      * ログイン失敗時の処理
+     * 失敗回数の加算とロックを1回のUPDATEで行うため、同時に失敗しても回数が失われず、
+     * ロックの監査ログは閾値ちょうどに達した1回だけ記録する
      * @param username ユーザー名
+     * @return 更新後の失敗回数（ユーザーが存在しない場合は 0）
      */
     @Transactional
-    public void handleLoginFailure(String username) {
-        userRepository.findByUsername(username).ifPresent(user -> {
-            int failedAttempts = user.getFailedLoginAttempts() + 1;
-            user.setFailedLoginAttempts(failedAttempts);
-            user.setLastFailedLoginAt(LocalDateTime.now());
-            
-            // 失敗回数が閾値に達したらアカウントロック
-            if (failedAttempts >= MAX_FAILED_ATTEMPTS) {
-                user.setAccountLocked(true);
-                user.setLockedAt(LocalDateTime.now());
-                log.warn("アカウントロック: username={}, 失敗回数={}", username, failedAttempts);
-                auditLogService.logEvent(EventType.ACCOUNT_LOCKED, username, false, 
-                    String.format("連続%d回のログイン失敗", failedAttempts));
-            }
-            
-            userRepository.save(user);
-            log.warn("ログイン失敗: username={}, 失敗回数={}", username, failedAttempts);
-        });
+    public int handleLoginFailure(String username) {
+        if (userRepository.incrementFailedLoginAttempts(username, MAX_FAILED_ATTEMPTS, LocalDateTime.now()) == 0) {
+            return 0;
+        }
+        // 更新した行はロック中のため、読み出す値はこのトランザクションで加算した結果
+        int failedAttempts = userRepository.findFailedLoginAttempts(username).orElse(0);
+        
+        if (failedAttempts == MAX_FAILED_ATTEMPTS) {
+            userCache.evict(username);
+            log.warn("アカウントロック: username={}, 失敗回数={}", username, failedAttempts);
+            auditLogService.logEvent(EventType.ACCOUNT_LOCKED, username, false, 
+                String.format("連続%d回のログイン失敗", failedAttempts));
+        }
+        
+        log.warn("ログイン失敗: username={}, 失敗回数={}", username, failedAttempts);
+        return failedAttempts;
     }
     
     /**
@@ -167,6 +192,7 @@ public class UserServiceImpl implements IUserService {
         user.setPassword(encodedPassword);
         user.setPasswordChangedAt(LocalDateTime.now());
         userRepository.save(user);
+        userCache.evict(user.getUsername());
         
         // パスワード履歴に追加
         passwordHistoryService.addPasswordHistory(user, encodedPassword);
@@ -184,6 +210,7 @@ public class UserServiceImpl implements IUserService {
         user.setLockedAt(null);
         user.setFailedLoginAttempts(0);
         userRepository.save(user);
+        userCache.evict(user.getUsername());
         log.info("アカウントロック解除: username={}", user.getUsername());
         auditLogService.logSuccess(EventType.ACCOUNT_UNLOCKED, user.getUsername());
     }
@@ -201,6 +228,8 @@ public class UserServiceImpl implements IUserService {
     @Override
     @Transactional
     public User save(User user) {
-        return userRepository.save(user);
+        User saved = userRepository.save(user);
+        userCache.evict(saved.getUsername());
+        return saved;
     }
 }
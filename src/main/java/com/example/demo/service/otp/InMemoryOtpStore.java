@@ -0,0 +1,171 @@
+package com.example.demo.service.otp;
+
+import com.example.demo.config.OtpStoreConfig;
+import com.example.demo.entity.OneTimePassword.OtpPurpose;
+import com.example.demo.entity.User;
+import com.example.demo.exception.RateLimitException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * OTPの保存先（メモリ上）
+ * 単一インスタンス構成やテスト向け。再起動すると発行済みのOTPは失われる。
+ *
+ * 期限切れのOTPはタイマーホイールで削除する。有効期限ごとのスロットに登録しておき、
+ * 一定間隔で進めた位置のスロットだけを確認するため、全件を走査しない。
+ * 取得時にも有効期限を確認するため、削除が遅れても期限切れのOTPは使えない。
+ */
+@Component
+@ConditionalOnProperty(name = "app.otp.store.type", havingValue = "memory")
+@Slf4j
+public class InMemoryOtpStore implements OtpStore {
+
+    private record Key(Long userId, OtpPurpose purpose) {
+    }
+
+    /**
+     * 保存中のOTP（状態の変更は entries.compute の中で行う）
+     */
+    private static final class Entry {
+        final String codeHash;
+        final LocalDateTime expiresAt;
+        volatile int attempts;
+        volatile boolean used;
+
+        Entry(String codeHash, LocalDateTime expiresAt) {
+            this.codeHash = codeHash;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isActive(int maxAttempts, LocalDateTime now) {
+            return !used && now.isBefore(expiresAt) && attempts < maxAttempts;
+        }
+    }
+
+    /**
+     * タイマーホイールへの登録
+     */
+    private record Timeout(Key key, Entry entry, long deadlineTick) {
+    }
+
+    private final Clock clock;
+    private final long tickMillis;
+    private final int maxEntries;
+    private final ConcurrentHashMap<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Timeout>[] wheel;
+    // 処理済みのティック（advance で同期）
+    private volatile long currentTick;
+
+    @Autowired
+    public InMemoryOtpStore(OtpStoreConfig config) {
+        this(config, Clock.systemDefaultZone());
+    }
+
+    @SuppressWarnings("unchecked")
+    InMemoryOtpStore(OtpStoreConfig config, Clock clock) {
+        this.clock = clock;
+        this.tickMillis = Math.max(1, config.getTick().toMillis());
+        this.maxEntries = config.getMaxEntries();
+        this.wheel = new ConcurrentLinkedQueue[Math.max(1, config.getWheelSize())];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new ConcurrentLinkedQueue<>();
+        }
+        this.currentTick = clock.millis() / tickMillis;
+    }
+
+    @Override
+    public void save(User user, OtpPurpose purpose, String codeHash, LocalDateTime expiresAt, LocalDateTime now) {
+        Key key = new Key(user.getId(), purpose);
+        if (entries.size() >= maxEntries && !entries.containsKey(key)) {
+            log.warn("メモリ上のOTPが上限に達しています: 件数={}", entries.size());
+            throw new RateLimitException("現在OTPを発行できません。しばらく待ってから再試行してください", 60);
+        }
+        Entry entry = new Entry(codeHash, expiresAt);
+        entries.put(key, entry);
+        schedule(key, entry);
+    }
+
+    @Override
+    public boolean verify(User user, OtpPurpose purpose, String codeHash, int maxAttempts, LocalDateTime now) {
+        boolean[] verified = new boolean[1];
+        entries.computeIfPresent(new Key(user.getId(), purpose), (key, entry) -> {
+            if (!entry.isActive(maxAttempts, now)) {
+                return entry;
+            }
+            if (OtpStore.matches(entry.codeHash, codeHash)) {
+                entry.used = true;
+                verified[0] = true;
+                // 使用済みのOTPは保持しない
+                return null;
+            }
+            entry.attempts = entry.attempts + 1;
+            return entry;
+        });
+        return verified[0];
+    }
+
+    /**
+     * 保持しているOTPの件数
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private void schedule(Key key, Entry entry) {
+        long deadlineMillis = entry.expiresAt.atZone(clock.getZone()).toInstant().toEpochMilli();
+        // 期限のティックを過ぎてから削除する（処理済みのティックには登録しない）
+        long deadlineTick = Math.max(ceilDiv(deadlineMillis, tickMillis), currentTick + 1);
+        wheel[(int) (deadlineTick % wheel.length)].add(new Timeout(key, entry, deadlineTick));
+    }
+
+    /**
+     * タイマーホイールを現在時刻まで進め、期限切れのOTPを削除（1秒ごと）
+     */
+    @Scheduled(fixedDelay = 1000)
+    public synchronized void advance() {
+        long targetTick = clock.millis() / tickMillis;
+        long from = currentTick;
+        if (targetTick <= from) {
+            return;
+        }
+        // 1周以上経過した場合は全スロットを1回ずつ確認すれば足りる
+        long steps = Math.min(targetTick - from, wheel.length);
+        int removed = 0;
+        List<Timeout> pending = new ArrayList<>();
+        for (long tick = from + 1; tick <= from + steps; tick++) {
+            ConcurrentLinkedQueue<Timeout> slot = wheel[(int) (tick % wheel.length)];
+            Timeout timeout;
+            while ((timeout = slot.poll()) != null) {
+                if (timeout.deadlineTick() <= targetTick) {
+                    // 再発行・使用済みで別のエントリに置き換わっている場合は何もしない
+                    if (entries.remove(timeout.key(), timeout.entry())) {
+                        removed++;
+                    }
+                } else {
+                    pending.add(timeout);
+                }
+            }
+            // 期限が先の周回のものは同じスロットに戻す
+            slot.addAll(pending);
+            pending.clear();
+        }
+        currentTick = targetTick;
+        if (removed > 0) {
+            log.debug("期限切れOTP削除（メモリ）: {}件, 残り={}", removed, entries.size());
+        }
+    }
+
+    private static long ceilDiv(long x, long y) {
+        return -Math.floorDiv(-x, y);
+    }
+}
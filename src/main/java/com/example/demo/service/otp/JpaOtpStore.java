@@ -0,0 +1,105 @@
+package com.example.demo.service.otp;
+
+import com.example.demo.entity.OneTimePassword;
+import com.example.demo.entity.OneTimePassword.OtpPurpose;
+import com.example.demo.entity.User;
+import com.example.demo.repository.OneTimePasswordRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+/**
+ * OTPの保存先（DB）
+ * one_time_passwords テーブルの一意キー（user_id, purpose）で1件を上書き・検索する
+ */
+@Component
+@ConditionalOnProperty(name = "app.otp.store.type", havingValue = "jpa", matchIfMissing = true)
+@Slf4j
+public class JpaOtpStore implements OtpStore {
+
+    // 追加と上書きが同時に競合し続けることはないため、数回で打ち切る
+    private static final int MAX_SAVE_ATTEMPTS = 3;
+
+    private final OneTimePasswordRepository otpRepository;
+    private final TransactionTemplate insertTransaction;
+
+    public JpaOtpStore(OneTimePasswordRepository otpRepository, PlatformTransactionManager transactionManager) {
+        this.otpRepository = otpRepository;
+        // 一意キー違反で呼び出し元のトランザクションが中断されないよう、追加は別トランザクションで行う
+        this.insertTransaction = new TransactionTemplate(transactionManager);
+        this.insertTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @Override
+    @Transactional
+    public void save(User user, OtpPurpose purpose, String codeHash, LocalDateTime expiresAt, LocalDateTime now) {
+        // 既存の行を上書きし、未発行の場合のみ追加する
+        for (int attempt = 1; ; attempt++) {
+            if (otpRepository.reissue(user, purpose, codeHash, expiresAt, now) > 0) {
+                return;
+            }
+            try {
+                insertTransaction.executeWithoutResult(status -> otpRepository.saveAndFlush(
+                    OneTimePassword.builder()
+                        .user(user)
+                        .codeHash(codeHash)
+                        .purpose(purpose)
+                        .expiresAt(expiresAt)
+                        .createdAt(now)
+                        .used(false)
+                        .build()));
+                return;
+            } catch (DataIntegrityViolationException e) {
+                // 同時に初回発行された場合は相手の行が追加済みのため、上書きをやり直す
+                if (attempt >= MAX_SAVE_ATTEMPTS) {
+                    throw e;
+                }
+                log.debug("OTPの同時発行を検出したため上書きを再試行: username={}, purpose={}",
+                    user.getUsername(), purpose);
+            }
+        }
+    }
+
+    @Override
+    @Transactional
+    public boolean verify(User user, OtpPurpose purpose, String codeHash, int maxAttempts, LocalDateTime now) {
+        Optional<OneTimePassword> otpOpt = otpRepository.findByUserAndPurpose(user, purpose);
+        if (otpOpt.isEmpty()) {
+            return false;
+        }
+        OneTimePassword otp = otpOpt.get();
+        if (otp.isUsed() || !now.isBefore(otp.getExpiresAt()) || otp.getAttempts() >= maxAttempts) {
+            return false;
+        }
+        // 照合の前に試行回数を消費し、同時の検証でも上限を超えて照合しない
+        if (otpRepository.consumeAttempt(otp.getId(), maxAttempts) == 0) {
+            return false;
+        }
+        if (!OtpStore.matches(otp.getCodeHash(), codeHash)) {
+            return false;
+        }
+        // 同時に検証・再発行された場合は一方のみ成功
+        return otpRepository.markUsed(otp.getId(), otp.getCodeHash()) == 1;
+    }
+
+    /**
+     * 期限切れ・使用済みのOTPの定期削除（1時間ごと）
+     */
+    @Scheduled(fixedRate = 3600000) // 1時間
+    @Transactional
+    public void cleanupExpiredOtps() {
+        int deleted = otpRepository.deleteExpiredOtps(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("期限切れOTP削除: {}件", deleted);
+        }
+    }
+}
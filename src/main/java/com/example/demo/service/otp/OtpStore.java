@@ -0,0 +1,45 @@
+package com.example.demo.service.otp;
+
+import com.example.demo.entity.OneTimePassword.OtpPurpose;
+import com.example.demo.entity.User;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+
+/**
+ * OTPの保存先
+ * ユーザー・用途ごとに1件のみ保持し、コードはハッシュで受け渡す。
+ * 実装は app.otp.store.type で選択する（{@link JpaOtpStore} / {@link InMemoryOtpStore}）。
+ */
+public interface OtpStore {
+
+    /**
+     * OTPを保存（既存のOTPは上書きして無効にする）
+     * @param user ユーザー
+     * @param purpose 用途
+     * @param codeHash コードのハッシュ
+     * @param expiresAt 有効期限
+     * @param now 発行日時
+     */
+    void save(User user, OtpPurpose purpose, String codeHash, LocalDateTime expiresAt, LocalDateTime now);
+
+    /**
+     * OTPを検証し、一致した場合は使用済みにする（不一致の場合は失敗回数を加算）
+     * @param user ユーザー
+     * @param purpose 用途
+     * @param codeHash 入力されたコードのハッシュ
+     * @param maxAttempts 失敗回数の上限
+     * @param now 現在時刻
+     * @return 検証結果
+     */
+    boolean verify(User user, OtpPurpose purpose, String codeHash, int maxAttempts, LocalDateTime now);
+
+    /**
+     * ハッシュを固定時間で比較
+     */
+    static boolean matches(String storedHash, String codeHash) {
+        return MessageDigest.isEqual(storedHash.getBytes(StandardCharsets.US_ASCII),
+            codeHash.getBytes(StandardCharsets.US_ASCII));
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.demo.service.ratelimit;
+
+/**
+ * レート制限アルゴリズム
+ */
+public enum RateLimitAlgorithm {
+
+    /**
+     * トークンバケット（GCRA）
+     * 時間窓あたり limit 回までのバーストを許可し、以降は一定間隔で回復する
+     */
+    TOKEN_BUCKET,
+
+    /**
+     * スライディングウィンドウ（カウンター近似）
+     * 直前の窓のカウントを経過割合で重み付けして推定する
+     */
+    SLIDING_WINDOW_COUNTER,
+
+    /**
+     * スライディングウィンドウ（ログ）
+     * 直近 limit 回分の時刻を保持する厳密な方式
+     */
+    SLIDING_WINDOW_LOG
+}
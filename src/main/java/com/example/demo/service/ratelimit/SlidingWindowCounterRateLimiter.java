@@ -0,0 +1,62 @@
+package com.example.demo.service.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * スライディングウィンドウ（カウンター近似）方式のレート制限
+ *
+ * 現在の窓と直前の窓のカウントのみを保持し、
+ * 直前の窓のカウントを残り割合で重み付けして窓内の件数を推定する。
+ */
+public class SlidingWindowCounterRateLimiter extends StripedRateLimiter {
+
+    private static final int WINDOW_START = 0;
+    private static final int PREVIOUS_COUNT = 1;
+    private static final int CURRENT_COUNT = 2;
+
+    public SlidingWindowCounterRateLimiter(int limit, Duration window, Duration blockDuration,
+                                           int stripeCount, int maxKeys, BlockListener blockListener) {
+        super(limit, window, blockDuration, stripeCount, maxKeys, 3, blockListener);
+    }
+
+    @Override
+    protected void reset(long[] state, int offset, long nowNanos) {
+        state[offset + WINDOW_START] = nowNanos;
+        state[offset + PREVIOUS_COUNT] = 0;
+        state[offset + CURRENT_COUNT] = 0;
+    }
+
+    @Override
+    protected long consume(long[] state, int offset, long nowNanos) {
+        long windowStart = state[offset + WINDOW_START];
+        long previous = state[offset + PREVIOUS_COUNT];
+        long current = state[offset + CURRENT_COUNT];
+
+        long elapsed = nowNanos - windowStart;
+        if (elapsed >= windowNanos) {
+            // 窓を進める（2窓以上経過していれば直前の窓も空）
+            long windows = elapsed / windowNanos;
+            previous = windows == 1 ? current : 0;
+            current = 0;
+            windowStart += windows * windowNanos;
+            elapsed -= windows * windowNanos;
+            state[offset + WINDOW_START] = windowStart;
+            state[offset + PREVIOUS_COUNT] = previous;
+            state[offset + CURRENT_COUNT] = current;
+        }
+
+        long remainingInWindow = windowNanos - elapsed;
+        long weightedPrevious = previous * remainingInWindow / windowNanos;
+        if (weightedPrevious + current < limit) {
+            state[offset + CURRENT_COUNT] = current + 1;
+            return 0;
+        }
+
+        if (current >= limit || previous == 0) {
+            return remainingInWindow;
+        }
+        // 直前の窓の重みが十分に減るまでの時間
+        long allowedRemaining = (limit - current - 1) * windowNanos / previous;
+        return Math.max(1, remainingInWindow - allowedRemaining);
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.demo.service.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * スライディングウィンドウ（ログ）方式のレート制限
+ *
+ * 直近 limit 回分の許可時刻をリングバッファで保持する。
+ * 状態サイズは limit に比例するため、limit が小さいアクション向け。
+ */
+public class SlidingWindowLogRateLimiter extends StripedRateLimiter {
+
+    private static final int COUNT = 0;
+    private static final int HEAD = 1;
+    private static final int LOG = 2;
+
+    public SlidingWindowLogRateLimiter(int limit, Duration window, Duration blockDuration,
+                                       int stripeCount, int maxKeys, BlockListener blockListener) {
+        super(limit, window, blockDuration, stripeCount, maxKeys, LOG + limit, blockListener);
+    }
+
+    @Override
+    protected void reset(long[] state, int offset, long nowNanos) {
+        state[offset + COUNT] = 0;
+        state[offset + HEAD] = 0;
+    }
+
+    @Override
+    protected long consume(long[] state, int offset, long nowNanos) {
+        int count = (int) state[offset + COUNT];
+        int head = (int) state[offset + HEAD];
+
+        // 時間窓から外れた記録を捨てる
+        while (count > 0 && nowNanos - state[offset + LOG + head] >= windowNanos) {
+            head = (head + 1) % limit;
+            count--;
+        }
+
+        if (count < limit) {
+            int tail = (head + count) % limit;
+            state[offset + LOG + tail] = nowNanos;
+            state[offset + COUNT] = count + 1;
+            state[offset + HEAD] = head;
+            return 0;
+        }
+
+        state[offset + COUNT] = count;
+        state[offset + HEAD] = head;
+        return Math.max(1, state[offset + LOG + head] + windowNanos - nowNanos);
+    }
+}
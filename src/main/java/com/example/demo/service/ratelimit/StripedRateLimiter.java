@@ -0,0 +1,420 @@
+package com.example.demo.service.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * ロックストライプ方式のレート制限エンジン
+ *
+ * キーごとの状態をプリミティブな long 配列（ナノ秒時刻）で保持し、
+ * 判定のたびにオブジェクトを生成しない。
+ * キー空間はストライプに分割され、ストライプごとに独立したロックと
+ * オープンアドレス法のハッシュテーブルを持つ。
+ *
+ * 保持するキー数は maxKeys で上限を設け、上限に達した場合は
+ * ストライプ内の一部のキーを標本として取り、期限切れのキー、
+ * 次に標本中で最も古いキーの順で追い出す（追い出し1回の処理量を一定に抑える）。
+ */
+public abstract class StripedRateLimiter {
+
+    /**
+     * ブロック開始時の通知先
+     */
+    @FunctionalInterface
+    public interface BlockListener {
+        /**
+         * キーがブロック状態に遷移したときに一度だけ呼ばれる
+         * @param key 制限キー
+         * @param blockNanos ブロック期間（ナノ秒）
+         */
+        void onBlocked(String key, long blockNanos);
+    }
+
+    // スロット先頭の共通領域（ブロック中フラグ、ブロック解除時刻）
+    private static final int BLOCKED = 0;
+    private static final int BLOCKED_UNTIL = 1;
+    private static final int HEADER_WIDTH = 2;
+
+    private static final int INITIAL_TABLE_SIZE = 16;
+
+    // 追い出し対象を選ぶ際に調べるキー数
+    private static final int EVICTION_SAMPLES = 8;
+
+    protected final int limit;
+    protected final long windowNanos;
+    private final long blockNanos;
+    private final long idleNanos;
+    private final int slotWidth;
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final BlockListener blockListener;
+
+    protected StripedRateLimiter(int limit, Duration window, Duration blockDuration,
+                                 int stripeCount, int maxKeys, int stateWidth,
+                                 BlockListener blockListener) {
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive: " + limit);
+        }
+        if (window.isZero() || window.isNegative()) {
+            throw new IllegalArgumentException("window must be positive: " + window);
+        }
+        this.limit = limit;
+        this.windowNanos = window.toNanos();
+        this.blockNanos = blockDuration == null ? 0 : Math.max(0, blockDuration.toNanos());
+        this.idleNanos = Math.max(windowNanos, blockNanos);
+        this.slotWidth = HEADER_WIDTH + stateWidth;
+        this.blockListener = blockListener;
+
+        int stripeSize = tableSizeFor(Math.max(1, stripeCount));
+        this.stripeMask = stripeSize - 1;
+        this.stripes = new Stripe[stripeSize];
+        int perStripe = Math.max(1, (maxKeys + stripeSize - 1) / stripeSize);
+        for (int i = 0; i < stripeSize; i++) {
+            stripes[i] = new Stripe(perStripe, slotWidth);
+        }
+    }
+
+    /**
+     * アルゴリズムに応じたエンジンを生成
+     * @param algorithm アルゴリズム
+     * @param limit 時間窓あたりの許可回数
+     * @param window 時間窓
+     * @param blockDuration 超過時のブロック期間（0 の場合はブロックしない）
+     * @param stripeCount ストライプ数
+     * @param maxKeys 保持する最大キー数
+     * @param blockListener ブロック開始時の通知先（null 可）
+     * @return レート制限エンジン
+     */
+    public static StripedRateLimiter create(RateLimitAlgorithm algorithm, int limit, Duration window,
+                                            Duration blockDuration, int stripeCount, int maxKeys,
+                                            BlockListener blockListener) {
+        switch (algorithm) {
+            case TOKEN_BUCKET:
+                return new TokenBucketRateLimiter(limit, window, blockDuration,
+                    stripeCount, maxKeys, blockListener);
+            case SLIDING_WINDOW_LOG:
+                return new SlidingWindowLogRateLimiter(limit, window, blockDuration,
+                    stripeCount, maxKeys, blockListener);
+            case SLIDING_WINDOW_COUNTER:
+            default:
+                return new SlidingWindowCounterRateLimiter(limit, window, blockDuration,
+                    stripeCount, maxKeys, blockListener);
+        }
+    }
+
+    /**
+     * リクエストを1件記録し、許可されるかを判定
+     * @param key 制限キー
+     * @param nowNanos 現在時刻（System.nanoTime() 基準）
+     * @return 許可された場合 0、拒否された場合は再試行までの待ち時間（ナノ秒）
+     */
+    public final long tryAcquire(String key, long nowNanos) {
+        return tryAcquire(key, nowNanos, blockListener);
+    }
+
+    /**
+     * リクエストを1件記録し、許可されるかを判定（ブロック開始時の通知先を指定）
+     * @param key 制限キー
+     * @param nowNanos 現在時刻（System.nanoTime() 基準）
+     * @param listener ブロック開始時の通知先（null 可、呼び出し元スレッドで呼ばれる）
+     * @return 許可された場合 0、拒否された場合は再試行までの待ち時間（ナノ秒）
+     */
+    public final long tryAcquire(String key, long nowNanos, BlockListener listener) {
+        int hash = spread(key.hashCode());
+        Stripe stripe = stripes[(hash >>> 16) & stripeMask];
+        long waitNanos;
+        boolean blockStarted = false;
+
+        synchronized (stripe) {
+            int slot = stripe.findOrInsert(key, hash, nowNanos);
+            long[] state = stripe.state;
+            int base = slot * slotWidth;
+            stripe.lastSeen[slot] = nowNanos;
+
+            if (state[base + BLOCKED] != 0) {
+                long remaining = state[base + BLOCKED_UNTIL] - nowNanos;
+                if (remaining > 0) {
+                    return remaining;
+                }
+                // ブロック期間が終了したら状態を初期化
+                state[base + BLOCKED] = 0;
+                reset(state, base + HEADER_WIDTH, nowNanos);
+            }
+
+            waitNanos = consume(state, base + HEADER_WIDTH, nowNanos);
+            if (waitNanos > 0 && blockNanos > 0) {
+                state[base + BLOCKED] = 1;
+                state[base + BLOCKED_UNTIL] = nowNanos + blockNanos;
+                waitNanos = blockNanos;
+                blockStarted = true;
+            }
+        }
+
+        if (blockStarted && listener != null) {
+            listener.onBlocked(key, blockNanos);
+        }
+        return waitNanos;
+    }
+
+    /**
+     * リクエストを記録せずに、次の1件が許可されるかを判定
+     * 失敗時のみ記録するキー（ログイン失敗など）の事前チェックに使う
+     * @param key 制限キー
+     * @param nowNanos 現在時刻（System.nanoTime() 基準）
+     * @return 許可される場合 0、拒否される場合は再試行までの待ち時間（ナノ秒）
+     */
+    public final long peek(String key, long nowNanos) {
+        int hash = spread(key.hashCode());
+        Stripe stripe = stripes[(hash >>> 16) & stripeMask];
+
+        synchronized (stripe) {
+            int slot = stripe.find(key, hash);
+            if (slot < 0) {
+                return 0;
+            }
+            long[] state = stripe.state;
+            int base = slot * slotWidth;
+            if (state[base + BLOCKED] != 0) {
+                long remaining = state[base + BLOCKED_UNTIL] - nowNanos;
+                return Math.max(0, remaining);
+            }
+            // 状態の写しで判定し、実際の状態は変更しない
+            long[] scratch = stripe.scratch;
+            System.arraycopy(state, base + HEADER_WIDTH, scratch, 0, slotWidth - HEADER_WIDTH);
+            return consume(scratch, 0, nowNanos);
+        }
+    }
+
+    /**
+     * 一定時間アクセスのないキーを削除
+     * @param nowNanos 現在時刻（System.nanoTime() 基準）
+     * @return 削除したキー数
+     */
+    public int evictExpired(long nowNanos) {
+        int evicted = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                evicted += stripe.evictExpired(nowNanos);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * 現在保持しているキー数
+     * @return キー数
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * キーの状態を初期化
+     * @param state 状態配列
+     * @param offset アルゴリズム固有領域の先頭
+     * @param nowNanos 現在時刻
+     */
+    protected abstract void reset(long[] state, int offset, long nowNanos);
+
+    /**
+     * リクエストを1件消費
+     * @param state 状態配列
+     * @param offset アルゴリズム固有領域の先頭
+     * @param nowNanos 現在時刻
+     * @return 許可された場合 0、拒否された場合は再試行までの待ち時間（ナノ秒）
+     */
+    protected abstract long consume(long[] state, int offset, long nowNanos);
+
+    private static int spread(int h) {
+        h ^= (h >>> 16);
+        h *= 0x85ebca6b;
+        return h ^ (h >>> 13);
+    }
+
+    private static int tableSizeFor(int n) {
+        int size = 1;
+        while (size < n) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * ストライプ（線形探索のオープンアドレス法ハッシュテーブル）
+     */
+    private final class Stripe {
+        private final int capacity;
+        private final int width;
+        private String[] keys;
+        private int[] hashes;
+        private long[] lastSeen;
+        private long[] state;
+        // peek 用の作業領域（ストライプのロック内でのみ使う）
+        private final long[] scratch;
+        private int mask;
+        private int size;
+        // 追い出し候補の探索開始位置（探索のたびに進め、テーブル全体を巡回する）
+        private int evictionCursor;
+
+        Stripe(int capacity, int width) {
+            this.capacity = capacity;
+            this.width = width;
+            this.scratch = new long[width];
+            allocate(Math.min(INITIAL_TABLE_SIZE, tableSizeFor(capacity + capacity / 3 + 1)));
+        }
+
+        private void allocate(int tableSize) {
+            keys = new String[tableSize];
+            hashes = new int[tableSize];
+            lastSeen = new long[tableSize];
+            state = new long[tableSize * width];
+            mask = tableSize - 1;
+        }
+
+        int findOrInsert(String key, int hash, long nowNanos) {
+            int index = find(key, hash);
+            if (index >= 0) {
+                return index;
+            }
+
+            if (size >= capacity) {
+                // 上限到達時は標本の中から1件だけ追い出す
+                // （期限切れキーの一括削除は定期実行の evictExpired に任せる）
+                removeAt(findEvictionVictim(nowNanos));
+                index = find(key, hash);
+            } else if ((size + 1) * 4 > keys.length * 3) {
+                grow();
+                index = find(key, hash);
+            }
+
+            int slot = ~index;
+            keys[slot] = key;
+            hashes[slot] = hash;
+            int base = slot * width;
+            state[base + BLOCKED] = 0;
+            state[base + BLOCKED_UNTIL] = 0;
+            reset(state, base + HEADER_WIDTH, nowNanos);
+            size++;
+            return slot;
+        }
+
+        private int find(String key, int hash) {
+            int i = hash & mask;
+            while (true) {
+                String existing = keys[i];
+                if (existing == null) {
+                    return ~i;
+                }
+                if (hashes[i] == hash && existing.equals(key)) {
+                    return i;
+                }
+                i = (i + 1) & mask;
+            }
+        }
+
+        private void grow() {
+            String[] oldKeys = keys;
+            int[] oldHashes = hashes;
+            long[] oldLastSeen = lastSeen;
+            long[] oldState = state;
+            allocate(oldKeys.length << 1);
+
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] == null) {
+                    continue;
+                }
+                int slot = ~find(oldKeys[i], oldHashes[i]);
+                keys[slot] = oldKeys[i];
+                hashes[slot] = oldHashes[i];
+                lastSeen[slot] = oldLastSeen[i];
+                System.arraycopy(oldState, i * width, state, slot * width, width);
+            }
+        }
+
+        int evictExpired(long nowNanos) {
+            int evicted = 0;
+            for (int i = 0; i < keys.length; i++) {
+                while (keys[i] != null && isExpired(i, nowNanos)) {
+                    removeAt(i);
+                    evicted++;
+                }
+            }
+            return evicted;
+        }
+
+        private boolean isExpired(int slot, long nowNanos) {
+            int base = slot * width;
+            if (state[base + BLOCKED] != 0 && state[base + BLOCKED_UNTIL] - nowNanos > 0) {
+                return false;
+            }
+            return nowNanos - lastSeen[slot] >= idleNanos;
+        }
+
+        /**
+         * 追い出し対象を選択
+         * 巡回位置から最大 EVICTION_SAMPLES 件のキーを調べ、期限切れのキーがあればそれを、
+         * なければブロック中でないキーを優先して最古のものを返す。
+         * テーブルの使用率は上限到達時に一定以上あるため、調べるスロット数は
+         * ストライプの大きさによらずほぼ一定となる。
+         */
+        private int findEvictionVictim(long nowNanos) {
+            int victim = -1;
+            boolean victimBlocked = true;
+            int sampled = 0;
+            int i = evictionCursor & mask;
+            for (int probed = 0; probed < keys.length && sampled < EVICTION_SAMPLES;
+                 probed++, i = (i + 1) & mask) {
+                if (keys[i] == null) {
+                    continue;
+                }
+                sampled++;
+                if (isExpired(i, nowNanos)) {
+                    evictionCursor = i + 1;
+                    return i;
+                }
+                int base = i * width;
+                boolean blocked = state[base + BLOCKED] != 0
+                    && state[base + BLOCKED_UNTIL] - nowNanos > 0;
+                if (victim < 0
+                    || (victimBlocked && !blocked)
+                    || (victimBlocked == blocked && lastSeen[i] - lastSeen[victim] < 0)) {
+                    victim = i;
+                    victimBlocked = blocked;
+                }
+            }
+            evictionCursor = i;
+            return victim;
+        }
+
+        /**
+         * 後方シフト削除（墓標を残さない）
+         */
+        private void removeAt(int slot) {
+            int hole = slot;
+            int i = slot;
+            while (true) {
+                i = (i + 1) & mask;
+                if (keys[i] == null) {
+                    break;
+                }
+                int home = hashes[i] & mask;
+                boolean stays = hole <= i ? (hole < home && home <= i) : (hole < home || home <= i);
+                if (stays) {
+                    continue;
+                }
+                keys[hole] = keys[i];
+                hashes[hole] = hashes[i];
+                lastSeen[hole] = lastSeen[i];
+                System.arraycopy(state, i * width, state, hole * width, width);
+                hole = i;
+            }
+            keys[hole] = null;
+            size--;
+        }
+    }
+}
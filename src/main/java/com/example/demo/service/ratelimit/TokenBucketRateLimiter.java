@@ -0,0 +1,45 @@
+package com.example.demo.service.ratelimit;
+
+import java.time.Duration;
+
+/**
+ * トークンバケット方式のレート制限（GCRA）
+ *
+ * 理論到着時刻（TAT）1つだけを状態として保持する。
+ * 時間窓あたり limit 回までのバーストを許可し、
+ * 以降は window / limit ごとに1回分回復する。
+ */
+public class TokenBucketRateLimiter extends StripedRateLimiter {
+
+    private static final int TAT = 0;
+
+    private final long emissionNanos;
+
+    public TokenBucketRateLimiter(int limit, Duration window, Duration blockDuration,
+                                  int stripeCount, int maxKeys, BlockListener blockListener) {
+        super(limit, window, blockDuration, stripeCount, maxKeys, 1, blockListener);
+        this.emissionNanos = Math.max(1, windowNanos / limit);
+    }
+
+    @Override
+    protected void reset(long[] state, int offset, long nowNanos) {
+        state[offset + TAT] = nowNanos;
+    }
+
+    @Override
+    protected long consume(long[] state, int offset, long nowNanos) {
+        long tat = state[offset + TAT];
+        if (tat - nowNanos < 0) {
+            tat = nowNanos;
+        }
+
+        long newTat = tat + emissionNanos;
+        long allowAt = newTat - windowNanos;
+        if (allowAt - nowNanos > 0) {
+            return allowAt - nowNanos;
+        }
+
+        state[offset + TAT] = newTat;
+        return 0;
+    }
+}
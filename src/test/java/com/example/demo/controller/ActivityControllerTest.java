@@ -0,0 +1,78 @@
+package com.example.demo.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.entity.AuditLog;
+import com.example.demo.entity.AuditLog.EventType;
+import com.example.demo.service.AuditLogService;
+
+/**
+ * ActivityControllerのテスト
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DisplayName("ActivityControllerテスト")
+class ActivityControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private AuditLogService auditLogService;
+
+    @Test
+    @WithMockUser(username = "alice")
+    @DisplayName("ログインしているユーザー自身の監査ログを、上限内の期間で表示すること")
+    void testShowOwnActivity() throws Exception {
+        AuditLog auditLog = AuditLog.builder()
+            .id(1L)
+            .eventType(EventType.PASSWORD_CHANGED)
+            .username("alice")
+            .ipAddress("192.0.2.10")
+            .success(true)
+            .createdAt(LocalDateTime.now().minusDays(1))
+            .build();
+        when(auditLogService.search(eq("alice"), any(), any(), eq(ActivityController.MAX_ENTRIES)))
+            .thenReturn(List.of(auditLog));
+
+        mockMvc.perform(get("/activity").param("days", "10000"))
+            .andExpect(status().isOk())
+            .andExpect(view().name("activity"))
+            .andExpect(model().attribute("days", ActivityController.MAX_DAYS))
+            .andExpect(content().string(Matchers.containsString("192.0.2.10")));
+
+        ArgumentCaptor<LocalDateTime> from = ArgumentCaptor.forClass(LocalDateTime.class);
+        ArgumentCaptor<LocalDateTime> to = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(auditLogService).search(eq("alice"), from.capture(), to.capture(), eq(ActivityController.MAX_ENTRIES));
+        assertThat(from.getValue())
+            .isEqualTo(to.getValue().minusDays(ActivityController.MAX_DAYS));
+    }
+
+    @Test
+    @DisplayName("未認証の場合はログインページにリダイレクトされること")
+    void testRequiresLogin() throws Exception {
+        mockMvc.perform(get("/activity"))
+            .andExpect(status().is3xxRedirection());
+        verifyNoInteractions(auditLogService);
+    }
+}
@@ -2,8 +2,12 @@ package com.example.demo.controller;
 
 import com.example.demo.entity.User;
 import com.example.demo.repository.UserRepository;
+import com.example.demo.security.ClientIpResolver;
+import com.example.demo.security.MfaStateRegistry;
 import com.example.demo.service.FormTokenService;
 import com.example.demo.service.IUserService;
+import com.example.demo.service.RateLimitService;
+import com.example.demo.service.UserCache;
 import jakarta.servlet.http.HttpSession;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -43,6 +47,18 @@ class AuthControllerTest {
     @MockBean
     private FormTokenService formTokenService;
 
+    @MockBean
+    private MfaStateRegistry mfaStateRegistry;
+
+    @MockBean
+    private RateLimitService rateLimitService;
+
+    @MockBean
+    private UserCache userCache;
+
+    @MockBean
+    private ClientIpResolver clientIpResolver;
+
     private User testUser;
 
     @BeforeEach
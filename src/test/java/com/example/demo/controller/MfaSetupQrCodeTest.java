@@ -0,0 +1,58 @@
+package com.example.demo.controller;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.example.demo.service.TotpService;
+
+/**
+ * MFA設定用のQRコード画像の配信テスト
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@DisplayName("MFA設定用QRコード画像テスト")
+class MfaSetupQrCodeTest {
+
+    private static final String MFA_SETUP_SECRET = "MFA_SETUP_SECRET";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TotpService totpService;
+
+    @Test
+    @WithMockUser(username = "alice")
+    @DisplayName("セッションのシークレットのQRコード画像を、キャッシュ禁止で返すこと")
+    void testServesSessionSecret() throws Exception {
+        String secret = totpService.generateSecret();
+        MockHttpSession session = new MockHttpSession();
+        session.setAttribute(MFA_SETUP_SECRET, secret);
+
+        mockMvc.perform(get("/mfa/setup/qr.png").session(session))
+            .andExpect(status().isOk())
+            .andExpect(content().contentType(MediaType.IMAGE_PNG))
+            .andExpect(header().string("Cache-Control", "no-store"))
+            .andExpect(content().bytes(totpService.getQrCodePng("alice", secret)));
+    }
+
+    @Test
+    @WithMockUser(username = "alice")
+    @DisplayName("セッションに設定中のシークレットがない場合は 404 を返すこと")
+    void testNotFoundWithoutSessionSecret() throws Exception {
+        mockMvc.perform(get("/mfa/setup/qr.png"))
+            .andExpect(status().isNotFound());
+    }
+}
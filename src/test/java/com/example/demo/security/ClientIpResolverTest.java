@@ -0,0 +1,61 @@
+package com.example.demo.security;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.example.demo.config.ClientIpConfig;
+
+/**
+ * ClientIpResolverのユニットテスト
+ */
+@DisplayName("ClientIpResolverテスト")
+class ClientIpResolverTest {
+
+    private static ClientIpResolver resolver(String... trustedProxies) {
+        ClientIpConfig config = new ClientIpConfig();
+        config.setTrustedProxies(List.of(trustedProxies));
+        return new ClientIpResolver(config);
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String xForwardedFor) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+        request.setRemoteAddr(remoteAddr);
+        if (xForwardedFor != null) {
+            request.addHeader("X-Forwarded-For", xForwardedFor);
+        }
+        return request;
+    }
+
+    @Test
+    @DisplayName("信頼済みプロキシ以外からの転送ヘッダーは無視すること")
+    void testUntrustedForwardedHeaderIgnored() {
+        MockHttpServletRequest request = request("192.0.2.1", "203.0.113.5");
+        request.addHeader("X-Real-IP", "203.0.113.6");
+
+        assertThat(resolver().resolve(request)).isEqualTo("192.0.2.1");
+        assertThat(resolver("10.0.0.0/8").resolve(request)).isEqualTo("192.0.2.1");
+    }
+
+    @Test
+    @DisplayName("信頼済みプロキシ経由では右から辿って最初の信頼済みでないアドレスを使うこと")
+    void testTrustedProxyChain() {
+        // 先頭はクライアントが自由に設定できるため使わない
+        MockHttpServletRequest request = request("10.0.0.2", "198.51.100.7, 203.0.113.5, 10.0.0.1");
+
+        assertThat(resolver("10.0.0.0/8").resolve(request)).isEqualTo("203.0.113.5");
+    }
+
+    @Test
+    @DisplayName("信頼済みプロキシ経由で X-Forwarded-For がない場合は X-Real-IP を使うこと")
+    void testTrustedProxyRealIp() {
+        MockHttpServletRequest request = request("127.0.0.1", null);
+        request.addHeader("X-Real-IP", "203.0.113.5");
+
+        assertThat(resolver("127.0.0.1").resolve(request)).isEqualTo("203.0.113.5");
+    }
+}
@@ -0,0 +1,151 @@
+package com.example.demo.security;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.config.PasswordHashingConfig;
+import com.example.demo.exception.PasswordHashingUnavailableException;
+import com.example.demo.security.PasswordHashingExecutor.Operation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * PasswordHashingExecutorのユニットテスト
+ * スレッド数1・待ち行列1で、実行中と待ち行列を埋めた状態の受け付けを確認する
+ */
+@DisplayName("PasswordHashingExecutorテスト")
+class PasswordHashingExecutorTest {
+
+    private static final int RETRY_AFTER_SECONDS = 7;
+
+    private SimpleMeterRegistry meterRegistry;
+    private PasswordHashingExecutor hashingExecutor;
+    private ExecutorService callers;
+    private CountDownLatch release;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        PasswordHashingConfig config = new PasswordHashingConfig();
+        config.setPoolSize(1);
+        config.setQueueCapacity(1);
+        config.setRetryAfterSeconds(RETRY_AFTER_SECONDS);
+        hashingExecutor = new PasswordHashingExecutor(config, meterRegistry);
+        callers = Executors.newCachedThreadPool();
+        release = new CountDownLatch(1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        callers.shutdownNow();
+        hashingExecutor.shutdown();
+    }
+
+    /**
+     * ワーカーを塞ぎ、待ち行列を1件で埋める
+     */
+    private List<Future<Boolean>> saturate() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        Future<Boolean> first = callers.submit(() -> hashingExecutor.execute(Operation.MATCHES, () -> {
+            running.countDown();
+            return awaitRelease();
+        }));
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+        Future<Boolean> second = callers.submit(() -> hashingExecutor.execute(Operation.MATCHES, this::awaitRelease));
+        awaitQueueSize(1);
+        return List.of(first, second);
+    }
+
+    private void awaitQueueSize(int size) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (meterRegistry.get("password.hash.queue.size").gauge().value() != size) {
+            assertThat(System.nanoTime()).isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private boolean awaitRelease() {
+        try {
+            return release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private double rejected() {
+        return meterRegistry.get("password.hash.rejected").counter().count();
+    }
+
+    @Test
+    @DisplayName("待ち行列が満杯の場合は待たずに拒否し、拒否件数を数えること")
+    void testRejectsImmediatelyWhenSaturated() throws Exception {
+        List<Future<Boolean>> pending = saturate();
+        AtomicBoolean ran = new AtomicBoolean();
+
+        long startedAt = System.nanoTime();
+        assertThatThrownBy(() -> hashingExecutor.execute(Operation.ENCODE, () -> {
+                ran.set(true);
+                return "hash";
+            }))
+            .isInstanceOfSatisfying(PasswordHashingUnavailableException.class,
+                e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(RETRY_AFTER_SECONDS));
+        // 実行中の処理の完了を待たずに返る
+        assertThat(System.nanoTime() - startedAt).isLessThan(TimeUnit.SECONDS.toNanos(1));
+        assertThat(rejected()).isEqualTo(1.0);
+
+        release.countDown();
+        for (Future<Boolean> future : pending) {
+            assertThat(future.get(5, TimeUnit.SECONDS)).isTrue();
+        }
+        assertThat(ran).isFalse();
+
+        // 空きができれば再び受け付ける
+        assertThat(hashingExecutor.execute(Operation.ENCODE, () -> "hash")).isEqualTo("hash");
+        assertThat(rejected()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("一括実行で一部が拒否された場合は投入済みの処理を取り消すこと")
+    void testInvokeAllCancelsSubmittedTasksOnRejection() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        Future<Boolean> blocker = callers.submit(() -> hashingExecutor.execute(Operation.MATCHES, () -> {
+            running.countDown();
+            return awaitRelease();
+        }));
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+        AtomicBoolean ran = new AtomicBoolean();
+        Supplier<Boolean> task = () -> {
+            ran.set(true);
+            return true;
+        };
+
+        // 1件目は待ち行列に入り、2件目で拒否される
+        assertThatThrownBy(() -> hashingExecutor.invokeAll(List.of(task, task)))
+            .isInstanceOf(PasswordHashingUnavailableException.class);
+        assertThat(rejected()).isEqualTo(1.0);
+
+        release.countDown();
+        assertThat(blocker.get(5, TimeUnit.SECONDS)).isTrue();
+        // 取り消した処理が待ち行列から取り出されるのを待つ
+        awaitQueueSize(0);
+        assertThat(hashingExecutor.execute(Operation.MATCHES, () -> true)).isTrue();
+        assertThat(ran).isFalse();
+    }
+}
@@ -0,0 +1,118 @@
+package com.example.demo.security;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.example.demo.entity.User;
+import com.example.demo.exception.PasswordHashingUnavailableException;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.security.PasswordHashingExecutor.Operation;
+import com.example.demo.service.FormTokenService;
+
+/**
+ * パスワードハッシュ処理の過負荷時の応答テスト
+ * ハッシュ処理が拒否された場合、ログイン・登録・パスワード変更のいずれも 503 と Retry-After を返すこと
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+@DisplayName("パスワードハッシュ処理の過負荷時の応答テスト")
+class PasswordHashingOverloadTest {
+
+    private static final String USERNAME = "overload-user";
+    private static final String PASSWORD = "Overload#Pass2026";
+    private static final int RETRY_AFTER_SECONDS = 7;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @SpyBean
+    private PasswordHashingExecutor hashingExecutor;
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private FormTokenService formTokenService;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername(USERNAME);
+        user.setPassword(passwordEncoder.encode(PASSWORD));
+        userRepository.save(user);
+    }
+
+    private void rejectHashing(Operation operation) {
+        doThrow(new PasswordHashingUnavailableException("現在アクセスが集中しています。", RETRY_AFTER_SECONDS))
+            .when(hashingExecutor).execute(eq(operation), any());
+    }
+
+    @Test
+    @DisplayName("フォームログインは存在するユーザーでも存在しないユーザーでも 503 を返すこと")
+    void testFormLogin() throws Exception {
+        rejectHashing(Operation.MATCHES);
+
+        for (String username : new String[] {USERNAME, "nonexistent"}) {
+            mockMvc.perform(post("/login").with(csrf())
+                    .param("username", username)
+                    .param("password", PASSWORD))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", String.valueOf(RETRY_AFTER_SECONDS)));
+        }
+    }
+
+    @Test
+    @DisplayName("ユーザー登録は 503 を返すこと")
+    void testRegister() throws Exception {
+        rejectHashing(Operation.ENCODE);
+        MockHttpSession session = new MockHttpSession();
+        String formToken = formTokenService.generateToken(session, "register");
+
+        mockMvc.perform(post("/register").with(csrf()).session(session)
+                .param("username", "overload-new-user")
+                .param("email", "overload-new-user@example.com")
+                .param("password", PASSWORD)
+                .param("confirmPassword", PASSWORD)
+                .param("formToken", formToken))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().string("Retry-After", String.valueOf(RETRY_AFTER_SECONDS)))
+            .andExpect(view().name("error/rate-limit"));
+    }
+
+    @Test
+    @DisplayName("パスワード変更は 503 を返すこと")
+    void testChangePassword() throws Exception {
+        rejectHashing(Operation.MATCHES);
+
+        mockMvc.perform(post("/change-password").with(csrf()).with(user(USERNAME))
+                .param("currentPassword", PASSWORD)
+                .param("newPassword", "Changed#Pass2026")
+                .param("confirmPassword", "Changed#Pass2026"))
+            .andExpect(status().isServiceUnavailable())
+            .andExpect(header().string("Retry-After", String.valueOf(RETRY_AFTER_SECONDS)))
+            .andExpect(view().name("error/rate-limit"));
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.demo.security;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.Base64;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.example.demo.config.PasswordHashingConfig;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * PepperedPasswordEncoderのユニットテスト
+ */
+@DisplayName("PepperedPasswordEncoderテスト")
+class PepperedPasswordEncoderTest {
+
+    private static final String PEPPER = "testPepper!@#";
+
+    private SimpleMeterRegistry meterRegistry;
+    private PasswordHashingExecutor hashingExecutor;
+    private PasswordEncoder encoder;
+
+    @BeforeEach
+    void setUp() {
+        PasswordHashingConfig config = new PasswordHashingConfig();
+        config.setPoolSize(2);
+        meterRegistry = new SimpleMeterRegistry();
+        hashingExecutor = new PasswordHashingExecutor(config, meterRegistry);
+        encoder = PepperedPasswordEncoder.createDelegatingPasswordEncoder(PEPPER, 4, hashingExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        hashingExecutor.shutdown();
+    }
+
+    @Test
+    @DisplayName("新しいハッシュはHMAC方式で作成し、正しいパスワードのみ一致する")
+    void testEncodeAndMatches() {
+        String encoded = encoder.encode("Passw0rd!");
+
+        assertThat(encoded).startsWith("{hmac}$2a$04$");
+        assertThat(encoder.matches("Passw0rd!", encoded)).isTrue();
+        assertThat(encoder.matches("passw0rd!", encoded)).isFalse();
+        assertThat(meterRegistry.get("password.hash.duration").tag("operation", "matches").timer().count())
+            .isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("旧方式（パスワード + ペッパーのSHA-256）で作成したハッシュも検証できる")
+    void testLegacyHash() throws Exception {
+        for (String password : new String[] {"Passw0rd!", "日本語パスワード", "絵文字😀", "不正\uD800"}) {
+            String legacy = new BCryptPasswordEncoder(4).encode(legacyPepper(password));
+
+            assertThat(encoder.matches(password, legacy)).as(password).isTrue();
+            assertThat(encoder.matches(password + "x", legacy)).as(password).isFalse();
+        }
+    }
+
+    @Test
+    @DisplayName("旧方式のハッシュと設定より低いコストのハッシュは再ハッシュの対象になる")
+    void testUpgradeEncoding() throws Exception {
+        String current = encoder.encode("Passw0rd!");
+        PasswordEncoder stronger = PepperedPasswordEncoder.createDelegatingPasswordEncoder(PEPPER, 5, hashingExecutor);
+
+        assertThat(encoder.upgradeEncoding(current)).isFalse();
+        assertThat(stronger.upgradeEncoding(current)).isTrue();
+        assertThat(stronger.matches("Passw0rd!", current)).isTrue();
+        assertThat(encoder.upgradeEncoding(new BCryptPasswordEncoder(4).encode(legacyPepper("Passw0rd!")))).isTrue();
+    }
+
+    @Test
+    @DisplayName("BCrypt形式ではないハッシュは一致しない")
+    void testInvalidHash() {
+        assertThat(encoder.matches("Passw0rd!", "")).isFalse();
+        assertThat(encoder.matches("Passw0rd!", "plain-text")).isFalse();
+    }
+
+    // 変更前の applyPepper と同じ処理
+    private static String legacyPepper(String password) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] hash = digest.digest((password + PEPPER).getBytes(StandardCharsets.UTF_8));
+        return Base64.getEncoder().encodeToString(hash);
+    }
+
+    @Test
+    @DisplayName("検索用HMACが保存済みの値（ペッパーをキーにしたHMAC-SHA256のURLセーフBase64）と一致すること")
+    void testLookupHmacCompatibility() throws Exception {
+        PasswordPepper pepper = new PasswordPepper(PEPPER);
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(PEPPER.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+
+        for (String value : new String[] {"backup-code:ABCD1234", "otp:1:LOGIN:123456", "otp:パスワード"}) {
+            String expected = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(mac.doFinal(value.getBytes(StandardCharsets.UTF_8)));
+            assertThat(pepper.hmac(value)).isEqualTo(expected);
+        }
+    }
+}
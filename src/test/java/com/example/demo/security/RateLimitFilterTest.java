@@ -0,0 +1,152 @@
+package com.example.demo.security;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import com.example.demo.config.ClientIpConfig;
+import com.example.demo.config.RateLimitConfig;
+import com.example.demo.service.RateLimitService;
+
+/**
+ * RateLimitFilterのユニットテスト
+ */
+@DisplayName("RateLimitFilterテスト")
+class RateLimitFilterTest {
+
+    private RateLimitService rateLimitService;
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitConfig config = new RateLimitConfig();
+        config.getActions().put("login-ip", policy(5));
+        config.getActions().put("login-username", policy(2));
+        config.getActions().put("mfa-verify-username", policy(1));
+        rateLimitService = new RateLimitService(config);
+        filter = new RateLimitFilter(rateLimitService, new ClientIpResolver(new ClientIpConfig()));
+    }
+
+    @AfterEach
+    void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+    private static RateLimitConfig.Policy policy(int limit) {
+        RateLimitConfig.Policy policy = new RateLimitConfig.Policy();
+        policy.setLimit(limit);
+        policy.setWindow(Duration.ofMinutes(1));
+        policy.setBlockDuration(Duration.ofMinutes(5));
+        return policy;
+    }
+
+    private static MockHttpServletRequest post(String path, String ip, String username) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", path);
+        request.setServletPath(path);
+        request.setRemoteAddr(ip);
+        if (username != null) {
+            request.setParameter("username", username);
+        }
+        return request;
+    }
+
+    /**
+     * @return 後続のフィルターに渡った場合はnull、拒否された場合はレスポンス
+     */
+    private MockHttpServletResponse perform(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        MockFilterChain chain = new MockFilterChain();
+        filter.doFilter(request, response, chain);
+        return chain.getRequest() != null ? null : response;
+    }
+
+    @Test
+    @DisplayName("同一ユーザー名へのログイン失敗が上限を超えると429とRetry-Afterで拒否されること")
+    void testUsernameLimit() throws Exception {
+        for (int i = 0; i < 2; i++) {
+            assertThat(perform(post("/login", "192.0.2." + i, "Alice"))).isNull();
+            // 失敗は AuthenticationEventListener が記録する
+            rateLimitService.record(RateLimitFilter.normalizeUsername("Alice"),
+                RateLimitFilter.LOGIN_USERNAME_ACTION);
+        }
+
+        // 上限に達した時点で拒否（記録はしないため時間窓の残りで再試行できる）
+        MockHttpServletResponse rejected = perform(post("/login", "192.0.2.9", "alice"));
+        assertThat(rejected).isNotNull();
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(rejected.getHeader("Retry-After")).isEqualTo("60");
+
+        // さらに失敗が記録されて超過した場合はブロック期間
+        rateLimitService.record("alice", RateLimitFilter.LOGIN_USERNAME_ACTION);
+        assertThat(perform(post("/login", "192.0.2.9", "alice")).getHeader("Retry-After")).isEqualTo("300");
+
+        // 別のユーザー名は制限されない
+        assertThat(perform(post("/login", "192.0.2.3", "bob"))).isNull();
+    }
+
+    @Test
+    @DisplayName("成功したログインはユーザー名単位の制限に数えられず、本人が締め出されないこと")
+    void testSuccessfulLoginsDoNotLockOutUser() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            assertThat(perform(post("/login", "192.0.2." + i, "alice"))).isNull();
+        }
+    }
+
+    @Test
+    @DisplayName("同一IPアドレスからの試行は上限を超えると拒否されること")
+    void testIpLimit() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertThat(perform(post("/login", "192.0.2.1", "user" + i))).isNull();
+        }
+
+        MockHttpServletResponse rejected = perform(post("/login", "192.0.2.1", "other"));
+        assertThat(rejected).isNotNull();
+        assertThat(rejected.getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    @DisplayName("X-Forwarded-For を書き換えてもIPアドレス単位の制限を回避できないこと")
+    void testSpoofedForwardedHeaderIgnored() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            MockHttpServletRequest request = post("/login", "192.0.2.1", "user" + i);
+            request.addHeader("X-Forwarded-For", "203.0.113." + i);
+            assertThat(perform(request)).isNull();
+        }
+
+        MockHttpServletRequest request = post("/login", "192.0.2.1", "other");
+        request.addHeader("X-Forwarded-For", "203.0.113.99");
+        assertThat(perform(request)).isNotNull();
+    }
+
+    @Test
+    @DisplayName("MFA検証は認証済みのユーザー名で制限されること")
+    void testMfaVerifyUsesAuthenticatedUser() throws Exception {
+        SecurityContextHolder.getContext().setAuthentication(
+            new UsernamePasswordAuthenticationToken("alice", null));
+
+        assertThat(perform(post("/mfa/verify", "192.0.2.1", null))).isNull();
+        assertThat(perform(post("/mfa/verify", "192.0.2.2", null))).isNotNull();
+    }
+
+    @Test
+    @DisplayName("画面表示（GET）と対象外のパスは制限されないこと")
+    void testGetAndOtherPathsNotLimited() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            MockHttpServletRequest get = new MockHttpServletRequest("GET", "/login");
+            get.setServletPath("/login");
+            get.setRemoteAddr("192.0.2.1");
+            assertThat(perform(get)).isNull();
+            assertThat(perform(post("/change-password", "192.0.2.1", "alice"))).isNull();
+        }
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.demo.security;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
+
+import com.example.demo.config.ClientIpConfig;
+import com.example.demo.config.PasswordHashingConfig;
+import com.example.demo.config.RiskAssessmentConfig;
+import com.example.demo.dto.RiskAssessmentResult;
+import com.example.demo.dto.RiskAssessmentResult.RiskLevel;
+import com.example.demo.security.PasswordHashingExecutor.Operation;
+import com.example.demo.security.RiskBasedAuthenticationFilter.RiskBasedAuthenticationException;
+import com.example.demo.service.RiskAssessmentService;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * RiskBasedAuthenticationFilterのユニットテスト
+ */
+@DisplayName("RiskBasedAuthenticationFilterテスト")
+class RiskBasedAuthenticationFilterTest {
+
+    private RiskAssessmentService riskAssessmentService;
+    private RiskAssessmentExecutor riskAssessmentExecutor;
+    private PasswordHashingExecutor hashingExecutor;
+
+    @BeforeEach
+    void setUp() {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        riskAssessmentService = mock(RiskAssessmentService.class);
+        riskAssessmentExecutor = new RiskAssessmentExecutor(new RiskAssessmentConfig(), meterRegistry);
+        PasswordHashingConfig hashingConfig = new PasswordHashingConfig();
+        hashingConfig.setPoolSize(1);
+        hashingExecutor = new PasswordHashingExecutor(hashingConfig, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        riskAssessmentExecutor.shutdown();
+        hashingExecutor.shutdown();
+    }
+
+    private RiskBasedAuthenticationFilter filter(AuthenticationManager authenticationManager) {
+        return new RiskBasedAuthenticationFilter("/login", authenticationManager, riskAssessmentService,
+            riskAssessmentExecutor, Duration.ofSeconds(5),
+            new ClientIpResolver(new ClientIpConfig()));
+    }
+
+    private static MockHttpServletRequest loginRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/login");
+        request.setServletPath("/login");
+        request.setParameter("username", "testuser");
+        request.setParameter("password", "password");
+        return request;
+    }
+
+    private static RiskAssessmentResult result(RiskLevel riskLevel) {
+        return RiskAssessmentResult.builder()
+            .riskScore(riskLevel == RiskLevel.CRITICAL ? 100 : 10)
+            .riskLevel(riskLevel)
+            .riskFactors(List.of())
+            .build();
+    }
+
+    private static Authentication authenticated(Authentication request) {
+        return UsernamePasswordAuthenticationToken.authenticated(request.getName(), null, List.of());
+    }
+
+    @Test
+    @DisplayName("リスク評価とパスワード照合が並行して実行されること")
+    void testRunsConcurrently() throws Exception {
+        // 互いの開始を待つため、並行に実行されない場合は完了しない
+        CountDownLatch riskStarted = new CountDownLatch(1);
+        CountDownLatch hashStarted = new CountDownLatch(1);
+        when(riskAssessmentService.assessLoginRisk(eq("testuser"), any())).thenAnswer(invocation -> {
+            riskStarted.countDown();
+            assertThat(hashStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            return result(RiskLevel.LOW);
+        });
+        AuthenticationManager authenticationManager = request -> hashingExecutor.execute(Operation.MATCHES, () -> {
+            hashStarted.countDown();
+            try {
+                assertThat(riskStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return authenticated(request);
+        });
+
+        MockHttpServletRequest request = loginRequest();
+        Authentication authentication = filter(authenticationManager)
+            .attemptAuthentication(request, new MockHttpServletResponse());
+
+        assertThat(authentication.getName()).isEqualTo("testuser");
+        assertThat(request.getAttribute("riskAssessmentResult")).isNotNull();
+    }
+
+    @Test
+    @DisplayName("重大リスクの場合もパスワード照合を完了してからブロックすること")
+    void testCriticalRiskWaitsForHash() {
+        // 照合の実行中に重大リスクの評価結果が返るようにする
+        CountDownLatch riskDone = new CountDownLatch(1);
+        when(riskAssessmentService.assessLoginRisk(eq("testuser"), any())).thenAnswer(invocation -> {
+            riskDone.countDown();
+            return result(RiskLevel.CRITICAL);
+        });
+        AtomicBoolean hashed = new AtomicBoolean();
+        AuthenticationManager authenticationManager = request -> hashingExecutor.execute(Operation.MATCHES, () -> {
+            try {
+                assertThat(riskDone.await(5, TimeUnit.SECONDS)).isTrue();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            hashed.set(true);
+            return authenticated(request);
+        });
+
+        assertThatThrownBy(() -> filter(authenticationManager)
+                .attemptAuthentication(loginRequest(), new MockHttpServletResponse()))
+            .isInstanceOf(RiskBasedAuthenticationException.class);
+        assertThat(hashed).isTrue();
+    }
+
+    @Test
+    @DisplayName("存在しないユーザーも存在するユーザーと同じくパスワード照合を経ること")
+    void testUnknownUsernameIsHashedLikeKnownUsername() {
+        // 存在しないユーザーはリスク評価で即座に CRITICAL となる
+        when(riskAssessmentService.assessLoginRisk(eq("testuser"), any())).thenReturn(result(RiskLevel.LOW));
+        when(riskAssessmentService.assessLoginRisk(eq("nobody"), any())).thenReturn(result(RiskLevel.CRITICAL));
+        AtomicInteger matches = new AtomicInteger();
+        PasswordEncoder encoder = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence rawPassword) {
+                return rawPassword.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                return hashingExecutor.execute(Operation.MATCHES, () -> {
+                    matches.incrementAndGet();
+                    return rawPassword.toString().equals(encodedPassword);
+                });
+            }
+        };
+        DaoAuthenticationProvider provider = new DaoAuthenticationProvider(new InMemoryUserDetailsManager(
+            User.withUsername("testuser").password("other").roles("USER").build()));
+        provider.setPasswordEncoder(encoder);
+        RiskBasedAuthenticationFilter filter = filter(new ProviderManager(provider));
+
+        assertThatThrownBy(() -> filter.attemptAuthentication(loginRequest(), new MockHttpServletResponse()))
+            .isInstanceOf(BadCredentialsException.class);
+        assertThat(matches).hasValue(1);
+
+        MockHttpServletRequest unknown = loginRequest();
+        unknown.setParameter("username", "nobody");
+        assertThatThrownBy(() -> filter.attemptAuthentication(unknown, new MockHttpServletResponse()))
+            .isInstanceOf(RiskBasedAuthenticationException.class);
+        assertThat(matches).hasValue(2);
+    }
+
+    @Test
+    @DisplayName("リスクが低くてもパスワード照合の失敗はそのまま返すこと")
+    void testAuthenticationFailurePropagates() {
+        when(riskAssessmentService.assessLoginRisk(eq("testuser"), any())).thenReturn(result(RiskLevel.LOW));
+        AuthenticationManager authenticationManager = request -> {
+            throw new BadCredentialsException("bad credentials");
+        };
+
+        assertThatThrownBy(() -> filter(authenticationManager)
+                .attemptAuthentication(loginRequest(), new MockHttpServletResponse()))
+            .isInstanceOf(BadCredentialsException.class);
+    }
+}
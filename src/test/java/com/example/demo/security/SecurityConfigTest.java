@@ -9,7 +9,12 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.transaction.annotation.Transactional;
 
+import com.example.demo.repository.LoginAttemptRepository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.csrf;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 /**
@@ -25,6 +30,9 @@ class SecurityConfigTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private LoginAttemptRepository loginAttemptRepository;
+
     @Test
     @DisplayName("未認証ユーザーはログインページにリダイレクトされること")
     void testUnauthenticatedAccess_RedirectsToLogin() throws Exception {
@@ -53,4 +61,19 @@ class SecurityConfigTest {
         mockMvc.perform(get("/css/auth.css"))
             .andExpect(status().isOk());
     }
+
+    @Test
+    @DisplayName("フォームログインはリスクベース認証フィルターで処理されること")
+    void testFormLogin_HandledByRiskBasedFilter() throws Exception {
+        long before = loginAttemptRepository.count();
+
+        mockMvc.perform(post("/login").with(csrf())
+                .param("username", "nonexistent")
+                .param("password", "password"))
+            .andExpect(status().is3xxRedirection())
+            .andExpect(redirectedUrl("/login?error"));
+
+        // リスク評価の結果とともにログイン試行が記録される
+        assertThat(loginAttemptRepository.count()).isEqualTo(before + 1);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,123 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import com.example.demo.config.AuditLogConfig;
+import com.example.demo.entity.AuditLog;
+import com.example.demo.entity.AuditLog.EventType;
+import com.example.demo.repository.AuditLogRepository;
+import com.example.demo.security.ClientIpResolver;
+
+/**
+ * AuditLogService.search のユニットテスト
+ * DBはモック、アーカイブは一時ディレクトリのセグメントファイルを使う
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("監査ログ検索テスト")
+class AuditLogSearchTest {
+
+    private static final LocalDate ARCHIVED_DAY = LocalDate.of(2024, 1, 1);
+    private static final LocalDateTime FROM = ARCHIVED_DAY.atStartOfDay();
+    private static final LocalDateTime TO = ARCHIVED_DAY.plusDays(3).atStartOfDay();
+
+    @TempDir
+    Path dir;
+
+    @Mock
+    private AuditLogRepository auditLogRepository;
+
+    @Mock
+    private AuditLogWriter auditLogWriter;
+
+    @Mock
+    private SuspiciousActivityDetector suspiciousActivityDetector;
+
+    @Mock
+    private ClientIpResolver clientIpResolver;
+
+    private AuditLogService auditLogService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        AuditLogConfig config = new AuditLogConfig();
+        config.setArchiveDirectory(dir.toString());
+        config.setArchiveBlockSize(2);
+        AuditLogSegmentStore segmentStore = new AuditLogSegmentStore(config);
+        auditLogService = new AuditLogService(auditLogRepository, auditLogWriter, suspiciousActivityDetector,
+            segmentStore, clientIpResolver);
+
+        // アーカイブ済み: alice 3件・bob 1件（id 3 はDBからの削除前に停止し、DBにも残っている想定）
+        segmentStore.append(ARCHIVED_DAY, List.of(
+            auditLog(1, "alice", ARCHIVED_DAY.atTime(1, 0)),
+            auditLog(2, "bob", ARCHIVED_DAY.atTime(2, 0)),
+            auditLog(3, "alice", ARCHIVED_DAY.atTime(3, 0)),
+            auditLog(4, "alice", ARCHIVED_DAY.atTime(4, 0))));
+    }
+
+    private static AuditLog auditLog(long id, String username, LocalDateTime createdAt) {
+        return AuditLog.builder()
+            .id(id)
+            .eventType(EventType.LOGIN_SUCCESS)
+            .username(username)
+            .ipAddress("192.168.1.1")
+            .success(true)
+            .createdAt(createdAt)
+            .build();
+    }
+
+    @Test
+    @DisplayName("DBで件数を満たす場合はDBの結果だけを返す")
+    void testDatabaseOnly() {
+        List<AuditLog> inDatabase = List.of(
+            auditLog(11, "alice", ARCHIVED_DAY.plusDays(2).atTime(2, 0)),
+            auditLog(10, "alice", ARCHIVED_DAY.plusDays(2).atTime(1, 0)));
+        when(auditLogRepository.search(eq("alice"), eq(FROM), eq(TO), any(Pageable.class))).thenReturn(inDatabase);
+
+        assertThat(auditLogService.search("alice", FROM, TO, 2)).isEqualTo(inDatabase);
+    }
+
+    @Test
+    @DisplayName("DBで件数に満たない場合はアーカイブを含めて新しい順に返し、重複は除く")
+    void testDatabaseAndArchive() {
+        when(auditLogRepository.search(eq("alice"), eq(FROM), eq(TO), any(Pageable.class))).thenReturn(List.of(
+            auditLog(10, "alice", ARCHIVED_DAY.plusDays(2).atTime(1, 0)),
+            auditLog(3, "alice", ARCHIVED_DAY.atTime(3, 0))));
+
+        assertThat(auditLogService.search("alice", FROM, TO, 10))
+            .extracting(AuditLog::getId)
+            .containsExactly(10L, 4L, 3L, 1L);
+        assertThat(auditLogService.search("alice", FROM, TO, 3))
+            .extracting(AuditLog::getId)
+            .containsExactly(10L, 4L, 3L);
+    }
+
+    @Test
+    @DisplayName("期間外・他のユーザーのアーカイブは返さない")
+    void testArchiveFilters() {
+        when(auditLogRepository.search(any(), any(), any(), any(Pageable.class))).thenReturn(List.of());
+
+        assertThat(auditLogService.search("bob", FROM, TO, 10))
+            .extracting(AuditLog::getId)
+            .containsExactly(2L);
+        assertThat(auditLogService.search("alice", ARCHIVED_DAY.atTime(2, 0), ARCHIVED_DAY.atTime(4, 0), 10))
+            .extracting(AuditLog::getId)
+            .containsExactly(3L);
+        assertThat(auditLogService.search(null, ARCHIVED_DAY.plusDays(1).atStartOfDay(), TO, 10)).isEmpty();
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.example.demo.config.AuditLogConfig;
+import com.example.demo.entity.AuditLog;
+import com.example.demo.entity.AuditLog.EventType;
+
+/**
+ * AuditLogSegmentStoreのユニットテスト
+ */
+@DisplayName("AuditLogSegmentStoreテスト")
+class AuditLogSegmentStoreTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 1, 1);
+
+    @TempDir
+    Path dir;
+
+    private AuditLogSegmentStore store;
+
+    @BeforeEach
+    void setUp() {
+        AuditLogConfig config = new AuditLogConfig();
+        config.setArchiveDirectory(dir.toString());
+        config.setArchiveBlockSize(2);
+        store = new AuditLogSegmentStore(config);
+    }
+
+    private static AuditLog auditLog(long id, String username, int hour) {
+        return AuditLog.builder()
+            .id(id)
+            .eventType(EventType.LOGIN_FAILURE)
+            .username(username)
+            .ipAddress("192.168.1.1")
+            .details("details-" + id)
+            .success(false)
+            .createdAt(DAY.atTime(hour, 0))
+            .build();
+    }
+
+    private List<AuditLog> read(LocalDateTime from, LocalDateTime to, String username) throws Exception {
+        List<AuditLog> result = new ArrayList<>();
+        store.read(DAY, from, to, username, result::add);
+        return result;
+    }
+
+    @Test
+    @DisplayName("追記した監査ログをユーザー名と期間で絞り込んで読み込める")
+    void testAppendAndRead() throws Exception {
+        store.append(DAY, List.of(auditLog(1, "alice", 1), auditLog(2, "bob", 2), auditLog(3, "alice", 3)));
+        store.append(DAY, List.of(auditLog(4, "carol", 4), auditLog(5, "alice", 5)));
+
+        assertThat(read(DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay(), null)).hasSize(5);
+        assertThat(read(DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay(), "alice"))
+            .extracting(AuditLog::getId).containsExactly(1L, 3L, 5L);
+        assertThat(read(DAY.atTime(2, 0), DAY.atTime(5, 0), "alice"))
+            .extracting(AuditLog::getId).containsExactly(3L);
+
+        AuditLog first = read(DAY.atStartOfDay(), DAY.atTime(2, 0), null).get(0);
+        assertThat(first.getEventType()).isEqualTo(EventType.LOGIN_FAILURE);
+        assertThat(first.getDetails()).isEqualTo("details-1");
+        assertThat(first.getCreatedAt()).isEqualTo(DAY.atTime(1, 0));
+        assertThat(store.listDays()).containsExactly(DAY);
+    }
+
+    @Test
+    @DisplayName("セグメントファイル全体を通常のgzipとして展開できる")
+    void testSegmentIsConcatenatedGzip() throws Exception {
+        store.append(DAY, List.of(auditLog(1, "alice", 1), auditLog(2, "bob", 2), auditLog(3, "alice", 3)));
+        store.append(DAY, List.of(auditLog(4, "carol", 4)));
+
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(dir.resolve("audit-2024-01-01.jsonl.gz"))),
+                StandardCharsets.UTF_8))) {
+            reader.lines().forEach(lines::add);
+        }
+        assertThat(lines).hasSize(4);
+        assertThat(Files.readAllLines(dir.resolve("audit-2024-01-01.idx"))).hasSize(3);
+    }
+
+    @Test
+    @DisplayName("書きかけの索引行は読み飛ばす")
+    void testTornIndexLineIgnored() throws Exception {
+        store.append(DAY, List.of(auditLog(1, "alice", 1), auditLog(2, "bob", 2)));
+        Files.writeString(dir.resolve("audit-2024-01-01.idx"), "{\"offset\":12",
+            StandardOpenOption.APPEND);
+
+        assertThat(read(DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay(), null))
+            .extracting(AuditLog::getId).containsExactly(1L, 2L);
+
+        // 続けて追記した索引は書きかけの行と連結されない
+        store.append(DAY, List.of(auditLog(3, "carol", 3)));
+        assertThat(read(DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay(), null))
+            .extracting(AuditLog::getId).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    @DisplayName("索引から参照されない書きかけの末尾は、次回の追記の前に切り詰める")
+    void testUnindexedTailTruncated() throws Exception {
+        store.append(DAY, List.of(auditLog(1, "alice", 1), auditLog(2, "bob", 2)));
+        Path segment = dir.resolve("audit-2024-01-01.jsonl.gz");
+        long indexedSize = Files.size(segment);
+        // 索引を書く前に停止した場合
+        Files.write(segment, new byte[] {0x1f, (byte) 0x8b, 8, 0, 1, 2, 3}, StandardOpenOption.APPEND);
+
+        store.append(DAY, List.of(auditLog(3, "carol", 3)));
+
+        assertThat(Files.size(segment)).isGreaterThan(indexedSize);
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(segment)), StandardCharsets.UTF_8))) {
+            reader.lines().forEach(lines::add);
+        }
+        assertThat(lines).hasSize(3);
+        assertThat(read(DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay(), null))
+            .extracting(AuditLog::getId).containsExactly(1L, 2L, 3L);
+    }
+
+    @Test
+    @DisplayName("アーカイブがない日は何も返さない")
+    void testMissingDay() throws Exception {
+        assertThat(read(DAY.atStartOfDay(), DAY.plusDays(1).atStartOfDay(), null)).isEmpty();
+        assertThat(store.listDays()).isEmpty();
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.config.AuditLogConfig;
+import com.example.demo.config.AuditLogConfig.OverflowPolicy;
+import com.example.demo.entity.AuditLog;
+import com.example.demo.entity.AuditLog.EventType;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * AuditLogWriterのユニットテスト
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("AuditLogWriterテスト")
+class AuditLogWriterTest {
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @TempDir
+    Path spillDirectory;
+
+    private AuditLogConfig config;
+    private SimpleMeterRegistry meterRegistry;
+
+    // batchUpdate に渡された件数（呼び出しごと）
+    private final List<Integer> batchSizes = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        config = new AuditLogConfig();
+        config.setBatchSize(50);
+        config.setFlushInterval(Duration.ofMillis(10));
+        config.setSpillDirectory(spillDirectory.toString());
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("キューに積んだイベントをバッチで書き込み、停止時に残りを書き込む")
+    void testBatchedWrite() {
+        recordBatches();
+        AuditLogWriter writer = new AuditLogWriter(jdbcTemplate, config, meterRegistry);
+        writer.start();
+
+        for (int i = 0; i < 120; i++) {
+            writer.submit(event("user" + i));
+        }
+        writer.stop();
+
+        assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(120);
+        assertThat(batchSizes).allMatch(size -> size <= 50);
+        assertThat(meterRegistry.counter("audit.log.written").count()).isEqualTo(120);
+        assertThat(meterRegistry.get("audit.log.queue.size").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("DROP設定ではキューが満杯の場合に破棄して件数を記録する")
+    void testDropWhenFull() throws Exception {
+        config.setQueueCapacity(1);
+        config.setOverflowPolicy(OverflowPolicy.DROP);
+        // 書き込みを止めてキューを満杯にする
+        Object gate = new Object();
+        doAnswer(invocation -> {
+            synchronized (gate) {
+                gate.wait(2000);
+            }
+            return new int[0][];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+        AuditLogWriter writer = new AuditLogWriter(jdbcTemplate, config, meterRegistry);
+        writer.start();
+
+        for (int i = 0; i < 10; i++) {
+            writer.submit(event("user" + i));
+        }
+        synchronized (gate) {
+            gate.notifyAll();
+        }
+        writer.stop();
+
+        assertThat(meterRegistry.counter("audit.log.dropped").count()).isGreaterThanOrEqualTo(8);
+    }
+
+    @Test
+    @DisplayName("SPILL設定では書き込み失敗時にファイルへ退避し、後で書き戻す")
+    void testSpillAndReplay() throws Exception {
+        config.setOverflowPolicy(OverflowPolicy.SPILL);
+        AuditLogWriter writer = new AuditLogWriter(jdbcTemplate, config, meterRegistry);
+        writer.start();
+        writer.stop();
+
+        // 停止後の書き込みは呼び出し元スレッドで行われる
+        doThrow(new DataAccessResourceFailureException("down"))
+            .when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+        writer.submit(event("alice"));
+        writer.submit(event("bob"));
+
+        assertThat(meterRegistry.counter("audit.log.spilled").count()).isEqualTo(2);
+        assertThat(Files.readAllLines(spillDirectory.resolve("audit-spill.jsonl"))).hasSize(2);
+
+        reset(jdbcTemplate);
+        recordBatches();
+        writer.replaySpill();
+
+        assertThat(batchSizes).containsExactly(2);
+        try (var files = Files.list(spillDirectory)) {
+            assertThat(files).isEmpty();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void recordBatches() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any()))
+            .thenAnswer(invocation -> {
+                Collection<AuditLog> batch = invocation.getArgument(1);
+                synchronized (batchSizes) {
+                    batchSizes.add(batch.size());
+                }
+                return new int[0][];
+            });
+    }
+
+    private AuditLog event(String username) {
+        return AuditLog.builder()
+            .eventType(EventType.LOGIN_SUCCESS)
+            .username(username)
+            .success(true)
+            .build();
+    }
+}
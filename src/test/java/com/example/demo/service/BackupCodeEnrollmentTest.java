@@ -0,0 +1,79 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.BackupCode;
+import com.example.demo.entity.User;
+import com.example.demo.repository.BackupCodeRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * バックアップコードの一括発行テスト
+ * 並列にハッシュ化してまとめて保存したコードが、保存後にすべて検証できること
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("バックアップコードの一括発行テスト")
+class BackupCodeEnrollmentTest {
+
+    private static final String USERNAME = "backup-enrollment-user";
+    private static final int COUNT = 10;
+
+    @Autowired
+    private BackupCodeService backupCodeService;
+
+    @Autowired
+    private BackupCodeRepository backupCodeRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        User newUser = new User();
+        newUser.setUsername(USERNAME);
+        newUser.setPassword("encodedPassword");
+        user = userRepository.save(newUser);
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> backupCodeRepository.deleteAllByUser(user));
+        userRepository.delete(user);
+    }
+
+    @Test
+    @DisplayName("発行した個数だけ保存され、コードが重複せず、保存後にそれぞれ1回だけ使用できること")
+    void testCreateBackupCodes() {
+        String[] codes = backupCodeService.createBackupCodes(user, COUNT);
+
+        assertThat(codes).hasSize(COUNT).doesNotHaveDuplicates();
+        List<BackupCode> saved = backupCodeRepository.findByUserAndUsedFalse(user);
+        assertThat(saved).hasSize(COUNT);
+        assertThat(saved).extracting(BackupCode::getId).doesNotContainNull().doesNotHaveDuplicates();
+        assertThat(saved).extracting(BackupCode::getLookupKey).doesNotContainNull().doesNotHaveDuplicates();
+        // 平文のコードは保存しない
+        assertThat(saved).extracting(BackupCode::getCode).doesNotContainAnyElementsOf(List.of(codes));
+
+        for (String code : codes) {
+            assertThat(backupCodeService.useBackupCode(user, code)).isTrue();
+            assertThat(backupCodeService.useBackupCode(user, code)).isFalse();
+        }
+        assertThat(backupCodeRepository.countByUserAndUsedFalse(user)).isZero();
+    }
+}
@@ -0,0 +1,157 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import com.example.demo.entity.BackupCode;
+import com.example.demo.entity.User;
+import com.example.demo.repository.BackupCodeRepository;
+import com.example.demo.security.PasswordHashingExecutor;
+import com.example.demo.security.PasswordPepper;
+
+/**
+ * BackupCodeServiceのユニットテスト
+ * リポジトリはリスト上の行を返すようにモックする
+ */
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+@DisplayName("BackupCodeServiceテスト")
+class BackupCodeServiceTest {
+
+    @Mock
+    private BackupCodeRepository backupCodeRepository;
+
+    @Mock
+    private TotpService totpService;
+
+    @Mock
+    private PasswordHashingExecutor hashingExecutor;
+
+    private BackupCodeService backupCodeService;
+
+    private User testUser;
+
+    // 保存済みの行
+    private final List<BackupCode> rows = new ArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        backupCodeService = new BackupCodeService(backupCodeRepository, totpService,
+            new BCryptPasswordEncoder(4), hashingExecutor, new PasswordPepper("testPepper!@#"));
+
+        testUser = new User();
+        testUser.setId(1L);
+        testUser.setUsername("testuser");
+
+        when(hashingExecutor.invokeAll(anyList())).thenAnswer(invocation -> {
+            List<String> results = new ArrayList<>();
+            for (Supplier<String> task : (List<Supplier<String>>) invocation.getArgument(0)) {
+                results.add(task.get());
+            }
+            return results;
+        });
+        when(backupCodeRepository.saveAll(anyList())).thenAnswer(invocation -> {
+            rows.addAll(invocation.getArgument(0));
+            return invocation.getArgument(0);
+        });
+        when(backupCodeRepository.save(any(BackupCode.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        doAnswer(invocation -> {
+            rows.clear();
+            return null;
+        }).when(backupCodeRepository).deleteAllByUser(testUser);
+        when(backupCodeRepository.findByUserAndLookupKeyAndUsedFalse(eq(testUser), anyString()))
+            .thenAnswer(invocation -> rows.stream()
+                .filter(row -> !row.isUsed() && Objects.equals(row.getLookupKey(), invocation.getArgument(1)))
+                .findFirst());
+        when(backupCodeRepository.findByUserAndLookupKeyIsNullAndUsedFalse(testUser))
+            .thenAnswer(invocation -> rows.stream()
+                .filter(row -> !row.isUsed() && row.getLookupKey() == null)
+                .toList());
+    }
+
+    @Test
+    @DisplayName("発行したコードで認証でき、使用済みになる")
+    void testUseValidCode() {
+        when(totpService.generateBackupCodes(2)).thenReturn(new String[] {"11112222", "33334444"});
+        backupCodeService.createBackupCodes(testUser, 2);
+
+        assertThat(backupCodeService.useBackupCode(testUser, " 11112222 ")).isTrue();
+
+        assertThat(rows).filteredOn(BackupCode::isUsed).hasSize(1)
+            .allSatisfy(row -> assertThat(row.getUsedAt()).isNotNull());
+        verify(backupCodeRepository).save(any(BackupCode.class));
+    }
+
+    @Test
+    @DisplayName("使用済みのコードは再度使用できない")
+    void testReusedCode() {
+        when(totpService.generateBackupCodes(2)).thenReturn(new String[] {"11112222", "33334444"});
+        backupCodeService.createBackupCodes(testUser, 2);
+
+        assertThat(backupCodeService.useBackupCode(testUser, "11112222")).isTrue();
+        assertThat(backupCodeService.useBackupCode(testUser, "11112222")).isFalse();
+        assertThat(backupCodeService.useBackupCode(testUser, "33334444")).isTrue();
+    }
+
+    @Test
+    @DisplayName("発行していないコード・空のコードでは認証できない")
+    void testWrongCode() {
+        when(totpService.generateBackupCodes(2)).thenReturn(new String[] {"11112222", "33334444"});
+        backupCodeService.createBackupCodes(testUser, 2);
+
+        assertThat(backupCodeService.useBackupCode(testUser, "99998888")).isFalse();
+        assertThat(backupCodeService.useBackupCode(testUser, "")).isFalse();
+        assertThat(backupCodeService.useBackupCode(testUser, null)).isFalse();
+        assertThat(rows).noneMatch(BackupCode::isUsed);
+        verify(backupCodeRepository, never()).save(any(BackupCode.class));
+    }
+
+    @Test
+    @DisplayName("再発行すると以前のコードは使用できなくなり、新しいコードのみ使用できる")
+    void testRegenerateInvalidatesOldCodes() {
+        when(totpService.generateBackupCodes(2))
+            .thenReturn(new String[] {"11112222", "33334444"})
+            .thenReturn(new String[] {"55556666", "77778888"});
+        backupCodeService.createBackupCodes(testUser, 2);
+
+        String[] regenerated = backupCodeService.regenerateBackupCodes(testUser, 2);
+
+        assertThat(regenerated).containsExactly("55556666", "77778888");
+        assertThat(rows).hasSize(2);
+        assertThat(backupCodeService.useBackupCode(testUser, "11112222")).isFalse();
+        assertThat(backupCodeService.useBackupCode(testUser, "33334444")).isFalse();
+        assertThat(backupCodeService.useBackupCode(testUser, "55556666")).isTrue();
+    }
+
+    @Test
+    @DisplayName("検索キー導入前に発行したコードは、ハッシュの照合で認証できる")
+    void testLegacyCodeWithoutLookupKey() {
+        rows.add(BackupCode.builder()
+            .user(testUser)
+            .code(new BCryptPasswordEncoder(4).encode("12345678"))
+            .used(false)
+            .build());
+
+        assertThat(backupCodeService.useBackupCode(testUser, "00000000")).isFalse();
+        assertThat(backupCodeService.useBackupCode(testUser, "12345678")).isTrue();
+        assertThat(backupCodeService.useBackupCode(testUser, "12345678")).isFalse();
+    }
+}
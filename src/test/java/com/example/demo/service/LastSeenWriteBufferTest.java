@@ -0,0 +1,143 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.example.demo.config.LastSeenConfig;
+import com.example.demo.service.LastSeenWriteBuffer.Touch;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * LastSeenWriteBufferのユニットテスト
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("LastSeenWriteBufferテスト")
+class LastSeenWriteBufferTest {
+
+    private static final LocalDateTime BASE = LocalDateTime.of(2024, 1, 1, 9, 0);
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    private LastSeenConfig config;
+    private SimpleMeterRegistry meterRegistry;
+
+    // batchUpdate に渡されたSQLと更新内容（呼び出しごと）
+    private final List<String> statements = new ArrayList<>();
+    private final List<List<Map.Entry<?, Touch>>> batches = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        config = new LastSeenConfig();
+        config.setMaxStaleness(Duration.ofHours(1));
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("同じ行への更新は最新の日時だけを書き込み、停止時に残りを書き込む")
+    void testCoalesceAndFlushOnStop() {
+        recordBatches();
+        LastSeenWriteBuffer buffer = new LastSeenWriteBuffer(jdbcTemplate, config, meterRegistry);
+        buffer.start();
+
+        buffer.recordUserLogin("alice", BASE.plusMinutes(2));
+        buffer.recordUserLogin("alice", BASE);
+        buffer.recordUserLogin("bob", BASE);
+        buffer.recordOAuth2LinkUse(7L, BASE, "token-1");
+        buffer.recordOAuth2LinkUse(7L, BASE.plusMinutes(1), "token-2");
+        assertThat(buffer.pendingCount()).isEqualTo(3);
+        verifyNoInteractions(jdbcTemplate);
+
+        buffer.stop();
+
+        assertThat(statements).hasSize(2);
+        assertThat(statements.get(0)).startsWith("UPDATE users");
+        assertThat(batches.get(0)).hasSize(2)
+            .contains(Map.entry("alice", new Touch(BASE.plusMinutes(2), null)));
+        assertThat(statements.get(1)).startsWith("UPDATE oauth2_user_links");
+        assertThat(batches.get(1)).containsExactly(Map.entry(7L, new Touch(BASE.plusMinutes(1), "token-2")));
+        assertThat(buffer.pendingCount()).isZero();
+        assertThat(meterRegistry.counter("last.seen.written").count()).isEqualTo(3);
+    }
+
+    @Test
+    @DisplayName("書き込み待ちが上限を超えた場合は最大遅延を待たずに書き込む")
+    void testFlushWhenPendingExceedsLimit() {
+        recordBatches();
+        config.setMaxPending(2);
+        LastSeenWriteBuffer buffer = new LastSeenWriteBuffer(jdbcTemplate, config, meterRegistry);
+        buffer.start();
+
+        buffer.recordTrustedDeviceUse(1L, BASE);
+        buffer.recordTrustedDeviceUse(2L, BASE);
+        buffer.recordTrustedDeviceUse(3L, BASE);
+
+        verify(jdbcTemplate, timeout(2000)).batchUpdate(startsWith("UPDATE trusted_devices"), anyCollection(),
+            anyInt(), any());
+        buffer.stop();
+    }
+
+    @Test
+    @DisplayName("書き込みに失敗した更新は次回に再試行する")
+    void testRetryAfterFailure() {
+        LastSeenWriteBuffer buffer = new LastSeenWriteBuffer(jdbcTemplate, config, meterRegistry);
+        doThrow(new DataAccessResourceFailureException("DB停止中"))
+            .when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+        buffer.start();
+
+        buffer.recordUserLogin("alice", BASE);
+        buffer.flush();
+        assertThat(buffer.pendingCount()).isEqualTo(1);
+        assertThat(meterRegistry.counter("last.seen.failed").count()).isEqualTo(1);
+
+        reset(jdbcTemplate);
+        recordBatches();
+        buffer.recordUserLogin("alice", BASE.minusMinutes(1));
+        buffer.stop();
+
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).containsExactly(Map.entry("alice", new Touch(BASE, null)));
+    }
+
+    @Test
+    @DisplayName("遅延書き込みが無効の場合は呼び出し元スレッドで書き込む")
+    void testWriteThroughWhenDisabled() {
+        recordBatches();
+        config.setWriteBehind(false);
+        LastSeenWriteBuffer buffer = new LastSeenWriteBuffer(jdbcTemplate, config, meterRegistry);
+        buffer.start();
+
+        buffer.recordTrustedDeviceUse(5L, BASE);
+
+        assertThat(statements).singleElement().asString().startsWith("UPDATE trusted_devices");
+        assertThat(buffer.pendingCount()).isZero();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void recordBatches() {
+        doAnswer(invocation -> {
+            synchronized (batches) {
+                statements.add(invocation.getArgument(0));
+                batches.add(new ArrayList<>(invocation.getArgument(1, java.util.Collection.class)));
+            }
+            return new int[0][];
+        }).when(jdbcTemplate).batchUpdate(anyString(), anyCollection(), anyInt(), any());
+    }
+}
@@ -0,0 +1,162 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.example.demo.config.RiskAssessmentConfig;
+
+/**
+ * LoginBehaviorProfileCacheのユニットテスト
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("LoginBehaviorProfileCacheテスト")
+class LoginBehaviorProfileCacheTest {
+
+    private static final String USERNAME = "alice";
+
+    @Mock
+    private RiskFeatureLoader riskFeatureLoader;
+
+    private LoginBehaviorProfileCache cache;
+    private ExecutorService executor;
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        cache = new LoginBehaviorProfileCache(riskFeatureLoader, new RiskAssessmentConfig());
+        executor = Executors.newFixedThreadPool(2);
+        now = LocalDateTime.now().truncatedTo(ChronoUnit.MICROS);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private LoginBehaviorProfile newProfile() {
+        return new LoginBehaviorProfile(false, Set.of(), LocalDateTime.now(), 100);
+    }
+
+    private long failedAttempts(LoginBehaviorProfile profile) {
+        return profile.snapshot(null, now.minusHours(1), now.minusDays(1)).getFailedAttempts();
+    }
+
+    /**
+     * 構築を止めておき、解除用のラッチを返す
+     */
+    private CountDownLatch blockLoad(LoginBehaviorProfile profile, CountDownLatch loading) {
+        CountDownLatch release = new CountDownLatch(1);
+        when(riskFeatureLoader.loadProfile(eq(USERNAME), any(), any(), anyInt())).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return Optional.of(profile);
+        });
+        return release;
+    }
+
+    @Test
+    @DisplayName("同じユーザーの同時の取得では、DBからの構築は1回だけ行われる")
+    void testConcurrentLoadsAreShared() throws Exception {
+        LoginBehaviorProfile profile = newProfile();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = blockLoad(profile, loading);
+
+        Future<Optional<LoginBehaviorProfile>> first = executor.submit(() -> cache.getProfile(USERNAME));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        Future<Optional<LoginBehaviorProfile>> second = executor.submit(() -> cache.getProfile(USERNAME));
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).containsSame(profile);
+        assertThat(second.get(5, TimeUnit.SECONDS)).containsSame(profile);
+        verify(riskFeatureLoader, times(1)).loadProfile(eq(USERNAME), any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("構築中に記録された試行は、構築したプロファイルに反映される（DBから読み込んだ分とは重複しない）")
+    void testAttemptDuringLoadIsReplayed() throws Exception {
+        LoginBehaviorProfile profile = newProfile();
+        // DBから読み込んだ失敗（構築中に記録された試行の一方は読み込み済み）
+        profile.recordFailure(now.minusSeconds(2));
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = blockLoad(profile, loading);
+
+        Future<Optional<LoginBehaviorProfile>> result = executor.submit(() -> cache.getProfile(USERNAME));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        cache.recordAttempt(USERNAME, "192.0.2.1", "JP", false, now.minusSeconds(2));
+        cache.recordAttempt(USERNAME, "192.0.2.1", "JP", false, now.minusSeconds(1));
+        release.countDown();
+
+        assertThat(result.get(5, TimeUnit.SECONDS)).containsSame(profile);
+        assertThat(failedAttempts(profile)).isEqualTo(2);
+
+        // 登録後の取得ではDBから構築し直さない
+        assertThat(cache.getProfile(USERNAME)).containsSame(profile);
+        verify(riskFeatureLoader, times(1)).loadProfile(eq(USERNAME), any(), any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("トランザクション内の更新はコミット後に反映され、ロールバックされた場合は反映されない")
+    void testUpdatesAreAppliedAfterCommit() {
+        LoginBehaviorProfile profile = newProfile();
+        when(riskFeatureLoader.loadProfile(eq(USERNAME), any(), any(), anyInt())).thenReturn(Optional.of(profile));
+        cache.getProfile(USERNAME);
+
+        // ロールバック
+        TransactionSynchronizationManager.initSynchronization();
+        cache.recordAttempt(USERNAME, "192.0.2.1", "JP", false, now.minusSeconds(2));
+        assertThat(failedAttempts(profile)).isZero();
+        TransactionSynchronizationManager.getSynchronizations()
+            .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+        TransactionSynchronizationManager.clearSynchronization();
+        assertThat(failedAttempts(profile)).isZero();
+
+        // コミット
+        TransactionSynchronizationManager.initSynchronization();
+        cache.recordAttempt(USERNAME, "192.0.2.1", "JP", false, now.minusSeconds(1));
+        assertThat(failedAttempts(profile)).isZero();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        TransactionSynchronizationManager.clearSynchronization();
+        assertThat(failedAttempts(profile)).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("構築中に破棄された場合は、構築したプロファイルを登録しない")
+    void testInvalidateDuringLoad() throws Exception {
+        LoginBehaviorProfile profile = newProfile();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = blockLoad(profile, loading);
+
+        Future<Optional<LoginBehaviorProfile>> result = executor.submit(() -> cache.getProfile(USERNAME));
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        cache.invalidate(USERNAME);
+        release.countDown();
+        assertThat(result.get(5, TimeUnit.SECONDS)).containsSame(profile);
+
+        cache.getProfile(USERNAME);
+        verify(riskFeatureLoader, times(2)).loadProfile(eq(USERNAME), any(), any(), anyInt());
+    }
+}
@@ -0,0 +1,96 @@
+package com.example.demo.service;
+
+import com.example.demo.entity.AuditLog.EventType;
+import com.example.demo.entity.User;
+import com.example.demo.repository.UserRepository;
+import com.example.demo.service.impl.UserServiceImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * ログイン失敗の同時実行テスト
+ * 同じユーザーへの失敗が同時に発生しても回数が失われず、ロックが閾値ちょうどで1回だけ記録されること
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("ログイン失敗の同時実行テスト")
+class LoginFailureConcurrencyTest {
+
+    private static final String USERNAME = "concurrent-failure-user";
+    private static final int THREADS = 16;
+    private static final int FAILURES = 300;
+
+    @Autowired
+    private UserServiceImpl userService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @SpyBean
+    private AuditLogService auditLogService;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User();
+        user.setUsername(USERNAME);
+        user.setPassword("encodedPassword");
+        userRepository.save(user);
+    }
+
+    @AfterEach
+    void tearDown() {
+        userRepository.findByUsername(USERNAME).ifPresent(userRepository::delete);
+    }
+
+    @Test
+    @DisplayName("同時に失敗しても回数が失われず、ロックは閾値ちょうどで1回だけ記録されること")
+    void testConcurrentFailures() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < FAILURES; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return userService.handleLoginFailure(USERNAME);
+                }));
+            }
+            start.countDown();
+
+            List<Integer> counts = new ArrayList<>();
+            for (Future<Integer> result : results) {
+                counts.add(result.get());
+            }
+
+            // 各失敗がそれぞれ異なる回数を受け取る（更新が失われていない）
+            assertThat(counts).doesNotHaveDuplicates()
+                .allSatisfy(count -> assertThat(count).isBetween(1, FAILURES));
+        } finally {
+            executor.shutdownNow();
+        }
+
+        User user = userRepository.findByUsername(USERNAME).orElseThrow();
+        assertThat(user.getFailedLoginAttempts()).isEqualTo(FAILURES);
+        assertThat(user.isAccountLocked()).isTrue();
+        assertThat(user.getLockedAt()).isNotNull();
+        verify(auditLogService, times(1))
+            .logEvent(eq(EventType.ACCOUNT_LOCKED), eq(USERNAME), eq(false), contains("連続5回"));
+    }
+}
@@ -0,0 +1,244 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+
+import com.example.demo.config.MailDispatchConfig;
+import com.example.demo.entity.MailOutbox;
+import com.example.demo.entity.MailOutbox.MailType;
+import com.example.demo.repository.MailOutboxRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * MailDispatcherのユニットテスト
+ * 配信スレッドは起動せず、dispatchDue を直接呼び出す
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MailDispatcherテスト")
+class MailDispatcherTest {
+
+    @Mock
+    private MailOutboxRepository outboxRepository;
+
+    @Mock
+    private IEmailService emailService;
+
+    private MailDispatchConfig config;
+    private SimpleMeterRegistry meterRegistry;
+    private MailDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        config = new MailDispatchConfig();
+        config.setWorkers(4);
+        config.setPerDomainConcurrency(2);
+        config.setMaxAttempts(3);
+        config.setInitialBackoff(Duration.ofSeconds(10));
+        config.setMaxBackoff(Duration.ofSeconds(30));
+        meterRegistry = new SimpleMeterRegistry();
+        dispatcher = new MailDispatcher(outboxRepository, emailService, config, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.stop();
+    }
+
+    private static MailOutbox mail(long id, String to, int attempts) {
+        return MailOutbox.builder()
+            .id(id)
+            .mailType(MailType.OTP)
+            .recipient(to)
+            .recipientDomain(to.substring(to.indexOf('@') + 1))
+            .username("user" + id)
+            .code("123456")
+            .validMinutes(5)
+            .attempts(attempts)
+            .createdAt(LocalDateTime.now())
+            .build();
+    }
+
+    /**
+     * 送信スレッドの完了を待つ
+     */
+    private void awaitWorkers() {
+        dispatcher.stop();
+    }
+
+    @Test
+    @DisplayName("送信に成功したメールは送信済みになる")
+    void testDeliverSuccess() {
+        when(outboxRepository.findDue(any(LocalDateTime.class), any(Pageable.class)))
+            .thenReturn(List.of(mail(1L, "a@example.com", 0)));
+        when(outboxRepository.claim(eq(1L), any(LocalDateTime.class))).thenReturn(1);
+
+        assertThat(dispatcher.dispatchDue()).isEqualTo(1);
+        awaitWorkers();
+
+        verify(emailService).sendOtpEmail("a@example.com", "user1", "123456", 5);
+        verify(outboxRepository).markSent(eq(1L), any(LocalDateTime.class));
+        assertThat(meterRegistry.counter("mail.outbox.sent").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("送信に失敗したメールは間隔を空けて再送待ちに戻し、最大試行回数で送信失敗にする")
+    void testRetryAndFail() {
+        when(outboxRepository.findDue(any(LocalDateTime.class), any(Pageable.class)))
+            .thenReturn(List.of(mail(1L, "a@example.com", 0), mail(2L, "b@example.org", 2)));
+        when(outboxRepository.claim(anyLong(), any(LocalDateTime.class))).thenReturn(1);
+        doThrow(new RuntimeException("connection refused"))
+            .when(emailService).sendOtpEmail(anyString(), anyString(), anyString(), anyInt());
+
+        LocalDateTime before = LocalDateTime.now();
+        dispatcher.dispatchDue();
+        awaitWorkers();
+
+        ArgumentCaptor<LocalDateTime> nextAttemptAt = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(outboxRepository).markRetry(eq(1L), eq(1), nextAttemptAt.capture(), eq("connection refused"));
+        assertThat(nextAttemptAt.getValue()).isAfterOrEqualTo(before.plusSeconds(10));
+        verify(outboxRepository).markFailed(2L, 3, "connection refused");
+        verify(outboxRepository, never()).markSent(anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("再試行の間隔は倍々に伸び、上限で頭打ちになる")
+    void testBackoff() {
+        assertThat(dispatcher.backoff(1)).isEqualTo(Duration.ofSeconds(10));
+        assertThat(dispatcher.backoff(2)).isEqualTo(Duration.ofSeconds(20));
+        assertThat(dispatcher.backoff(3)).isEqualTo(Duration.ofSeconds(30));
+        assertThat(dispatcher.backoff(50)).isEqualTo(Duration.ofSeconds(30));
+    }
+
+    @Test
+    @DisplayName("同一ドメイン宛ての同時送信数を超えた分は次回に回す")
+    void testPerDomainConcurrency() throws InterruptedException {
+        CountDownLatch sending = new CountDownLatch(3);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            sending.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(emailService).sendOtpEmail(anyString(), anyString(), anyString(), anyInt());
+        when(outboxRepository.findDue(any(LocalDateTime.class), any(Pageable.class)))
+            .thenReturn(List.of(mail(1L, "a@example.com", 0), mail(2L, "b@example.com", 0),
+                mail(3L, "c@example.com", 0), mail(4L, "d@example.org", 0)));
+        when(outboxRepository.claim(anyLong(), any(LocalDateTime.class))).thenReturn(1);
+
+        assertThat(dispatcher.dispatchDue()).isEqualTo(3);
+        assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+        verify(outboxRepository, never()).claim(eq(3L), any());
+
+        release.countDown();
+        awaitWorkers();
+        verify(outboxRepository, times(3)).markSent(anyLong(), any(LocalDateTime.class));
+    }
+
+    @Test
+    @DisplayName("上限に達したドメイン宛てが先頭に並んでいても、他のドメイン宛てで送信スレッドの空きを埋める")
+    void testSaturatedDomainDoesNotStarveOthers() throws InterruptedException {
+        config.setBatchSize(10);
+        CountDownLatch sending = new CountDownLatch(4);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            sending.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(emailService).sendOtpEmail(anyString(), anyString(), anyString(), anyInt());
+        List<MailOutbox> due = List.of(mail(1L, "a@example.com", 0), mail(2L, "b@example.com", 0),
+            mail(3L, "c@example.com", 0), mail(4L, "d@example.com", 0), mail(5L, "e@example.com", 0),
+            mail(6L, "f@example.org", 0), mail(7L, "g@example.net", 0), mail(8L, "h@example.jp", 0));
+        // 指定された件数だけ返す
+        when(outboxRepository.findDue(any(LocalDateTime.class), any(Pageable.class)))
+            .thenAnswer(invocation -> {
+                Pageable pageable = invocation.getArgument(1);
+                return due.subList(0, Math.min(pageable.getPageSize(), due.size()));
+            });
+        when(outboxRepository.claim(anyLong(), any(LocalDateTime.class))).thenReturn(1);
+
+        // example.com 宛ては2件まで、残りの空きは example.org・example.net 宛てで埋まる
+        assertThat(dispatcher.dispatchDue()).isEqualTo(4);
+        assertThat(sending.await(5, TimeUnit.SECONDS)).isTrue();
+        verify(outboxRepository).claim(eq(6L), any());
+        verify(outboxRepository).claim(eq(7L), any());
+        verify(outboxRepository, never()).claim(eq(3L), any());
+        // 送信スレッドの空きを超えては開始しない
+        verify(outboxRepository, never()).claim(eq(8L), any());
+
+        release.countDown();
+        awaitWorkers();
+        verify(outboxRepository, times(4)).markSent(anyLong(), any(LocalDateTime.class));
+    }
+
+    @Test
+    @DisplayName("送信後に送信済みの記録に失敗しても再送しない")
+    void testMarkSentFailureDoesNotResend() {
+        when(outboxRepository.findDue(any(LocalDateTime.class), any(Pageable.class)))
+            .thenReturn(List.of(mail(1L, "a@example.com", 0)));
+        when(outboxRepository.claim(eq(1L), any(LocalDateTime.class))).thenReturn(1);
+        when(outboxRepository.markSent(eq(1L), any(LocalDateTime.class)))
+            .thenThrow(new RuntimeException("database unavailable"));
+
+        dispatcher.dispatchDue();
+        awaitWorkers();
+
+        verify(emailService).sendOtpEmail("a@example.com", "user1", "123456", 5);
+        // 送信中のまま残し、releaseStale に任せる
+        verify(outboxRepository, never()).markRetry(anyLong(), anyInt(), any(), any());
+        verify(outboxRepository, never()).markFailed(anyLong(), anyInt(), any());
+        assertThat(meterRegistry.counter("mail.outbox.sent").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("コードの有効期限を過ぎたメールは送信せずに送信失敗にする")
+    void testExpiredCodeIsNotSent() {
+        MailOutbox expired = mail(1L, "a@example.com", 1);
+        expired.setCreatedAt(LocalDateTime.now().minusMinutes(6));
+        when(outboxRepository.findDue(any(LocalDateTime.class), any(Pageable.class)))
+            .thenReturn(List.of(expired));
+        when(outboxRepository.claim(eq(1L), any(LocalDateTime.class))).thenReturn(1);
+
+        dispatcher.dispatchDue();
+        awaitWorkers();
+
+        verify(emailService, never()).sendOtpEmail(anyString(), anyString(), anyString(), anyInt());
+        verify(outboxRepository).markFailed(eq(1L), eq(1), anyString());
+        verify(outboxRepository, never()).markSent(anyLong(), any());
+    }
+
+    @Test
+    @DisplayName("再試行の時刻がコードの有効期限を過ぎる場合は再送待ちにせず送信失敗にする")
+    void testRetryPastExpiryFails() {
+        // 有効期限まで5秒、再試行の間隔は10秒
+        MailOutbox expiring = mail(1L, "a@example.com", 0);
+        expiring.setCreatedAt(LocalDateTime.now().minusMinutes(5).plusSeconds(5));
+        when(outboxRepository.findDue(any(LocalDateTime.class), any(Pageable.class)))
+            .thenReturn(List.of(expiring));
+        when(outboxRepository.claim(eq(1L), any(LocalDateTime.class))).thenReturn(1);
+        doThrow(new RuntimeException("connection refused"))
+            .when(emailService).sendOtpEmail(anyString(), anyString(), anyString(), anyInt());
+
+        dispatcher.dispatchDue();
+        awaitWorkers();
+
+        verify(outboxRepository).markFailed(1L, 1, "connection refused");
+        verify(outboxRepository, never()).markRetry(anyLong(), anyInt(), any(), any());
+    }
+}
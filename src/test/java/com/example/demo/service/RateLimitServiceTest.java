@@ -0,0 +1,74 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.config.RateLimitConfig;
+import com.example.demo.exception.RateLimitException;
+import com.example.demo.service.ratelimit.RateLimitAlgorithm;
+
+/**
+ * RateLimitServiceのユニットテスト
+ */
+@DisplayName("RateLimitServiceテスト")
+class RateLimitServiceTest {
+
+    private static final String TEST_IP = "192.0.2.10";
+
+    private RateLimitService rateLimitService;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitConfig config = new RateLimitConfig();
+
+        RateLimitConfig.Policy otpPolicy = new RateLimitConfig.Policy();
+        otpPolicy.setAlgorithm(RateLimitAlgorithm.SLIDING_WINDOW_LOG);
+        otpPolicy.setLimit(3);
+        otpPolicy.setWindow(Duration.ofMinutes(1));
+        otpPolicy.setBlockDuration(Duration.ofMinutes(5));
+        config.getActions().put("otp-send-ip", otpPolicy);
+
+        rateLimitService = new RateLimitService(config);
+    }
+
+    @Test
+    @DisplayName("アクション個別のポリシーが適用されること")
+    void testActionPolicy() {
+        for (int i = 0; i < 3; i++) {
+            rateLimitService.checkAndRecord(TEST_IP, "otp-send-ip");
+        }
+
+        assertThatThrownBy(() -> rateLimitService.checkAndRecord(TEST_IP, "otp-send-ip"))
+            .isInstanceOf(RateLimitException.class)
+            .satisfies(e -> assertThat(((RateLimitException) e).getRetryAfterSeconds())
+                .isBetween(299, 300));
+    }
+
+    @Test
+    @DisplayName("アクションごとに独立して制限されること")
+    void testActionsAreIndependent() {
+        for (int i = 0; i < 3; i++) {
+            rateLimitService.checkAndRecord(TEST_IP, "otp-send-ip");
+        }
+
+        // 既定ポリシー（1分間に5回）は別カウント
+        assertThatCode(() -> rateLimitService.checkAndRecord(TEST_IP, "login"))
+            .doesNotThrowAnyException();
+    }
+
+    @Test
+    @DisplayName("既定ポリシーでは6回目から制限されること")
+    void testDefaultPolicy() {
+        for (int i = 0; i < 5; i++) {
+            rateLimitService.checkAndRecord(TEST_IP, "login");
+        }
+
+        assertThatThrownBy(() -> rateLimitService.checkAndRecord(TEST_IP, "login"))
+            .isInstanceOf(RateLimitException.class);
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import com.example.demo.config.LoginAttemptRetentionConfig;
+import com.example.demo.dto.RiskFeatureSnapshot;
+import com.example.demo.entity.LoginAttempt;
+import com.example.demo.entity.LoginAttemptDailyRollup;
+import com.example.demo.entity.TrustedDevice;
+import com.example.demo.entity.User;
+import com.example.demo.repository.LoginAttemptDailyRollupRepository;
+import com.example.demo.repository.LoginAttemptRepository;
+import com.example.demo.repository.TrustedDeviceRepository;
+import com.example.demo.repository.UserRepository;
+
+/**
+ * RiskFeatureLoaderのテスト（集計クエリをH2で実行）
+ */
+@DataJpaTest
+@DisplayName("RiskFeatureLoaderテスト")
+class RiskFeatureLoaderTest {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private LoginAttemptRepository loginAttemptRepository;
+
+    @Autowired
+    private LoginAttemptDailyRollupRepository rollupRepository;
+
+    @Autowired
+    private TrustedDeviceRepository trustedDeviceRepository;
+
+    private RiskFeatureLoader riskFeatureLoader;
+
+    private LocalDateTime now;
+
+    @BeforeEach
+    void setUp() {
+        riskFeatureLoader = new RiskFeatureLoader(userRepository, loginAttemptRepository, rollupRepository,
+            trustedDeviceRepository);
+        now = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS);
+
+        User user = new User();
+        user.setUsername("alice");
+        user.setPassword("password");
+        user.setMfaEnabled(true);
+        userRepository.save(user);
+
+        TrustedDevice device = new TrustedDevice();
+        device.setUser(user);
+        device.setDeviceFingerprint("trusted-fp");
+        trustedDeviceRepository.save(device);
+    }
+
+    @Test
+    @DisplayName("集計クエリから時間窓内の失敗回数・IP数・国コードを求める")
+    void testAggregatesWithinWindow() {
+        attempt("10.0.0.1", "JP", false, now.minusHours(1));
+        attempt("10.0.0.1", "JP", false, now.minusHours(2));
+        attempt("10.0.0.2", "US", true, now.minusHours(3));
+        attempt("10.0.0.3", null, false, now.minusHours(4));
+        // 時間窓外（場所履歴のみに含まれる）
+        attempt("10.0.0.4", "FR", false, now.minusDays(10));
+
+        RiskFeatureSnapshot features = load("trusted-fp");
+
+        assertThat(features.isMfaEnabled()).isTrue();
+        assertThat(features.isTrustedDevice()).isTrue();
+        assertThat(features.getFailedAttempts()).isEqualTo(3);
+        assertThat(features.getDistinctIpCount()).isEqualTo(3);
+        assertThat(features.getRecentCountries()).containsExactlyInAnyOrder("JP", "US");
+        assertThat(features.getKnownCountries()).containsExactlyInAnyOrder("JP", "US", "FR");
+        assertThat(features.isHasHistory()).isTrue();
+        assertThat(features.getLastSuccessCountryCode()).isEqualTo("US");
+    }
+
+    @Test
+    @DisplayName("最後の成功ログインは全グループの中で最新のものを選ぶ")
+    void testLatestSuccess() {
+        attempt("10.0.0.1", "JP", true, now.minusHours(5));
+        attempt("10.0.0.2", "US", true, now.minusHours(1));
+        attempt("10.0.0.2", "US", false, now.minusMinutes(10));
+
+        RiskFeatureSnapshot features = load("trusted-fp");
+
+        assertThat(features.getLastSuccessCountryCode()).isEqualTo("US");
+        assertThat(features.getLastSuccessAt()).isEqualTo(now.minusHours(1));
+    }
+
+    @Test
+    @DisplayName("未登録デバイス・履歴なしの場合")
+    void testNoHistoryAndUnknownDevice() {
+        // 場所履歴の期間外
+        attempt("10.0.0.1", "JP", true, now.minusDays(40));
+
+        RiskFeatureSnapshot features = load("unknown-fp");
+
+        assertThat(features.isTrustedDevice()).isFalse();
+        assertThat(features.isHasHistory()).isFalse();
+        assertThat(features.getFailedAttempts()).isZero();
+        assertThat(features.getRecentCountries()).isEmpty();
+        assertThat(load(null).isTrustedDevice()).isFalse();
+    }
+
+    @Test
+    @DisplayName("読み込み後のログイン試行・デバイス登録を差分で反映する")
+    void testIncrementalUpdate() {
+        attempt("10.0.0.1", "JP", true, now.minusHours(2));
+        LoginBehaviorProfile profile = loadProfile();
+
+        profile.recordAttempt("10.0.0.9", "DE", false, now.minusMinutes(5));
+        profile.recordAttempt("10.0.0.9", "DE", false, now.minusMinutes(4));
+        profile.addTrustedDevice("new-fp");
+        profile.removeTrustedDevice("trusted-fp");
+
+        RiskFeatureSnapshot features = profile.snapshot("new-fp", now.minusHours(24), now.minusDays(30));
+        assertThat(features.isTrustedDevice()).isTrue();
+        assertThat(features.getFailedAttempts()).isEqualTo(2);
+        assertThat(features.getDistinctIpCount()).isEqualTo(2);
+        assertThat(features.getRecentCountries()).containsExactlyInAnyOrder("JP", "DE");
+        assertThat(features.getLastSuccessCountryCode()).isEqualTo("JP");
+        assertThat(profile.snapshot("trusted-fp", now.minusHours(24), now.minusDays(30)).isTrustedDevice())
+            .isFalse();
+
+        // 時間窓が進むと古い失敗は数えない
+        assertThat(profile.snapshot(null, now.minusMinutes(4).minusSeconds(30), now.minusDays(30))
+            .getFailedAttempts()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("保持期間を過ぎたログイン試行は日次集計に残して削除し、国コードは集計から補う")
+    void testRetentionAndRollup() {
+        attempt("10.0.0.1", "JP", true, now.minusMinutes(1));
+        attempt("10.0.0.2", "FR", false, now.minusDays(10));
+        attempt("10.0.0.3", "FR", true, now.minusDays(10).plusMinutes(1));
+        attempt("10.0.0.4", "DE", false, now.minusDays(20));
+
+        LoginAttemptRetentionConfig config = new LoginAttemptRetentionConfig();
+        config.setRetention(Duration.ofDays(7));
+        config.setBatchSize(1);
+        config.setBatchPause(Duration.ZERO);
+        new LoginAttemptRetentionService(loginAttemptRepository, rollupRepository, config).run(now);
+
+        assertThat(loginAttemptRepository.count()).isEqualTo(1);
+        LoginAttemptDailyRollup rollup = rollupRepository
+            .findByUsernameAndRollupDateGreaterThanEqual("alice", now.minusDays(10).toLocalDate()).stream()
+            .filter(r -> r.getRollupDate().equals(now.minusDays(10).toLocalDate()))
+            .findFirst().orElseThrow();
+        assertThat(rollup.getAttemptCount()).isEqualTo(2);
+        assertThat(rollup.getFailureCount()).isEqualTo(1);
+        assertThat(rollup.getDistinctIpCount()).isEqualTo(2);
+        assertThat(rollup.getCountryCodes()).isEqualTo("FR");
+
+        RiskFeatureSnapshot features = load(null);
+        assertThat(features.getKnownCountries()).containsExactlyInAnyOrder("JP", "FR", "DE");
+        assertThat(features.getRecentCountries()).containsExactly("JP");
+    }
+
+    @Test
+    @DisplayName("存在しないユーザーの場合は空を返す")
+    void testUnknownUser() {
+        Optional<LoginBehaviorProfile> profile = riskFeatureLoader.loadProfile(
+            "nobody", now.minusHours(24), now.minusDays(30), 100);
+
+        assertThat(profile).isEmpty();
+    }
+
+    private LoginBehaviorProfile loadProfile() {
+        return riskFeatureLoader.loadProfile("alice", now.minusHours(24), now.minusDays(30), 100).orElseThrow();
+    }
+
+    private RiskFeatureSnapshot load(String deviceFingerprint) {
+        return loadProfile().snapshot(deviceFingerprint, now.minusHours(24), now.minusDays(30));
+    }
+
+    private void attempt(String ipAddress, String countryCode, boolean successful, LocalDateTime attemptedAt) {
+        LoginAttempt attempt = new LoginAttempt();
+        attempt.setUsername("alice");
+        attempt.setIpAddress(ipAddress);
+        attempt.setCountryCode(countryCode);
+        attempt.setSuccessful(successful);
+        attempt.setAttemptedAt(attemptedAt);
+        loginAttemptRepository.save(attempt);
+    }
+}
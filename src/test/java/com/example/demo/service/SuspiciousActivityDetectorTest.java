@@ -0,0 +1,91 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import com.example.demo.config.AuditLogConfig;
+import com.example.demo.repository.AuditLogRepository;
+
+/**
+ * SuspiciousActivityDetectorのユニットテスト
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SuspiciousActivityDetectorテスト")
+class SuspiciousActivityDetectorTest {
+
+    @Mock
+    private AuditLogRepository auditLogRepository;
+
+    private SuspiciousActivityDetector detector;
+
+    // 通知された詳細
+    private final List<String> detected = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        detector = new SuspiciousActivityDetector(auditLogRepository, new AuditLogConfig());
+    }
+
+    @Test
+    @DisplayName("同一IPからの失敗が閾値に達した時点で一度だけ通知する")
+    void testIpThresholdNotifiesOnce() {
+        for (int i = 0; i < 9; i++) {
+            fail("user" + i, "10.0.0.1");
+        }
+        assertThat(detected).isEmpty();
+
+        fail("user9", "10.0.0.1");
+        assertThat(detected).containsExactly("IPアドレス 10.0.0.1 から 10 回の失敗試行");
+
+        // 時間窓内は再通知しない
+        for (int i = 0; i < 20; i++) {
+            fail("other" + i, "10.0.0.1");
+        }
+        assertThat(detected).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("同一ユーザーへの失敗はIPアドレスが分散していても検出する")
+    void testUsernameThreshold() {
+        for (int i = 0; i < 10; i++) {
+            fail("alice", "10.0.1." + i);
+        }
+
+        assertThat(detected).containsExactly("ユーザー alice に対して 10 回の失敗試行");
+    }
+
+    @Test
+    @DisplayName("起動時にDBの集計からカウンタを初期化する")
+    void testWarmUp() {
+        when(auditLogRepository.countFailedLoginsByIp(any()))
+            .thenReturn(List.of(new Object[] {"10.0.0.1", 9L}, new Object[] {"10.0.0.2", 15L}));
+        when(auditLogRepository.countFailedLoginsByUsername(any())).thenReturn(Collections.emptyList());
+
+        detector.warmUp();
+        assertThat(detected).isEmpty();
+
+        // 9回記録済みのIPは次の失敗で通知
+        fail("bob", "10.0.0.1");
+        assertThat(detected).containsExactly("IPアドレス 10.0.0.1 から 10 回の失敗試行");
+
+        // 閾値を超えていたIPは通知済みとみなす
+        fail("carol", "10.0.0.2");
+        assertThat(detected).hasSize(1);
+    }
+
+    private void fail(String username, String ipAddress) {
+        detector.recordLoginFailure(username, ipAddress, (user, details) -> detected.add(details));
+    }
+}
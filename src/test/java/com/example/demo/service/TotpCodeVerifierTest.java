@@ -0,0 +1,71 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * TotpCodeVerifierのユニットテスト
+ * 期待値は RFC 6238 付録Bのテストベクトル（SHA1、下6桁）
+ */
+@DisplayName("TotpCodeVerifierテスト")
+class TotpCodeVerifierTest {
+
+    // "12345678901234567890" のBase32
+    private static final String SECRET = "GEZDGNBVGY3TQOJQGEZDGNBVGY3TQOJQ";
+
+    private static TotpCodeVerifier verifierAt(long epochSecond) {
+        return new TotpCodeVerifier(Clock.fixed(Instant.ofEpochSecond(epochSecond), ZoneOffset.UTC));
+    }
+
+    @Test
+    @DisplayName("RFC 6238 のテストベクトルと一致する")
+    void testRfcVectors() {
+        assertThat(verifierAt(59).verify("user", SECRET, "287082")).isTrue();
+        assertThat(verifierAt(1111111109).verify("user", SECRET, "081804")).isTrue();
+        assertThat(verifierAt(1234567890).verify("user", SECRET, "005924")).isTrue();
+        assertThat(verifierAt(2000000000).verify("user", SECRET, "279037")).isTrue();
+        // 小文字・パディング付きのシークレット
+        assertThat(verifierAt(59).verify("user", SECRET.toLowerCase() + "====", "287082")).isTrue();
+    }
+
+    @Test
+    @DisplayName("前後1ステップのずれは許容し、それ以上は拒否する")
+    void testWindow() {
+        // 1111111109 は時間ステップ 37037036。前後のステップでも同じコードを受け付ける
+        assertThat(verifierAt(1111111109 + 30).verify("user1", SECRET, "081804")).isTrue();
+        assertThat(verifierAt(1111111109 - 30).verify("user2", SECRET, "081804")).isTrue();
+        assertThat(verifierAt(1111111109 + 90).verify("user3", SECRET, "081804")).isFalse();
+    }
+
+    @Test
+    @DisplayName("受け付けたコードと、それより前の時間ステップのコードは再利用できない")
+    void testReplay() {
+        TotpCodeVerifier verifier = verifierAt(1111111109);
+
+        assertThat(verifier.verify("user", SECRET, "081804")).isTrue();
+        assertThat(verifier.verify("user", SECRET, "081804")).isFalse();
+        // 他のユーザーには影響しない
+        assertThat(verifier.verify("other", SECRET, "081804")).isTrue();
+
+        verifier.evictExpired();
+        assertThat(verifier.verify("user", SECRET, "081804")).isFalse();
+    }
+
+    @Test
+    @DisplayName("形式が正しくないコード・シークレットは拒否する")
+    void testInvalidInput() {
+        TotpCodeVerifier verifier = verifierAt(59);
+
+        assertThat(verifier.verify("user", SECRET, null)).isFalse();
+        assertThat(verifier.verify("user", SECRET, "28708")).isFalse();
+        assertThat(verifier.verify("user", SECRET, "28708a")).isFalse();
+        assertThat(verifier.verify("user", "not-base32!", "287082")).isFalse();
+        assertThat(verifier.verify("user", null, "287082")).isFalse();
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.demo.service;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * TotpServiceのユニットテスト（QRコード画像のキャッシュ）
+ */
+@DisplayName("TotpServiceテスト")
+class TotpServiceTest {
+
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+
+    private TotpService totpService;
+
+    @BeforeEach
+    void setUp() {
+        totpService = new TotpService(mock(TotpCodeVerifier.class));
+        ReflectionTestUtils.setField(totpService, "applicationName", "LoginDemo");
+    }
+
+    @Test
+    @DisplayName("同じユーザー・シークレットのQRコード画像はキャッシュから返すこと")
+    void testQrCodeCacheHit() {
+        String secret = totpService.generateSecret();
+
+        byte[] first = totpService.getQrCodePng("alice", secret);
+        byte[] second = totpService.getQrCodePng("alice", secret);
+
+        assertThat(first).startsWith(PNG_SIGNATURE);
+        assertThat(second).isSameAs(first);
+    }
+
+    @Test
+    @DisplayName("シークレットやユーザーが変わった場合は描画し直すこと")
+    void testQrCodeCacheMissAfterSecretChange() {
+        String secret = totpService.generateSecret();
+        byte[] original = totpService.getQrCodePng("alice", secret);
+
+        byte[] renewed = totpService.getQrCodePng("alice", totpService.generateSecret());
+        byte[] otherUser = totpService.getQrCodePng("bob", secret);
+
+        assertThat(renewed).isNotSameAs(original).isNotEqualTo(original);
+        assertThat(otherUser).isNotSameAs(original).isNotEqualTo(original);
+    }
+
+    @Test
+    @DisplayName("期限切れの削除で有効なキャッシュは消えないこと")
+    void testEvictExpiredKeepsFreshEntries() {
+        String secret = totpService.generateSecret();
+        byte[] png = totpService.getQrCodePng("alice", secret);
+
+        totpService.evictExpiredQrCodes();
+
+        assertThat(totpService.getQrCodePng("alice", secret)).isSameAs(png);
+    }
+}
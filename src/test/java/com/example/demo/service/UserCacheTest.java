@@ -0,0 +1,97 @@
+package com.example.demo.service;
+
+import com.example.demo.config.UserCacheConfig;
+import com.example.demo.entity.User;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * UserCacheのユニットテスト
+ */
+@ExtendWith(MockitoExtension.class)
+@DisplayName("UserCacheテスト")
+class UserCacheTest {
+
+    @Mock
+    private UserRepository userRepository;
+
+    private UserCacheConfig config;
+    private UserCache userCache;
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        config = new UserCacheConfig();
+        userCache = new UserCache(userRepository, config);
+
+        testUser = new User();
+        testUser.setId(1L);
+        testUser.setUsername("testuser");
+        testUser.setPassword("encodedPassword");
+    }
+
+    @Test
+    @DisplayName("2回目以降はDBにアクセスしないこと")
+    void testCachedByUsername() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+
+        assertThat(userCache.getByUsername("testuser")).isPresent();
+        assertThat(userCache.getByUsername("testuser").get().password()).isEqualTo("encodedPassword");
+
+        verify(userRepository, times(1)).findByUsername("testuser");
+    }
+
+    @Test
+    @DisplayName("破棄後はDBから再取得すること")
+    void testEvict() {
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        userCache.getByUsername("testuser");
+
+        testUser.setAccountLocked(true);
+        userCache.evict("testuser");
+
+        assertThat(userCache.getByUsername("testuser").get().accountLocked()).isTrue();
+        verify(userRepository, times(2)).findByUsername("testuser");
+    }
+
+    @Test
+    @DisplayName("DB取得中に破棄された場合は取得した値をキャッシュしないこと")
+    void testEvictDuringLoad() {
+        when(userRepository.findByUsername("testuser")).thenAnswer(invocation -> {
+            userCache.evict("testuser");
+            return Optional.of(testUser);
+        }).thenReturn(Optional.of(testUser));
+
+        userCache.getByUsername("testuser");
+        userCache.getByUsername("testuser");
+
+        verify(userRepository, times(2)).findByUsername("testuser");
+    }
+
+    @Test
+    @DisplayName("有効期限を過ぎた場合と存在しないユーザーはDBから取得すること")
+    void testExpiredAndAbsent() {
+        config.setTtl(Duration.ofSeconds(-1));
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(userRepository.findByUsername("unknown")).thenReturn(Optional.empty());
+
+        userCache.getByUsername("testuser");
+        userCache.getByUsername("testuser");
+        assertThat(userCache.getByUsername("unknown")).isEmpty();
+        assertThat(userCache.getByUsername("unknown")).isEmpty();
+
+        verify(userRepository, times(2)).findByUsername("testuser");
+        verify(userRepository, times(2)).findByUsername("unknown");
+    }
+}
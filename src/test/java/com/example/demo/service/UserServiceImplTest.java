@@ -50,6 +50,12 @@ class UserServiceImplTest {
     @Mock
     private PasswordPolicyConfig passwordPolicyConfig;
 
+    @Mock
+    private UserCache userCache;
+
+    @Mock
+    private LastSeenWriteBuffer lastSeenWriteBuffer;
+
     @InjectMocks
     private UserServiceImpl userService;
 
@@ -113,38 +119,70 @@ class UserServiceImplTest {
     }
 
     @Test
-    @DisplayName("アカウントロックが正しく動作すること")
+    @DisplayName("失敗回数が閾値ちょうどに達したときにロックを記録すること")
     void testAccountLocking() {
         // Given
-        testUser.setFailedLoginAttempts(4); // 次で5回目
-        when(userRepository.findByUsername(anyString())).thenReturn(Optional.of(testUser));
-        when(userRepository.save(any(User.class))).thenReturn(testUser);
+        when(userRepository.incrementFailedLoginAttempts(eq("testuser"), eq(5), any(LocalDateTime.class)))
+            .thenReturn(1);
+        when(userRepository.findFailedLoginAttempts("testuser")).thenReturn(Optional.of(5));
 
         // When
-        userService.handleLoginFailure("testuser");
+        int failedAttempts = userService.handleLoginFailure("testuser");
 
         // Then
-        assertThat(testUser.isAccountLocked()).isTrue();
-        assertThat(testUser.getFailedLoginAttempts()).isEqualTo(5);
-        assertThat(testUser.getLockedAt()).isNotNull();
+        assertThat(failedAttempts).isEqualTo(5);
         verify(auditLogService).logEvent(any(), eq("testuser"), eq(false), contains("連続"));
+        verify(userCache).evict("testuser");
+        verify(userRepository, never()).save(any(User.class));
+    }
+
+    @Test
+    @DisplayName("閾値未満・閾値超過の失敗ではロックを記録しないこと")
+    void testAccountLocking_NotAtThreshold() {
+        // Given
+        when(userRepository.incrementFailedLoginAttempts(eq("testuser"), eq(5), any(LocalDateTime.class)))
+            .thenReturn(1);
+        when(userRepository.findFailedLoginAttempts("testuser"))
+            .thenReturn(Optional.of(4), Optional.of(6));
+
+        // When
+        userService.handleLoginFailure("testuser");
+        userService.handleLoginFailure("testuser");
+
+        // Then
+        verifyNoInteractions(auditLogService, userCache);
     }
 
     @Test
-    @DisplayName("ログイン成功時に失敗回数がリセットされること")
+    @DisplayName("存在しないユーザーの失敗では何も記録しないこと")
+    void testHandleLoginFailure_UnknownUser() {
+        // Given
+        when(userRepository.incrementFailedLoginAttempts(eq("unknown"), eq(5), any(LocalDateTime.class)))
+            .thenReturn(0);
+
+        // When
+        int failedAttempts = userService.handleLoginFailure("unknown");
+
+        // Then
+        assertThat(failedAttempts).isZero();
+        verify(userRepository, never()).findFailedLoginAttempts(any());
+        verifyNoInteractions(auditLogService);
+    }
+
+    @Test
+    @DisplayName("ログイン成功時はエンティティを読まずに失敗回数をリセットし、最終ログイン日時を遅延書き込みすること")
     void testResetFailedAttempts() {
         // Given
-        testUser.setFailedLoginAttempts(3);
-        when(userRepository.findByUsername(anyString())).thenReturn(Optional.of(testUser));
-        when(userRepository.save(any(User.class))).thenReturn(testUser);
+        when(userRepository.resetFailedLoginAttempts(eq("testuser"), any(LocalDateTime.class))).thenReturn(1);
 
         // When
         userService.handleLoginSuccess("testuser");
 
         // Then
-        assertThat(testUser.getFailedLoginAttempts()).isZero();
-        assertThat(testUser.getLastLoginAt()).isNotNull();
-        verify(userRepository).save(testUser);
+        verify(userRepository).resetFailedLoginAttempts(eq("testuser"), any(LocalDateTime.class));
+        verify(lastSeenWriteBuffer).recordUserLogin(eq("testuser"), any(LocalDateTime.class));
+        verify(userRepository, never()).findByUsername(any());
+        verify(userRepository, never()).save(any(User.class));
     }
 
     @Test
@@ -153,6 +191,8 @@ class UserServiceImplTest {
         // Given
         testUser.setAccountLocked(true);
         testUser.setLockedAt(LocalDateTime.now().minusMinutes(31)); // 30分経過
+        when(userCache.getByUsername("testuser"))
+            .thenReturn(Optional.of(UserCache.CachedUser.of(testUser, LocalDateTime.now())));
         when(userRepository.findByUsername(anyString())).thenReturn(Optional.of(testUser));
         when(userRepository.save(any(User.class))).thenReturn(testUser);
 
@@ -164,6 +204,23 @@ class UserServiceImplTest {
         assertThat(testUser.isAccountLocked()).isFalse(); // 自動解除されている
         assertThat(testUser.getFailedLoginAttempts()).isZero();
         verify(auditLogService).logSuccess(any(), eq("testuser"));
+        verify(userCache).evict("testuser");
+    }
+
+    @Test
+    @DisplayName("キャッシュ済みのユーザーはDBにアクセスせずにロードすること")
+    void testLoadUserByUsername_UsesCache() {
+        // Given
+        when(userCache.getByUsername("testuser"))
+            .thenReturn(Optional.of(UserCache.CachedUser.of(testUser, LocalDateTime.now())));
+
+        // When
+        UserDetails result = userService.loadUserByUsername("testuser");
+
+        // Then
+        assertThat(result.getUsername()).isEqualTo("testuser");
+        assertThat(result.getPassword()).isEqualTo("encodedPassword");
+        verifyNoInteractions(userRepository);
     }
 
     @Test
@@ -188,6 +245,27 @@ class UserServiceImplTest {
         assertThat(testUser.getPasswordChangedAt()).isNotNull();
         verify(passwordHistoryService).addPasswordHistory(testUser, "encodedNewPassword");
         verify(auditLogService).logSuccess(any(), eq("testuser"));
+        verify(userCache).evict("testuser");
+    }
+
+    @Test
+    @DisplayName("再ハッシュではパスワードのみ更新し、変更日時・履歴は更新しないこと")
+    void testUpdatePassword() {
+        // Given
+        when(userRepository.findByUsername("testuser")).thenReturn(Optional.of(testUser));
+        when(userRepository.save(any(User.class))).thenReturn(testUser);
+        UserDetails details = org.springframework.security.core.userdetails.User
+            .withUsername("testuser").password("oldHash").roles("USER").build();
+        LocalDateTime passwordChangedAt = testUser.getPasswordChangedAt();
+
+        // When
+        UserDetails result = userService.updatePassword(details, "newHash");
+
+        // Then
+        assertThat(result.getPassword()).isEqualTo("newHash");
+        assertThat(testUser.getPassword()).isEqualTo("newHash");
+        assertThat(testUser.getPasswordChangedAt()).isEqualTo(passwordChangedAt);
+        verifyNoInteractions(passwordHistoryService);
     }
 
     @Test
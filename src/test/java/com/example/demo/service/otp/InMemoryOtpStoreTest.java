@@ -0,0 +1,127 @@
+package com.example.demo.service.otp;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import com.example.demo.config.OtpStoreConfig;
+import com.example.demo.entity.OneTimePassword.OtpPurpose;
+import com.example.demo.entity.User;
+import com.example.demo.exception.RateLimitException;
+
+/**
+ * InMemoryOtpStoreのユニットテスト
+ */
+@DisplayName("InMemoryOtpStoreテスト")
+class InMemoryOtpStoreTest {
+
+    /**
+     * 任意に進められる時計
+     */
+    private static final class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    private MutableClock clock;
+    private OtpStoreConfig config;
+    private InMemoryOtpStore store;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock();
+        config = new OtpStoreConfig();
+        config.setWheelSize(8);
+        store = new InMemoryOtpStore(config, clock);
+        user = new User();
+        user.setId(1L);
+    }
+
+    private LocalDateTime now() {
+        return LocalDateTime.now(clock);
+    }
+
+    @Test
+    @DisplayName("一致したOTPは1回だけ使用でき、再発行で以前のコードは無効になる")
+    void testVerifyAndReissue() {
+        store.save(user, OtpPurpose.LOGIN, "hash-1", now().plusMinutes(5), now());
+        store.save(user, OtpPurpose.LOGIN, "hash-2", now().plusMinutes(5), now());
+
+        assertThat(store.verify(user, OtpPurpose.LOGIN, "hash-1", 5, now())).isFalse();
+        assertThat(store.verify(user, OtpPurpose.PASSWORD_RESET, "hash-2", 5, now())).isFalse();
+        assertThat(store.verify(user, OtpPurpose.LOGIN, "hash-2", 5, now())).isTrue();
+        assertThat(store.verify(user, OtpPurpose.LOGIN, "hash-2", 5, now())).isFalse();
+    }
+
+    @Test
+    @DisplayName("失敗回数が上限に達したOTPは正しいコードでも使用できない")
+    void testMaxAttempts() {
+        store.save(user, OtpPurpose.LOGIN, "hash", now().plusMinutes(5), now());
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(store.verify(user, OtpPurpose.LOGIN, "wrong", 3, now())).isFalse();
+        }
+        assertThat(store.verify(user, OtpPurpose.LOGIN, "hash", 3, now())).isFalse();
+    }
+
+    @Test
+    @DisplayName("期限切れのOTPは使用できず、タイマーホイールで削除される")
+    void testExpiration() {
+        store.save(user, OtpPurpose.LOGIN, "hash", now().plusMinutes(5), now());
+        User other = new User();
+        other.setId(2L);
+        // ホイール1周（8秒）より先の期限
+        store.save(other, OtpPurpose.LOGIN, "hash", now().plusMinutes(10), now());
+
+        clock.advance(Duration.ofMinutes(5));
+        assertThat(store.verify(user, OtpPurpose.LOGIN, "hash", 5, now())).isFalse();
+
+        store.advance();
+        assertThat(store.size()).isEqualTo(1);
+
+        clock.advance(Duration.ofMinutes(5));
+        store.advance();
+        assertThat(store.size()).isZero();
+    }
+
+    @Test
+    @DisplayName("保持件数の上限に達した場合は新しいOTPを発行しない")
+    void testMaxEntries() {
+        config.setMaxEntries(1);
+        store = new InMemoryOtpStore(config, clock);
+        store.save(user, OtpPurpose.LOGIN, "hash", now().plusMinutes(5), now());
+        // 同じユーザー・用途の上書きは可能
+        store.save(user, OtpPurpose.LOGIN, "hash-2", now().plusMinutes(5), now());
+
+        assertThatThrownBy(() -> store.save(user, OtpPurpose.PASSWORD_RESET, "hash", now().plusMinutes(5), now()))
+            .isInstanceOf(RateLimitException.class);
+    }
+}
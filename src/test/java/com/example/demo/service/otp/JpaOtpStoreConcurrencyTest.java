@@ -0,0 +1,148 @@
+package com.example.demo.service.otp;
+
+import com.example.demo.entity.OneTimePassword;
+import com.example.demo.entity.OneTimePassword.OtpPurpose;
+import com.example.demo.entity.User;
+import com.example.demo.repository.OneTimePasswordRepository;
+import com.example.demo.repository.UserRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * DBのOTP保存先の同時実行テスト
+ * 同じユーザー・用途への初回発行が同時に行われても一意キー違反にならず、1件に収まること
+ * 同時に検証されても試行回数の上限を超えて照合されないこと
+ */
+@SpringBootTest
+@ActiveProfiles("test")
+@DisplayName("DBのOTP保存先の同時実行テスト")
+class JpaOtpStoreConcurrencyTest {
+
+    private static final String USERNAME = "concurrent-otp-user";
+    // 呼び出し元と追加用でスレッドごとに接続を2本使うため、接続プールより少なくする
+    private static final int THREADS = 4;
+    private static final int ROUNDS = 20;
+    private static final int MAX_ATTEMPTS = 2;
+
+    @Autowired
+    private JpaOtpStore otpStore;
+
+    @Autowired
+    private OneTimePasswordRepository otpRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        User newUser = new User();
+        newUser.setUsername(USERNAME);
+        newUser.setPassword("encodedPassword");
+        user = userRepository.save(newUser);
+    }
+
+    @AfterEach
+    void tearDown() {
+        otpRepository.findByUserAndPurpose(user, OtpPurpose.LOGIN).ifPresent(otpRepository::delete);
+        userRepository.delete(user);
+    }
+
+    @Test
+    @DisplayName("同時の初回発行がエラーにならず、いずれかのコードで1件に上書きされること")
+    void testConcurrentFirstSave() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                otpRepository.findByUserAndPurpose(user, OtpPurpose.LOGIN).ifPresent(otpRepository::delete);
+
+                CountDownLatch start = new CountDownLatch(1);
+                LocalDateTime now = LocalDateTime.now();
+                List<String> codeHashes = new ArrayList<>();
+                List<Future<?>> results = new ArrayList<>();
+                for (int i = 0; i < THREADS; i++) {
+                    String codeHash = "hash-" + round + "-" + i;
+                    codeHashes.add(codeHash);
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        otpStore.save(user, OtpPurpose.LOGIN, codeHash, now.plusMinutes(5), now);
+                        return null;
+                    }));
+                }
+                start.countDown();
+
+                // 一意キー違反が呼び出し元に伝わらないこと
+                for (Future<?> result : results) {
+                    result.get();
+                }
+
+                OneTimePassword otp = otpRepository.findByUserAndPurpose(user, OtpPurpose.LOGIN).orElseThrow();
+                assertThat(codeHashes).contains(otp.getCodeHash());
+                assertThat(otp.isUsed()).isFalse();
+                assertThat(otp.getAttempts()).isZero();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("同時の誤った検証でも試行回数が上限で止まり、以降は正しいコードでも失敗すること")
+    void testConcurrentVerifyRespectsMaxAttempts() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                LocalDateTime now = LocalDateTime.now();
+                String codeHash = "hash-" + round;
+                otpStore.save(user, OtpPurpose.LOGIN, codeHash, now.plusMinutes(5), now);
+
+                CountDownLatch start = new CountDownLatch(1);
+                List<Future<Boolean>> results = new ArrayList<>();
+                for (int i = 0; i < THREADS; i++) {
+                    String guess = "wrong-" + round + "-" + i;
+                    results.add(executor.submit(() -> {
+                        start.await();
+                        return otpStore.verify(user, OtpPurpose.LOGIN, guess, MAX_ATTEMPTS, now);
+                    }));
+                }
+                start.countDown();
+                for (Future<Boolean> result : results) {
+                    assertThat(result.get()).isFalse();
+                }
+
+                OneTimePassword otp = otpRepository.findByUserAndPurpose(user, OtpPurpose.LOGIN).orElseThrow();
+                assertThat(otp.getAttempts()).isEqualTo(MAX_ATTEMPTS);
+                assertThat(otpStore.verify(user, OtpPurpose.LOGIN, codeHash, MAX_ATTEMPTS, now)).isFalse();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("上限に達する前の正しいコードは一度だけ成功すること")
+    void testVerifySucceedsOnceWithinMaxAttempts() {
+        LocalDateTime now = LocalDateTime.now();
+        otpStore.save(user, OtpPurpose.LOGIN, "hash", now.plusMinutes(5), now);
+
+        assertThat(otpStore.verify(user, OtpPurpose.LOGIN, "wrong", MAX_ATTEMPTS, now)).isFalse();
+        assertThat(otpStore.verify(user, OtpPurpose.LOGIN, "hash", MAX_ATTEMPTS, now)).isTrue();
+        assertThat(otpStore.verify(user, OtpPurpose.LOGIN, "hash", MAX_ATTEMPTS, now)).isFalse();
+    }
+}
@@ -0,0 +1,179 @@
+package com.example.demo.service.ratelimit;
+
+import static org.assertj.core.api.Assertions.*;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * StripedRateLimiterのユニットテスト
+ * 時刻は引数で与えるため System.nanoTime() に依存しない
+ */
+@DisplayName("StripedRateLimiterテスト")
+class StripedRateLimiterTest {
+
+    private static final Duration WINDOW = Duration.ofMinutes(1);
+    private static final Duration BLOCK = Duration.ofMinutes(5);
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+    private static final String TEST_KEY = "192.0.2.1";
+
+    @Test
+    @DisplayName("トークンバケット: バースト分を許可し、回復間隔で再び許可されること")
+    void testTokenBucket() {
+        StripedRateLimiter limiter = StripedRateLimiter.create(
+            RateLimitAlgorithm.TOKEN_BUCKET, 5, WINDOW, Duration.ZERO, 4, 100, null);
+        long now = 1_000 * SECOND;
+
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire(TEST_KEY, now)).isZero();
+        }
+        long wait = limiter.tryAcquire(TEST_KEY, now);
+        assertThat(wait).isEqualTo(12 * SECOND);
+
+        assertThat(limiter.tryAcquire(TEST_KEY, now + wait)).isZero();
+        assertThat(limiter.tryAcquire(TEST_KEY, now + wait)).isPositive();
+    }
+
+    @Test
+    @DisplayName("スライディングウィンドウ（カウンター）: 直前の窓の件数が重み付けされること")
+    void testSlidingWindowCounter() {
+        StripedRateLimiter limiter = StripedRateLimiter.create(
+            RateLimitAlgorithm.SLIDING_WINDOW_COUNTER, 4, WINDOW, Duration.ZERO, 4, 100, null);
+        long now = 0;
+
+        for (int i = 0; i < 4; i++) {
+            assertThat(limiter.tryAcquire(TEST_KEY, now)).isZero();
+        }
+        assertThat(limiter.tryAcquire(TEST_KEY, now)).isEqualTo(60 * SECOND);
+
+        // 次の窓の半分経過時点: 直前4件 × 0.5 = 2件とみなされる
+        long halfway = now + 90 * SECOND;
+        assertThat(limiter.tryAcquire(TEST_KEY, halfway)).isZero();
+        assertThat(limiter.tryAcquire(TEST_KEY, halfway)).isZero();
+        assertThat(limiter.tryAcquire(TEST_KEY, halfway)).isPositive();
+    }
+
+    @Test
+    @DisplayName("スライディングウィンドウ（ログ）: 最古の記録が窓から外れるまで拒否されること")
+    void testSlidingWindowLog() {
+        StripedRateLimiter limiter = StripedRateLimiter.create(
+            RateLimitAlgorithm.SLIDING_WINDOW_LOG, 3, WINDOW, Duration.ZERO, 4, 100, null);
+
+        assertThat(limiter.tryAcquire(TEST_KEY, 0)).isZero();
+        assertThat(limiter.tryAcquire(TEST_KEY, 10 * SECOND)).isZero();
+        assertThat(limiter.tryAcquire(TEST_KEY, 20 * SECOND)).isZero();
+        assertThat(limiter.tryAcquire(TEST_KEY, 30 * SECOND)).isEqualTo(30 * SECOND);
+
+        assertThat(limiter.tryAcquire(TEST_KEY, 60 * SECOND)).isZero();
+        assertThat(limiter.tryAcquire(TEST_KEY, 60 * SECOND)).isEqualTo(10 * SECOND);
+    }
+
+    @Test
+    @DisplayName("制限超過でブロックされ、通知は一度だけ行われること")
+    void testBlockListenerCalledOnce() {
+        List<String> blockedKeys = new ArrayList<>();
+        StripedRateLimiter limiter = StripedRateLimiter.create(
+            RateLimitAlgorithm.SLIDING_WINDOW_COUNTER, 2, WINDOW, BLOCK, 4, 100,
+            (key, blockNanos) -> blockedKeys.add(key));
+
+        assertThat(limiter.tryAcquire(TEST_KEY, 0)).isZero();
+        assertThat(limiter.tryAcquire(TEST_KEY, 0)).isZero();
+        assertThat(limiter.tryAcquire(TEST_KEY, 0)).isEqualTo(BLOCK.toNanos());
+        assertThat(limiter.tryAcquire(TEST_KEY, 60 * SECOND)).isEqualTo(BLOCK.toNanos() - 60 * SECOND);
+        assertThat(blockedKeys).containsExactly(TEST_KEY);
+
+        // ブロック解除後は状態が初期化される
+        assertThat(limiter.tryAcquire(TEST_KEY, BLOCK.toNanos())).isZero();
+    }
+
+    @Test
+    @DisplayName("キーごとに独立して制限されること")
+    void testKeysAreIndependent() {
+        StripedRateLimiter limiter = StripedRateLimiter.create(
+            RateLimitAlgorithm.SLIDING_WINDOW_LOG, 1, WINDOW, Duration.ZERO, 4, 100, null);
+
+        assertThat(limiter.tryAcquire("a", 0)).isZero();
+        assertThat(limiter.tryAcquire("b", 0)).isZero();
+        assertThat(limiter.tryAcquire("a", 0)).isPositive();
+        assertThat(limiter.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("保持キー数が上限を超えないこと")
+    void testMaxKeysIsBounded() {
+        StripedRateLimiter limiter = StripedRateLimiter.create(
+            RateLimitAlgorithm.TOKEN_BUCKET, 5, WINDOW, BLOCK, 4, 64, null);
+
+        for (int i = 0; i < 10_000; i++) {
+            limiter.tryAcquire("key-" + i, i);
+        }
+
+        assertThat(limiter.size()).isLessThanOrEqualTo(64);
+        // 直近のキーは保持されている
+        assertThat(limiter.tryAcquire("key-9999", 10_000)).isZero();
+    }
+
+    @Test
+    @DisplayName("上限到達後に新しいキーが続いても、使われ続けているキーとブロック中のキーは保持されること")
+    void testEvictionKeepsActiveAndBlockedKeys() {
+        StripedRateLimiter limiter = StripedRateLimiter.create(
+            RateLimitAlgorithm.SLIDING_WINDOW_LOG, 1, WINDOW, BLOCK, 1, 8, null);
+
+        assertThat(limiter.tryAcquire("blocked", 0)).isZero();
+        assertThat(limiter.tryAcquire("blocked", 0)).isEqualTo(BLOCK.toNanos());
+        for (int i = 1; i <= 10_000; i++) {
+            limiter.tryAcquire("hot", i);
+            limiter.tryAcquire("spray-" + i, i);
+        }
+
+        assertThat(limiter.size()).isEqualTo(8);
+        // どちらも追い出されていれば新規キーとして許可されてしまう
+        assertThat(limiter.tryAcquire("hot", 10_001)).isPositive();
+        assertThat(limiter.tryAcquire("blocked", 10_001)).isEqualTo(BLOCK.toNanos() - 10_001);
+    }
+
+    @Test
+    @DisplayName("上限到達時は期限切れのキーから追い出されること")
+    void testEvictionPrefersExpiredKeys() {
+        StripedRateLimiter limiter = StripedRateLimiter.create(
+            RateLimitAlgorithm.SLIDING_WINDOW_LOG, 1, WINDOW, Duration.ZERO, 1, 8, null);
+
+        limiter.tryAcquire("stale", 0);
+        for (int i = 0; i < 7; i++) {
+            limiter.tryAcquire("recent-" + i, 50 * SECOND);
+        }
+        limiter.tryAcquire("new", 70 * SECOND);
+
+        assertThat(limiter.size()).isEqualTo(8);
+        for (int i = 0; i < 7; i++) {
+            assertThat(limiter.tryAcquire("recent-" + i, 70 * SECOND)).isPositive();
+        }
+    }
+
+    @Test
+    @DisplayName("期限切れのキーが削除され、残りのキーは引き続き参照できること")
+    void testEvictExpired() {
+        StripedRateLimiter limiter = StripedRateLimiter.create(
+            RateLimitAlgorithm.SLIDING_WINDOW_LOG, 1, WINDOW, Duration.ZERO, 1, 1000, null);
+
+        for (int i = 0; i < 200; i++) {
+            limiter.tryAcquire("old-" + i, 0);
+        }
+        for (int i = 0; i < 50; i++) {
+            limiter.tryAcquire("new-" + i, 50 * SECOND);
+        }
+
+        int evicted = limiter.evictExpired(70 * SECOND);
+
+        assertThat(evicted).isEqualTo(200);
+        assertThat(limiter.size()).isEqualTo(50);
+        for (int i = 0; i < 50; i++) {
+            assertThat(limiter.tryAcquire("new-" + i, 70 * SECOND)).isPositive();
+        }
+    }
+}